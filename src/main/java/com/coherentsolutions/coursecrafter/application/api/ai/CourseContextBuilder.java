@@ -0,0 +1,251 @@
+package com.coherentsolutions.coursecrafter.application.api.ai;
+
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentTreeNode;
+import com.coherentsolutions.coursecrafter.domain.content.service.ContentEmbeddingService;
+import com.coherentsolutions.coursecrafter.domain.content.service.ContentHierarchyService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the course outline (with slide IDs) that goes into the analysis prompt.
+ * <p>
+ * The outline is rendered once per cached course tree and split into per-section blocks with
+ * their token counts. A new tree snapshot (any write to the course) re-renders it.
+ * <p>
+ * When the vector store returns nodes close to the incoming content, those nodes are listed
+ * first and only the sections containing them are kept in full. Without retrieval results the
+ * whole outline is used if it fits the token budget; otherwise the sections sharing the most
+ * terms with the content are kept in full. Other sections are reduced to their heading line.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CourseContextBuilder {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}][\\p{L}\\p{N}+#-]{2,}");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "the", "and", "for", "with", "that", "this", "from", "are", "was", "were", "you", "your",
+            "can", "will", "have", "has", "not", "but", "all", "any", "into", "how", "what", "when",
+            "why", "who", "which", "about", "more", "use", "using", "used", "their", "they", "them",
+            "its", "our", "also", "than", "then", "there", "these", "those", "each", "other", "such",
+            "slide", "script", "visual", "notes", "demonstration", "seq");
+    // A title term counts this many times more than a term that only occurs in slide text
+    private static final int TITLE_WEIGHT = 3;
+
+    private final ContentHierarchyService hierarchyService;
+    private final ContentEmbeddingService contentEmbeddingService;
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+    private final Map<String, RenderedOutline> outlines = new ConcurrentHashMap<>();
+
+    // Upper bound on the outline part of the prompt; 0 disables pruning
+    @Value("${coursecrafter.ai.context.max-outline-tokens:12000}")
+    private int maxOutlineTokens;
+
+    /**
+     * Detailed outline of the course, pruned to the sections relevant to the content if it
+     * exceeds the configured token budget
+     */
+    public String buildCourseContext(String courseName, String incomingContent) {
+        ContentTreeNode course = hierarchyService.findCourseTree(courseName);
+        if (course == null) {
+            return "# Course: " + courseName + "\n\n";
+        }
+
+        RenderedOutline outline = outlines.compute(courseName, (name, cached) ->
+                cached != null && cached.tree() == course ? cached : render(name, course));
+
+        List<ContentEmbeddingService.RelevantNode> relevant =
+                contentEmbeddingService.findRelevant(incomingContent, course.getNode().id());
+        if (relevant.isEmpty() && (maxOutlineTokens <= 0 || outline.totalTokens() <= maxOutlineTokens)) {
+            return outline.fullText();
+        }
+        String pruned = prune(outline, incomingContent, relevant);
+        log.info("Course outline for '{}' reduced from ~{} tokens to ~{} tokens ({} retrieved nodes, budget {})",
+                courseName, outline.totalTokens(), tokenCountEstimator.estimate(pruned), relevant.size(), maxOutlineTokens);
+        return pruned;
+    }
+
+    RenderedOutline render(String courseName, ContentTreeNode course) {
+        String header = "# Course: " + courseName + "\n\n";
+        List<String> lectureHeadings = new ArrayList<>();
+        List<SectionBlock> sections = new ArrayList<>();
+        StringBuilder full = new StringBuilder(header);
+
+        for (ContentTreeNode lecture : course.getChildren()) {
+            StringBuilder lectureHeading = new StringBuilder();
+            hierarchyService.appendDetailedLectureHeading(lectureHeading, lecture);
+            full.append(lectureHeading);
+            lectureHeadings.add(lectureHeading.toString());
+
+            for (ContentTreeNode section : lecture.getChildren()) {
+                StringBuilder text = new StringBuilder();
+                hierarchyService.appendDetailedSection(text, section, false);
+                full.append(text);
+
+                String headingLine = text.substring(0, text.indexOf("\n") + 1) + "\n";
+                Set<Long> nodeIds = new HashSet<>();
+                Set<String> titleTerms = new HashSet<>();
+                Set<String> bodyTerms = new HashSet<>();
+                collectTerms(section, nodeIds, titleTerms, bodyTerms);
+                sections.add(new SectionBlock(lectureHeadings.size() - 1, text.toString(), headingLine,
+                        tokenCountEstimator.estimate(text.toString()), tokenCountEstimator.estimate(headingLine),
+                        nodeIds, titleTerms, bodyTerms));
+            }
+        }
+
+        // Terms found in many sections say little about where new content belongs
+        Map<String, Integer> sectionFrequency = new HashMap<>();
+        for (SectionBlock section : sections) {
+            Set<String> sectionTerms = new HashSet<>(section.titleTerms());
+            sectionTerms.addAll(section.bodyTerms());
+            sectionTerms.forEach(term -> sectionFrequency.merge(term, 1, Integer::sum));
+        }
+
+        String fullText = full.toString();
+        return new RenderedOutline(course, header, fullText, tokenCountEstimator.estimate(fullText),
+                lectureHeadings, sections, sectionFrequency);
+    }
+
+    String prune(RenderedOutline outline, String incomingContent, List<ContentEmbeddingService.RelevantNode> relevant) {
+        double[] scores = new double[outline.sections().size()];
+        if (!relevant.isEmpty()) {
+            // Retrieved nodes decide which sections are shown in full
+            for (ContentEmbeddingService.RelevantNode node : relevant) {
+                for (int i = 0; i < scores.length; i++) {
+                    if (outline.sections().get(i).nodeIds().contains(node.nodeId())) {
+                        scores[i] += node.score();
+                    }
+                }
+            }
+        } else {
+            Set<String> contentTerms = terms(incomingContent);
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = outline.score(outline.sections().get(i), contentTerms);
+            }
+        }
+        String relevantList = renderRelevant(relevant);
+        int budget = maxOutlineTokens > 0 ? maxOutlineTokens : Integer.MAX_VALUE;
+
+        // Every section keeps at least its heading; the rest of the budget goes to full sections by score
+        int used = tokenCountEstimator.estimate(outline.header()) + tokenCountEstimator.estimate(relevantList)
+                + 100; // headroom for the pruning note
+        for (String lectureHeading : outline.lectureHeadings()) {
+            used += tokenCountEstimator.estimate(lectureHeading);
+        }
+        for (SectionBlock section : outline.sections()) {
+            used += section.headingTokens();
+        }
+
+        boolean[] expanded = new boolean[scores.length];
+        List<Integer> byScore = new ArrayList<>();
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] > 0) {
+                byScore.add(i);
+            }
+        }
+        byScore.sort(Comparator.comparingDouble((Integer i) -> scores[i]).reversed());
+        for (int i : byScore) {
+            SectionBlock section = outline.sections().get(i);
+            int extra = section.tokens() - section.headingTokens();
+            if (used + extra <= budget) {
+                expanded[i] = true;
+                used += extra;
+            }
+        }
+
+        StringBuilder builder = new StringBuilder(outline.header());
+        builder.append(relevantList);
+        builder.append("_Outline shortened: sections unrelated to the new content are listed " +
+                "by heading only. Do not target slides in those sections._\n\n");
+        int next = 0;
+        for (int lecture = 0; lecture < outline.lectureHeadings().size(); lecture++) {
+            builder.append(outline.lectureHeadings().get(lecture));
+            for (; next < scores.length && outline.sections().get(next).lectureIndex() == lecture; next++) {
+                SectionBlock section = outline.sections().get(next);
+                builder.append(expanded[next] ? section.text() : section.headingLine());
+            }
+        }
+        return builder.toString();
+    }
+
+    private String renderRelevant(List<ContentEmbeddingService.RelevantNode> relevant) {
+        if (relevant.isEmpty()) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder("## Existing nodes most similar to the new content\n\n");
+        for (ContentEmbeddingService.RelevantNode node : relevant) {
+            builder.append("- ").append(node.nodeType()).append(' ').append(node.nodeNumber())
+                    .append(" (ID: ").append(node.nodeId()).append("): ").append(node.title())
+                    .append(String.format(Locale.ROOT, " [similarity %.2f]", node.score())).append('\n');
+        }
+        return builder.append('\n').toString();
+    }
+
+    private void collectTerms(ContentTreeNode treeNode, Set<Long> nodeIds, Set<String> titleTerms, Set<String> bodyTerms) {
+        ContentTreeNode.Node node = treeNode.getNode();
+        nodeIds.add(node.id());
+        titleTerms.addAll(terms(node.title()));
+        if (node.nodeType() == ContentNode.NodeType.SLIDE) {
+            bodyTerms.addAll(terms(node.markdownContent()));
+        }
+        for (ContentTreeNode child : treeNode.getChildren()) {
+            collectTerms(child, nodeIds, titleTerms, bodyTerms);
+        }
+    }
+
+    static Set<String> terms(String text) {
+        Set<String> terms = new HashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        Matcher matcher = WORD.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            String term = matcher.group();
+            if (!STOP_WORDS.contains(term)) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    record RenderedOutline(ContentTreeNode tree, String header, String fullText, int totalTokens,
+                           List<String> lectureHeadings, List<SectionBlock> sections,
+                           Map<String, Integer> sectionFrequency) {
+
+        /**
+         * Shared terms weighted by inverse section frequency; title matches count TITLE_WEIGHT times
+         */
+        double score(SectionBlock section, Set<String> contentTerms) {
+            double score = 0;
+            for (String term : contentTerms) {
+                int weight = section.titleTerms().contains(term) ? TITLE_WEIGHT
+                        : section.bodyTerms().contains(term) ? 1 : 0;
+                if (weight > 0) {
+                    score += weight * Math.log(1.0 + (double) sections.size() / sectionFrequency.get(term));
+                }
+            }
+            return score;
+        }
+    }
+
+    record SectionBlock(int lectureIndex, String text, String headingLine, int tokens, int headingTokens,
+                        Set<Long> nodeIds, Set<String> titleTerms, Set<String> bodyTerms) {
+    }
+}
@@ -5,18 +5,26 @@ import com.coherentsolutions.coursecrafter.domain.content.repository.ContentNode
 import com.coherentsolutions.coursecrafter.presentation.dto.ai.AiProposalDto;
 import com.coherentsolutions.coursecrafter.presentation.dto.ai.AiProposalListDto;
 import com.coherentsolutions.coursecrafter.domain.content.service.ContentHierarchyService;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 @Service
@@ -24,6 +32,7 @@ import java.util.List;
 public class EnhancedAnalyzerService {
 
     private final ContentHierarchyService hierarchyService;
+    private final CourseContextBuilder courseContextBuilder;
     private final ContentNodeRepository contentNodeRepository; // Assuming this is used, if not, can be removed
     private final ChatClient chatClient;
     private final ObjectMapper objectMapper = new ObjectMapper();
@@ -37,13 +46,94 @@ public class EnhancedAnalyzerService {
         log.info("analyzeContentForCourse called for course: '{}', cleanedContent length: {} characters",
                 courseName, cleanedContent.length());
 
-        // 1. Get detailed course structure including DB IDs for the AI context
-        String courseContextWithIds = hierarchyService.generateDetailedOutlineContext(courseName); // Ensure this method includes "(ID: X)"
+        CoursePrompts prompts = buildCoursePrompts(courseName, cleanedContent);
+        long startTime = System.currentTimeMillis();
+
+        var response = chatClient.prompt()
+                .system(prompts.system())
+                .user(prompts.user())
+                .advisors(advisor -> advisor.param(LlmResponseCacheAdvisor.COURSE_VERSION,
+                        hierarchyService.courseVersion(courseName)))
+                .call();
+        long endTime = System.currentTimeMillis();
+
+        log.info("AI response received in {} ms", endTime - startTime);
+
+        List<AiProposalDto> proposals = null;
+        try {
+            String jsonResponse = response.content();
+            log.debug("Raw AI JSON response (first 500 chars): {}",
+                    jsonResponse.length() > 500 ? jsonResponse.substring(0, 500) + "..." : jsonResponse);
+
+            saveResponseToFile(jsonResponse, "ai_proposals_for_" + courseName.replaceAll("[^a-zA-Z0-9.-]", "_") +
+                    "_" + System.currentTimeMillis() + ".json");
+
+            try {
+                log.debug("Attempting to parse AI response as AiProposalListDto (e.g., {\"proposals\": [...]})...");
+                AiProposalListDto proposalList = objectMapper.readValue(jsonResponse, AiProposalListDto.class);
+                proposals = proposalList.proposals();
+                log.info("Successfully parsed AI response as AiProposalListDto, found {} proposals.", proposals.size());
+            } catch (Exception e) {
+                log.warn("Failed to parse AI response as AiProposalListDto: {}. Attempting to parse as direct List<AiProposalDto> (e.g., [...])...", e.getMessage());
+                proposals = objectMapper.readValue(jsonResponse, new TypeReference<List<AiProposalDto>>() {});
+                log.info("Successfully parsed AI response as direct List<AiProposalDto>, found {} proposals.", proposals.size());
+            }
+
+            if (proposals != null) {
+                logProposalsDetails(proposals);
+            } else {
+                log.warn("AI response parsed, but 'proposals' list is null. Defaulting to empty list.");
+                proposals = List.of();
+            }
+
+        } catch (Exception e) {
+            log.error("FATAL: Failed to parse AI suggestions JSON: {}. Raw response was: {}", e.getMessage(), response.content().substring(0, Math.min(1000,response.content().length() )));
+            proposals = List.of(); // Return empty list on fatal parsing error
+            // Depending on desired behavior, you might rethrow a custom exception
+            // throw new AiProposalParsingException("Failed to parse AI suggestions", e);
+        }
+        return proposals;
+    }
+
+    /**
+     * Streams the same analysis as {@link #analyzeContentForCourse}: proposals are emitted one by
+     * one as their JSON objects complete in the model output, so callers can start working on the
+     * first proposal while the rest is still being generated
+     */
+    public Flux<AiProposalDto> streamContentForCourse(String courseName, String cleanedContent) {
+        return Flux.defer(() -> {
+            CoursePrompts prompts = buildCoursePrompts(courseName, cleanedContent);
+            ProposalStreamParser parser = new ProposalStreamParser(objectMapper);
+            long startTime = System.currentTimeMillis();
+
+            return chatClient.prompt()
+                    .system(prompts.system())
+                    .user(prompts.user())
+                    .stream()
+                    .content()
+                    .concatMapIterable(parser::feed)
+                    .doOnComplete(() -> {
+                        if (!parser.isComplete()) {
+                            log.warn("Streamed AI response for course '{}' ended before the proposal array was closed",
+                                    courseName);
+                        }
+                        log.info("Streamed {} proposals ({} skipped) in {} ms", parser.emitted(), parser.skipped(),
+                                System.currentTimeMillis() - startTime);
+                    });
+        });
+    }
+
+    private record CoursePrompts(String system, String user) {
+    }
+
+    private CoursePrompts buildCoursePrompts(String courseName, String cleanedContent) {
+        // Get detailed course structure including DB IDs for the AI context, within the token budget
+        String courseContextWithIds = courseContextBuilder.buildCourseContext(courseName, cleanedContent);
         log.debug("Course context with IDs length: {} characters. Preview (first 300): {}",
                 courseContextWithIds.length(),
                 courseContextWithIds.substring(0, Math.min(300, courseContextWithIds.length())).replace("\n", "\\n"));
 
-        // 2. Construct the System Prompt for the AI
+        // Construct the System Prompt for the AI
         // Fetch the course root ID for fallback parentNodeId suggestions by AI
         Long courseRootId = contentNodeRepository.findByNodeType(ContentNode.NodeType.COURSE)
                 .stream()
@@ -125,58 +215,7 @@ public class EnhancedAnalyzerService {
                     cleanedContent.length() > 500 ? cleanedContent.substring(0, 500) + "..." : cleanedContent);
         }
 
-
-        long startTime = System.currentTimeMillis();
-
-        log.debug("User prompt for AI (content part length {}). Course context length: {}",
-                cleanedContent.length(), courseContextWithIds.length());
-
-        if (log.isTraceEnabled()) { // Or use debug if you want it more often initially
-            log.trace("Full Course Context with IDs sent to AI for course '{}':\n{}", courseName, courseContextWithIds);
-        }
-
-        var response = chatClient.prompt()
-                .system(systemPrompt)
-                .user(userPrompt)
-                .call();
-        long endTime = System.currentTimeMillis();
-
-        log.info("AI response received in {} ms", endTime - startTime);
-
-        List<AiProposalDto> proposals = null;
-        try {
-            String jsonResponse = response.content();
-            log.debug("Raw AI JSON response (first 500 chars): {}",
-                    jsonResponse.length() > 500 ? jsonResponse.substring(0, 500) + "..." : jsonResponse);
-
-            saveResponseToFile(jsonResponse, "ai_proposals_for_" + courseName.replaceAll("[^a-zA-Z0-9.-]", "_") +
-                    "_" + System.currentTimeMillis() + ".json");
-
-            try {
-                log.debug("Attempting to parse AI response as AiProposalListDto (e.g., {\"proposals\": [...]})...");
-                AiProposalListDto proposalList = objectMapper.readValue(jsonResponse, AiProposalListDto.class);
-                proposals = proposalList.proposals();
-                log.info("Successfully parsed AI response as AiProposalListDto, found {} proposals.", proposals.size());
-            } catch (Exception e) {
-                log.warn("Failed to parse AI response as AiProposalListDto: {}. Attempting to parse as direct List<AiProposalDto> (e.g., [...])...", e.getMessage());
-                proposals = objectMapper.readValue(jsonResponse, new TypeReference<List<AiProposalDto>>() {});
-                log.info("Successfully parsed AI response as direct List<AiProposalDto>, found {} proposals.", proposals.size());
-            }
-
-            if (proposals != null) {
-                logProposalsDetails(proposals);
-            } else {
-                log.warn("AI response parsed, but 'proposals' list is null. Defaulting to empty list.");
-                proposals = List.of();
-            }
-
-        } catch (Exception e) {
-            log.error("FATAL: Failed to parse AI suggestions JSON: {}. Raw response was: {}", e.getMessage(), response.content().substring(0, Math.min(1000,response.content().length() )));
-            proposals = List.of(); // Return empty list on fatal parsing error
-            // Depending on desired behavior, you might rethrow a custom exception
-            // throw new AiProposalParsingException("Failed to parse AI suggestions", e);
-        }
-        return proposals;
+        return new CoursePrompts(systemPrompt, userPrompt);
     }
 
     /**
@@ -247,8 +286,7 @@ public class EnhancedAnalyzerService {
     public AiProposalDto refineProposal(AiProposalDto proposalToRefine, String existingTargetMarkdownContent) {
         log.debug("Refining proposal for title: '{}', action: {}", proposalToRefine.title(), proposalToRefine.action());
 
-        String contentToRefine = "SLIDE".equals(proposalToRefine.nodeType()) ?
-                proposalToRefine.slideContentShouldBe() : proposalToRefine.content();
+        String contentToRefine = contentToRefine(proposalToRefine);
 
         if (contentToRefine == null || contentToRefine.isBlank()) {
             log.warn("No content found in proposal to refine for title: '{}'. Returning original.", proposalToRefine.title());
@@ -291,44 +329,124 @@ public class EnhancedAnalyzerService {
                         existingTargetMarkdownContent != null ? existingTargetMarkdownContent : "N/A (This is a new content addition or no existing content provided)",
                         contentToRefine
                 ))
+                // Refinements run in bulk; interactive calls go first when the model is saturated
+                .advisors(advisor -> advisor.param(LlmRateLimitAdvisor.PRIORITY, LlmRateLimiter.Priority.BATCH))
                 .call();
 
-        String refinedMarkdown = refinementResponse.content();
+        String refinedMarkdown = stripMarkdownFence(refinementResponse.content());
+        log.debug("Refined content length for '{}': {}", proposalToRefine.title(), refinedMarkdown.length());
+        return withRefinedContent(proposalToRefine, refinedMarkdown);
+    }
 
-        // Clean common AI wrappings
-        refinedMarkdown = refinedMarkdown.trim();
-        if (refinedMarkdown.startsWith("```markdown")) {
-            refinedMarkdown = refinedMarkdown.substring("```markdown".length());
-        } else if (refinedMarkdown.startsWith("```")) {
-            refinedMarkdown = refinedMarkdown.substring("```".length());
+    /**
+     * Refines several proposals with one call: the proposals go out as a JSON array and the model
+     * answers with the refined Markdown per id. Returns the refined proposals by their index in the
+     * input; proposals whose answer is missing, duplicated or empty are left out, so the caller can
+     * refine them one by one instead.
+     */
+    public Map<Integer, AiProposalDto> refineProposals(List<AiProposalDto> proposalsToRefine) {
+        ArrayNode items = objectMapper.createArrayNode();
+        for (int index = 0; index < proposalsToRefine.size(); index++) {
+            AiProposalDto proposal = proposalsToRefine.get(index);
+            items.addObject()
+                    .put("id", index)
+                    .put("action", proposal.action())
+                    .put("title", proposal.title())
+                    .put("nodeType", proposal.nodeType())
+                    .put("rationale", proposal.rationale())
+                    .put("content", contentToRefine(proposal));
         }
-        if (refinedMarkdown.endsWith("```")) {
-            refinedMarkdown = refinedMarkdown.substring(0, refinedMarkdown.length() - "```".length());
+
+        String response = chatClient.prompt()
+                .system("""
+                    You are CourseCrafter AI, an expert in educational content creation and refinement.
+                    You will be given a JSON array of proposed Markdown content for a course, one item per
+                    proposal. Refine the "content" of every item.
+                    Refinement includes:
+                    1. Ensuring consistent terminology and style with typical educational material.
+                    2. Checking for appropriate length and depth for the likely context (e.g., a slide component).
+                    3. Improving flow and readability.
+                    4. Adhering to Markdown best practices.
+                    If an item's content is already good, return it as is. Refine each item on its own;
+                    never move content between items.
+                    Return ONLY a JSON array with one object per input item, in any order:
+                    [{"id": <id of the input item>, "refinedContent": "<refined Markdown>"}]
+                    """)
+                .user("# PROPOSALS TO REFINE\n" + items.toPrettyString())
+                .advisors(advisor -> advisor.param(LlmRateLimitAdvisor.PRIORITY, LlmRateLimiter.Priority.BATCH))
+                .call()
+                .content();
+
+        Map<Integer, AiProposalDto> refined = new HashMap<>();
+        Set<Integer> duplicates = new HashSet<>();
+        try {
+            JsonNode answers = objectMapper.readTree(stripMarkdownFence(response));
+            if (!answers.isArray()) {
+                log.warn("Batched refinement answer is not a JSON array; refining {} proposals one by one",
+                        proposalsToRefine.size());
+                return Map.of();
+            }
+            for (JsonNode answer : answers) {
+                JsonNode id = answer.get("id");
+                JsonNode content = answer.get("refinedContent");
+                if (id == null || !id.canConvertToInt() || content == null || !content.isTextual()) {
+                    continue;
+                }
+                int index = id.asInt();
+                String refinedMarkdown = stripMarkdownFence(content.asText());
+                if (index < 0 || index >= proposalsToRefine.size() || refinedMarkdown.isBlank()) {
+                    continue;
+                }
+                if (refined.put(index, withRefinedContent(proposalsToRefine.get(index), refinedMarkdown)) != null) {
+                    duplicates.add(index);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("Could not parse batched refinement answer, refining {} proposals one by one: {}",
+                    proposalsToRefine.size(), e.getOriginalMessage());
+            return Map.of();
         }
-        refinedMarkdown = refinedMarkdown.trim();
+        // Two answers for one item means the model lost track of the ids; trust neither
+        duplicates.forEach(refined::remove);
 
-        log.debug("Refined content length for '{}': {}", proposalToRefine.title(), refinedMarkdown.length());
+        log.debug("Batched refinement returned {}/{} valid proposals", refined.size(), proposalsToRefine.size());
+        return refined;
+    }
 
-        // Create a new DTO with the refined content, keeping other fields the same.
-        if ("SLIDE".equals(proposalToRefine.nodeType())) {
-            return new AiProposalDto(
-                    proposalToRefine.targetNodeId(), proposalToRefine.parentNodeId(), proposalToRefine.nodeType(),
-                    proposalToRefine.action(), proposalToRefine.title(), proposalToRefine.nodeNumber(),
-                    refinedMarkdown, // refined slideContentShouldBe
-                    proposalToRefine.rationale(), proposalToRefine.displayOrder(),
-                    proposalToRefine.componentTypeToUpdate(), // Keep original
-                    proposalToRefine.content() // Keep original (should be null for SLIDE if using slideContentShouldBe)
-            );
-        } else { // LECTURE, SECTION, TOPIC
-            return new AiProposalDto(
-                    proposalToRefine.targetNodeId(), proposalToRefine.parentNodeId(), proposalToRefine.nodeType(),
-                    proposalToRefine.action(), proposalToRefine.title(), proposalToRefine.nodeNumber(),
-                    proposalToRefine.slideContentShouldBe(), // Keep original (should be null for non-SLIDE)
-                    proposalToRefine.rationale(), proposalToRefine.displayOrder(),
-                    proposalToRefine.componentTypeToUpdate(), // Keep original
-                    refinedMarkdown // refined content
-            );
+    /**
+     * The Markdown refinement works on: slide content for slides, content for everything else
+     */
+    public static String contentToRefine(AiProposalDto proposal) {
+        return "SLIDE".equals(proposal.nodeType()) ? proposal.slideContentShouldBe() : proposal.content();
+    }
+
+    // Copy of the proposal with the refined Markdown in the field it was taken from
+    private static AiProposalDto withRefinedContent(AiProposalDto proposal, String refinedMarkdown) {
+        boolean slide = "SLIDE".equals(proposal.nodeType());
+        return new AiProposalDto(
+                proposal.targetNodeId(), proposal.parentNodeId(), proposal.nodeType(),
+                proposal.action(), proposal.title(), proposal.nodeNumber(),
+                slide ? proposal.content() : refinedMarkdown,
+                proposal.rationale(), proposal.displayOrder(),
+                proposal.componentTypeToUpdate(),
+                slide ? refinedMarkdown : proposal.slideContentShouldBe()
+        );
+    }
+
+    // Clean common AI wrappings
+    private static String stripMarkdownFence(String text) {
+        String stripped = text.trim();
+        if (stripped.startsWith("```markdown")) {
+            stripped = stripped.substring("```markdown".length());
+        } else if (stripped.startsWith("```json")) {
+            stripped = stripped.substring("```json".length());
+        } else if (stripped.startsWith("```")) {
+            stripped = stripped.substring("```".length());
+        }
+        if (stripped.endsWith("```")) {
+            stripped = stripped.substring(0, stripped.length() - "```".length());
         }
+        return stripped.trim();
     }
 
     // Helper method to log details of parsed proposals
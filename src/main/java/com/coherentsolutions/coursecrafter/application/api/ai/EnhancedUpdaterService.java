@@ -7,7 +7,8 @@ import com.coherentsolutions.coursecrafter.presentation.dto.ai.AiProposalDto;
 import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
 import com.coherentsolutions.coursecrafter.domain.content.repository.ContentNodeRepository;
 import com.coherentsolutions.coursecrafter.domain.content.service.ContentNodeService;
-import com.coherentsolutions.coursecrafter.infrastructure.git.GitCliService;
+import com.coherentsolutions.coursecrafter.infrastructure.git.GitWorkspace;
+import com.coherentsolutions.coursecrafter.infrastructure.git.GitWorkspacePool;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +20,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Service
@@ -27,11 +29,14 @@ public class EnhancedUpdaterService {
 
     private final ContentNodeRepository nodeRepository;
     private final ContentNodeService nodeService;
-    private final GitCliService gitService;
+    private final GitWorkspacePool workspacePool;
     private final GitContentSyncService gitContentSyncService;
     private final PendingProposalRepository pendingProposalRepository;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    // Branch names must stay unique when several proposals start in the same millisecond
+    private static final AtomicLong lastBranchStamp = new AtomicLong();
+
     /**
      * Apply a list of AI-generated proposals to the content structure
      */
@@ -42,11 +47,8 @@ public class EnhancedUpdaterService {
         List<ContentNode> updatedNodes = new ArrayList<>();
         boolean gitChanges = false;
 
-        // Create a single branch for all changes
-        String branchName = "content-update-" + System.currentTimeMillis();
-        gitService.createBranch(branchName);
-
-        try {
+        // Create a single branch for all changes, in a worktree of its own
+        try (GitWorkspace workspace = workspacePool.acquire(newBranchName())) {
             // Process all proposals
             for (AiProposalDto proposal : proposals) {
                 ContentNode node;
@@ -64,7 +66,7 @@ public class EnhancedUpdaterService {
 
 
                         // Sync the node to the Git repository - Pass the branch name here
-                        gitChanges |= gitContentSyncService.syncNodeToFile(node, branchName, proposal);
+                        gitChanges |= gitContentSyncService.syncNodeToFile(node, workspace, proposal);
 
                         // After calling syncNodeToFile
                         log.debug("Sync result: {}", gitChanges);
@@ -76,7 +78,7 @@ public class EnhancedUpdaterService {
                             updatedNodes.add(node);
 
                             // Sync the node to the Git repository - Pass the branch name here
-                            gitChanges |= gitContentSyncService.syncNodeToFile(node, branchName, proposal);
+                            gitChanges |= gitContentSyncService.syncNodeToFile(node, workspace, proposal);
                         }
                         break;
 
@@ -88,13 +90,12 @@ public class EnhancedUpdaterService {
 
             // Make a single commit with all changes
             if (!updatedNodes.isEmpty() && gitChanges) {
-                gitService.commitAllChanges(
+                workspace.commitAllChanges(
                         "Apply AI content updates: " + updatedNodes.size() + " changes");
 
                 // Push and create PR
-                gitService.pushBranch(branchName);
-                gitService.createPr(
-                        branchName,
+                workspace.push();
+                workspace.createPr(
                         "Content Updates: " + updatedNodes.size() + " changes",
                         generatePrDescription(proposals, updatedNodes));
             } else if (!updatedNodes.isEmpty()) {
@@ -103,13 +104,8 @@ public class EnhancedUpdaterService {
 
             return updatedNodes;
         } catch (Exception e) {
+            // Uncommitted changes are discarded with the workspace
             log.error("Failed to apply proposals: {}", e.getMessage(), e);
-            // Try to clean up the branch if possible
-            try {
-                gitService.resetToMain();
-            } catch (Exception resetEx) {
-                log.error("Failed to reset to main: {}", resetEx.getMessage());
-            }
             throw e;
         }
     }
@@ -119,61 +115,82 @@ public class EnhancedUpdaterService {
      */
     @Transactional
     public String createProposalPR(List<AiProposalDto> proposals) throws IOException, InterruptedException {
-        boolean gitChanges = false;
-
-        // Create a single branch for all changes
-        String branchName = "content-update-" + System.currentTimeMillis();
-        gitService.createBranch(branchName);
+        try (GitWorkspace workspace = startProposalBranch()) {
+            boolean gitChanges = false;
+            for (AiProposalDto proposal : proposals) {
+                gitChanges |= stageProposal(workspace, proposal);
+            }
+            return finishProposalPR(workspace, proposals, gitChanges);
+        } catch (Exception e) {
+            log.error("Failed to apply proposals: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
 
-        try {
-            for (AiProposalDto proposal : proposals) { // Iterate through the original proposals
-                ContentNode transientNode = createTransientNodeFromProposal(proposal); // This creates node with full content
+    /**
+     * Create the branch that proposals are written to before the PR is opened. The caller closes
+     * the workspace when done; other proposal branches can be prepared meanwhile.
+     */
+    public GitWorkspace startProposalBranch() throws IOException, InterruptedException {
+        return workspacePool.acquire(newBranchName());
+    }
 
-                // Pass the original proposal to syncNodeToFileOnly
-                gitChanges |= gitContentSyncService.syncNodeToFileOnly(transientNode, branchName, proposal);
-            }
+    /**
+     * Write one proposal's markdown into the branch's working tree (no database update)
+     *
+     * @return true if a file changed
+     */
+    public boolean stageProposal(GitWorkspace workspace, AiProposalDto proposal) {
+        ContentNode transientNode = createTransientNodeFromProposal(proposal); // This creates node with full content
 
-            // Store the proposals in our pending table
-            PendingProposal pendingProposal = PendingProposal.builder()
-                    .branchName(branchName)
-                    .proposalJson(objectMapper.writeValueAsString(proposals))
-                    .status("PENDING")
-                    .createdAt(LocalDateTime.now())
-                    .updatedAt(LocalDateTime.now())
-                    .build();
+        // Pass the original proposal to syncNodeToFileOnly
+        return gitContentSyncService.syncNodeToFileOnly(transientNode, workspace, proposal);
+    }
 
-            pendingProposalRepository.save(pendingProposal);
+    /**
+     * Record the proposals as pending, then commit, push and open the PR if any file changed
+     *
+     * @return the PR URL, or a message if there was nothing to commit
+     */
+    @Transactional
+    public String finishProposalPR(GitWorkspace workspace, List<AiProposalDto> proposals, boolean gitChanges)
+            throws IOException, InterruptedException {
+        String branchName = workspace.branch();
+        // Store the proposals in our pending table
+        PendingProposal pendingProposal = PendingProposal.builder()
+                .branchName(branchName)
+                .proposalJson(objectMapper.writeValueAsString(proposals))
+                .status("PENDING")
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
 
-            // Make a single commit with all changes
-            if (gitChanges) {
-                gitService.commitAllChanges(
-                        "Proposed AI content updates: " + proposals.size() + " changes");
+        pendingProposalRepository.save(pendingProposal);
 
-                // Push and create PR
-                gitService.pushBranch(branchName);
-                String prUrl = gitService.createPr(
-                        branchName,
-                        "Proposed Content Updates: " + proposals.size() + " changes",
-                        generatePrDescription(proposals, new ArrayList<>()));
+        // Make a single commit with all changes
+        if (gitChanges) {
+            workspace.commitAllChanges(
+                    "Proposed AI content updates: " + proposals.size() + " changes");
 
-                // Update the pending proposal with the PR URL
-                pendingProposal.setPrUrl(prUrl);
-                pendingProposalRepository.save(pendingProposal);
+            // Push and create PR
+            workspace.push();
+            String prUrl = workspace.createPr(
+                    "Proposed Content Updates: " + proposals.size() + " changes",
+                    generatePrDescription(proposals, new ArrayList<>()));
 
-                return prUrl;
-            }
+            // Update the pending proposal with the PR URL
+            pendingProposal.setPrUrl(prUrl);
+            pendingProposalRepository.save(pendingProposal);
 
-            return "No changes to commit";
-        } catch (Exception e) {
-            log.error("Failed to apply proposals: {}", e.getMessage(), e);
-            // Try to clean up the branch if possible
-            try {
-                gitService.resetToMain();
-            } catch (Exception resetEx) {
-                log.error("Failed to reset to main: {}", resetEx.getMessage());
-            }
-            throw e;
+            return prUrl;
         }
+
+        return "No changes to commit";
+    }
+
+    private static String newBranchName() {
+        long stamp = lastBranchStamp.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+        return "content-update-" + stamp;
     }
 
     /**
@@ -0,0 +1,213 @@
+package com.coherentsolutions.coursecrafter.application.api.ai;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.DefaultAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs every model call through {@link LlmRateLimiter}. The call is charged with its estimated
+ * prompt tokens plus the requested (or default) output tokens and corrected with the reported
+ * usage. Callers choose the lane with the {@link #PRIORITY} advisor param (interactive unless
+ * set). A 429 from the provider pauses the model and the call is queued again, up to
+ * max-rate-limit-retries times.
+ * <p>
+ * Ordered after the response cache, so cache hits are not throttled.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class LlmRateLimitAdvisor implements CallAdvisor, StreamAdvisor {
+
+    /**
+     * Advisor param holding a {@link LlmRateLimiter.Priority} (or its name)
+     */
+    public static final String PRIORITY = "coursecrafter.priority";
+
+    private final LlmRateLimiter limiter;
+    private final String defaultModel;
+    private final int reservedOutputTokens;
+    private final int maxRateLimitRetries;
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+
+    // Spring AI 1.0.0-M8's CallAdvisor still declares the deprecated CallAroundAdvisorChain parameter
+    @Override
+    @SuppressWarnings("deprecation")
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAroundAdvisorChain chain) {
+        CallAdvisorChain callChain = (CallAdvisorChain) chain;
+        if (!limiter.isEnabled()) {
+            return callChain.nextCall(request);
+        }
+
+        String model = model(request.prompt());
+        int estimatedTokens = estimateTokens(request.prompt());
+        LlmRateLimiter.Priority priority = priority(request);
+
+        for (int attempt = 0; ; attempt++) {
+            // Outside the try, so a chain that cannot be retried is not mistaken for another 429
+            CallAdvisorChain next = attempt == 0 ? callChain : remainingChain(callChain);
+            try (LlmRateLimiter.Permit permit = acquire(model, estimatedTokens, priority)) {
+                ChatClientResponse response = next.nextCall(request);
+                permit.recordUsage(totalTokens(response.chatResponse()));
+                return response;
+            } catch (RuntimeException e) {
+                if (!isRateLimited(e) || attempt >= maxRateLimitRetries) {
+                    throw e;
+                }
+                limiter.onRateLimited(model, null);
+                log.info("Retrying {} call after 429 (retry {}/{})", model, attempt + 1, maxRateLimitRetries);
+            }
+        }
+    }
+
+    // Spring AI 1.0.0-M8's StreamAdvisor still declares the deprecated StreamAroundAdvisorChain parameter
+    @Override
+    @SuppressWarnings("deprecation")
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAroundAdvisorChain chain) {
+        StreamAdvisorChain streamChain = (StreamAdvisorChain) chain;
+        if (!limiter.isEnabled()) {
+            return streamChain.nextStream(request);
+        }
+
+        String model = model(request.prompt());
+        int estimatedTokens = estimateTokens(request.prompt());
+        LlmRateLimiter.Priority priority = priority(request);
+
+        // The slot is held from subscription until the stream terminates or is cancelled
+        return Flux.using(
+                () -> acquire(model, estimatedTokens, priority),
+                permit -> {
+                    AtomicReference<Integer> usage = new AtomicReference<>();
+                    return streamChain.nextStream(request)
+                            .doOnNext(response -> {
+                                int tokens = totalTokens(response.chatResponse());
+                                if (tokens > 0) {
+                                    usage.set(tokens);
+                                }
+                            })
+                            .doOnComplete(() -> {
+                                if (usage.get() != null) {
+                                    permit.recordUsage(usage.get());
+                                }
+                            })
+                            .doOnError(e -> {
+                                if (isRateLimited(e)) {
+                                    limiter.onRateLimited(model, null);
+                                }
+                            });
+                },
+                LlmRateLimiter.Permit::close);
+    }
+
+    /**
+     * A chain can only be walked once, so a retry runs on a fresh one holding the advisors after
+     * this one. Only {@link DefaultAroundAdvisorChain} can be rebuilt that way; any other chain
+     * fails the retry rather than being walked again from where the failed attempt left it.
+     */
+    @SuppressWarnings("deprecation") // getCallAdvisors() still returns the deprecated CallAroundAdvisor in M8
+    private CallAdvisorChain remainingChain(CallAdvisorChain chain) {
+        if (!(chain instanceof DefaultAroundAdvisorChain defaultChain)) {
+            throw new IllegalStateException("Cannot retry a rate-limited call on a "
+                    + chain.getClass().getName() + "; only DefaultAroundAdvisorChain can be rebuilt");
+        }
+        List<CallAroundAdvisor> advisors = chain.getCallAdvisors();
+        int position = advisors.indexOf(this);
+        if (position < 0) {
+            throw new IllegalStateException("Cannot retry a rate-limited call: " + getName() + " is not in the chain");
+        }
+        return DefaultAroundAdvisorChain.builder(defaultChain.getObservationRegistry())
+                .templateRenderer(defaultChain.getTemplateRenderer())
+                .pushAll(advisors.subList(position + 1, advisors.size()))
+                .build();
+    }
+
+    private LlmRateLimiter.Permit acquire(String model, int estimatedTokens, LlmRateLimiter.Priority priority) {
+        try {
+            return limiter.acquire(model, estimatedTokens, priority);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmRateLimiter.LlmThrottledException("Interrupted while waiting for model capacity");
+        }
+    }
+
+    private String model(Prompt prompt) {
+        ChatOptions options = prompt.getOptions();
+        return options != null && options.getModel() != null ? options.getModel() : defaultModel;
+    }
+
+    private int estimateTokens(Prompt prompt) {
+        int tokens = 0;
+        for (Message message : prompt.getInstructions()) {
+            tokens += message.getText() != null ? tokenCountEstimator.estimate(message.getText()) : 0;
+        }
+        ChatOptions options = prompt.getOptions();
+        Integer maxTokens = options != null ? options.getMaxTokens() : null;
+        return tokens + (maxTokens != null ? maxTokens : reservedOutputTokens);
+    }
+
+    private static LlmRateLimiter.Priority priority(ChatClientRequest request) {
+        Object value = request.context().get(PRIORITY);
+        if (value instanceof LlmRateLimiter.Priority priority) {
+            return priority;
+        }
+        return value != null
+                ? LlmRateLimiter.Priority.valueOf(value.toString().toUpperCase(Locale.ROOT))
+                : LlmRateLimiter.Priority.INTERACTIVE;
+    }
+
+    private static int totalTokens(ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return 0;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        Integer total = usage != null ? usage.getTotalTokens() : null;
+        return total != null ? total : 0;
+    }
+
+    /**
+     * Provider 429s surface as NonTransientAiException("429 - ...") or an HTTP client exception
+     */
+    static boolean isRateLimited(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            String message = e.getMessage();
+            if (message != null && (message.startsWith("429") || message.contains("429 Too Many Requests")
+                    || message.contains("HTTP 429"))) {
+                return true;
+            }
+            if (e.getCause() == e) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String getName() {
+        return "LlmRateLimitAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 100;
+    }
+}
@@ -0,0 +1,275 @@
+package com.coherentsolutions.coursecrafter.application.api.ai;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shared governor for all chat model traffic, used by {@link LlmRateLimitAdvisor}.
+ * <p>
+ * Each model has a request bucket (requests per minute), a token bucket (tokens per minute,
+ * charged with the estimated prompt plus reserved output tokens and corrected with the real
+ * usage afterwards) and a bulkhead on concurrent calls. Callers that cannot go yet wait in one
+ * queue per model, interactive calls ahead of batch calls and FIFO within a lane, until their
+ * lane's deadline passes. After a 429 from the provider the model is paused for the cooldown
+ * and its buckets are emptied, so queued calls do not stampede the provider.
+ */
+@Slf4j
+@Service
+public class LlmRateLimiter {
+
+    public enum Priority {
+        INTERACTIVE, BATCH
+    }
+
+    @Value("${coursecrafter.ai.rate-limit.enabled:true}")
+    boolean enabled = true;
+
+    @Value("${coursecrafter.ai.rate-limit.requests-per-minute:500}")
+    int requestsPerMinute = 500;
+
+    @Value("${coursecrafter.ai.rate-limit.tokens-per-minute:30000}")
+    int tokensPerMinute = 30000;
+
+    @Value("${coursecrafter.ai.rate-limit.max-concurrent:8}")
+    int maxConcurrent = 8;
+
+    @Value("${coursecrafter.ai.rate-limit.interactive-max-wait:PT60S}")
+    Duration interactiveMaxWait = Duration.ofSeconds(60);
+
+    @Value("${coursecrafter.ai.rate-limit.batch-max-wait:PT10M}")
+    Duration batchMaxWait = Duration.ofMinutes(10);
+
+    @Value("${coursecrafter.ai.rate-limit.cooldown:PT20S}")
+    Duration cooldown = Duration.ofSeconds(20);
+
+    private final Map<String, ModelGovernor> governors = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public record ModelStats(int inFlight, int queuedInteractive, int queuedBatch, double availableRequests,
+                             double availableTokens, long pausedForMillis, long acquired, long rejected,
+                             long rateLimited, long totalWaitMillis, long maxWaitMillis) {
+    }
+
+    /**
+     * Thrown when a call could not get a slot before its lane's deadline
+     */
+    public static class LlmThrottledException extends RuntimeException {
+        public LlmThrottledException(String message) {
+            super(message);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Wait for a slot for one call of about the given number of tokens
+     *
+     * @throws LlmThrottledException if the lane's deadline passes first
+     */
+    public Permit acquire(String model, int estimatedTokens, Priority priority) throws InterruptedException {
+        Duration maxWait = priority == Priority.INTERACTIVE ? interactiveMaxWait : batchMaxWait;
+        return governor(model).acquire(Math.max(1, estimatedTokens), priority, System.nanoTime() + maxWait.toNanos());
+    }
+
+    /**
+     * The provider answered 429: pause the model for the cooldown (or the provider's retry-after)
+     */
+    public void onRateLimited(String model, Duration retryAfter) {
+        Duration pause = retryAfter != null && retryAfter.compareTo(cooldown) > 0 ? retryAfter : cooldown;
+        governor(model).pause(pause);
+        log.warn("Model {} returned 429, pausing calls for {} ms", model, pause.toMillis());
+    }
+
+    public Map<String, ModelStats> stats() {
+        Map<String, ModelStats> stats = new TreeMap<>();
+        governors.forEach((model, governor) -> stats.put(model, governor.stats()));
+        return stats;
+    }
+
+    private ModelGovernor governor(String model) {
+        return governors.computeIfAbsent(model != null ? model : "default", name -> new ModelGovernor());
+    }
+
+    /**
+     * A granted slot; close it when the call is done, after reporting the real token usage if known
+     */
+    public static final class Permit implements AutoCloseable {
+
+        private final ModelGovernor governor;
+        private final int chargedTokens;
+        private boolean closed;
+
+        private Permit(ModelGovernor governor, int chargedTokens) {
+            this.governor = governor;
+            this.chargedTokens = chargedTokens;
+        }
+
+        /**
+         * Replace the estimate with the tokens the call actually used
+         */
+        public void recordUsage(int actualTokens) {
+            if (actualTokens > 0) {
+                governor.adjustTokens(chargedTokens - actualTokens);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                governor.release();
+            }
+        }
+    }
+
+    private record Waiter(Priority priority, long sequence) {
+    }
+
+    private final class ModelGovernor {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+                Comparator.comparing(Waiter::priority).thenComparingLong(Waiter::sequence));
+
+        private double requestBucket = requestsPerMinute;
+        private double tokenBucket = tokensPerMinute;
+        private long lastRefill = System.nanoTime();
+        private long pausedUntil;
+        private int inFlight;
+
+        private long acquired;
+        private long rejected;
+        private long rateLimited;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+
+        Permit acquire(int tokens, Priority priority, long deadline) throws InterruptedException {
+            long started = System.nanoTime();
+            Waiter waiter = new Waiter(priority, sequence.incrementAndGet());
+            lock.lock();
+            try {
+                queue.add(waiter);
+                while (true) {
+                    long now = System.nanoTime();
+                    refill(now);
+                    // Huge prompts only need a full bucket, not more than its capacity
+                    double neededTokens = Math.min(tokens, tokensPerMinute);
+                    boolean paused = now < pausedUntil;
+                    if (queue.peek() == waiter && !paused && inFlight < maxConcurrent
+                            && requestBucket >= 1 && tokenBucket >= neededTokens) {
+                        queue.remove(waiter);
+                        requestBucket -= 1;
+                        tokenBucket -= tokens;
+                        inFlight++;
+                        acquired++;
+                        long waited = now - started;
+                        totalWaitNanos += waited;
+                        maxWaitNanos = Math.max(maxWaitNanos, waited);
+                        return new Permit(this, tokens);
+                    }
+
+                    long remaining = deadline - now;
+                    if (remaining <= 0) {
+                        rejected++;
+                        throw new LlmThrottledException("No model capacity within " +
+                                TimeUnit.NANOSECONDS.toMillis(now - started) + " ms (" + priority + " lane, "
+                                + queue.size() + " calls queued, " + inFlight + " in flight)");
+                    }
+                    changed.awaitNanos(Math.min(remaining, wakeUpIn(now, paused, neededTokens)));
+                }
+            } finally {
+                // Leaving the queue (granted, timed out or interrupted) may let the next caller go
+                queue.remove(waiter);
+                changed.signalAll();
+                lock.unlock();
+            }
+        }
+
+        void release() {
+            lock.lock();
+            try {
+                inFlight--;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void adjustTokens(int delta) {
+            lock.lock();
+            try {
+                tokenBucket = Math.min(tokensPerMinute, tokenBucket + delta);
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void pause(Duration pause) {
+            lock.lock();
+            try {
+                rateLimited++;
+                pausedUntil = Math.max(pausedUntil, System.nanoTime() + pause.toNanos());
+                // The provider's window is evidently used up; start refilling from empty
+                requestBucket = Math.min(requestBucket, 0);
+                tokenBucket = Math.min(tokenBucket, 0);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        ModelStats stats() {
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                refill(now);
+                int interactive = (int) queue.stream().filter(w -> w.priority() == Priority.INTERACTIVE).count();
+                return new ModelStats(inFlight, interactive, queue.size() - interactive, requestBucket, tokenBucket,
+                        Math.max(0, TimeUnit.NANOSECONDS.toMillis(pausedUntil - now)), acquired, rejected,
+                        rateLimited, TimeUnit.NANOSECONDS.toMillis(totalWaitNanos),
+                        TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void refill(long now) {
+            double minutes = (now - lastRefill) / 60e9;
+            lastRefill = now;
+            requestBucket = Math.min(requestsPerMinute, requestBucket + minutes * requestsPerMinute);
+            tokenBucket = Math.min(tokensPerMinute, tokenBucket + minutes * tokensPerMinute);
+        }
+
+        /**
+         * Time until the head of the queue could proceed, if it is only waiting for a pause or a refill.
+         * Waits for a free slot or for the head of the queue end with a signal instead.
+         */
+        private long wakeUpIn(long now, boolean paused, double neededTokens) {
+            if (paused) {
+                return pausedUntil - now;
+            }
+            if (requestBucket >= 1 && tokenBucket >= neededTokens) {
+                return Long.MAX_VALUE;
+            }
+            // Both buckets have to be refilled far enough
+            long wait = (long) (Math.max(0, 1 - requestBucket) / requestsPerMinute * 60e9);
+            wait = Math.max(wait, (long) (Math.max(0, neededTokens - tokenBucket) / tokensPerMinute * 60e9));
+            return Math.max(TimeUnit.MILLISECONDS.toNanos(1), wait);
+        }
+    }
+}
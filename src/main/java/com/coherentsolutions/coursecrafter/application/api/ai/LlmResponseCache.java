@@ -0,0 +1,204 @@
+package com.coherentsolutions.coursecrafter.application.api.ai;
+
+import com.coherentsolutions.coursecrafter.domain.ai.model.LlmResponseCacheEntry;
+import com.coherentsolutions.coursecrafter.domain.ai.repository.LlmResponseCacheEntryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Content-addressed store for LLM answers, used by {@link LlmResponseCacheAdvisor}.
+ * <p>
+ * Keys are the SHA-256 of model, options, messages and course version, so any change to the
+ * prompt or the course misses. Lookups go to a bounded in-memory LRU first, then to the
+ * {@code llm_response_cache} table; a table hit is promoted to memory. Both tiers expire
+ * entries after the TTL, and the table is trimmed to its size limit by last use. Database
+ * errors are logged and treated as misses, so the cache never fails an LLM call.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LlmResponseCache {
+
+    // Expired and surplus rows are purged every this many stores
+    private static final int PURGE_INTERVAL = 100;
+
+    private final LlmResponseCacheEntryRepository repository;
+
+    private final Map<String, CachedResponse> memory = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+            boolean evict = size() > maxMemoryEntries;
+            if (evict) {
+                memoryEvictions.increment();
+            }
+            return evict;
+        }
+    };
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder persistentHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder memoryEvictions = new LongAdder();
+    private final LongAdder latencySavedMillis = new LongAdder();
+
+    @Value("${coursecrafter.ai.response-cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${coursecrafter.ai.response-cache.ttl:P7D}")
+    private Duration ttl = Duration.ofDays(7);
+
+    @Value("${coursecrafter.ai.response-cache.memory-max-entries:500}")
+    private int maxMemoryEntries = 500;
+
+    @Value("${coursecrafter.ai.response-cache.persistent:true}")
+    private boolean persistent = true;
+
+    @Value("${coursecrafter.ai.response-cache.persistent-max-entries:10000}")
+    private int maxPersistentEntries = 10000;
+
+    private record CachedResponse(String text, long latencyMillis, LocalDateTime expiresAt) {
+    }
+
+    public record CacheStats(long memoryHits, long persistentHits, long misses, long stores,
+                             long memoryEvictions, long latencySavedMillis, int memoryEntries, double hitRatio) {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cache key for one call. Null parts are allowed; each part is length-prefixed so
+     * adjacent values cannot run into each other.
+     */
+    public static String key(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                String value = part != null ? part : "";
+                digest.update((value.length() + ":" + value + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public Optional<String> get(String key) {
+        LocalDateTime now = LocalDateTime.now();
+        CachedResponse cached;
+        synchronized (memory) {
+            cached = memory.get(key);
+            if (cached != null && cached.expiresAt().isBefore(now)) {
+                memory.remove(key);
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            memoryHits.increment();
+            latencySavedMillis.add(cached.latencyMillis());
+            return Optional.of(cached.text());
+        }
+
+        if (persistent) {
+            try {
+                Optional<LlmResponseCacheEntry> entry = repository.findById(key)
+                        .filter(stored -> stored.getExpiresAt() == null || !stored.getExpiresAt().isBefore(now));
+                if (entry.isPresent()) {
+                    LlmResponseCacheEntry stored = entry.get();
+                    repository.recordHit(key, now);
+                    remember(key, new CachedResponse(stored.getResponseText(), stored.getLatencyMillis(),
+                            stored.getExpiresAt() != null ? stored.getExpiresAt() : now.plus(ttl)));
+                    persistentHits.increment();
+                    latencySavedMillis.add(stored.getLatencyMillis());
+                    return Optional.of(stored.getResponseText());
+                }
+            } catch (DataAccessException e) {
+                log.warn("LLM response cache lookup failed, calling the model: {}", e.getMessage());
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(String key, String model, String courseVersion, String text, long latencyMillis) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(ttl);
+        remember(key, new CachedResponse(text, latencyMillis, expiresAt));
+        stores.increment();
+
+        if (persistent) {
+            try {
+                repository.save(LlmResponseCacheEntry.builder()
+                        .cacheKey(key)
+                        .model(model)
+                        .courseVersion(courseVersion)
+                        .responseText(text)
+                        .latencyMillis(latencyMillis)
+                        .createdAt(now)
+                        .lastUsedAt(now)
+                        .expiresAt(expiresAt)
+                        .build());
+                if (stores.sum() % PURGE_INTERVAL == 0) {
+                    purge();
+                }
+            } catch (DataAccessException e) {
+                log.warn("Could not persist LLM response cache entry: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Delete expired rows and trim the table to the most recently used entries
+     */
+    public void purge() {
+        int expired = repository.deleteExpired(LocalDateTime.now());
+        int trimmed = maxPersistentEntries > 0 ? repository.deleteLeastRecentlyUsed(maxPersistentEntries) : 0;
+        log.debug("LLM response cache purge: {} expired, {} over the size limit", expired, trimmed);
+    }
+
+    public void clear() {
+        synchronized (memory) {
+            memory.clear();
+        }
+        if (persistent) {
+            repository.deleteAllInBatch();
+        }
+    }
+
+    public CacheStats stats() {
+        long hits = memoryHits.sum() + persistentHits.sum();
+        long lookups = hits + misses.sum();
+        int memoryEntries;
+        synchronized (memory) {
+            memoryEntries = memory.size();
+        }
+        return new CacheStats(memoryHits.sum(), persistentHits.sum(), misses.sum(), stores.sum(),
+                memoryEvictions.sum(), latencySavedMillis.sum(), memoryEntries,
+                lookups > 0 ? (double) hits / lookups : 0.0);
+    }
+
+    private void remember(String key, CachedResponse response) {
+        if (maxMemoryEntries <= 0) {
+            return;
+        }
+        synchronized (memory) {
+            memory.put(key, response);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.coherentsolutions.coursecrafter.application.api.ai;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.core.Ordered;
+
+import java.util.List;
+
+/**
+ * Answers repeated chat calls from {@link LlmResponseCache}. The key covers the model and its
+ * sampling options, every prompt message (system and user) and the course version that callers
+ * pass as the {@link #COURSE_VERSION} advisor param, so an edit to the course changes the key
+ * even when the prompt only holds part of the outline. Streaming calls are not cached.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class LlmResponseCacheAdvisor implements CallAdvisor {
+
+    /**
+     * Advisor param holding the content version of the course the prompt is about
+     */
+    public static final String COURSE_VERSION = "coursecrafter.course-version";
+
+    private final LlmResponseCache cache;
+    // Model configured on the ChatModel, used when the request does not name one
+    private final String defaultModel;
+
+    // Spring AI 1.0.0-M8's CallAdvisor still declares the deprecated CallAroundAdvisorChain parameter
+    @Override
+    @SuppressWarnings("deprecation")
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAroundAdvisorChain chain) {
+        CallAdvisorChain callChain = (CallAdvisorChain) chain;
+        if (!cache.isEnabled()) {
+            return callChain.nextCall(request);
+        }
+
+        Prompt prompt = request.prompt();
+        ChatOptions options = prompt.getOptions();
+        String model = options != null && options.getModel() != null ? options.getModel() : defaultModel;
+        Object courseVersion = request.context().get(COURSE_VERSION);
+        String key = LlmResponseCache.key(model, describe(options),
+                courseVersion != null ? courseVersion.toString() : null, describe(prompt.getInstructions()));
+
+        var cached = cache.get(key);
+        if (cached.isPresent()) {
+            log.debug("LLM response cache hit for model {} (key {})", model, key);
+            ChatResponse response = new ChatResponse(List.of(new Generation(new AssistantMessage(cached.get()))));
+            return new ChatClientResponse(response, request.context());
+        }
+
+        long started = System.nanoTime();
+        ChatClientResponse response = callChain.nextCall(request);
+        long latencyMillis = (System.nanoTime() - started) / 1_000_000;
+
+        ChatResponse chatResponse = response.chatResponse();
+        // Only plain text answers are reusable; tool calls and empty results go straight through
+        if (chatResponse != null && !chatResponse.hasToolCalls() && chatResponse.getResult() != null
+                && chatResponse.getResults().size() == 1 && chatResponse.getResult().getOutput().getText() != null) {
+            cache.put(key, model, courseVersion != null ? courseVersion.toString() : null,
+                    chatResponse.getResult().getOutput().getText(), latencyMillis);
+        }
+        return response;
+    }
+
+    private static String describe(ChatOptions options) {
+        if (options == null) {
+            return "";
+        }
+        return "temperature=" + options.getTemperature() + ";topP=" + options.getTopP()
+                + ";maxTokens=" + options.getMaxTokens() + ";stop=" + options.getStopSequences();
+    }
+
+    private static String describe(List<Message> messages) {
+        StringBuilder builder = new StringBuilder();
+        for (Message message : messages) {
+            String text = message.getText() != null ? message.getText() : "";
+            builder.append(message.getMessageType()).append(' ').append(text.length()).append('\n')
+                    .append(text).append('\n');
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String getName() {
+        return "LlmResponseCacheAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        // Outermost, so a hit skips every other advisor as well as the model
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
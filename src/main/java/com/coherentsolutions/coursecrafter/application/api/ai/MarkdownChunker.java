@@ -0,0 +1,116 @@
+package com.coherentsolutions.coursecrafter.application.api.ai;
+
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits markdown into chunks of at most a given number of tokens, cutting at headings where
+ * possible, otherwise at blank lines, and only inside a paragraph (by line, then by length) when
+ * a single paragraph is over the limit. Fenced code blocks are never cut at their blank lines.
+ */
+public final class MarkdownChunker {
+
+    private MarkdownChunker() {
+        throw new AssertionError("Utility class should not be instantiated");
+    }
+
+    private record Block(String text, int tokens, boolean heading) {
+    }
+
+    public static List<String> split(String markdown, int maxTokens, TokenCountEstimator estimator) {
+        List<String> chunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int currentTokens = 0;
+
+        for (Block block : blocks(markdown, estimator)) {
+            // Start a new chunk at a heading once the current one is reasonably full
+            boolean full = currentTokens + block.tokens() > maxTokens
+                    || (block.heading() && currentTokens >= maxTokens / 2);
+            if (full && currentTokens > 0) {
+                chunks.add(current.toString().strip());
+                current.setLength(0);
+                currentTokens = 0;
+            }
+            if (block.tokens() > maxTokens) {
+                chunks.addAll(splitOversized(block.text(), maxTokens, estimator));
+                continue;
+            }
+            current.append(block.text());
+            currentTokens += block.tokens();
+        }
+        if (!current.isEmpty() && !current.toString().isBlank()) {
+            chunks.add(current.toString().strip());
+        }
+        return chunks;
+    }
+
+    /**
+     * Paragraphs and headings, each with its trailing newlines
+     */
+    private static List<Block> blocks(String markdown, TokenCountEstimator estimator) {
+        List<Block> blocks = new ArrayList<>();
+        StringBuilder block = new StringBuilder();
+        boolean heading = false;
+        boolean inFence = false;
+
+        for (String line : markdown.split("\n", -1)) {
+            String trimmed = line.strip();
+            boolean fence = trimmed.startsWith("```") || trimmed.startsWith("~~~");
+            boolean startsHeading = !inFence && trimmed.startsWith("#");
+            boolean blank = !inFence && trimmed.isEmpty();
+
+            if ((startsHeading || blank) && !block.isEmpty() && !block.toString().isBlank()) {
+                if (blank) {
+                    block.append('\n');
+                }
+                blocks.add(new Block(block.toString(), estimator.estimate(block.toString()), heading));
+                block.setLength(0);
+                heading = false;
+                if (blank) {
+                    continue;
+                }
+            }
+            if (startsHeading) {
+                heading = true;
+            }
+            if (fence) {
+                inFence = !inFence;
+            }
+            block.append(line).append('\n');
+        }
+        if (!block.toString().isBlank()) {
+            blocks.add(new Block(block.toString(), estimator.estimate(block.toString()), heading));
+        }
+        return blocks;
+    }
+
+    private static List<String> splitOversized(String text, int maxTokens, TokenCountEstimator estimator) {
+        List<String> pieces = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int currentTokens = 0;
+        for (String line : text.split("\n")) {
+            int lineTokens = estimator.estimate(line + "\n");
+            if (currentTokens + lineTokens > maxTokens && currentTokens > 0) {
+                pieces.add(current.toString().strip());
+                current.setLength(0);
+                currentTokens = 0;
+            }
+            if (lineTokens > maxTokens) {
+                // A single huge line: cut by length, at roughly four characters per token
+                int step = Math.max(1, maxTokens * 4);
+                for (int start = 0; start < line.length(); start += step) {
+                    pieces.add(line.substring(start, Math.min(line.length(), start + step)));
+                }
+                continue;
+            }
+            current.append(line).append('\n');
+            currentTokens += lineTokens;
+        }
+        if (!current.toString().isBlank()) {
+            pieces.add(current.toString().strip());
+        }
+        return pieces;
+    }
+}
@@ -0,0 +1,126 @@
+package com.coherentsolutions.coursecrafter.application.api.ai;
+
+import com.coherentsolutions.coursecrafter.presentation.dto.ai.AiProposalDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Incremental parser for the proposal array the analyzer asks the model for. Text is fed in
+ * chunks as it streams in, and each proposal object is returned as soon as its closing brace
+ * arrives.
+ * <p>
+ * Anything before the first {@code [} is skipped, so a code fence or a {@code {"proposals": [...]}}
+ * wrapper works as well as a bare array. Brackets inside strings are ignored. An element that
+ * is not a valid proposal is logged and skipped. One parser handles one response and is not
+ * thread-safe.
+ */
+@Slf4j
+public class ProposalStreamParser {
+
+    private final ObjectMapper objectMapper;
+
+    private boolean inArray;
+    private boolean arrayClosed;
+    private boolean seenJson;     // a '{' or '[' has been seen, so quotes now delimit strings
+    private boolean inString;
+    private boolean escaped;
+    private int depth;            // nesting depth inside the current array element
+    private final StringBuilder element = new StringBuilder();
+    private int emitted;
+    private int skipped;
+
+    public ProposalStreamParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Consume the next chunk and return the proposals completed by it, in order
+     */
+    public List<AiProposalDto> feed(String chunk) {
+        List<AiProposalDto> completed = new ArrayList<>();
+        if (chunk == null || arrayClosed) {
+            return completed;
+        }
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if (depth > 0) {
+                element.append(c);
+            }
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+            if (c == '"') {
+                inString = seenJson;
+                continue;
+            }
+            if (!inArray) {
+                if (c == '[') {
+                    inArray = true;
+                    seenJson = true;
+                } else if (c == '{') {
+                    seenJson = true;
+                }
+                continue;
+            }
+
+            if (depth == 0) {
+                if (c == '{') {
+                    depth = 1;
+                    element.setLength(0);
+                    element.append(c);
+                } else if (c == ']') {
+                    arrayClosed = true;
+                    break;
+                }
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+                if (depth == 0) {
+                    parseElement().ifPresent(completed::add);
+                }
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * True once the closing bracket of the proposal array has been read
+     */
+    public boolean isComplete() {
+        return arrayClosed;
+    }
+
+    public int emitted() {
+        return emitted;
+    }
+
+    public int skipped() {
+        return skipped;
+    }
+
+    private Optional<AiProposalDto> parseElement() {
+        String json = element.toString();
+        element.setLength(0);
+        try {
+            AiProposalDto proposal = objectMapper.readValue(json, AiProposalDto.class);
+            emitted++;
+            return Optional.of(proposal);
+        } catch (Exception e) {
+            skipped++;
+            log.warn("Skipping unparseable proposal #{} in streamed response: {}", emitted + skipped, e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
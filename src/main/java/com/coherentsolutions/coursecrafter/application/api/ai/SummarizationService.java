@@ -4,13 +4,30 @@ import com.coherentsolutions.coursecrafter.domain.content.service.ContentHierarc
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
 
 /**
  * Wraps a Chat / Completion call that turns raw uploads into
  * slide-friendly, “clean” Markdown.
+ * <p>
+ * Inputs up to {@code single-pass-max-tokens} go to the model in one call. Larger ones are
+ * split into chunks at heading and paragraph boundaries, the chunks are condensed in parallel
+ * (at most {@code max-concurrency} calls at once), and the partial notes are merged level by
+ * level until they fit one chunk; that merged text then goes through the normal prompt.
  */
 @Slf4j
 @Service
@@ -19,6 +36,33 @@ public class SummarizationService {
 
     private final ChatClient chatClient;   // injected from AiConfig
     private final ContentHierarchyService contentHierarchyService;
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+
+    @Value("${coursecrafter.ai.summarization.single-pass-max-tokens:8000}")
+    private int singlePassMaxTokens = 8000;
+
+    @Value("${coursecrafter.ai.summarization.chunk-tokens:3000}")
+    private int chunkTokens = 3000;
+
+    @Value("${coursecrafter.ai.summarization.max-concurrency:4}")
+    private int maxConcurrency = 4;
+
+    private static final String MAP_PROMPT = """
+            You are CourseCrafter AI. The text is one part of a longer document (newsletter,
+            report or transcript). Condense it into Markdown notes:
+              • keep headings, facts, numbers, names, links and code blocks
+              • remove greetings, ads, sign-offs and repetition
+              • do not add anything that is not in the text
+            Return *only* Markdown.
+            """;
+
+    private static final String REDUCE_PROMPT = """
+            You are CourseCrafter AI. The text is a sequence of notes taken from consecutive parts
+            of one document. Merge them into a single set of Markdown notes:
+              • keep every distinct fact, link and code block, in document order
+              • merge duplicate points and headings
+            Return *only* Markdown.
+            """;
 
     /**
      * Normalises & summarises an arbitrary Markdown fragment.
@@ -66,12 +110,13 @@ public class SummarizationService {
 
         log.debug("System prompt: {}", systemPrompt);
 
-        var response = chatClient.prompt()
+        String courseVersion = contentHierarchyService.courseVersion(courseName);
+        String content = summarizeInChunks(markdown, text -> chatClient.prompt()
                 .system(systemPrompt)
-                .user(markdown)
-                .call();
-
-        String content = response.content();
+                .user(text)
+                .advisors(advisor -> advisor.param(LlmResponseCacheAdvisor.COURSE_VERSION, courseVersion))
+                .call()
+                .content());
         log.debug("AI summarization response: {}", content);
         return content;
     }
@@ -94,13 +139,118 @@ public class SummarizationService {
 
         log.debug("System prompt: {}", systemPrompt);
 
-        var response = chatClient.prompt()
-                .system(systemPrompt)
-                .user(markdown)
-                .call();
-
-        String content = response.content();
+        String content = summarizeInChunks(markdown, text -> call(systemPrompt, text));
         log.debug("AI summarization response: {}", content);
         return content;
     }
+
+    /**
+     * Run the final prompt directly for small inputs; for large ones, condense the chunks in
+     * parallel and merge the notes hierarchically first
+     */
+    String summarizeInChunks(String markdown, UnaryOperator<String> finalPass) {
+        int inputTokens = tokenCountEstimator.estimate(markdown);
+        if (inputTokens <= singlePassMaxTokens) {
+            return finalPass.apply(markdown);
+        }
+
+        long started = System.nanoTime();
+        List<String> chunks = MarkdownChunker.split(markdown, chunkTokens, tokenCountEstimator);
+        log.info("Input of ~{} tokens split into {} chunks of at most {} tokens", inputTokens, chunks.size(), chunkTokens);
+
+        List<String> notes = mapChunks("map", chunks, MAP_PROMPT);
+        int level = 1;
+        while (notes.size() > 1 && tokenCountEstimator.estimate(String.join("\n\n", notes)) > chunkTokens) {
+            notes = mapChunks("reduce level " + level++, groupByBudget(notes), REDUCE_PROMPT);
+        }
+
+        String merged = String.join("\n\n", notes);
+        log.info("Chunked summarization reduced ~{} tokens to ~{} tokens in {} ms ({} reduce levels)",
+                inputTokens, tokenCountEstimator.estimate(merged), (System.nanoTime() - started) / 1_000_000, level - 1);
+        return finalPass.apply(merged);
+    }
+
+    /**
+     * Summarize each text with the prompt, in parallel, keeping input order
+     */
+    private List<String> mapChunks(String stage, List<String> texts, String prompt) {
+        Semaphore permits = new Semaphore(Math.max(1, maxConcurrency));
+        AtomicInteger done = new AtomicInteger();
+        List<Future<String>> futures = new ArrayList<>(texts.size());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < texts.size(); i++) {
+                int index = i;
+                String text = texts.get(i);
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        long started = System.nanoTime();
+                        String summary = call(prompt, text);
+                        log.info("Summarization {}: chunk {}/{} done in {} ms (~{} -> ~{} tokens), {}/{} complete",
+                                stage, index + 1, texts.size(), (System.nanoTime() - started) / 1_000_000,
+                                tokenCountEstimator.estimate(text), tokenCountEstimator.estimate(summary),
+                                done.incrementAndGet(), texts.size());
+                        return summary;
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            List<String> results = new ArrayList<>(texts.size());
+            for (Future<String> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Summarization interrupted", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause
+                    : new IllegalStateException("Chunk summarization failed", e.getCause());
+        }
+    }
+
+    /**
+     * Consecutive notes joined into groups of at most chunk-tokens (at least two notes per
+     * group, so every level shrinks the list)
+     */
+    private List<String> groupByBudget(List<String> notes) {
+        List<String> groups = new ArrayList<>();
+        StringBuilder group = new StringBuilder();
+        int groupTokens = 0;
+        int groupSize = 0;
+        for (String note : notes) {
+            int tokens = tokenCountEstimator.estimate(note);
+            if (groupSize >= 2 && groupTokens + tokens > chunkTokens) {
+                groups.add(group.toString());
+                group.setLength(0);
+                groupTokens = 0;
+                groupSize = 0;
+            }
+            if (groupSize > 0) {
+                group.append("\n\n---\n\n");
+            }
+            group.append(note);
+            groupTokens += tokens;
+            groupSize++;
+        }
+        if (groupSize > 0) {
+            groups.add(group.toString());
+        }
+        return groups;
+    }
+
+    /**
+     * Chunk and merge calls can number in the dozens, so they queue behind interactive traffic
+     */
+    private String call(String systemPrompt, String text) {
+        return chatClient.prompt()
+                .system(systemPrompt)
+                .user(text)
+                .advisors(advisor -> advisor.param(LlmRateLimitAdvisor.PRIORITY, LlmRateLimiter.Priority.BATCH))
+                .call()
+                .content();
+    }
 }
\ No newline at end of file
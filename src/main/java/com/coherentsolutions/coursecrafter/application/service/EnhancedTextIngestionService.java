@@ -5,24 +5,37 @@ import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
 import com.coherentsolutions.coursecrafter.application.api.ai.EnhancedAnalyzerService;
 import com.coherentsolutions.coursecrafter.application.api.ai.EnhancedUpdaterService;
 import com.coherentsolutions.coursecrafter.application.api.ai.SummarizationService;
+import com.coherentsolutions.coursecrafter.infrastructure.git.GitWorkspace;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class EnhancedTextIngestionService {
 
+    // Stages that write to the database or to git; everything before them can be repeated
+    public static final String STAGE_APPLY = "apply";
+    public static final String STAGE_PULL_REQUEST = "pull-request";
+
     private final SummarizationService summarizationService;
     private final EnhancedAnalyzerService analyzerService;
     private final EnhancedUpdaterService updaterService;
+    private final ProposalRefinementService refinementService;
+    // Runs streamed updates for SSE clients, off the request thread
+    private final ExecutorService streamExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     /**
      * Process content updates for a specific course with enhanced context
@@ -52,14 +65,9 @@ public class EnhancedTextIngestionService {
             return List.of(); // Nothing to do
         }
 
-        // 3. Refine each proposal for better quality
+        // 3. Refine each proposal for better quality, concurrently
         log.debug("Step 3: Refining proposals...");
-        List<AiProposalDto> refinedProposals = initialProposals.stream()
-                .map(proposal -> {
-                    log.debug("Refining proposal: {}", proposal.title());
-                    return analyzerService.refineProposal(proposal, null);
-                })
-                .collect(Collectors.toList());
+        List<AiProposalDto> refinedProposals = refinementService.refineAllOrOriginal(initialProposals);
         log.debug("Refined {} proposals", refinedProposals.size());
 
         // 4. Apply the proposals to create/update content
@@ -78,34 +86,184 @@ public class EnhancedTextIngestionService {
             String courseName,
             String audience,
             LocalDate reportDate) throws IOException, InterruptedException {
+        return processContent(rawContent, courseName, audience, reportDate, new StageTimer());
+    }
+
+    /**
+     * Summarize, analyze, refine and apply, timing each stage with the given timer
+     */
+    public List<ContentNode> processContent(
+            String rawContent,
+            String courseName,
+            String audience,
+            LocalDate reportDate,
+            StageTimer timer) throws IOException, InterruptedException {
 
         // Use enhanced summarization if context is provided
-        String cleanedContent;
-        if (courseName != null && audience != null && reportDate != null) {
-            cleanedContent = summarizationService.summarize(rawContent, courseName, audience, reportDate);
-        } else {
-            cleanedContent = summarizationService.summarize(rawContent);
-        }
+        String cleanedContent = timer.time("summarize", () -> {
+            if (courseName != null && audience != null && reportDate != null) {
+                return summarizationService.summarize(rawContent, courseName, audience, reportDate);
+            }
+            return summarizationService.summarize(rawContent);
+        });
 
         // Use course-specific analysis if course name is provided
-        List<AiProposalDto> initialProposals;
-        if (courseName != null) {
-            initialProposals = analyzerService.analyzeContentForCourse(courseName, cleanedContent);
-        } else {
-            initialProposals = analyzerService.analyzeContent(cleanedContent);
-        }
+        List<AiProposalDto> initialProposals = timer.time("analyze", () -> courseName != null
+                ? analyzerService.analyzeContentForCourse(courseName, cleanedContent)
+                : analyzerService.analyzeContent(cleanedContent));
 
         if (initialProposals.isEmpty()) {
             return List.of(); // Nothing to do
         }
 
-        // Refine each proposal for better quality
-        List<AiProposalDto> refinedProposals = initialProposals.stream()
-                .map(proposal -> analyzerService.refineProposal(proposal, null))
-                .collect(Collectors.toList());
+        // Refine each proposal for better quality, concurrently
+        List<AiProposalDto> refinedProposals = timer.time("refine",
+                () -> refinementService.refineAllOrOriginal(initialProposals));
 
         // Apply the proposals to create/update content
-        return updaterService.applyProposals(refinedProposals);
+        return timer.time(STAGE_APPLY, () -> updaterService.applyProposals(refinedProposals));
+    }
+
+    /**
+     * Summarize and analyze the content, then open a PR with the proposals without touching
+     * the database
+     *
+     * @return the PR URL, or null if the content needs no changes
+     */
+    public String createCourseUpdatePR(
+            String courseName,
+            String content,
+            String audience,
+            LocalDate reportDate,
+            StageTimer timer) throws IOException, InterruptedException {
+
+        String cleanedContent = timer.time("summarize",
+                () -> summarizationService.summarize(content, courseName, audience, reportDate));
+        List<AiProposalDto> proposals = timer.time("analyze",
+                () -> analyzerService.analyzeContentForCourse(courseName, cleanedContent));
+        if (proposals.isEmpty()) {
+            return null;
+        }
+        return timer.time(STAGE_PULL_REQUEST, () -> updaterService.createProposalPR(proposals));
+    }
+
+    /**
+     * Receives progress of {@link #streamProposalPR}; callbacks run on the calling thread, in order
+     */
+    public interface ProposalStreamListener {
+
+        void onProposal(int index, AiProposalDto proposal);
+
+        void onRefined(int index, ProposalRefinementService.RefinementResult result);
+
+        /**
+         * The run finished with the PR URL or a message; only called by {@link #startProposalPR}
+         */
+        default void onDone(String result) {
+        }
+
+        /**
+         * The run failed or was cancelled; only called by {@link #startProposalPR}
+         */
+        default void onFailed(Exception e) {
+        }
+    }
+
+    /**
+     * Run {@link #streamProposalPR} in the background. Cancelling the returned future with
+     * interruption stops the model stream and the refinements in flight, and discards the
+     * proposal branch unless the PR is already being opened.
+     */
+    public Future<?> startProposalPR(String courseName, String content, String audience, LocalDate reportDate,
+                                     ProposalStreamListener listener) {
+        return streamExecutor.submit(() -> {
+            try {
+                listener.onDone(streamProposalPR(courseName, content, audience, reportDate, listener));
+            } catch (InterruptedException e) {
+                log.info("Streaming course update for {} was cancelled", courseName);
+                listener.onFailed(e);
+            } catch (Exception e) {
+                log.error("Streaming course update for {} failed: {}", courseName, e.getMessage(), e);
+                listener.onFailed(e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streamExecutor.shutdownNow();
+    }
+
+    /**
+     * Streaming variant of summarize, analyze and create the proposal PR. Each proposal is
+     * refined as soon as the model has finished writing it, and refined proposals are written
+     * to the PR branch in order while later ones are still being generated or refined.
+     *
+     * @return the PR URL, or a message if nothing was proposed or changed
+     */
+    public String streamProposalPR(String courseName, String content, String audience, LocalDate reportDate,
+                                   ProposalStreamListener listener) throws IOException, InterruptedException {
+        String cleanedContent = summarizationService.summarize(content, courseName, audience, reportDate);
+        log.debug("Summarized content length: {} characters", cleanedContent.length());
+
+        List<AiProposalDto> refinedProposals = new ArrayList<>();
+        GitWorkspace workspace = null;
+        boolean gitChanges = false;
+        Deque<Future<ProposalRefinementService.RefinementResult>> pending = new ArrayDeque<>();
+
+        try {
+            try (ProposalRefinementService.Batch batch = refinementService.newBatch()) {
+                try {
+                    for (AiProposalDto proposal : analyzerService.streamContentForCourse(courseName, cleanedContent).toIterable()) {
+                        listener.onProposal(refinedProposals.size() + pending.size(), proposal);
+                        if (workspace == null) {
+                            workspace = updaterService.startProposalBranch();
+                        }
+                        pending.add(batch.submit(proposal));
+
+                        // Stage whatever has finished at the head of the queue without waiting for the rest
+                        while (!pending.isEmpty() && pending.peek().isDone()) {
+                            gitChanges |= stageRefined(workspace, pending.poll(), refinedProposals, listener);
+                        }
+                    }
+                    while (!pending.isEmpty()) {
+                        gitChanges |= stageRefined(workspace, pending.poll(), refinedProposals, listener);
+                    }
+                } catch (InterruptedException | RuntimeException e) {
+                    // Cancelled or failed: stop the refinements in flight rather than wait for them
+                    batch.cancel();
+                    throw e;
+                }
+            }
+
+            if (refinedProposals.isEmpty()) {
+                log.info("No proposals generated for course {}, nothing to update", courseName);
+                return "No updates needed. Content is already covered in the course.";
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Cancelled before the PR was opened");
+            }
+            try {
+                return updaterService.finishProposalPR(workspace, refinedProposals, gitChanges);
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                log.error("Failed to create proposal PR: {}", e.getMessage(), e);
+                throw e;
+            }
+        } finally {
+            // Hands the workspace back, discarding anything left uncommitted
+            if (workspace != null) {
+                workspace.close();
+            }
+        }
+    }
+
+    private boolean stageRefined(GitWorkspace workspace, Future<ProposalRefinementService.RefinementResult> future,
+                                 List<AiProposalDto> refinedProposals, ProposalStreamListener listener)
+            throws InterruptedException {
+        ProposalRefinementService.RefinementResult result = ProposalRefinementService.Batch.await(future);
+        listener.onRefined(refinedProposals.size(), result);
+        refinedProposals.add(result.proposal());
+        return updaterService.stageProposal(workspace, result.proposal());
     }
 
     /**
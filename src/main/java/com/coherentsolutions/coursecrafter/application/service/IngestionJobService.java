@@ -0,0 +1,390 @@
+package com.coherentsolutions.coursecrafter.application.service;
+
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
+import com.coherentsolutions.coursecrafter.domain.proposal.model.IngestionJob;
+import com.coherentsolutions.coursecrafter.domain.proposal.repository.IngestionJobRepository;
+import com.coherentsolutions.coursecrafter.domain.tag.service.ContentTaggingService;
+import com.coherentsolutions.coursecrafter.presentation.dto.content.CourseUpdateRequest;
+import com.coherentsolutions.coursecrafter.presentation.dto.content.IngestionRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent queue for the long-running ingestion pipelines. Requests are stored as QUEUED
+ * jobs and return at once; {@link IngestionJobWorkerPool} claims them one at a time with
+ * {@code FOR UPDATE SKIP LOCKED}, so several workers (or instances) never run the same job.
+ * <p>
+ * While a job runs, its current stage and the timings of finished stages are written to the
+ * row. A failed attempt is re-queued with exponential backoff until max-attempts is reached,
+ * unless it got as far as a stage with side effects (applying proposals, opening a PR): running
+ * the pipeline again would create duplicate nodes, branches or PRs, so such a job fails for good.
+ * A RUNNING job whose row has not been touched for stale-after is treated as abandoned by a
+ * crashed worker and claimed again, under the same rule. To keep a long stage from looking
+ * abandoned, the running worker touches the row every heartbeat-interval. Every write of an
+ * attempt is conditional on {@code locked_by} still naming the worker, so a worker whose job
+ * was claimed by another stops at the next stage boundary and records nothing.
+ * Jobs that can be resumed (tag extraction) record a checkpoint on the row as they go; the
+ * next attempt continues from it.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IngestionJobService {
+
+    public static final String TYPE_CONTENT_INGEST = "CONTENT_INGEST";
+    public static final String TYPE_COURSE_UPDATE = "COURSE_UPDATE";
+    public static final String TYPE_TAG_EXTRACTION = "TAG_EXTRACTION";
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+
+    private static final String CLAIM_NEXT = """
+            UPDATE ingestion_job SET status = 'RUNNING', locked_by = ?, attempts = attempts + 1,
+                   started_at = ?, updated_at = ?, current_stage = NULL, stage_timings_json = NULL
+             WHERE id = (SELECT id FROM ingestion_job
+                          WHERE (status = 'QUEUED' AND (next_attempt_at IS NULL OR next_attempt_at <= ?))
+                             OR (status = 'RUNNING' AND updated_at < ? AND attempts < max_attempts
+                                 AND coalesce(current_stage, '') NOT IN (?, ?))
+                          ORDER BY id
+                          LIMIT 1
+                          FOR UPDATE SKIP LOCKED)
+            RETURNING id
+            """;
+
+    private static final String FAIL_ABANDONED = """
+            UPDATE ingestion_job SET status = 'FAILED', locked_by = NULL, finished_at = ?, updated_at = ?,
+                   last_error = 'Worker stopped responding during the last attempt'
+             WHERE status = 'RUNNING' AND updated_at < ? AND (attempts >= max_attempts OR current_stage IN (?, ?))
+            """;
+
+    private static final Set<String> SIDE_EFFECT_STAGES = Set.of(
+            EnhancedTextIngestionService.STAGE_APPLY, EnhancedTextIngestionService.STAGE_PULL_REQUEST);
+
+    private final IngestionJobRepository jobRepository;
+    private final EnhancedTextIngestionService ingestionService;
+    private final ContentTaggingService taggingService;
+    private final JdbcTemplate jdbcTemplate;
+    // LocalDate fields in the requests need the java.time module
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final Object workSignal = new Object();
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("ingestion-heartbeat").daemon().factory());
+
+    @Value("${coursecrafter.jobs.max-attempts:3}")
+    private int maxAttempts = 3;
+
+    @Value("${coursecrafter.jobs.retry-backoff:PT30S}")
+    private Duration retryBackoff = Duration.ofSeconds(30);
+
+    @Value("${coursecrafter.jobs.max-retry-backoff:PT30M}")
+    private Duration maxRetryBackoff = Duration.ofMinutes(30);
+
+    @Value("${coursecrafter.jobs.stale-after:PT30M}")
+    private Duration staleAfter = Duration.ofMinutes(30);
+
+    // Must be well below stale-after
+    @Value("${coursecrafter.jobs.heartbeat-interval:PT1M}")
+    private Duration heartbeatInterval = Duration.ofMinutes(1);
+
+    public IngestionJob submitContentIngestion(IngestionRequest request) {
+        return submit(TYPE_CONTENT_INGEST, request.courseName(), request);
+    }
+
+    public IngestionJob submitCourseUpdate(String courseName, CourseUpdateRequest request) {
+        return submit(TYPE_COURSE_UPDATE, courseName, request);
+    }
+
+    public IngestionJob submitTagExtraction() {
+        return submit(TYPE_TAG_EXTRACTION, null, Map.of());
+    }
+
+    /**
+     * Whether a job of the type is queued (including waiting for a retry) or running
+     */
+    public boolean hasUnfinishedJob(String jobType) {
+        return jobRepository.existsByJobTypeAndStatusIn(jobType, List.of(QUEUED, RUNNING));
+    }
+
+    public Optional<IngestionJob> findJob(Long jobId) {
+        return jobRepository.findById(jobId);
+    }
+
+    /**
+     * Most recent jobs first, optionally only those in the given status
+     */
+    public List<IngestionJob> listJobs(String status, int limit) {
+        PageRequest page = PageRequest.of(0, Math.max(1, Math.min(limit, 500)));
+        return status != null
+                ? jobRepository.findByStatusOrderByIdDesc(status.toUpperCase(), page)
+                : jobRepository.findAllByOrderByIdDesc(page);
+    }
+
+    /**
+     * Atomically mark the next runnable job as RUNNING for the worker
+     */
+    public Optional<Long> claimNext(String workerName) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp staleBefore = Timestamp.valueOf(LocalDateTime.now().minus(staleAfter));
+        int abandoned = jdbcTemplate.update(FAIL_ABANDONED, now, now, staleBefore,
+                EnhancedTextIngestionService.STAGE_APPLY, EnhancedTextIngestionService.STAGE_PULL_REQUEST);
+        if (abandoned > 0) {
+            log.warn("Marked {} abandoned ingestion jobs as failed", abandoned);
+        }
+        List<Long> ids = jdbcTemplate.queryForList(CLAIM_NEXT, Long.class, workerName, now, now, now, staleBefore,
+                EnhancedTextIngestionService.STAGE_APPLY, EnhancedTextIngestionService.STAGE_PULL_REQUEST);
+        return ids.stream().findFirst();
+    }
+
+    /**
+     * Run one attempt of a job the worker claimed and record its outcome
+     */
+    public void run(Long jobId, String workerName) throws InterruptedException {
+        IngestionJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("Job not found: " + jobId));
+        log.info("Running {} job {} (attempt {}/{})", job.getJobType(), jobId, job.getAttempts(), job.getMaxAttempts());
+
+        StageTimer timer = new StageTimer(new StageTimer.Listener() {
+            @Override
+            public void stageStarted(String stage, Map<String, Long> finishedStages) {
+                updateProgress(jobId, workerName, stage, finishedStages);
+            }
+
+            @Override
+            public void stageFinished(String stage, Map<String, Long> finishedStages) {
+                updateProgress(jobId, workerName, stage, finishedStages);
+            }
+        });
+
+        long interval = Math.max(1, heartbeatInterval.toMillis());
+        ScheduledFuture<?> heartbeat = heartbeats.scheduleWithFixedDelay(
+                () -> heartbeat(jobId, workerName), interval, interval, TimeUnit.MILLISECONDS);
+        try {
+            Object result = execute(job, workerName, timer);
+            int updated = jdbcTemplate.update("""
+                    UPDATE ingestion_job SET status = 'SUCCEEDED', result_json = ?, stage_timings_json = ?,
+                           current_stage = NULL, locked_by = NULL, last_error = NULL, finished_at = ?, updated_at = ?
+                     WHERE id = ? AND locked_by = ?
+                    """, toJson(result), toJson(timer.getDurations()),
+                    Timestamp.valueOf(LocalDateTime.now()), Timestamp.valueOf(LocalDateTime.now()), jobId, workerName);
+            if (updated == 0) {
+                log.warn("Job {} finished after {} lost its claim; the result is discarded", jobId, workerName);
+            } else {
+                log.info("Job {} succeeded, stage timings: {}", jobId, timer.getDurations());
+            }
+        } catch (ClaimLostException e) {
+            log.warn("{} stopped job {} in stage {}: {}", workerName, jobId, timer.getCurrentStage(), e.getMessage());
+        } catch (InterruptedException e) {
+            recordFailure(job, workerName, timer, e, !hasSideEffects(timer));
+            throw e;
+        } catch (Exception e) {
+            // Bad input will not get better on retry
+            recordFailure(job, workerName, timer, e, !(e instanceof IllegalArgumentException) && !hasSideEffects(timer));
+        } finally {
+            heartbeat.cancel(false);
+        }
+    }
+
+    /**
+     * Block until a job is submitted in this process or the timeout passes
+     */
+    public void awaitWork(Duration timeout) throws InterruptedException {
+        synchronized (workSignal) {
+            workSignal.wait(Math.max(1, timeout.toMillis()));
+        }
+    }
+
+    public void signalWork() {
+        synchronized (workSignal) {
+            workSignal.notifyAll();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+    }
+
+    /**
+     * Touch the row of a running job while the worker still holds it; false once it does not
+     */
+    boolean heartbeat(Long jobId, String workerName) {
+        try {
+            int updated = jdbcTemplate.update("UPDATE ingestion_job SET updated_at = ? WHERE id = ? AND locked_by = ?",
+                    Timestamp.valueOf(LocalDateTime.now()), jobId, workerName);
+            if (updated == 0) {
+                log.warn("{} no longer holds job {}; it stops at the next stage", workerName, jobId);
+            }
+            return updated > 0;
+        } catch (DataAccessException e) {
+            // The next beat tries again; stale-after allows for several misses
+            log.warn("Heartbeat for job {} failed: {}", jobId, e.getMessage());
+            return true;
+        }
+    }
+
+    private IngestionJob submit(String jobType, String courseName, Object request) {
+        LocalDateTime now = LocalDateTime.now();
+        IngestionJob job = jobRepository.save(IngestionJob.builder()
+                .jobType(jobType)
+                .status(QUEUED)
+                .courseName(courseName)
+                .requestJson(toJson(request))
+                .maxAttempts(Math.max(1, maxAttempts))
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        log.info("Queued {} job {} for course {}", jobType, job.getId(), courseName);
+        signalWork();
+        return job;
+    }
+
+    private Object execute(IngestionJob job, String workerName, StageTimer timer) throws Exception {
+        switch (job.getJobType()) {
+            case TYPE_CONTENT_INGEST -> {
+                IngestionRequest request = objectMapper.readValue(job.getRequestJson(), IngestionRequest.class);
+                boolean withContext = request.courseName() != null && request.audience() != null
+                        && request.reportDate() != null;
+                List<ContentNode> updatedNodes = ingestionService.processContent(request.payload(),
+                        withContext ? request.courseName() : null,
+                        withContext ? request.audience() : null,
+                        withContext ? request.reportDate() : null,
+                        timer);
+                return Map.of(
+                        "message", updatedNodes.isEmpty()
+                                ? "No updates needed. Content is already covered or not relevant."
+                                : "Created/updated " + updatedNodes.size() + " content nodes",
+                        "nodes", updatedNodes.stream().map(this::nodeInfo).toList());
+            }
+            case TYPE_COURSE_UPDATE -> {
+                CourseUpdateRequest request = objectMapper.readValue(job.getRequestJson(), CourseUpdateRequest.class);
+                String prUrl = ingestionService.createCourseUpdatePR(job.getCourseName(), request.content(),
+                        request.audience(), request.reportDate(), timer);
+                return prUrl == null
+                        ? Map.of("message", "No updates needed. Content is already covered in the course.")
+                        : Map.of("message", "Pull Request created with the proposed changes",
+                        "pr_url", prUrl,
+                        "note", "Changes will be applied to the database after PR approval");
+            }
+            case TYPE_TAG_EXTRACTION -> {
+                // Continue after the last node tagged by an earlier attempt
+                Long afterNodeId = job.getCheckpoint() != null ? Long.valueOf(job.getCheckpoint()) : null;
+                ContentTaggingService.TaggingResult result = timer.time("tag", () ->
+                        taggingService.tagNodes(afterNodeId, lastNodeId -> saveCheckpoint(job.getId(), workerName, lastNodeId)));
+                return Map.of(
+                        "message", "Tagged " + result.taggedNodes() + " of " + result.nodes() + " content nodes"
+                                + (afterNodeId != null ? " after node " + afterNodeId : ""),
+                        "links", result.links());
+            }
+            default -> throw new IllegalArgumentException("Unknown job type: " + job.getJobType());
+        }
+    }
+
+    private Map<String, Object> nodeInfo(ContentNode node) {
+        Map<String, Object> info = new HashMap<>();
+        info.put("id", node.getId());
+        info.put("title", node.getTitle());
+        info.put("type", node.getNodeType().toString());
+        info.put("path", node.getPath());
+        return info;
+    }
+
+    /**
+     * Whether the attempt started a stage that writes nodes, branches or PRs. Those stages are
+     * not idempotent, and a failure there may leave part of their work committed (a checked
+     * exception does not roll back the apply transaction).
+     */
+    private static boolean hasSideEffects(StageTimer timer) {
+        return SIDE_EFFECT_STAGES.contains(timer.getCurrentStage())
+                || timer.getDurations().keySet().stream().anyMatch(SIDE_EFFECT_STAGES::contains);
+    }
+
+    private void recordFailure(IngestionJob job, String workerName, StageTimer timer, Exception e, boolean retryable) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean retry = retryable && job.getAttempts() < job.getMaxAttempts();
+        // 30s, 60s, 120s, ... capped at max-retry-backoff
+        Duration backoff = retryBackoff.multipliedBy(1L << Math.min(20, Math.max(0, job.getAttempts() - 1)));
+        if (backoff.compareTo(maxRetryBackoff) > 0) {
+            backoff = maxRetryBackoff;
+        }
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+
+        int updated = jdbcTemplate.update("""
+                UPDATE ingestion_job SET status = ?, last_error = ?, stage_timings_json = ?, locked_by = NULL,
+                       next_attempt_at = ?, finished_at = ?, updated_at = ?
+                 WHERE id = ? AND locked_by = ?
+                """, retry ? QUEUED : FAILED, error, toJson(timer.getDurations()),
+                retry ? Timestamp.valueOf(now.plus(backoff)) : null,
+                retry ? null : Timestamp.valueOf(now),
+                Timestamp.valueOf(now), job.getId(), workerName);
+
+        if (updated == 0) {
+            log.warn("Job {} failed after {} lost its claim, not recorded: {}", job.getId(), workerName, error);
+        } else if (retry) {
+            log.warn("Job {} failed in stage {} (attempt {}/{}), retrying in {} s: {}", job.getId(),
+                    timer.getCurrentStage(), job.getAttempts(), job.getMaxAttempts(), backoff.toSeconds(), error, e);
+        } else if (retryable) {
+            log.error("Job {} failed after {} attempts: {}", job.getId(), job.getAttempts(), error, e);
+        } else {
+            log.error("Job {} failed in stage {}, not retrying: {}", job.getId(), timer.getCurrentStage(), error, e);
+        }
+    }
+
+    private void saveCheckpoint(Long jobId, String workerName, long checkpoint) {
+        int updated = jdbcTemplate.update("UPDATE ingestion_job SET checkpoint = ?, updated_at = ? WHERE id = ? AND locked_by = ?",
+                String.valueOf(checkpoint), Timestamp.valueOf(LocalDateTime.now()), jobId, workerName);
+        if (updated == 0) {
+            throw new ClaimLostException(jobId, workerName);
+        }
+    }
+
+    private void updateProgress(Long jobId, String workerName, String stage, Map<String, Long> finishedStages) {
+        int updated = jdbcTemplate.update(
+                "UPDATE ingestion_job SET current_stage = ?, stage_timings_json = ?, updated_at = ? WHERE id = ? AND locked_by = ?",
+                stage, toJson(new LinkedHashMap<>(finishedStages)), Timestamp.valueOf(LocalDateTime.now()), jobId, workerName);
+        if (updated == 0) {
+            throw new ClaimLostException(jobId, workerName);
+        }
+    }
+
+    /**
+     * The job row no longer names this worker: it was taken for abandoned and claimed again
+     */
+    static class ClaimLostException extends IllegalStateException {
+        ClaimLostException(Long jobId, String workerName) {
+            super("Job " + jobId + " is no longer held by " + workerName);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize job data", e);
+        }
+    }
+}
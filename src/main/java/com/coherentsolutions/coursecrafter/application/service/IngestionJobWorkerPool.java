@@ -0,0 +1,122 @@
+package com.coherentsolutions.coursecrafter.application.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Virtual-thread workers that take jobs from {@link IngestionJobService}. The pool starts
+ * with {@code coursecrafter.jobs.workers} workers and can be resized at runtime through
+ * {@link #resize}; surplus workers stop after finishing their current job.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Order(20) // After schema setup and imports
+public class IngestionJobWorkerPool implements CommandLineRunner {
+
+    private final IngestionJobService jobService;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile int targetWorkers;
+
+    @Value("${coursecrafter.jobs.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${coursecrafter.jobs.workers:2}")
+    private int initialWorkers = 2;
+
+    // Upper bound on idle time before a worker looks for due retries and jobs queued elsewhere
+    @Value("${coursecrafter.jobs.poll-interval:PT5S}")
+    private Duration pollInterval = Duration.ofSeconds(5);
+
+    @Override
+    public void run(String... args) {
+        if (enabled) {
+            resize(initialWorkers);
+        }
+    }
+
+    /**
+     * Change the number of workers; 0 pauses job processing
+     */
+    public synchronized void resize(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Worker count must not be negative: " + count);
+        }
+        targetWorkers = count;
+        for (int index = 0; index < count; index++) {
+            // A worker told to stop earlier may still be finishing its job; it keeps its slot
+            if (index < workers.size() && workers.get(index).isAlive()) {
+                continue;
+            }
+            int slot = index;
+            Thread worker = Thread.ofVirtual()
+                    .name("ingestion-worker-" + slot)
+                    .start(() -> work(slot));
+            if (index < workers.size()) {
+                workers.set(index, worker);
+            } else {
+                workers.add(worker);
+            }
+        }
+        jobService.signalWork();
+        log.info("Ingestion worker pool resized to {}", count);
+    }
+
+    public int getTargetWorkers() {
+        return targetWorkers;
+    }
+
+    public synchronized int getActiveWorkers() {
+        return (int) workers.stream().filter(Thread::isAlive).count();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        targetWorkers = 0;
+        jobService.signalWork();
+    }
+
+    private void work(int slot) {
+        String workerName = Thread.currentThread().getName();
+        log.debug("{} started", workerName);
+        while (slot < targetWorkers) {
+            try {
+                Optional<Long> job = jobService.claimNext(workerName);
+                if (job.isPresent()) {
+                    jobService.run(job.get(), workerName);
+                } else {
+                    jobService.awaitWork(pollInterval);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (DataAccessException e) {
+                log.warn("{} could not poll for jobs: {}", workerName, e.getMessage());
+                sleepQuietly();
+            } catch (RuntimeException e) {
+                log.error("{} hit an unexpected error: {}", workerName, e.getMessage(), e);
+                sleepQuietly();
+            }
+        }
+        log.debug("{} stopped", workerName);
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(pollInterval.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.coherentsolutions.coursecrafter.application.service;
+
+import com.coherentsolutions.coursecrafter.application.api.ai.EnhancedAnalyzerService;
+import com.coherentsolutions.coursecrafter.presentation.dto.ai.AiProposalDto;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Refines a batch of proposals concurrently: one virtual thread per call, at most
+ * {@code max-concurrency} LLM calls in flight, and a timeout per call. Results come back in
+ * input order; a proposal whose refinement fails or times out keeps its original content and
+ * carries the error, so one bad call does not fail the batch.
+ * <p>
+ * When the whole list is known up front, proposals are packed into groups of up to
+ * {@code group-max-tokens} and refined with one call per group; any proposal the group call
+ * does not return a valid answer for is refined on its own.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProposalRefinementService {
+
+    private final EnhancedAnalyzerService analyzerService;
+    // LLM calls run here rather than on the batch executor, so a timed-out call that ignores
+    // interruption is abandoned instead of holding up the end of the batch
+    private final ExecutorService callExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${coursecrafter.ai.refinement.max-concurrency:4}")
+    private int maxConcurrency = 4;
+
+    @Value("${coursecrafter.ai.refinement.timeout:PT90S}")
+    private Duration timeout = Duration.ofSeconds(90);
+
+    // Budget for the proposal content sent in one grouped call; 0 refines every proposal on its own
+    @Value("${coursecrafter.ai.refinement.group-max-tokens:4000}")
+    private int groupMaxTokens = 4000;
+
+    @Value("${coursecrafter.ai.refinement.group-max-proposals:8}")
+    private int groupMaxProposals = 8;
+
+    @Value("${coursecrafter.ai.refinement.group-timeout:PT180S}")
+    private Duration groupTimeout = Duration.ofSeconds(180);
+
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+
+    /**
+     * Outcome for one proposal; proposal is the refined version, or the original when error is set
+     */
+    public record RefinementResult(AiProposalDto proposal, String error) {
+
+        public boolean failed() {
+            return error != null;
+        }
+    }
+
+    public List<RefinementResult> refineAll(List<AiProposalDto> proposals) throws InterruptedException {
+        long started = System.nanoTime();
+        List<RefinementResult> results = new ArrayList<>(proposals.size());
+
+        try (Batch batch = newBatch()) {
+            for (Future<RefinementResult> future : batch.submitAll(proposals)) {
+                results.add(Batch.await(future));
+            }
+        }
+
+        long failed = results.stream().filter(RefinementResult::failed).count();
+        log.info("Refined {} proposals ({} failed) in {} ms", proposals.size(), failed,
+                (System.nanoTime() - started) / 1_000_000);
+        return results;
+    }
+
+    /**
+     * A batch that takes proposals all at once or one at a time, e.g. while they are still
+     * streaming in from the model. The concurrency limit applies across everything submitted
+     * to the batch.
+     */
+    public Batch newBatch() {
+        return new Batch();
+    }
+
+    public final class Batch implements AutoCloseable {
+
+        private final Semaphore permits = new Semaphore(Math.max(1, maxConcurrency));
+        private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        // Futures handed out by submitAll, which cancel must not leave pending
+        private final List<CompletableFuture<RefinementResult>> grouped = new CopyOnWriteArrayList<>();
+
+        private Batch() {
+        }
+
+        /**
+         * Start refining the proposal; the future never completes exceptionally
+         */
+        public Future<RefinementResult> submit(AiProposalDto proposal) {
+            return executor.submit(() -> refineAlone(proposal));
+        }
+
+        /**
+         * Start refining the proposals, grouped into as few calls as the budget allows; futures
+         * are in input order and never complete exceptionally
+         */
+        public List<Future<RefinementResult>> submitAll(List<AiProposalDto> proposals) {
+            List<CompletableFuture<RefinementResult>> futures = new ArrayList<>(proposals.size());
+            for (int index = 0; index < proposals.size(); index++) {
+                futures.add(new CompletableFuture<>());
+            }
+            grouped.addAll(futures);
+            for (List<Integer> group : groupByBudget(proposals)) {
+                executor.submit(() -> {
+                    try {
+                        refineGroup(group, proposals, futures);
+                    } catch (InterruptedException e) {
+                        group.forEach(index -> futures.get(index).completeExceptionally(e));
+                    } catch (Throwable e) {
+                        // Whatever escaped, no caller may be left waiting on this group
+                        log.error("Refinement of a group of {} proposals failed", group.size(), e);
+                        group.forEach(index -> futures.get(index).complete(
+                                new RefinementResult(proposals.get(index), describe(e, groupTimeout))));
+                    }
+                });
+            }
+            return List.copyOf(futures);
+        }
+
+        private void refineGroup(List<Integer> group, List<AiProposalDto> proposals,
+                                 List<CompletableFuture<RefinementResult>> futures) throws InterruptedException {
+            Map<Integer, AiProposalDto> refined = Map.of();
+            if (group.size() > 1) {
+                List<AiProposalDto> members = group.stream().map(proposals::get).toList();
+                try {
+                    log.debug("Refining {} proposals in one call", members.size());
+                    refined = callWithPermit(() -> analyzerService.refineProposals(members), groupTimeout);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    log.warn("Grouped refinement of {} proposals failed, refining them one by one: {}",
+                            members.size(), describe(e, groupTimeout));
+                }
+                if (refined.size() < members.size()) {
+                    log.info("Grouped refinement returned {}/{} valid proposals, refining the rest one by one",
+                            refined.size(), members.size());
+                }
+            }
+            for (int position = 0; position < group.size(); position++) {
+                int index = group.get(position);
+                AiProposalDto result = refined.get(position);
+                if (result != null) {
+                    futures.get(index).complete(new RefinementResult(result, null));
+                } else {
+                    // Each fallback gets a task of its own, so they share the free permits
+                    // instead of running one after another on this thread
+                    refineAloneInto(proposals.get(index), futures.get(index));
+                }
+            }
+        }
+
+        private void refineAloneInto(AiProposalDto proposal, CompletableFuture<RefinementResult> future) {
+            try {
+                executor.submit(() -> {
+                    try {
+                        future.complete(refineAlone(proposal));
+                    } catch (InterruptedException e) {
+                        future.completeExceptionally(e);
+                    } catch (Throwable e) {
+                        log.error("Refinement failed for proposal '{}'", proposal.title(), e);
+                        future.complete(new RefinementResult(proposal, describe(e, timeout)));
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                future.complete(new RefinementResult(proposal, "Refinement batch already closed"));
+            }
+        }
+
+        private RefinementResult refineAlone(AiProposalDto proposal) throws InterruptedException {
+            try {
+                log.debug("Refining proposal: {}", proposal.title());
+                return new RefinementResult(callWithPermit(() -> analyzerService.refineProposal(proposal, null), timeout), null);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                String error = describe(e, timeout);
+                log.warn("Refinement failed for proposal '{}', keeping the original: {}", proposal.title(), error);
+                return new RefinementResult(proposal, error);
+            }
+        }
+
+        /**
+         * Run the call under a permit. The timeout starts once the permit is held, so waiting for a
+         * slot does not count against it. A call abandoned after the timeout keeps its permit until
+         * it actually returns, so calls that ignore interruption cannot push the batch past
+         * max-concurrency.
+         */
+        private <T> T callWithPermit(Callable<T> refinement, Duration timeout) throws Exception {
+            permits.acquire();
+            // Whoever sets this releases the permit: the call once it returns, or the caller if it never started
+            AtomicBoolean owned = new AtomicBoolean();
+            CompletableFuture<T> result = new CompletableFuture<>();
+            Future<?> call;
+            try {
+                call = callExecutor.submit(() -> {
+                    if (!owned.compareAndSet(false, true)) {
+                        return;
+                    }
+                    try {
+                        result.complete(refinement.call());
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw e;
+            }
+            try {
+                return result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | InterruptedException e) {
+                call.cancel(true);
+                if (owned.compareAndSet(false, true)) {
+                    permits.release();
+                }
+                throw e;
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+
+        static RefinementResult await(Future<RefinementResult> future) throws InterruptedException {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                // Only interruption escapes submit's task
+                throw (InterruptedException) new InterruptedException("Refinement interrupted").initCause(e.getCause());
+            }
+        }
+
+        /**
+         * Interrupts the refinements still waiting or running; their futures fail
+         */
+        public void cancel() {
+            executor.shutdownNow();
+            grouped.forEach(future -> future.completeExceptionally(new InterruptedException("Refinement cancelled")));
+        }
+
+        /**
+         * Waits for all submitted refinements
+         */
+        @Override
+        public void close() {
+            executor.close();
+        }
+    }
+
+    /**
+     * Interrupts LLM calls still running, including ones abandoned after a timeout
+     */
+    @PreDestroy
+    public void shutdown() {
+        callExecutor.shutdownNow();
+    }
+
+    /**
+     * Refined proposals in input order, falling back to the original for failed ones
+     */
+    public List<AiProposalDto> refineAllOrOriginal(List<AiProposalDto> proposals) throws InterruptedException {
+        return refineAll(proposals).stream()
+                .map(RefinementResult::proposal)
+                .toList();
+    }
+
+    /**
+     * Indexes of the proposals to refine together, in input order. Proposals without content
+     * (nothing to send) and proposals over the budget on their own get a group of one.
+     */
+    List<List<Integer>> groupByBudget(List<AiProposalDto> proposals) {
+        List<List<Integer>> groups = new ArrayList<>();
+        List<Integer> group = new ArrayList<>();
+        int groupTokens = 0;
+        for (int index = 0; index < proposals.size(); index++) {
+            String content = EnhancedAnalyzerService.contentToRefine(proposals.get(index));
+            int tokens = content == null || content.isBlank() ? -1 : tokenCountEstimator.estimate(content);
+            if (tokens < 0 || tokens > groupMaxTokens) {
+                groups.add(List.of(index));
+                continue;
+            }
+            if (!group.isEmpty() && (groupTokens + tokens > groupMaxTokens || group.size() >= groupMaxProposals)) {
+                groups.add(group);
+                group = new ArrayList<>();
+                groupTokens = 0;
+            }
+            group.add(index);
+            groupTokens += tokens;
+        }
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    private static String describe(Throwable e, Duration timeout) {
+        return e instanceof TimeoutException
+                ? "Refinement timed out after " + timeout.toMillis() + " ms"
+                : e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+}
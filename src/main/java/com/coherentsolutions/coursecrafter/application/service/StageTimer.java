@@ -0,0 +1,71 @@
+package com.coherentsolutions.coursecrafter.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Times the named stages of an ingestion pipeline (summarize, analyze, refine, ...) and
+ * reports each stage start and end to a listener, e.g. to keep a job row up to date.
+ */
+@Slf4j
+public class StageTimer {
+
+    public interface Listener {
+
+        void stageStarted(String stage, Map<String, Long> finishedStages);
+
+        void stageFinished(String stage, Map<String, Long> finishedStages);
+    }
+
+    @FunctionalInterface
+    public interface StageCall<T> {
+        T call() throws IOException, InterruptedException;
+    }
+
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+    private final Listener listener;
+    private String currentStage;
+
+    public StageTimer() {
+        this(null);
+    }
+
+    public StageTimer(Listener listener) {
+        this.listener = listener;
+    }
+
+    public <T> T time(String stage, StageCall<T> call) throws IOException, InterruptedException {
+        if (listener != null) {
+            listener.stageStarted(stage, getDurations());
+        }
+        currentStage = stage;
+        long started = System.nanoTime();
+        T result = call.call();
+        currentStage = null;
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        durations.put(stage, millis);
+        log.debug("Stage {} finished in {} ms", stage, millis);
+        if (listener != null) {
+            listener.stageFinished(stage, getDurations());
+        }
+        return result;
+    }
+
+    /**
+     * Stage that is running, or that threw, or null
+     */
+    public String getCurrentStage() {
+        return currentStage;
+    }
+
+    /**
+     * Milliseconds per finished stage, in execution order
+     */
+    public Map<String, Long> getDurations() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(durations));
+    }
+}
@@ -0,0 +1,77 @@
+package com.coherentsolutions.coursecrafter.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * PostgreSQL-specific schema pieces that Hibernate's ddl-auto cannot express.
+ * Every statement is idempotent, so this runs on each startup, before any import. A failing
+ * statement is logged and the rest still run.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@Order(0) // Indexes and path backfill before any import
+public class ContentSchemaInitializer implements CommandLineRunner {
+
+    private static final String[] DDL = {
+            // Prefix (LIKE 'a/b/%') scans on the materialized path
+            "CREATE INDEX IF NOT EXISTS idx_content_node_path ON content_node (path text_pattern_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_content_node_parent ON content_node (parent_id, display_order)",
+            "CREATE INDEX IF NOT EXISTS idx_slide_component_slide ON slide_component (slide_node_id, display_order)",
+            // Full-text search (ContentSearchService): the vectors are generated columns, so every write
+            // path keeps them current. Slide bodies are searched through their components.
+            "ALTER TABLE content_node ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (" +
+                    "setweight(to_tsvector('english', coalesce(title, '')), 'A') || " +
+                    "setweight(to_tsvector('english', coalesce(description, '')), 'B') || " +
+                    "setweight(to_tsvector('english', CASE WHEN node_type = 'SLIDE' THEN '' " +
+                    "ELSE coalesce(markdown_content, '') END), 'C')) STORED",
+            "ALTER TABLE slide_component ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (" +
+                    "to_tsvector('english', coalesce(content, ''))) STORED",
+            "CREATE INDEX IF NOT EXISTS idx_content_node_search ON content_node USING gin (search_vector)",
+            "CREATE INDEX IF NOT EXISTS idx_slide_component_search ON slide_component USING gin (search_vector)"
+    };
+
+    // Recompute "<parent path>/<id>" for every node; only rows that differ are written
+    private static final String BACKFILL_PATHS =
+            "WITH RECURSIVE tree AS (" +
+                    "SELECT id, id::text AS expected FROM content_node WHERE parent_id IS NULL " +
+                    "UNION ALL " +
+                    "SELECT c.id, t.expected || '/' || c.id FROM content_node c JOIN tree t ON c.parent_id = t.id) " +
+                    "UPDATE content_node n SET path = t.expected FROM tree t " +
+                    "WHERE n.id = t.id AND n.path IS DISTINCT FROM t.expected";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(String... args) {
+        // Statements are independent: one that fails (e.g. no permission to alter a table) must not
+        // keep the indexes and the path backfill after it from being applied
+        int failed = 0;
+        for (String statement : DDL) {
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (DataAccessException e) {
+                failed++;
+                log.warn("Could not apply content schema statement [{}]: {}", statement, e.getMessage());
+            }
+        }
+        if (failed > 0) {
+            log.warn("{} of {} content schema statements failed; features that depend on them are unavailable",
+                    failed, DDL.length);
+        }
+        try {
+            int repaired = jdbcTemplate.update(BACKFILL_PATHS);
+            if (repaired > 0) {
+                log.info("Rewrote materialized path for {} content nodes", repaired);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not backfill materialized paths: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.coherentsolutions.coursecrafter.domain.ai.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persisted LLM answer, keyed by the SHA-256 of model, prompt and course version
+ */
+@Entity
+@Table(name = "llm_response_cache", indexes = {
+        @Index(name = "idx_llm_response_cache_expires", columnList = "expiresAt"),
+        @Index(name = "idx_llm_response_cache_last_used", columnList = "lastUsedAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LlmResponseCacheEntry {
+    @Id
+    @Column(length = 64)
+    private String cacheKey;
+
+    private String model;
+
+    @Column(length = 64)
+    private String courseVersion;
+
+    @Lob @Column(columnDefinition = "text")
+    private String responseText;
+
+    private long latencyMillis;  // how long the original call took
+    private long hitCount;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime lastUsedAt;
+    private LocalDateTime expiresAt;
+}
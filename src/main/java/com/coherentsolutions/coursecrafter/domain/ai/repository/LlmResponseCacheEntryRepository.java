@@ -0,0 +1,34 @@
+package com.coherentsolutions.coursecrafter.domain.ai.repository;
+
+import com.coherentsolutions.coursecrafter.domain.ai.model.LlmResponseCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface LlmResponseCacheEntryRepository extends JpaRepository<LlmResponseCacheEntry, String> {
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE LlmResponseCacheEntry e SET e.hitCount = e.hitCount + 1, e.lastUsedAt = :now WHERE e.cacheKey = :cacheKey")
+    int recordHit(@Param("cacheKey") String cacheKey, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM LlmResponseCacheEntry e WHERE e.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    /**
+     * Keep only the most recently used entries
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM llm_response_cache WHERE cache_key IN (
+                SELECT cache_key FROM llm_response_cache ORDER BY last_used_at DESC OFFSET :keep)
+            """, nativeQuery = true)
+    int deleteLeastRecentlyUsed(@Param("keep") long keep);
+}
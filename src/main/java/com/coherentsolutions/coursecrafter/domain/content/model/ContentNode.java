@@ -54,6 +54,10 @@ public class ContentNode {
     @JdbcTypeCode(SqlTypes.JSON)
     private String metadataJson;  // Flexible extra attributes
 
+    // SHA-256 of the node's own fields and markdown, used by incremental re-import to skip unchanged rows
+    @Column(length = 64)
+    private String contentHash;
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
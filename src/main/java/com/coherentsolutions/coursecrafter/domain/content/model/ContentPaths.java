@@ -0,0 +1,62 @@
+package com.coherentsolutions.coursecrafter.domain.content.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Materialized path encoding for ContentNode.path: the ids from the root down to the node,
+ * joined with '/', e.g. "12/40/41/57". A node's path never changes unless the node is moved,
+ * and every descendant's path starts with "&lt;path&gt;/", which the text_pattern_ops index on
+ * content_node.path turns into an index range scan.
+ */
+public final class ContentPaths {
+
+    public static final String SEPARATOR = "/";
+
+    private ContentPaths() {
+        throw new AssertionError("Utility class should not be instantiated");
+    }
+
+    public static String childPath(String parentPath, long id) {
+        return parentPath == null ? Long.toString(id) : parentPath + SEPARATOR + id;
+    }
+
+    /**
+     * LIKE pattern matching every descendant (not the node itself). Paths only contain digits
+     * and separators, so nothing needs escaping.
+     */
+    public static String descendantPattern(String path) {
+        return path + SEPARATOR + "%";
+    }
+
+    /**
+     * Id of the root the path starts from, or null for a node without a path
+     */
+    public static Long rootId(String path) {
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        int slash = path.indexOf(SEPARATOR);
+        return Long.valueOf(slash < 0 ? path : path.substring(0, slash));
+    }
+
+    /**
+     * Paths of all ancestors, root first
+     */
+    public static List<String> ancestorPaths(String path) {
+        List<String> ancestors = new ArrayList<>();
+        if (path == null) {
+            return ancestors;
+        }
+        int slash = path.indexOf(SEPARATOR);
+        while (slash >= 0) {
+            ancestors.add(path.substring(0, slash));
+            slash = path.indexOf(SEPARATOR, slash + 1);
+        }
+        return ancestors;
+    }
+
+    public static boolean isSameOrDescendant(String candidate, String ancestorPath) {
+        return candidate.equals(ancestorPath) || candidate.startsWith(ancestorPath + SEPARATOR);
+    }
+}
@@ -0,0 +1,74 @@
+package com.coherentsolutions.coursecrafter.domain.content.model;
+
+import com.coherentsolutions.coursecrafter.domain.slide.model.SlideComponent;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only, fully loaded view of a content subtree. Nodes and slide components are copied into
+ * records when ContentHierarchyService.loadSubtree builds the tree, so walking it issues no
+ * queries and no JPA entity is reachable from it.
+ */
+@Getter
+public class ContentTreeNode {
+
+    private final Node node;
+    private final List<ContentTreeNode> children;
+    private final List<Component> components;
+
+    /**
+     * The columns of a ContentNode that readers of the tree use
+     */
+    public record Node(Long id, Long parentId, ContentNode.NodeType nodeType, String title, String description,
+                       String nodeNumber, Integer displayOrder, String path, String markdownContent,
+                       String contentHash) {
+
+        public static Node of(ContentNode node) {
+            return new Node(node.getId(), node.getParent() != null ? node.getParent().getId() : null,
+                    node.getNodeType(), node.getTitle(), node.getDescription(), node.getNodeNumber(),
+                    node.getDisplayOrder(), node.getPath(), node.getMarkdownContent(), node.getContentHash());
+        }
+    }
+
+    /**
+     * The columns of a SlideComponent that readers of the tree use
+     */
+    public record Component(Long id, SlideComponent.ComponentType componentType, String content,
+                            Integer displayOrder, String contentHash) {
+
+        public static Component of(SlideComponent component) {
+            return new Component(component.getId(), component.getComponentType(), component.getContent(),
+                    component.getDisplayOrder(), component.getContentHash());
+        }
+    }
+
+    public ContentTreeNode(ContentNode node) {
+        this(Node.of(node), new ArrayList<>(), new ArrayList<>());
+    }
+
+    private ContentTreeNode(Node node, List<ContentTreeNode> children, List<Component> components) {
+        this.node = node;
+        this.children = children;
+        this.components = components;
+    }
+
+    public void addChild(ContentTreeNode child) {
+        children.add(child);
+    }
+
+    public void addComponent(SlideComponent component) {
+        components.add(Component.of(component));
+    }
+
+    /**
+     * Deep copy with unmodifiable lists; together with the immutable records it is safe to share
+     * between threads
+     */
+    public ContentTreeNode freeze() {
+        return new ContentTreeNode(node,
+                children.stream().map(ContentTreeNode::freeze).toList(),
+                List.copyOf(components));
+    }
+}
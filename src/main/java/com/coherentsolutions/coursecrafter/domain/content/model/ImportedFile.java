@@ -0,0 +1,39 @@
+package com.coherentsolutions.coursecrafter.domain.content.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Last imported version of a course markdown file, so an unchanged file is not parsed again
+ * and the lectures of a changed or deleted file can be found
+ */
+@Entity
+@Table(name = "imported_file")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportedFile {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String fileName;
+
+    @Column(length = 64)
+    private String contentHash;  // SHA-256 of the file bytes
+
+    private String courseTitle;
+
+    // Titles of the lectures parsed from the file, one per line; a re-import retires the ones that left it
+    @Column(columnDefinition = "text")
+    private String lectureTitles;
+
+    private LocalDateTime importedAt;
+}
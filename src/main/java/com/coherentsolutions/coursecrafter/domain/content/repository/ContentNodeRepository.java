@@ -1,10 +1,14 @@
 package com.coherentsolutions.coursecrafter.domain.content.repository;
 
 import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentPaths;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,38 +31,89 @@ public interface ContentNodeRepository extends JpaRepository<ContentNode, Long>
     List<ContentNode> findByNodeTypeAndParentId(ContentNode.NodeType nodeType, Long parentId);
 
     /**
-     * Find all slides under a lecture (directly or through sections/topics)
+     * Load a node and all of its descendants in one query, ordered by displayOrder
      */
-    @Query("SELECT n FROM ContentNode n WHERE n.nodeType = 'SLIDE' AND " +
-            "(n.parent.id = :lectureId OR " +
-            "n.parent.parent.id = :lectureId OR " +
-            "n.parent.parent.parent.id = :lectureId) " +
-            "ORDER BY n.displayOrder")
-    List<ContentNode> findSlidesUnderLecture(@Param("lectureId") Long lectureId);
+    @Query(value = "WITH RECURSIVE subtree AS (" +
+            "SELECT * FROM content_node WHERE id = :rootId " +
+            "UNION ALL " +
+            "SELECT c.* FROM content_node c JOIN subtree s ON c.parent_id = s.id) " +
+            "SELECT * FROM subtree ORDER BY display_order, id", nativeQuery = true)
+    List<ContentNode> findSubtree(@Param("rootId") Long rootId);
+
+    @Query("SELECT cn FROM ContentNode cn WHERE cn.path LIKE :pathPattern ORDER BY cn.displayOrder")
+    List<ContentNode> findByPathPatternOrderByDisplayOrder(@Param("pathPattern") String pathPattern);
+
+    @Query("SELECT cn FROM ContentNode cn WHERE cn.nodeType = :nodeType AND cn.path LIKE :pathPattern ORDER BY cn.displayOrder")
+    List<ContentNode> findByNodeTypeAndPathPattern(@Param("nodeType") ContentNode.NodeType nodeType,
+                                                   @Param("pathPattern") String pathPattern);
+
+    List<ContentNode> findByPathIn(Collection<String> paths);
 
     /**
-     * Find previous slide based on display order
+     * All descendants of a node at any depth, ordered by display order
      */
-    @Query("SELECT n FROM ContentNode n WHERE n.nodeType = 'SLIDE' AND " +
-            "n.displayOrder < :currentOrder AND " +
-            "(n.parent.id = :parentId OR " +
-            "n.parent.parent.id = :parentId OR " +
-            "n.parent.parent.parent.id = :parentId) " +
-            "ORDER BY n.displayOrder DESC LIMIT 1")
-    Optional<ContentNode> findPreviousSlide(
-            @Param("currentOrder") Integer currentOrder,
-            @Param("parentId") Long parentId);
+    default List<ContentNode> findDescendants(ContentNode node) {
+        return findByPathPatternOrderByDisplayOrder(ContentPaths.descendantPattern(node.getPath()));
+    }
+
+    /**
+     * All ancestors of a node, root first
+     */
+    default List<ContentNode> findAncestors(ContentNode node) {
+        List<ContentNode> ancestors = new ArrayList<>(findByPathIn(ContentPaths.ancestorPaths(node.getPath())));
+        ancestors.sort(Comparator.comparingInt(ancestor -> ancestor.getPath().length()));
+        return ancestors;
+    }
+
+    /**
+     * Other children of the node's parent, ordered by display order
+     */
+    default List<ContentNode> findSiblings(ContentNode node) {
+        if (node.getParent() == null) {
+            return findByParentIsNullOrderByDisplayOrder().stream()
+                    .filter(sibling -> !sibling.getId().equals(node.getId()))
+                    .toList();
+        }
+        return findByParentIdOrderByDisplayOrder(node.getParent().getId()).stream()
+                .filter(sibling -> !sibling.getId().equals(node.getId()))
+                .toList();
+    }
 
     /**
-     * Find next slide based on display order
+     * Find all slides under a lecture, at any depth
      */
+    default List<ContentNode> findSlidesUnderLecture(Long lectureId) {
+        return findById(lectureId)
+                .map(lecture -> findByNodeTypeAndPathPattern(ContentNode.NodeType.SLIDE,
+                        ContentPaths.descendantPattern(lecture.getPath())))
+                .orElse(List.of());
+    }
+
+    @Query("SELECT n FROM ContentNode n WHERE n.nodeType = 'SLIDE' AND " +
+            "n.displayOrder < :currentOrder AND n.path LIKE :pathPattern " +
+            "ORDER BY n.displayOrder DESC LIMIT 1")
+    Optional<ContentNode> findPreviousSlideByPathPattern(@Param("currentOrder") Integer currentOrder,
+                                                         @Param("pathPattern") String pathPattern);
+
     @Query("SELECT n FROM ContentNode n WHERE n.nodeType = 'SLIDE' AND " +
-            "n.displayOrder > :currentOrder AND " +
-            "(n.parent.id = :parentId OR " +
-            "n.parent.parent.id = :parentId OR " +
-            "n.parent.parent.parent.id = :parentId) " +
+            "n.displayOrder > :currentOrder AND n.path LIKE :pathPattern " +
             "ORDER BY n.displayOrder ASC LIMIT 1")
-    Optional<ContentNode> findNextSlide(
-            @Param("currentOrder") Integer currentOrder,
-            @Param("parentId") Long parentId);
+    Optional<ContentNode> findNextSlideByPathPattern(@Param("currentOrder") Integer currentOrder,
+                                                     @Param("pathPattern") String pathPattern);
+
+    /**
+     * Find previous slide based on display order, anywhere below the given parent
+     */
+    default Optional<ContentNode> findPreviousSlide(Integer currentOrder, Long parentId) {
+        return findById(parentId).flatMap(parent ->
+                findPreviousSlideByPathPattern(currentOrder, ContentPaths.descendantPattern(parent.getPath())));
+    }
+
+    /**
+     * Find next slide based on display order, anywhere below the given parent
+     */
+    default Optional<ContentNode> findNextSlide(Integer currentOrder, Long parentId) {
+        return findById(parentId).flatMap(parent ->
+                findNextSlideByPathPattern(currentOrder, ContentPaths.descendantPattern(parent.getPath())));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.coherentsolutions.coursecrafter.domain.content.repository;
+
+import com.coherentsolutions.coursecrafter.domain.content.model.ImportedFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface ImportedFileRepository extends JpaRepository<ImportedFile, Long> {
+    Optional<ImportedFile> findByFileName(String fileName);
+}
@@ -0,0 +1,212 @@
+package com.coherentsolutions.coursecrafter.domain.content.service;
+
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentPaths;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.DefaultContentFormatter;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps section, topic and slide embeddings in the vector store and answers
+ * "which existing nodes are closest to this text" for the analyzer.
+ * <p>
+ * Writers hand over the nodes they changed; inside a transaction the vector store is only
+ * touched after commit, in one batch per transaction, and a failing embedding call is logged
+ * rather than rolling back content changes.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ContentEmbeddingService {
+
+    static final Set<ContentNode.NodeType> EMBEDDED_TYPES =
+            EnumSet.of(ContentNode.NodeType.SECTION, ContentNode.NodeType.TOPIC, ContentNode.NodeType.SLIDE);
+
+    private static final int MAX_TEXT_LENGTH = 8000;
+    private static final String[] METADATA_KEYS = {"nodeId", "courseId", "nodeType", "title", "nodeNumber"};
+    // Only the text is embedded; metadata is for filtering and mapping results back to nodes
+    private static final DefaultContentFormatter TEXT_ONLY = DefaultContentFormatter.builder()
+            .withExcludedEmbedMetadataKeys(METADATA_KEYS)
+            .build();
+
+    private final VectorStore vectorStore;
+
+    @Value("${coursecrafter.ai.embeddings.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${coursecrafter.ai.embeddings.top-k:8}")
+    private int defaultTopK = 8;
+
+    @Value("${coursecrafter.ai.embeddings.similarity-threshold:0.3}")
+    private double similarityThreshold = 0.3;
+
+    /**
+     * A stored node close to the query text; score is the cosine similarity
+     */
+    public record RelevantNode(Long nodeId, ContentNode.NodeType nodeType, String title, String nodeNumber, double score) {
+    }
+
+    /**
+     * (Re-)embed the given nodes. Types other than section, topic and slide are skipped.
+     */
+    public void indexNodes(Collection<ContentNode> nodes) {
+        if (!enabled) {
+            return;
+        }
+        // Documents are built now, while the entities are attached and hold the committed values
+        List<Document> documents = nodes.stream()
+                .filter(node -> node.getId() != null && EMBEDDED_TYPES.contains(node.getNodeType()))
+                .map(this::toDocument)
+                .toList();
+        if (!documents.isEmpty()) {
+            PendingChanges changes = new PendingChanges();
+            changes.documents.addAll(documents);
+            submit(changes);
+        }
+    }
+
+    public void removeNodes(Collection<Long> nodeIds) {
+        if (!enabled || nodeIds.isEmpty()) {
+            return;
+        }
+        PendingChanges changes = new PendingChanges();
+        nodeIds.forEach(id -> changes.removedIds.add(documentId(id)));
+        submit(changes);
+    }
+
+    /**
+     * Nearest sections, topics and slides of the course to the given text, best first
+     */
+    public List<RelevantNode> findRelevant(String text, Long courseId, int topK) {
+        if (!enabled || text == null || text.isBlank()) {
+            return List.of();
+        }
+        try {
+            SearchRequest.Builder request = SearchRequest.builder()
+                    .query(text)
+                    .topK(topK > 0 ? topK : defaultTopK)
+                    .similarityThreshold(similarityThreshold);
+            if (courseId != null) {
+                request.filterExpression("courseId == " + courseId);
+            }
+            return vectorStore.similaritySearch(request.build()).stream()
+                    .map(document -> new RelevantNode(
+                            ((Number) document.getMetadata().get("nodeId")).longValue(),
+                            ContentNode.NodeType.valueOf((String) document.getMetadata().get("nodeType")),
+                            (String) document.getMetadata().get("title"),
+                            (String) document.getMetadata().get("nodeNumber"),
+                            document.getScore() != null ? document.getScore() : 0.0))
+                    .toList();
+        } catch (RuntimeException e) {
+            log.warn("Vector search failed, continuing without retrieval: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    public List<RelevantNode> findRelevant(String text, Long courseId) {
+        return findRelevant(text, courseId, defaultTopK);
+    }
+
+    Document toDocument(ContentNode node) {
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("nodeId", node.getId());
+        Long courseId = ContentPaths.rootId(node.getPath());
+        if (courseId != null) {
+            metadata.put("courseId", courseId);
+        }
+        metadata.put("nodeType", node.getNodeType().name());
+        metadata.put("title", node.getTitle() != null ? node.getTitle() : "");
+        metadata.put("nodeNumber", node.getNodeNumber() != null ? node.getNodeNumber() : "");
+
+        String text = (node.getTitle() != null ? node.getTitle() : "") + "\n\n" +
+                (node.getMarkdownContent() != null ? node.getMarkdownContent() : "");
+        if (text.length() > MAX_TEXT_LENGTH) {
+            text = text.substring(0, MAX_TEXT_LENGTH);
+        }
+
+        Document document = new Document(documentId(node.getId()), text, metadata);
+        document.setContentFormatter(TEXT_ONLY);
+        return document;
+    }
+
+    /**
+     * The pgvector table keys documents by UUID, so node ids map to a name-based UUID
+     */
+    static String documentId(Long nodeId) {
+        return UUID.nameUUIDFromBytes(("content_node:" + nodeId).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Apply now, or merge into the batch flushed after the current transaction commits
+     */
+    private void submit(PendingChanges changes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(changes);
+            return;
+        }
+        PendingChanges batch = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (batch == null) {
+            PendingChanges created = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ContentEmbeddingService.this);
+                    if (status == STATUS_COMMITTED) {
+                        apply(created);
+                    }
+                }
+            });
+            batch = created;
+        }
+        batch.documents.addAll(changes.documents);
+        batch.removedIds.addAll(changes.removedIds);
+    }
+
+    void apply(PendingChanges changes) {
+        try {
+            Set<String> removed = new LinkedHashSet<>(changes.removedIds);
+            // The last version of each node wins; nodes removed later in the batch are skipped
+            Map<String, Document> latest = new LinkedHashMap<>();
+            changes.documents.stream()
+                    .filter(document -> !removed.contains(document.getId()))
+                    .forEach(document -> latest.put(document.getId(), document));
+            List<Document> documents = new ArrayList<>(latest.values());
+            if (!removed.isEmpty()) {
+                vectorStore.delete(new ArrayList<>(removed));
+            }
+            if (!documents.isEmpty()) {
+                // Replace any previous vector for the same node
+                vectorStore.delete(documents.stream().map(Document::getId).toList());
+                vectorStore.add(documents);
+            }
+            log.debug("Vector store updated: {} documents embedded, {} removed", documents.size(), removed.size());
+        } catch (RuntimeException e) {
+            log.warn("Could not update content embeddings ({} documents, {} removals): {}",
+                    changes.documents.size(), changes.removedIds.size(), e.getMessage());
+        }
+    }
+
+    static class PendingChanges {
+        private final List<Document> documents = new ArrayList<>();
+        private final List<String> removedIds = new ArrayList<>();
+    }
+}
@@ -0,0 +1,57 @@
+package com.coherentsolutions.coursecrafter.domain.content.service;
+
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
+import com.coherentsolutions.coursecrafter.domain.slide.model.SlideComponent;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 hashes stored on content rows and imported files
+ */
+public final class ContentHashes {
+
+    private ContentHashes() {
+        throw new AssertionError("Utility class should not be instantiated");
+    }
+
+    /**
+     * Hash of the content a re-import may change on a node row (not its id, parent, path or
+     * display order). Slide renumbering rewrites display_order in SQL, so it is compared on its own.
+     */
+    public static String of(ContentNode node) {
+        return sha256(String.valueOf(node.getNodeType()), node.getTitle(), node.getNodeNumber(),
+                node.getMarkdownContent());
+    }
+
+    public static String of(SlideComponent component) {
+        return sha256(String.valueOf(component.getComponentType()),
+                String.valueOf(component.getDisplayOrder()), component.getContent());
+    }
+
+    public static String of(byte[] bytes) {
+        return HexFormat.of().formatHex(digest().digest(bytes));
+    }
+
+    private static String sha256(String... parts) {
+        MessageDigest digest = digest();
+        for (String part : parts) {
+            // Length prefix keeps ("ab", "c") and ("a", "bc") apart; -1 marks null
+            byte[] bytes = part != null ? part.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            digest.update(Integer.toString(part != null ? bytes.length : -1).getBytes(StandardCharsets.US_ASCII));
+            digest.update((byte) ':');
+            digest.update(bytes);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
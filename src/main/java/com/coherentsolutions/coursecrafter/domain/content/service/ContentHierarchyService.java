@@ -5,14 +5,22 @@ import com.coherentsolutions.coursecrafter.domain.slide.repository.SlideComponen
 import com.coherentsolutions.coursecrafter.presentation.dto.content.ContentNodeDto;
 import com.coherentsolutions.coursecrafter.presentation.dto.content.ContentTreeDto;
 import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentTreeNode;
 import com.coherentsolutions.coursecrafter.domain.content.repository.ContentNodeRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -22,40 +30,89 @@ public class ContentHierarchyService {
 
     private final ContentNodeRepository nodeRepository;
     private final SlideComponentRepository slideComponentRepository;
+    private final CourseTreeCache courseTreeCache;
 
     /**
      * Generates a complete hierarchical tree of content
      */
     @Transactional(readOnly = true)
     public ContentTreeDto getContentTree() {
-        List<ContentNode> rootNodes = nodeRepository.findByParentIsNullOrderByDisplayOrder();
-        List<ContentNodeDto> rootDtos = rootNodes.stream()
-                .map(node -> convertToDto(node, true)) // convertToDto will now use node.getMarkdownContent() if needed
+        List<ContentNodeDto> rootDtos = cachedTrees().stream()
+                .map(this::convertToDto)
                 .collect(Collectors.toList());
         return new ContentTreeDto(rootDtos);
     }
 
+    /**
+     * Load a node with all descendants (and optionally their slide components) using the
+     * recursive subtree queries, and link them into an in-memory tree.
+     *
+     * @return the tree rooted at rootId, or null if the node does not exist
+     */
+    @Transactional(readOnly = true)
+    public ContentTreeNode loadSubtree(Long rootId, boolean withComponents) {
+        Map<Long, ContentTreeNode> byId = new LinkedHashMap<>();
+        for (ContentNode node : nodeRepository.findSubtree(rootId)) {
+            byId.put(node.getId(), new ContentTreeNode(node));
+        }
+
+        ContentTreeNode root = byId.get(rootId);
+        if (root == null) {
+            return null;
+        }
+
+        // Rows arrive ordered by displayOrder, so each children list ends up ordered as well
+        for (ContentTreeNode treeNode : byId.values()) {
+            Long parentId = treeNode.getNode().parentId();
+            if (treeNode != root && parentId != null && byId.containsKey(parentId)) {
+                byId.get(parentId).addChild(treeNode);
+            }
+        }
+
+        if (withComponents) {
+            for (SlideComponent component : slideComponentRepository.findBySubtreeRootId(rootId)) {
+                ContentTreeNode slide = byId.get(component.getSlideNode().getId());
+                if (slide != null) {
+                    slide.addComponent(component);
+                }
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Cached tree of a course (or any root), with slide components
+     */
+    @Transactional(readOnly = true)
+    public ContentTreeNode getCachedTree(Long rootId) {
+        return courseTreeCache.getTree(rootId, id -> loadSubtree(id, true));
+    }
+
+    private List<ContentTreeNode> cachedTrees() {
+        return courseTreeCache.getRoots(nodeRepository::findByParentIsNullOrderByDisplayOrder).stream()
+                .map(root -> getCachedTree(root.id()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
     /**
      * Generates a flat outline of all content
      */
     @Transactional(readOnly = true)
     public String generateOutline() {
-        List<ContentNode> allNodes = nodeRepository.findAll();
-        // Sorting by path is fine
-        allNodes.sort((a, b) -> {
-            if (a.getPath() == null && b.getPath() == null) return 0;
-            if (a.getPath() == null) return -1;
-            if (b.getPath() == null) return 1;
-            return a.getPath().compareTo(b.getPath());
-        });
-
-        return allNodes.stream()
-                .map(node -> {
-                    int depth = calculateDepth(node.getPath());
-                    String indent = "  ".repeat(depth);
-                    return indent + "- " + (node.getNodeNumber() != null ? node.getNodeNumber() : "") + " " + node.getTitle();
-                })
-                .collect(Collectors.joining("\n"));
+        List<String> lines = new ArrayList<>();
+        for (ContentTreeNode root : cachedTrees()) {
+            appendOutlineLines(lines, root, 0);
+        }
+        return String.join("\n", lines);
+    }
+
+    private void appendOutlineLines(List<String> lines, ContentTreeNode treeNode, int depth) {
+        ContentTreeNode.Node node = treeNode.getNode();
+        lines.add("  ".repeat(depth) + "- " + (node.nodeNumber() != null ? node.nodeNumber() : "") + " " + node.title());
+        for (ContentTreeNode child : treeNode.getChildren()) {
+            appendOutlineLines(lines, child, depth + 1);
+        }
     }
 
     /**
@@ -63,35 +120,41 @@ public class ContentHierarchyService {
      */
     @Transactional(readOnly = true)
     public String generateLlmOutlineContext() {
-        // Get all content nodes
-        List<ContentNode> allNodes = nodeRepository.findAll();
-
         StringBuilder builder = new StringBuilder();
 
-        // Build a hierarchical representation
-        for (ContentNode node : allNodes) {
-            if (node.getNodeType() == ContentNode.NodeType.COURSE) {
-                builder.append("# Course: ").append(node.getTitle()).append("\n\n");
-            } else if (node.getNodeType() == ContentNode.NodeType.MODULE) {
-                builder.append("# Module: ").append(node.getTitle()).append("\n\n");
-            } else if (node.getNodeType() == ContentNode.NodeType.LECTURE) {
-                builder.append("## Lecture ").append(node.getNodeNumber()).append(": ")
-                        .append(node.getTitle()).append("\n\n");
-            } else if (node.getNodeType() == ContentNode.NodeType.SECTION) {
-                builder.append("### Section ").append(node.getNodeNumber()).append(" ")
-                        .append(node.getTitle()).append("\n\n");
-            } else if (node.getNodeType() == ContentNode.NodeType.TOPIC) {
-                builder.append("#### Topic ").append(node.getNodeNumber()).append(" ")
-                        .append(node.getTitle()).append("\n\n");
-            } else if (node.getNodeType() == ContentNode.NodeType.SLIDE) {
-                builder.append("##### Slide ").append(node.getNodeNumber()).append(" ")
-                        .append(node.getTitle()).append("\n\n");
-            }
+        // Build a hierarchical representation from the cached course trees
+        for (ContentTreeNode root : cachedTrees()) {
+            appendLlmOutline(builder, root);
         }
 
         return builder.toString();
     }
 
+    private void appendLlmOutline(StringBuilder builder, ContentTreeNode treeNode) {
+        ContentTreeNode.Node node = treeNode.getNode();
+        if (node.nodeType() == ContentNode.NodeType.COURSE) {
+            builder.append("# Course: ").append(node.title()).append("\n\n");
+        } else if (node.nodeType() == ContentNode.NodeType.MODULE) {
+            builder.append("# Module: ").append(node.title()).append("\n\n");
+        } else if (node.nodeType() == ContentNode.NodeType.LECTURE) {
+            builder.append("## Lecture ").append(node.nodeNumber()).append(": ")
+                    .append(node.title()).append("\n\n");
+        } else if (node.nodeType() == ContentNode.NodeType.SECTION) {
+            builder.append("### Section ").append(node.nodeNumber()).append(" ")
+                    .append(node.title()).append("\n\n");
+        } else if (node.nodeType() == ContentNode.NodeType.TOPIC) {
+            builder.append("#### Topic ").append(node.nodeNumber()).append(" ")
+                    .append(node.title()).append("\n\n");
+        } else if (node.nodeType() == ContentNode.NodeType.SLIDE) {
+            builder.append("##### Slide ").append(node.nodeNumber()).append(" ")
+                    .append(node.title()).append("\n\n");
+        }
+
+        for (ContentTreeNode child : treeNode.getChildren()) {
+            appendLlmOutline(builder, child);
+        }
+    }
+
     /**
      * Generates a text-based outline for a specific course
      */
@@ -112,195 +175,176 @@ public class ContentHierarchyService {
     /**
      * Generates a detailed text-based outline with minimal component info
      */
+    @Transactional(readOnly = true)
     public String generateDetailedOutlineWithComponents(String courseName) {
-        // Build a hierarchical representation
-        StringBuilder builder = new StringBuilder();
-        builder.append("# Course: ").append(courseName).append("\n\n");
+        return renderDetailedOutline(courseName, true);
+    }
+
+    /**
+     * Generates a detailed text-based outline with slide components
+     */
+    @Transactional(readOnly = true)
+    public String generateDetailedOutlineContext(String courseName) {
+        // For the detailed outline, we don't include component content or types
+        return renderDetailedOutline(courseName, false);
+    }
 
-        // First get the course node
-        ContentNode courseNode = nodeRepository.findByNodeType(ContentNode.NodeType.COURSE)
+    /**
+     * Cached tree of the course with the given title, or null if there is no such course
+     */
+    @Transactional(readOnly = true)
+    public ContentTreeNode findCourseTree(String courseName) {
+        ContentTreeNode.Node courseNode = courseTreeCache.getRoots(nodeRepository::findByParentIsNullOrderByDisplayOrder)
                 .stream()
-                .filter(node -> node.getTitle().equals(courseName) || courseName.equals("BasicAiCourse"))
+                .filter(node -> node.nodeType() == ContentNode.NodeType.COURSE)
+                .filter(node -> node.title().equals(courseName) || courseName.equals("BasicAiCourse"))
                 .findFirst()
                 .orElse(null);
 
         if (courseNode == null) {
             log.warn("No course node found with name: {}", courseName);
-            return builder.toString(); // Return just the course title
+            return null;
         }
 
-        // Now get all lectures (direct children of course)
-        List<ContentNode> lectures = nodeRepository.findByParentIdOrderByDisplayOrder(courseNode.getId());
-
-        for (ContentNode lecture : lectures) {
-            builder.append("## Lecture ").append(lecture.getTitle()).append("\n\n");
-
-            // Get sections under this lecture
-            List<ContentNode> sections = nodeRepository.findByParentIdOrderByDisplayOrder(lecture.getId());
-
-            for (ContentNode section : sections) {
-                // For sections, format properly with nodeNumber and clean title
-                String sectionTitle = section.getTitle();
-                String nodeNumber = section.getNodeNumber();
+        // Whole course from the cache; a miss loads it in two queries
+        return getCachedTree(courseNode.id());
+    }
 
-                // Clean up the title if it starts with the numeric prefix
-                if (sectionTitle.matches("^\\d+\\.\\d+\\.\\s+.*")) {
-                    sectionTitle = sectionTitle.replaceFirst("^\\d+\\.\\d+\\.\\s+", "");
-                }
+    /**
+     * Content fingerprint of the course: SHA-256 over the tree's structure, the display order and
+     * content_hash stored on each node and the content_hash of each slide component, so it changes
+     * with any edit and stays the same across restarts without rehashing the content. Empty if
+     * there is no such course.
+     */
+    @Transactional(readOnly = true)
+    public String courseVersion(String courseName) {
+        ContentTreeNode course = findCourseTree(courseName);
+        if (course == null) {
+            return "";
+        }
+        MessageDigest digest = sha256();
+        updateFingerprint(digest, course);
+        return HexFormat.of().formatHex(digest.digest());
+    }
 
-                builder.append("### Section ").append(nodeNumber).append(". ").append(sectionTitle).append("\n\n");
-
-                // Get topics under this section
-                List<ContentNode> topics = nodeRepository.findByParentIdOrderByDisplayOrder(section.getId());
-
-                for (ContentNode topic : topics) {
-                    // For topics, similar cleaning
-                    String topicTitle = topic.getTitle();
-                    String topicNumber = topic.getNodeNumber();
-
-                    // Clean up the title if it starts with the numeric prefix
-                    if (topicTitle.matches("^\\d+\\.\\d+\\.\\d+\\.\\s+.*")) {
-                        topicTitle = topicTitle.replaceFirst("^\\d+\\.\\d+\\.\\d+\\.\\s+", "");
-                    }
-
-                    builder.append("#### Topic ").append(topicNumber).append(". ").append(topicTitle).append("\n\n");
-
-                    // Get slides under this topic
-                    List<ContentNode> slides = nodeRepository.findByParentIdOrderByDisplayOrder(topic.getId());
-
-                    for (ContentNode slide : slides) {
-                        builder.append("##### Slide ").append(slide.getNodeNumber())
-                                .append(" (ID: ").append(slide.getId()).append(")")
-                                .append(": ").append(slide.getTitle()).append("\n\n");
-
-                        // Only list component types, without trying to access content
-                        try {
-                            List<SlideComponent> components = slideComponentRepository.findBySlideNodeIdOrderByDisplayOrder(slide.getId());
-                            if (!components.isEmpty()) {
-                                builder.append("###### Components: ");
-                                for (int i = 0; i < components.size(); i++) {
-                                    builder.append(components.get(i).getComponentType());
-                                    if (i < components.size() - 1) {
-                                        builder.append(", ");
-                                    }
-                                }
-                                builder.append("\n\n");
-                            }
-                        } catch (Exception e) {
-                            log.error("Error retrieving components for slide {}: {}", slide.getId(), e.getMessage());
-                            // Don't append error message to the builder
-                        }
-                    }
-                }
-            }
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
+    }
 
-        return builder.toString();
+    private static void updateFingerprint(MessageDigest digest, ContentTreeNode treeNode) {
+        ContentTreeNode.Node node = treeNode.getNode();
+        // Rows written before content hashes existed fall back to their content
+        digest.update(String.join("\u0000", "node", String.valueOf(node.id()), String.valueOf(node.displayOrder()),
+                node.contentHash() != null
+                ? node.contentHash()
+                : String.join("\u0000", String.valueOf(node.nodeType()), String.valueOf(node.nodeNumber()),
+                        String.valueOf(node.title()), String.valueOf(node.markdownContent())), "")
+                .getBytes(StandardCharsets.UTF_8));
+        for (ContentTreeNode.Component component : treeNode.getComponents()) {
+            digest.update(String.join("\u0000", "component", String.valueOf(component.id()), component.contentHash() != null
+                    ? component.contentHash()
+                    : String.valueOf(component.componentType()) + "\u0000" + component.content(), "")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        for (ContentTreeNode child : treeNode.getChildren()) {
+            updateFingerprint(digest, child);
+        }
+        digest.update("end\u0000".getBytes(StandardCharsets.UTF_8));
     }
 
-    /**
-     * Generates a detailed text-based outline with slide components
-     */
-    @Transactional(readOnly = true)
-    public String generateDetailedOutlineContext(String courseName) {
+    private String renderDetailedOutline(String courseName, boolean listComponentTypes) {
         // Build a hierarchical representation
         StringBuilder builder = new StringBuilder();
         builder.append("# Course: ").append(courseName).append("\n\n");
 
-        // First get the course node
-        ContentNode courseNode = nodeRepository.findByNodeType(ContentNode.NodeType.COURSE)
-                .stream()
-                .filter(node -> node.getTitle().equals(courseName) || courseName.equals("BasicAiCourse"))
-                .findFirst()
-                .orElse(null);
-
-        if (courseNode == null) {
-            log.warn("No course node found with name: {}", courseName);
+        ContentTreeNode course = findCourseTree(courseName);
+        if (course == null) {
             return builder.toString(); // Return just the course title
         }
 
-        // Now get all lectures (direct children of course)
-        List<ContentNode> lectures = nodeRepository.findByParentIdOrderByDisplayOrder(courseNode.getId());
-
-        for (ContentNode lecture : lectures) {
-            // For lectures, use the title directly which should already contain the number
-            builder.append("## Lecture ").append(lecture.getTitle()).append("\n\n");
-
-            // Get sections under this lecture
-            List<ContentNode> sections = nodeRepository.findByParentIdOrderByDisplayOrder(lecture.getId());
-
-            for (ContentNode section : sections) {
-                // For sections, format properly with nodeNumber and clean title
-                String sectionTitle = section.getTitle();
-                String nodeNumber = section.getNodeNumber();
-
-                // Clean up the title if it starts with the numeric prefix
-                if (sectionTitle.matches("^\\d+\\.\\d+\\.\\s+.*")) {
-                    sectionTitle = sectionTitle.replaceFirst("^\\d+\\.\\d+\\.\\s+", "");
-                }
-
-                builder.append("### Section ").append(nodeNumber).append(". ").append(sectionTitle).append("\n\n");
+        for (ContentTreeNode lectureNode : course.getChildren()) {
+            appendDetailedLectureHeading(builder, lectureNode);
+            for (ContentTreeNode sectionNode : lectureNode.getChildren()) {
+                appendDetailedSection(builder, sectionNode, listComponentTypes);
+            }
+        }
 
-                // Get topics under this section
-                List<ContentNode> topics = nodeRepository.findByParentIdOrderByDisplayOrder(section.getId());
+        return builder.toString();
+    }
 
-                for (ContentNode topic : topics) {
-                    // For topics, similar cleaning
-                    String topicTitle = topic.getTitle();
-                    String topicNumber = topic.getNodeNumber();
+    public void appendDetailedLectureHeading(StringBuilder builder, ContentTreeNode lectureNode) {
+        // For lectures, use the title directly which should already contain the number
+        builder.append("## Lecture ").append(lectureNode.getNode().title()).append("\n\n");
+    }
 
-                    // Clean up the title if it starts with the numeric prefix
-                    if (topicTitle.matches("^\\d+\\.\\d+\\.\\d+\\.\\s+.*")) {
-                        topicTitle = topicTitle.replaceFirst("^\\d+\\.\\d+\\.\\d+\\.\\s+", "");
-                    }
+    /**
+     * Render a section with its topics and slides (with slide IDs) in the detailed outline format
+     */
+    public void appendDetailedSection(StringBuilder builder, ContentTreeNode sectionNode, boolean listComponentTypes) {
+        // For sections, format properly with nodeNumber and clean title
+        ContentTreeNode.Node section = sectionNode.getNode();
+        String sectionTitle = section.title();
+
+        // Clean up the title if it starts with the numeric prefix
+        if (sectionTitle.matches("^\\d+\\.\\d+\\.\\s+.*")) {
+            sectionTitle = sectionTitle.replaceFirst("^\\d+\\.\\d+\\.\\s+", "");
+        }
 
-                    builder.append("#### Topic ").append(topicNumber).append(". ").append(topicTitle).append("\n\n");
+        builder.append("### Section ").append(section.nodeNumber()).append(". ").append(sectionTitle).append("\n\n");
 
-                    // Get slides under this topic
-                    List<ContentNode> slides = nodeRepository.findByParentIdOrderByDisplayOrder(topic.getId());
+        for (ContentTreeNode topicNode : sectionNode.getChildren()) {
+            // For topics, similar cleaning
+            ContentTreeNode.Node topic = topicNode.getNode();
+            String topicTitle = topic.title();
 
-                    for (ContentNode slide : slides) {
-                        builder.append("##### Slide ").append(slide.getNodeNumber())
-                                .append(" (ID: ").append(slide.getId()).append(")")
-                                .append(": ").append(slide.getTitle()).append("\n\n");
+            // Clean up the title if it starts with the numeric prefix
+            if (topicTitle.matches("^\\d+\\.\\d+\\.\\d+\\.\\s+.*")) {
+                topicTitle = topicTitle.replaceFirst("^\\d+\\.\\d+\\.\\d+\\.\\s+", "");
+            }
 
-                        // For the detailed outline, we don't include component content
-                        // Just list that the slide exists, without trying to access components
-                    }
+            builder.append("#### Topic ").append(topic.nodeNumber()).append(". ").append(topicTitle).append("\n\n");
+
+            for (ContentTreeNode slideNode : topicNode.getChildren()) {
+                ContentTreeNode.Node slide = slideNode.getNode();
+                builder.append("##### Slide ").append(slide.nodeNumber())
+                        .append(" (ID: ").append(slide.id()).append(")")
+                        .append(": ").append(slide.title()).append("\n\n");
+
+                // Only list component types, without content
+                if (listComponentTypes && !slideNode.getComponents().isEmpty()) {
+                    builder.append("###### Components: ")
+                            .append(slideNode.getComponents().stream()
+                                    .map(component -> component.componentType().toString())
+                                    .collect(Collectors.joining(", ")))
+                            .append("\n\n");
                 }
             }
         }
-
-        return builder.toString();
     }
 
-    @Transactional(readOnly = true)
-    ContentNodeDto convertToDto(ContentNode node, boolean includeChildren) {
+    ContentNodeDto convertToDto(ContentTreeNode treeNode) {
+        ContentTreeNode.Node node = treeNode.getNode();
         ContentNodeDto dto = new ContentNodeDto(
-                node.getId(),
-                node.getNodeType().toString(),
-                node.getTitle(),
-                node.getDescription(),
-                node.getNodeNumber(),
-                node.getPath(),
+                node.id(),
+                node.nodeType().toString(),
+                node.title(),
+                node.description(),
+                node.nodeNumber(),
+                node.path(),
                 // Pass new ArrayList to constructor that takes children
                 new java.util.ArrayList<>()
         );
 
-        if (includeChildren) {
-            List<ContentNode> children = nodeRepository.findByParentIdOrderByDisplayOrder(node.getId());
-            List<ContentNodeDto> childDtos = children.stream()
-                    .map(child -> convertToDto(child, true))
-                    .collect(Collectors.toList());
-            dto.setChildren(childDtos); // Use the setter
-        }
+        dto.setChildren(treeNode.getChildren().stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList()));
         // If ContentNodeDto needs markdownContent, add it here:
-        // dto.setMarkdownContent(node.getMarkdownContent());
+        // dto.setMarkdownContent(node.markdownContent());
         return dto;
     }
 
-    private int calculateDepth(String path) {
-        if (path == null) return 0;
-        return (int) path.chars().filter(ch -> ch == '/').count();
-    }
 }
\ No newline at end of file
@@ -1,8 +1,9 @@
 package com.coherentsolutions.coursecrafter.domain.content.service;
 
 import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentPaths;
 import com.coherentsolutions.coursecrafter.domain.content.repository.ContentNodeRepository;
-import com.coherentsolutions.coursecrafter.infrastructure.git.GitCliService;
+import com.coherentsolutions.coursecrafter.infrastructure.git.GitOperations;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.extern.slf4j.Slf4j;
 import lombok.RequiredArgsConstructor;
@@ -12,19 +13,26 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class ContentNodeService {
 
+    // Start at 1000 and step by 10 to leave room for manual adjustments
+    private static final int FIRST_SLIDE_ORDER = 1000;
+    private static final int SLIDE_ORDER_STEP = 10;
+
     private final ContentNodeRepository nodeRepository;
-    private final GitCliService gitService;
+    private final GitOperations gitService;
     private final ContentNodeRepository contentNodeRepository;
     private final JdbcTemplate jdbcTemplate;
+    private final CourseTreeCache courseTreeCache;
+    private final ContentEmbeddingService contentEmbeddingService;
 
 
     @Transactional
@@ -35,21 +43,24 @@ public class ContentNodeService {
         }
         node.setUpdatedAt(LocalDateTime.now());
 
-        // Generate path if parent exists
+        String parentPath = null;
         if (node.getParent() != null) {
             ContentNode parent = nodeRepository.findById(node.getParent().getId()).orElseThrow();
-            String parentPath = parent.getPath() != null ? parent.getPath() : parent.getNodeType() + "/" + parent.getId();
-            node.setPath(parentPath + "/" + node.getNodeType() + "-" + UUID.randomUUID().toString().substring(0, 8));
-        } else {
-            node.setPath(node.getNodeType() + "/" + UUID.randomUUID().toString().substring(0, 8));
+            parentPath = parent.getPath();
         }
 
         node.setMarkdownContent(content); // Set content directly
+        node.setContentHash(ContentHashes.of(node));
 
 
         // Save the node first and flush to ensure it's committed
         ContentNode savedNode = nodeRepository.saveAndFlush(node); // Save the node
 
+        // The materialized path ends with the node's own id, so it is set once the id exists
+        savedNode.setPath(ContentPaths.childPath(parentPath, savedNode.getId()));
+        courseTreeCache.invalidate(savedNode);
+        contentEmbeddingService.indexNodes(List.of(savedNode));
+
         return savedNode;
     }
 
@@ -59,6 +70,7 @@ public class ContentNodeService {
                 .orElseThrow(() -> new EntityNotFoundException("ContentNode not found with id: " + nodeId));
 
         node.setMarkdownContent(newContent); // Update content directly
+        node.setContentHash(ContentHashes.of(node));
         node.setUpdatedAt(LocalDateTime.now());
 
         // Potentially update other fields like title, description if they are part of the update
@@ -66,6 +78,8 @@ public class ContentNodeService {
 
         // Update node in repository
         ContentNode updatedNode = nodeRepository.save(node);
+        courseTreeCache.invalidate(updatedNode);
+        contentEmbeddingService.indexNodes(List.of(updatedNode));
 
         return updatedNode;
     }
@@ -77,76 +91,127 @@ public class ContentNodeService {
 
     @Transactional
     public void deleteNode(Long nodeId, String commitMessage) throws IOException, InterruptedException {
-        // Need to handle children if any, or ensure DB constraints do.
-        // For example, first delete components associated with this node if it's a SLIDE
-        // Then, recursively delete children or let cascade take care of it if configured.
         ContentNode nodeToDelete = nodeRepository.findById(nodeId)
                 .orElseThrow(() -> new EntityNotFoundException("Node not found for deletion: " + nodeId));
 
-        // If it's a slide, its components should be deleted by cascade if ContentNode.slideComponents has CascadeType.ALL
-        // Or, explicitly delete them:
-        // if (nodeToDelete.getNodeType() == ContentNode.NodeType.SLIDE && nodeToDelete.getSlideComponents() != null) {
-        //    slideComponentRepository.deleteAll(nodeToDelete.getSlideComponents());
-        // }
-        // Handle children recursively or rely on database cascade.
+        // The whole subtree is one path range; delete dependent rows first, then the nodes
+        String subtree = "SELECT id FROM content_node WHERE id = ? OR path LIKE ?";
+        String pattern = ContentPaths.descendantPattern(nodeToDelete.getPath());
+        List<Long> subtreeIds = jdbcTemplate.queryForList(subtree, Long.class, nodeId, pattern);
+        jdbcTemplate.update("DELETE FROM slide_component WHERE slide_node_id IN (" + subtree + ")", nodeId, pattern);
+        jdbcTemplate.update("DELETE FROM node_tag WHERE node_id IN (" + subtree + ")", nodeId, pattern);
+        jdbcTemplate.update("DELETE FROM ai_suggestion WHERE node_id IN (" + subtree + ")", nodeId, pattern);
+        int deleted = jdbcTemplate.update("DELETE FROM content_node WHERE id = ? OR path LIKE ?", nodeId, pattern);
+        courseTreeCache.invalidate(nodeToDelete);
+        contentEmbeddingService.removeNodes(subtreeIds);
+
+        log.info("Deleted {} content nodes under '{}' ({})", deleted, nodeToDelete.getTitle(), nodeId);
+    }
+
+    /**
+     * Re-parent a node. The node and its whole subtree get the new path prefix in one UPDATE.
+     */
+    @Transactional
+    public ContentNode moveNode(Long nodeId, Long newParentId) {
+        ContentNode node = nodeRepository.findById(nodeId)
+                .orElseThrow(() -> new EntityNotFoundException("ContentNode not found with id: " + nodeId));
+        ContentNode newParent = nodeRepository.findById(newParentId)
+                .orElseThrow(() -> new EntityNotFoundException("ContentNode not found with id: " + newParentId));
+
+        String oldPath = node.getPath();
+        if (ContentPaths.isSameOrDescendant(newParent.getPath(), oldPath)) {
+            throw new IllegalArgumentException("Cannot move node " + nodeId + " under itself or one of its descendants");
+        }
+        String newPath = ContentPaths.childPath(newParent.getPath(), node.getId());
+        courseTreeCache.invalidate(node); // old course; the new one below
 
-        nodeRepository.deleteById(nodeId);
+        node.setParent(newParent);
+        node.setPath(newPath);
+        node.setUpdatedAt(LocalDateTime.now());
+        ContentNode moved = nodeRepository.saveAndFlush(node);
+
+        int descendants = jdbcTemplate.update(
+                "UPDATE content_node SET path = ? || substr(path, ?) WHERE path LIKE ?",
+                newPath, oldPath.length() + 1, ContentPaths.descendantPattern(oldPath));
+        courseTreeCache.invalidate(moved);
+        if (!Objects.equals(ContentPaths.rootId(oldPath), ContentPaths.rootId(newPath))) {
+            // Vectors are filtered by course, so a move to another course re-indexes the subtree
+            List<ContentNode> subtree = new ArrayList<>(nodeRepository.findDescendants(moved));
+            subtree.add(moved);
+            contentEmbeddingService.indexNodes(subtree);
+        }
+        log.info("Moved node {} under {} ({} descendants re-pathed)", nodeId, newParentId, descendants);
+        return moved;
     }
 
     /**
-     * Update display orders for all slides to ensure consistent sequencing
-     * across multiple lecture files.
-     *
-     * This method:
-     * 1. Finds all lectures under a course
-     * 2. For each lecture, finds all slides underneath it (including those in sections and topics)
-     * 3. Reorders all slides sequentially using a global counter
+     * Renumber all slides of a course in course order, so sequence numbers stay consistent
+     * across lecture files
      *
-     * @param courseId ID of the course to reorder slides for
+     * @return the number of slides whose display order changed
+     * @see #renumberSlides(Long)
      */
     @Transactional
-    public void reorderSlidesForCourse(Long courseId) {
+    public int reorderSlidesForCourse(Long courseId) {
         ContentNode course = contentNodeRepository.findById(courseId)
                 .orElseThrow(() -> new EntityNotFoundException("Course not found: " + courseId));
+        int changed = renumberSlides(course);
+        log.info("Reordered slides for course '{}': {} changed", course.getTitle(), changed);
+        return changed;
+    }
 
-        // Get all lectures in order
-        List<ContentNode> lectures = contentNodeRepository.findByParentIdOrderByDisplayOrder(courseId);
-
-        int globalSequence = 1000; // Start at 1000 to leave room for manual adjustments
-
-        for (ContentNode lecture : lectures) {
-            // Get all slides for this lecture in current order
-            List<ContentNode> slides = jdbcTemplate.query(
-                    "WITH RECURSIVE node_tree AS (" +
-                            "    SELECT id, parent_id, display_order FROM content_node WHERE id = ? " +
-                            "  UNION ALL " +
-                            "    SELECT n.id, n.parent_id, n.display_order FROM content_node n " +
-                            "    JOIN node_tree nt ON n.parent_id = nt.id " +
-                            ") " +
-                            "SELECT n.* FROM content_node n " +
-                            "JOIN node_tree nt ON n.id = nt.id " +
-                            "WHERE n.node_type = 'SLIDE' " +
-                            "ORDER BY n.display_order",
-                    (rs, rowNum) -> {
-                        Long nodeId = rs.getLong("id");
-                        return contentNodeRepository.findById(nodeId).orElse(null);
-                    },
-                    lecture.getId()
-            );
-
-            // Update global sequence for consistent ordering
-            for (ContentNode slide : slides) {
-                if (slide != null) {
-                    slide.setDisplayOrder(globalSequence);
-                    contentNodeRepository.save(slide);
-                    globalSequence += 10; // Increment by 10 to leave room
-                }
-            }
-        }
+    /**
+     * Give the slides under a node (a course, lecture, section or topic) display orders in
+     * steps of 10 in tree order: siblings by display order, then id, depth first. A course
+     * starts at 1000; anything below a course continues after the last slide that precedes it
+     * in the course, and the slides that follow it in the course are renumbered after its last
+     * one, so numbers never overlap. The gaps leave room for slides added by hand.
+     *
+     * @return the number of slides, under the node or after it, whose display order changed
+     */
+    @Transactional
+    public int renumberSlides(Long rootId) {
+        ContentNode root = contentNodeRepository.findById(rootId)
+                .orElseThrow(() -> new EntityNotFoundException("ContentNode not found with id: " + rootId));
+        return renumberSlides(root);
+    }
 
-        // Log successful reordering
-        log.info("Reordered {} slides across {} lectures for course: {}",
-                globalSequence/10 - 100, lectures.size(), course.getTitle());
+    private int renumberSlides(ContentNode root) {
+        Long courseId = Objects.requireNonNullElse(ContentPaths.rootId(root.getPath()), root.getId());
+        // One statement: the traversal of the whole course builds a sort key of (display_order, id)
+        // per level and marks the subtree, the slides before the subtree give its first number,
+        // the window function numbers the subtree's slides and every slide after it, and only
+        // new numbers are written
+        int changed = jdbcTemplate.update("""
+                WITH RECURSIVE tree AS (
+                    SELECT id, node_type, display_order, ARRAY[]::bigint[] AS sort_key, id = ? AS in_subtree
+                      FROM content_node WHERE id = ?
+                  UNION ALL
+                    SELECT n.id, n.node_type, n.display_order,
+                           t.sort_key || ARRAY[coalesce(n.display_order, 2147483647)::bigint, n.id],
+                           t.in_subtree OR n.id = ?
+                      FROM content_node n JOIN tree t ON n.parent_id = t.id
+                ), subtree AS (
+                    SELECT sort_key FROM tree WHERE id = ?
+                ), first_slide AS (
+                    SELECT coalesce(max(tree.display_order) + ?, ?) AS display_order
+                      FROM tree CROSS JOIN subtree
+                     WHERE tree.node_type = 'SLIDE' AND NOT tree.in_subtree AND tree.sort_key < subtree.sort_key
+                ), numbered AS (
+                    SELECT tree.id, first_slide.display_order + (row_number() OVER (ORDER BY tree.sort_key) - 1) * ?
+                               AS display_order
+                      FROM tree CROSS JOIN subtree CROSS JOIN first_slide
+                     WHERE tree.node_type = 'SLIDE' AND (tree.in_subtree OR tree.sort_key > subtree.sort_key)
+                )
+                UPDATE content_node c SET display_order = numbered.display_order
+                  FROM numbered
+                 WHERE c.id = numbered.id AND c.display_order IS DISTINCT FROM numbered.display_order
+                """, root.getId(), courseId, root.getId(), root.getId(), SLIDE_ORDER_STEP, FIRST_SLIDE_ORDER,
+                SLIDE_ORDER_STEP);
+        if (changed > 0) {
+            courseTreeCache.invalidate(root);
+        }
+        return changed;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.coherentsolutions.coursecrafter.domain.content.service;
+
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentPaths;
+import com.coherentsolutions.coursecrafter.domain.slide.model.SlideComponent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Ranked full-text search over node titles, descriptions and text, and slide components
+ * (script, visual, notes, demonstration). Uses the tsvector columns and GIN indexes from
+ * {@link com.coherentsolutions.coursecrafter.config.ContentSchemaInitializer}. Queries use web
+ * search syntax: words, "quoted phrases", OR, and -excluded words.
+ */
+@Service
+@RequiredArgsConstructor
+public class ContentSearchService {
+
+    private static final List<String> SEARCH_TABLES = List.of("content_node", "slide_component");
+
+    private static final String NODE_HITS = """
+            SELECT n.id AS node_id, n.node_type, n.title, n.path, NULL::bigint AS component_id,
+                   NULL::varchar AS component_type, ts_rank_cd(n.search_vector, q.query) AS rank,
+                   concat_ws(E'\\n', n.title, n.description, n.markdown_content) AS body
+              FROM content_node n, q
+             WHERE n.search_vector @@ q.query
+            """;
+
+    private static final String COMPONENT_HITS = """
+            SELECT s.id AS node_id, s.node_type, s.title, s.path, c.id AS component_id,
+                   c.component_type, ts_rank_cd(c.search_vector, q.query) AS rank, c.content AS body
+              FROM slide_component c JOIN content_node s ON s.id = c.slide_node_id, q
+             WHERE c.search_vector @@ q.query
+            """;
+
+    // Snippets are only built for the rows returned
+    private static final String HIGHLIGHT = """
+            SELECT h.node_id, h.node_type, h.title, h.path, h.component_id, h.component_type, h.rank,
+                   ts_headline('english', h.body, q.query,
+                               'StartSel=<mark>, StopSel=</mark>, MaxWords=35, MinWords=10, MaxFragments=2')
+              FROM hits h, q
+             ORDER BY h.rank DESC, h.node_id, h.component_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * A matching node or slide component; components are reported with their slide
+     *
+     * @param snippet the best matching fragments, with matches in {@code <mark>} tags
+     */
+    public record SearchHit(Long nodeId, String nodeType, String title, String path, Long componentId,
+                            String componentType, double rank, String snippet) {
+    }
+
+    /**
+     * @param query         the search text
+     * @param componentType only slide components of this type, or null for nodes and all components
+     * @param scopeNodeId   a node (e.g. a lecture) to search in, including its descendants, or null
+     * @param limit         most hits to return, best first
+     * @throws IllegalArgumentException if the scope node does not exist
+     * @throws IllegalStateException    if the search_vector columns were not created
+     */
+    public List<SearchHit> search(String query, SlideComponent.ComponentType componentType, Long scopeNodeId, int limit) {
+        String scopePath = null;
+        if (scopeNodeId != null) {
+            scopePath = jdbcTemplate.queryForList("SELECT path FROM content_node WHERE id = ?", String.class, scopeNodeId)
+                    .stream().filter(Objects::nonNull).findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown node: " + scopeNodeId));
+        }
+
+        List<Object> args = new ArrayList<>();
+        args.add(query);
+        StringBuilder sql = new StringBuilder("WITH q AS (SELECT websearch_to_tsquery('english', ?) AS query), hits AS (");
+        if (componentType == null) {
+            sql.append(NODE_HITS).append(scopeFilter("n", scopePath, args)).append(" UNION ALL ");
+        }
+        sql.append(COMPONENT_HITS).append(scopeFilter("s", scopePath, args));
+        if (componentType != null) {
+            sql.append(" AND c.component_type = ?");
+            args.add(componentType.name());
+        }
+        sql.append(" ORDER BY rank DESC LIMIT ?) ").append(HIGHLIGHT);
+        args.add(limit);
+
+        try {
+            return jdbcTemplate.query(sql.toString(), (rs, row) -> new SearchHit(
+                    rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                    rs.getObject(5, Long.class), rs.getString(6), rs.getDouble(7), rs.getString(8)), args.toArray());
+        } catch (BadSqlGrammarException e) {
+            List<String> missing = missingSearchColumns();
+            if (!missing.isEmpty()) {
+                throw new IllegalStateException("Full-text search is unavailable: column search_vector is missing on "
+                        + String.join(" and ", missing) + "; see the ContentSchemaInitializer warnings at startup", e);
+            }
+            throw e;
+        }
+    }
+
+    // Tables whose search_vector column ContentSchemaInitializer could not add
+    private List<String> missingSearchColumns() {
+        List<String> present = jdbcTemplate.queryForList("""
+                SELECT table_name FROM information_schema.columns
+                 WHERE table_schema = current_schema() AND column_name = 'search_vector'
+                   AND table_name IN ('content_node', 'slide_component')
+                """, String.class);
+        return SEARCH_TABLES.stream().filter(table -> !present.contains(table)).toList();
+    }
+
+    // The node at the path and its descendants, through the text_pattern_ops index on path
+    private static String scopeFilter(String alias, String scopePath, List<Object> args) {
+        if (scopePath == null) {
+            return "";
+        }
+        args.add(scopePath);
+        args.add(ContentPaths.descendantPattern(scopePath));
+        return " AND (" + alias + ".path = ? OR " + alias + ".path LIKE ?)";
+    }
+}
@@ -0,0 +1,136 @@
+package com.coherentsolutions.coursecrafter.domain.content.service;
+
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentPaths;
+import com.coherentsolutions.coursecrafter.domain.slide.model.SlideComponent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Persists an in-memory course graph (as built by MarkdownCourseParser.parseFileToGraph)
+ * with JDBC batch inserts instead of one saveAndFlush per node and component.
+ * <p>
+ * IDs are taken from the identity sequences up front in a single query per table, so parents
+ * and children can be written in the same batch without reading generated keys back.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CourseBulkImportService {
+
+    private static final String INSERT_NODE_SQL =
+            "INSERT INTO content_node (id, parent_id, node_type, title, description, markdown_content, " +
+                    "display_order, node_number, path, metadata_json, content_hash, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, CAST(? AS jsonb), ?, ?, ?)";
+
+    private static final String INSERT_COMPONENT_SQL =
+            "INSERT INTO slide_component (id, slide_node_id, component_type, content, display_order, content_hash, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${coursecrafter.import.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Insert every unsaved node and slide component (id == null) under the root in one transaction.
+     * Nodes that already have an id are treated as existing and only walked.
+     * Generated ids are written back onto the graph.
+     *
+     * @return number of content nodes inserted
+     */
+    @Transactional
+    public int importTree(ContentNode root) {
+        long started = System.nanoTime();
+
+        List<ContentNode> nodes = new ArrayList<>();
+        List<SlideComponent> components = new ArrayList<>();
+        collectUnsaved(root, nodes, components);
+        if (nodes.isEmpty() && components.isEmpty()) {
+            log.info("Bulk import: nothing new under '{}'", root.getTitle());
+            return 0;
+        }
+
+        // Parents precede their children in pre-order, so a single pass assigns every parent id
+        // (and materialized path) before any child needs it
+        Iterator<Long> nodeIds = allocateIds("content_node", nodes.size()).iterator();
+        nodes.forEach(node -> {
+            node.setId(nodeIds.next());
+            node.setPath(ContentPaths.childPath(node.getParent() != null ? node.getParent().getPath() : null, node.getId()));
+        });
+        Iterator<Long> componentIds = allocateIds("slide_component", components.size()).iterator();
+        components.forEach(component -> component.setId(componentIds.next()));
+
+        jdbcTemplate.batchUpdate(INSERT_NODE_SQL, nodes, batchSize, (ps, node) -> {
+            ps.setLong(1, node.getId());
+            ps.setObject(2, node.getParent() != null ? node.getParent().getId() : null);
+            ps.setString(3, node.getNodeType().name());
+            ps.setString(4, node.getTitle());
+            ps.setString(5, node.getDescription());
+            ps.setString(6, node.getMarkdownContent());
+            ps.setObject(7, node.getDisplayOrder());
+            ps.setString(8, node.getNodeNumber());
+            ps.setString(9, node.getPath());
+            ps.setString(10, node.getMetadataJson());
+            ps.setString(11, node.getContentHash());
+            ps.setObject(12, node.getCreatedAt());
+            ps.setObject(13, node.getUpdatedAt());
+        });
+
+        jdbcTemplate.batchUpdate(INSERT_COMPONENT_SQL, components, batchSize, (ps, component) -> {
+            ps.setLong(1, component.getId());
+            ps.setLong(2, component.getSlideNode().getId());
+            ps.setString(3, component.getComponentType().name());
+            ps.setString(4, component.getContent());
+            ps.setObject(5, component.getDisplayOrder());
+            ps.setString(6, component.getContentHash());
+            ps.setObject(7, component.getCreatedAt());
+            ps.setObject(8, component.getUpdatedAt());
+        });
+
+        log.info("Bulk import of '{}': {} nodes and {} components in {} ms",
+                root.getTitle(), nodes.size(), components.size(), (System.nanoTime() - started) / 1_000_000);
+        return nodes.size();
+    }
+
+    private void collectUnsaved(ContentNode root, List<ContentNode> nodes, List<SlideComponent> components) {
+        Deque<ContentNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            ContentNode node = stack.pop();
+            if (node.getId() == null) {
+                nodes.add(node);
+            }
+            if (node.getSlideComponents() != null) {
+                node.getSlideComponents().stream()
+                        .filter(component -> component.getId() == null)
+                        .forEach(components::add);
+            }
+            List<ContentNode> children = node.getChildren();
+            if (children != null) {
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    stack.push(children.get(i));
+                }
+            }
+        }
+    }
+
+    private List<Long> allocateIds(String table, int count) {
+        if (count == 0) {
+            return List.of();
+        }
+        return jdbcTemplate.queryForList(
+                "SELECT nextval(pg_get_serial_sequence(?, 'id')) FROM generate_series(1, ?)",
+                Long.class, table, count);
+    }
+}
@@ -0,0 +1,159 @@
+package com.coherentsolutions.coursecrafter.domain.content.service;
+
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentPaths;
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentTreeNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of fully loaded course trees, one immutable snapshot per root node.
+ * <p>
+ * Readers share snapshots without locking; a miss loads the tree through the caller's loader
+ * and publishes it only if no write happened in the meantime. Writers call {@link #invalidate}
+ * with the node they changed: the owning course (the first id of its materialized path) is
+ * dropped immediately and again after the surrounding transaction commits, so a reader that
+ * loaded the old rows mid-transaction cannot re-publish them.
+ */
+@Service
+public class CourseTreeCache {
+
+    private final Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final AtomicReference<RootsSnapshot> roots = new AtomicReference<>();
+    private final AtomicLong version = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @Value("${coursecrafter.cache.course-tree.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * A course tree as it was at the given cache version
+     */
+    public record Snapshot(long version, ContentTreeNode tree) {
+    }
+
+    private record RootsSnapshot(long version, List<ContentTreeNode.Node> nodes) {
+    }
+
+    public record CacheStats(long hits, long misses, long invalidations, int cachedTrees, long version) {
+    }
+
+    /**
+     * Cached tree for the root, loading it with the given loader on a miss.
+     * The loader must return the complete subtree (nodes and slide components), or null.
+     */
+    public ContentTreeNode getTree(Long rootId, Function<Long, ContentTreeNode> loader) {
+        if (!enabled) {
+            return loader.apply(rootId);
+        }
+        Snapshot cached = snapshots.get(rootId);
+        if (cached != null) {
+            hits.increment();
+            return cached.tree();
+        }
+
+        misses.increment();
+        long loadedAt = version.get();
+        ContentTreeNode loaded = loader.apply(rootId);
+        if (loaded == null) {
+            return null;
+        }
+        ContentTreeNode frozen = loaded.freeze();
+        if (version.get() == loadedAt) {
+            snapshots.putIfAbsent(rootId, new Snapshot(loadedAt, frozen));
+        }
+        return frozen;
+    }
+
+    /**
+     * Cached list of root nodes (parent is null), in display order. The loaded entities are
+     * copied into records, so no managed entity outlives the loader's persistence context.
+     */
+    public List<ContentTreeNode.Node> getRoots(Supplier<List<ContentNode>> loader) {
+        if (!enabled) {
+            return loader.get().stream().map(ContentTreeNode.Node::of).toList();
+        }
+        RootsSnapshot cached = roots.get();
+        if (cached != null) {
+            hits.increment();
+            return cached.nodes();
+        }
+
+        misses.increment();
+        long loadedAt = version.get();
+        List<ContentTreeNode.Node> loaded = loader.get().stream().map(ContentTreeNode.Node::of).toList();
+        if (version.get() == loadedAt) {
+            roots.compareAndSet(null, new RootsSnapshot(loadedAt, loaded));
+        }
+        return loaded;
+    }
+
+    /**
+     * Drop the snapshot of the course containing the node. Root nodes also reset the root list.
+     * Nodes without a path (not yet saved, or saved by an old version) invalidate everything.
+     */
+    public void invalidate(ContentNode node) {
+        Long rootId = node != null ? ContentPaths.rootId(node.getPath()) : null;
+        if (rootId == null) {
+            invalidateAll();
+            return;
+        }
+        boolean isRoot = node.getParent() == null;
+        evict(() -> {
+            version.incrementAndGet();
+            snapshots.remove(rootId);
+            if (isRoot) {
+                roots.set(null);
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        evict(() -> {
+            version.incrementAndGet();
+            snapshots.clear();
+            roots.set(null);
+        });
+    }
+
+    /**
+     * Incremented by every invalidation, so other in-memory views of the content can tell they are out of date
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), invalidations.sum(), snapshots.size(), version.get());
+    }
+
+    /**
+     * Run now and, inside a transaction, once more when it completes
+     */
+    private void evict(Runnable eviction) {
+        invalidations.increment();
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.coherentsolutions.coursecrafter.domain.content.service;
+
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
+import com.coherentsolutions.coursecrafter.domain.slide.model.SlideComponent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Brings the stored copy of a course in line with a freshly parsed, unsaved course graph.
+ * <p>
+ * The stored subtree is loaded once as (id, parent, key fields, content hash) rows, matched
+ * against the parsed tree, and only the difference is written: rows whose hash changed are
+ * updated, new nodes/components are inserted through {@link CourseBulkImportService}, and
+ * stored nodes that disappeared from a parsed lecture are deleted with their subtree.
+ * <p>
+ * Lectures are matched by title, or through {@link LectureChanges} when their file now gives
+ * them a new title (renumbered or renamed). A parse may hold only the changed lecture files, so
+ * an unmatched stored lecture is deleted only when {@link LectureChanges} retires it.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CourseTreeSyncService {
+
+    private static final String SUBTREE_CTE =
+            "WITH RECURSIVE subtree AS (" +
+                    "SELECT id FROM content_node WHERE id = ? " +
+                    "UNION ALL " +
+                    "SELECT c.id FROM content_node c JOIN subtree s ON c.parent_id = s.id) ";
+
+    private static final String UPDATE_NODE_SQL =
+            "UPDATE content_node SET title = ?, node_number = ?, display_order = ?, markdown_content = ?, " +
+                    "content_hash = ?, updated_at = ? WHERE id = ?";
+
+    private static final String UPDATE_COMPONENT_SQL =
+            "UPDATE slide_component SET content = ?, display_order = ?, content_hash = ?, updated_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CourseBulkImportService courseBulkImportService;
+    private final CourseTreeCache courseTreeCache;
+    private final ContentEmbeddingService contentEmbeddingService;
+
+    @Value("${coursecrafter.import.batch-size:500}")
+    private int batchSize;
+
+    public record SyncResult(int inserted, int updated, int deleted) {
+    }
+
+    /**
+     * What the import knows about lectures that left their file since the last import
+     *
+     * @param previousTitles stored lecture title by the parsed title that replaces it in the same file
+     * @param removedTitles  stored lectures whose file was deleted or no longer contains them
+     */
+    public record LectureChanges(Map<String, String> previousTitles, Set<String> removedTitles) {
+
+        public static final LectureChanges NONE = new LectureChanges(Map.of(), Set.of());
+
+        boolean retires(String storedTitle) {
+            return removedTitles.contains(storedTitle) || previousTitles.containsValue(storedTitle);
+        }
+    }
+
+    /**
+     * Sync without retiring any stored lecture
+     */
+    @Transactional
+    public SyncResult sync(ContentNode parsedCourse) {
+        return sync(parsedCourse, LectureChanges.NONE);
+    }
+
+    /**
+     * Insert the course if it does not exist yet, otherwise apply only the changes.
+     * Ids and paths of matched nodes are copied onto the parsed graph.
+     */
+    @Transactional
+    public SyncResult sync(ContentNode parsedCourse, LectureChanges lectureChanges) {
+        long started = System.nanoTime();
+
+        List<StoredNode> courseRows = findCourse(parsedCourse.getTitle());
+        if (courseRows.isEmpty()) {
+            List<ContentNode> newNodes = collectNew(parsedCourse, new ArrayList<>());
+            int inserted = courseBulkImportService.importTree(parsedCourse);
+            courseTreeCache.invalidate(parsedCourse);
+            contentEmbeddingService.indexNodes(newNodes);
+            return new SyncResult(inserted, 0, 0);
+        }
+
+        StoredTree stored = loadTree(courseRows.get(0).id());
+        Changes changes = new Changes();
+        diffCourse(parsedCourse, courseRows.get(0), stored, lectureChanges, changes);
+
+        deleteComponents(changes.deletedComponentIds);
+        deleteNodes(changes.deletedNodeIds);
+        updateNodes(changes.updatedNodes);
+        updateComponents(changes.updatedComponents);
+        List<ContentNode> newNodes = collectNew(parsedCourse, new ArrayList<>());
+        int inserted = courseBulkImportService.importTree(parsedCourse);
+        courseTreeCache.invalidate(parsedCourse);
+
+        // Embeddings follow the same diff: only inserted, changed and deleted nodes are touched
+        newNodes.addAll(changes.updatedNodes);
+        contentEmbeddingService.indexNodes(newNodes);
+        contentEmbeddingService.removeNodes(changes.deletedNodeIds);
+
+        SyncResult result = new SyncResult(inserted,
+                changes.updatedNodes.size() + changes.updatedComponents.size(),
+                changes.deletedNodeIds.size() + changes.deletedComponentIds.size());
+        log.info("Synced course '{}': {} nodes inserted, {} rows updated, {} rows deleted in {} ms",
+                parsedCourse.getTitle(), result.inserted(), result.updated(), result.deleted(),
+                (System.nanoTime() - started) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Delete the given lectures of a course with their subtrees; used for removed lecture files
+     * when no other file of the course was parsed
+     *
+     * @return number of nodes deleted
+     */
+    @Transactional
+    public int removeLectures(String courseTitle, Set<String> lectureTitles) {
+        List<StoredNode> courseRows = findCourse(courseTitle);
+        if (courseRows.isEmpty() || lectureTitles.isEmpty()) {
+            return 0;
+        }
+        StoredNode course = courseRows.get(0);
+        StoredTree tree = loadTree(course.id());
+        List<Long> deleted = new ArrayList<>();
+        tree.childrenByParent.getOrDefault(course.id(), List.of()).stream()
+                .filter(child -> child.nodeType() == ContentNode.NodeType.LECTURE && lectureTitles.contains(child.title()))
+                .forEach(lecture -> collectSubtreeIds(lecture, tree, deleted));
+
+        deleteNodes(deleted);
+        courseTreeCache.invalidate(ContentNode.builder().id(course.id()).path(course.path()).build());
+        contentEmbeddingService.removeNodes(deleted);
+        log.info("Removed lectures {} of course '{}': {} rows deleted", lectureTitles, courseTitle, deleted.size());
+        return deleted.size();
+    }
+
+    /**
+     * Lectures by title (or the title they replace); other direct children of the course, such
+     * as the implicit section for loose slides, by key and without deleting leftovers
+     */
+    private void diffCourse(ContentNode parsed, StoredNode stored, StoredTree tree, LectureChanges lectureChanges,
+                            Changes changes) {
+        matchRow(parsed, stored, tree, changes);
+
+        Map<String, StoredNode> storedLectures = new LinkedHashMap<>();
+        List<StoredNode> otherStored = new ArrayList<>();
+        for (StoredNode child : tree.childrenByParent.getOrDefault(stored.id(), List.of())) {
+            if (child.nodeType() == ContentNode.NodeType.LECTURE) {
+                storedLectures.putIfAbsent(child.title(), child);
+            } else {
+                otherStored.add(child);
+            }
+        }
+
+        List<ContentNode> otherParsed = new ArrayList<>();
+        for (ContentNode child : parsed.getChildren()) {
+            if (child.getNodeType() != ContentNode.NodeType.LECTURE) {
+                otherParsed.add(child);
+                continue;
+            }
+            StoredNode match = storedLectures.remove(child.getTitle());
+            String previousTitle = lectureChanges.previousTitles().get(child.getTitle());
+            if (match == null && previousTitle != null) {
+                match = storedLectures.remove(previousTitle);
+            }
+            if (match != null) {
+                diffNode(child, match, tree, changes);
+            }
+        }
+        diffChildren(otherParsed, otherStored, tree, false, changes);
+
+        storedLectures.values().stream()
+                .filter(lecture -> lectureChanges.retires(lecture.title()))
+                .forEach(lecture -> collectSubtreeIds(lecture, tree, changes.deletedNodeIds));
+    }
+
+    private void diffNode(ContentNode parsed, StoredNode stored, StoredTree tree, Changes changes) {
+        matchRow(parsed, stored, tree, changes);
+        diffChildren(parsed.getChildren(), tree.childrenByParent.getOrDefault(stored.id(), List.of()), tree, true, changes);
+    }
+
+    private void matchRow(ContentNode parsed, StoredNode stored, StoredTree tree, Changes changes) {
+        parsed.setId(stored.id());
+        parsed.setPath(stored.path()); // new children derive their paths from it on insert
+
+        // The hash leaves out display_order, which renumbering changes without rehashing
+        if (!Objects.equals(parsed.getContentHash(), stored.contentHash())
+                || !Objects.equals(parsed.getDisplayOrder(), stored.displayOrder())) {
+            changes.updatedNodes.add(parsed);
+        }
+        diffComponents(parsed, tree.componentsBySlide.getOrDefault(stored.id(), List.of()), changes);
+    }
+
+    private void diffChildren(List<ContentNode> parsedChildren, List<StoredNode> storedChildren, StoredTree tree,
+                              boolean deleteUnmatched, Changes changes) {
+        Map<String, Deque<StoredNode>> candidates = new LinkedHashMap<>();
+        for (StoredNode child : storedChildren) {
+            candidates.computeIfAbsent(matchKey(child.nodeType(), child.nodeNumber(), child.title()),
+                    k -> new ArrayDeque<>()).add(child);
+        }
+
+        for (ContentNode child : parsedChildren) {
+            Deque<StoredNode> sameKey = candidates.get(matchKey(child.getNodeType(), child.getNodeNumber(), child.getTitle()));
+            StoredNode match = sameKey != null ? sameKey.poll() : null;
+            if (match != null) {
+                diffNode(child, match, tree, changes);
+            }
+            // Unmatched children keep a null id and are inserted afterwards
+        }
+
+        if (deleteUnmatched) {
+            candidates.values().forEach(leftovers -> leftovers.forEach(node -> collectSubtreeIds(node, tree, changes.deletedNodeIds)));
+        }
+    }
+
+    private void diffComponents(ContentNode parsedSlide, List<StoredComponent> storedComponents, Changes changes) {
+        Map<SlideComponent.ComponentType, StoredComponent> byType = new HashMap<>();
+        storedComponents.forEach(component -> byType.putIfAbsent(component.type(), component));
+        Set<Long> matched = new HashSet<>();
+
+        if (parsedSlide.getSlideComponents() != null) {
+            for (SlideComponent component : parsedSlide.getSlideComponents()) {
+                StoredComponent match = byType.remove(component.getComponentType());
+                if (match == null) {
+                    continue; // inserted with the new nodes
+                }
+                component.setId(match.id());
+                matched.add(match.id());
+                if (!Objects.equals(component.getContentHash(), match.contentHash())) {
+                    changes.updatedComponents.add(component);
+                }
+            }
+        }
+        storedComponents.stream()
+                .filter(component -> !matched.contains(component.id()))
+                .forEach(component -> changes.deletedComponentIds.add(component.id()));
+    }
+
+    /**
+     * Identity used to pair parsed and stored siblings below a lecture: the hierarchical number
+     */
+    private String matchKey(ContentNode.NodeType type, String nodeNumber, String title) {
+        return type + ":" + (nodeNumber != null ? nodeNumber : title);
+    }
+
+    private List<ContentNode> collectNew(ContentNode node, List<ContentNode> collected) {
+        if (node.getId() == null) {
+            collected.add(node);
+        }
+        node.getChildren().forEach(child -> collectNew(child, collected));
+        return collected;
+    }
+
+    private void collectSubtreeIds(StoredNode node, StoredTree tree, List<Long> ids) {
+        ids.add(node.id());
+        tree.childrenByParent.getOrDefault(node.id(), List.of()).forEach(child -> collectSubtreeIds(child, tree, ids));
+    }
+
+    private List<StoredNode> findCourse(String title) {
+        return jdbcTemplate.query(
+                "SELECT id, parent_id, node_type, title, node_number, display_order, path, content_hash " +
+                        "FROM content_node WHERE node_type = 'COURSE' AND title = ? ORDER BY id LIMIT 1",
+                (rs, i) -> mapNode(rs), title);
+    }
+
+    private StoredTree loadTree(long courseId) {
+        StoredTree tree = new StoredTree();
+        jdbcTemplate.query(SUBTREE_CTE +
+                        "SELECT n.id, n.parent_id, n.node_type, n.title, n.node_number, n.display_order, n.path, n.content_hash " +
+                        "FROM content_node n JOIN subtree s ON n.id = s.id ORDER BY n.display_order, n.id",
+                rs -> {
+                    StoredNode node = mapNode(rs);
+                    if (node.parentId() != null) {
+                        tree.childrenByParent.computeIfAbsent(node.parentId(), k -> new ArrayList<>()).add(node);
+                    }
+                }, courseId);
+        jdbcTemplate.query(SUBTREE_CTE +
+                        "SELECT sc.id, sc.slide_node_id, sc.component_type, sc.content_hash " +
+                        "FROM slide_component sc JOIN subtree s ON sc.slide_node_id = s.id ORDER BY sc.display_order, sc.id",
+                rs -> {
+                    StoredComponent component = new StoredComponent(rs.getLong("id"), rs.getLong("slide_node_id"),
+                            SlideComponent.ComponentType.valueOf(rs.getString("component_type")), rs.getString("content_hash"));
+                    tree.componentsBySlide.computeIfAbsent(component.slideId(), k -> new ArrayList<>()).add(component);
+                }, courseId);
+        return tree;
+    }
+
+    private StoredNode mapNode(ResultSet rs) throws SQLException {
+        return new StoredNode(
+                rs.getLong("id"),
+                rs.getObject("parent_id", Long.class),
+                ContentNode.NodeType.valueOf(rs.getString("node_type")),
+                rs.getString("title"),
+                rs.getString("node_number"),
+                rs.getObject("display_order", Integer.class),
+                rs.getString("path"),
+                rs.getString("content_hash"));
+    }
+
+    private void updateNodes(List<ContentNode> nodes) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(UPDATE_NODE_SQL, nodes, batchSize, (ps, node) -> {
+            ps.setString(1, node.getTitle());
+            ps.setString(2, node.getNodeNumber());
+            ps.setObject(3, node.getDisplayOrder());
+            ps.setString(4, node.getMarkdownContent());
+            ps.setString(5, node.getContentHash());
+            ps.setObject(6, now);
+            ps.setLong(7, node.getId());
+        });
+    }
+
+    private void updateComponents(List<SlideComponent> components) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(UPDATE_COMPONENT_SQL, components, batchSize, (ps, component) -> {
+            ps.setString(1, component.getContent());
+            ps.setObject(2, component.getDisplayOrder());
+            ps.setString(3, component.getContentHash());
+            ps.setObject(4, now);
+            ps.setLong(5, component.getId());
+        });
+    }
+
+    private void deleteComponents(List<Long> ids) {
+        deleteWhereIn("DELETE FROM slide_component WHERE id = ANY(?)", ids);
+    }
+
+    private void deleteNodes(List<Long> ids) {
+        deleteWhereIn("DELETE FROM slide_component WHERE slide_node_id = ANY(?)", ids);
+        deleteWhereIn("DELETE FROM node_tag WHERE node_id = ANY(?)", ids);
+        deleteWhereIn("DELETE FROM ai_suggestion WHERE node_id = ANY(?)", ids);
+        deleteWhereIn("DELETE FROM content_node WHERE id = ANY(?)", ids);
+    }
+
+    private void deleteWhereIn(String sql, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(sql, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())));
+    }
+
+    private record StoredNode(long id, Long parentId, ContentNode.NodeType nodeType, String title,
+                              String nodeNumber, Integer displayOrder, String path, String contentHash) {
+    }
+
+    private record StoredComponent(long id, long slideId, SlideComponent.ComponentType type, String contentHash) {
+    }
+
+    private static class StoredTree {
+        private final Map<Long, List<StoredNode>> childrenByParent = new HashMap<>();
+        private final Map<Long, List<StoredComponent>> componentsBySlide = new HashMap<>();
+    }
+
+    private static class Changes {
+        private final List<ContentNode> updatedNodes = new ArrayList<>();
+        private final List<SlideComponent> updatedComponents = new ArrayList<>();
+        private final List<Long> deletedNodeIds = new ArrayList<>();
+        private final List<Long> deletedComponentIds = new ArrayList<>();
+    }
+}
@@ -0,0 +1,60 @@
+package com.coherentsolutions.coursecrafter.domain.proposal.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A queued ingestion, course update or tag extraction, processed by the worker pool and polled by clients
+ */
+@Entity
+@Table(name = "ingestion_job", indexes = {
+        @Index(name = "idx_ingestion_job_status", columnList = "status, nextAttemptAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IngestionJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String jobType;     // CONTENT_INGEST, COURSE_UPDATE, TAG_EXTRACTION
+
+    @Column(nullable = false)
+    private String status;      // QUEUED, RUNNING, SUCCEEDED, FAILED
+
+    private String courseName;
+
+    @Lob @Column(columnDefinition = "text")
+    private String requestJson;
+
+    @Lob @Column(columnDefinition = "text")
+    private String resultJson;
+
+    private String currentStage;
+
+    @Lob @Column(columnDefinition = "text")
+    private String stageTimingsJson;  // {"summarize": 1234, ...} for the latest attempt
+
+    private String checkpoint;  // where a retried attempt resumes, e.g. the last tagged node id
+
+    private int attempts;
+    private int maxAttempts;
+
+    @Lob @Column(columnDefinition = "text")
+    private String lastError;
+
+    private String lockedBy;    // worker running the job
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,14 @@
+package com.coherentsolutions.coursecrafter.domain.proposal.repository;
+
+import com.coherentsolutions.coursecrafter.domain.proposal.model.IngestionJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface IngestionJobRepository extends JpaRepository<IngestionJob, Long> {
+    List<IngestionJob> findByStatusOrderByIdDesc(String status, Pageable pageable);
+    List<IngestionJob> findAllByOrderByIdDesc(Pageable pageable);
+    boolean existsByJobTypeAndStatusIn(String jobType, Collection<String> statuses);
+}
@@ -31,6 +31,11 @@ public class SlideComponent {
     private String content;
 
     private Integer displayOrder;
+
+    // SHA-256 of type, order and content, used by incremental re-import
+    @Column(length = 64)
+    private String contentHash;
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
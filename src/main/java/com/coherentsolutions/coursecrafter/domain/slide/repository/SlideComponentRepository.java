@@ -3,6 +3,7 @@ package com.coherentsolutions.coursecrafter.domain.slide.repository;
 import com.coherentsolutions.coursecrafter.domain.slide.model.SlideComponent;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,4 +13,15 @@ public interface SlideComponentRepository extends JpaRepository<SlideComponent,
 
     @Query("SELECT sc FROM SlideComponent sc WHERE sc.slideNode.id = :slideId AND sc.componentType = :type")
     Optional<SlideComponent> findBySlideIdAndType(Long slideId, SlideComponent.ComponentType type);
+
+    /**
+     * All components of all slides below (and including) the given node, in one query
+     */
+    @Query(value = "WITH RECURSIVE subtree AS (" +
+            "SELECT id FROM content_node WHERE id = :rootId " +
+            "UNION ALL " +
+            "SELECT c.id FROM content_node c JOIN subtree s ON c.parent_id = s.id) " +
+            "SELECT sc.* FROM slide_component sc JOIN subtree s ON sc.slide_node_id = s.id " +
+            "ORDER BY sc.display_order, sc.id", nativeQuery = true)
+    List<SlideComponent> findBySubtreeRootId(@Param("rootId") Long rootId);
 }
\ No newline at end of file
@@ -3,6 +3,8 @@ package com.coherentsolutions.coursecrafter.domain.slide.service;
 import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
 import com.coherentsolutions.coursecrafter.domain.slide.model.SlideComponent;
 import com.coherentsolutions.coursecrafter.domain.content.repository.ContentNodeRepository;
+import com.coherentsolutions.coursecrafter.domain.content.service.ContentHashes;
+import com.coherentsolutions.coursecrafter.domain.content.service.CourseTreeCache;
 import com.coherentsolutions.coursecrafter.domain.slide.repository.SlideComponentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,6 +25,7 @@ public class SlideComponentService {
     private final SlideComponentRepository componentRepository;
     private final ContentNodeRepository nodeRepository;
     private final JdbcTemplate jdbcTemplate; // <<<< INJECT JdbcTemplate
+    private final CourseTreeCache courseTreeCache;
 
     // Optional: If you want to try the re-fetch strategy for debugging createComponent
     // @PersistenceContext
@@ -59,6 +62,7 @@ public class SlideComponentService {
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
+        componentToSave.setContentHash(ContentHashes.of(componentToSave));
 
         String beforeSavePreview = (componentToSave.getContent() != null) ? componentToSave.getContent().substring(0, Math.min(componentToSave.getContent().length(), 100)).replace("\n", "\\n") : "null";
         int beforeSaveLength = (componentToSave.getContent() != null) ? componentToSave.getContent().length() : 0;
@@ -68,6 +72,7 @@ public class SlideComponentService {
         SlideComponent savedComponent = null;
         try {
             savedComponent = componentRepository.saveAndFlush(componentToSave); // Using saveAndFlush for immediate DB interaction
+            courseTreeCache.invalidate(slideNode);
         } catch (Exception e) {
             log.error("SERVICE.createComponent ERROR during save for slideId={}, type={}: {}", slideId, type, e.getMessage(), e);
             throw e;
@@ -91,18 +96,22 @@ public class SlideComponentService {
         return componentRepository.findById(componentId)
                 .map(component -> {
                     component.setContent(newContent);
+                    component.setContentHash(ContentHashes.of(component));
                     component.setUpdatedAt(LocalDateTime.now());
+                    courseTreeCache.invalidate(component.getSlideNode());
                     return componentRepository.save(component);
                 });
     }
 
     @Transactional
     public boolean deleteComponent(Long componentId) {
-        if (componentRepository.existsById(componentId)) {
-            componentRepository.deleteById(componentId);
-            return true;
-        }
-        return false;
+        return componentRepository.findById(componentId)
+                .map(component -> {
+                    componentRepository.delete(component);
+                    courseTreeCache.invalidate(component.getSlideNode());
+                    return true;
+                })
+                .orElse(false);
     }
 
     /**
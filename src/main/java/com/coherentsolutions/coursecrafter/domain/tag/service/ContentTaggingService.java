@@ -0,0 +1,226 @@
+package com.coherentsolutions.coursecrafter.domain.tag.service;
+
+import com.coherentsolutions.coursecrafter.domain.tag.model.Tag;
+import com.coherentsolutions.coursecrafter.domain.tag.repository.TagRepository;
+import com.coherentsolutions.coursecrafter.domain.tag.service.TagFacetIndex.NodeTag;
+import com.coherentsolutions.coursecrafter.util.KeywordMatcher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+
+/**
+ * Tags content nodes with the keyword dictionary at {@code coursecrafter.tags.dictionary}.
+ * Nodes are read in id order a page at a time, tagged on one thread per core and linked to their
+ * tags with batched inserts. After each page the last node id is reported as a checkpoint; a run
+ * started from that id picks up after it. Existing links are kept, so tagging a page twice is
+ * harmless.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ContentTaggingService {
+
+    private static final String NEXT_PAGE = """
+            SELECT id, title, description, markdown_content FROM content_node
+             WHERE id > ?
+             ORDER BY id
+             LIMIT ?
+            """;
+
+    private static final String INSERT_NODE_TAG =
+            "INSERT INTO node_tag (node_id, tag_id) VALUES (?, ?) ON CONFLICT DO NOTHING";
+
+    private final TagRepository tagRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TagFacetIndex tagIndex;
+
+    // Tag names, categories and keywords: "name | category | keyword, keyword, ..." per line
+    @Value("${coursecrafter.tags.dictionary:classpath:tag-dictionary.txt}")
+    private Resource dictionary;
+
+    // Nodes read, tagged and written per step; also the unit of progress kept for a resume
+    @Value("${coursecrafter.tags.page-size:1000}")
+    private int pageSize = 1000;
+
+    // Threads tagging a page; 0 uses one per available core
+    @Value("${coursecrafter.tags.parallelism:0}")
+    private int parallelism;
+
+    public record TaggingResult(long nodes, long taggedNodes, long links) {
+    }
+
+    private record DictionaryTag(String name, String category, List<String> keywords) {
+    }
+
+    private record NodeText(long id, String text) {
+    }
+
+    /**
+     * Tag every node with an id above the given one
+     *
+     * @param afterNodeId the checkpoint of an unfinished run, or null to tag all nodes
+     * @param checkpoint  called with the last node id once a page's links are written
+     */
+    public TaggingResult tagNodes(Long afterNodeId, LongConsumer checkpoint) throws IOException, InterruptedException {
+        List<DictionaryTag> dictionaryTags = loadDictionary();
+        Map<String, Tag> tagMap = createTags(dictionaryTags);
+        KeywordMatcher<Long> tagger = buildTagger(dictionaryTags, tagMap);
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        log.info("Tagging content nodes after id {} with {} keywords for {} tags on {} threads",
+                afterNodeId, tagger.size(), tagMap.size(), threads);
+
+        long lastNodeId = afterNodeId != null ? afterNodeId : 0;
+        long nodes = 0;
+        long taggedNodes = 0;
+        long links = 0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<NodeText> page;
+            while (!(page = jdbcTemplate.query(NEXT_PAGE, (rs, row) -> new NodeText(rs.getLong(1),
+                    nullToEmpty(rs.getString(2)) + " " + nullToEmpty(rs.getString(3)) + " " + nullToEmpty(rs.getString(4))),
+                    lastNodeId, Math.max(1, pageSize))).isEmpty()) {
+                List<NodeTag> nodeTags = tag(page, tagger, executor, threads);
+                jdbcTemplate.batchUpdate(INSERT_NODE_TAG, nodeTags, Math.max(1, pageSize), (ps, nodeTag) -> {
+                    ps.setLong(1, nodeTag.nodeId());
+                    ps.setLong(2, nodeTag.tagId());
+                });
+                tagIndex.linksAdded(nodeTags);
+
+                lastNodeId = page.get(page.size() - 1).id();
+                checkpoint.accept(lastNodeId);
+                nodes += page.size();
+                taggedNodes += nodeTags.stream().mapToLong(NodeTag::nodeId).distinct().count();
+                links += nodeTags.size();
+                log.debug("Tagged nodes up to id {}: {} links so far", lastNodeId, links);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException("Tagging stopped after node " + lastNodeId);
+                }
+            }
+        }
+        log.info("Tagged {} of {} content nodes with {} tag links", taggedNodes, nodes, links);
+        return new TaggingResult(nodes, taggedNodes, links);
+    }
+
+    /**
+     * Match the page's nodes in slices, one per thread
+     */
+    private List<NodeTag> tag(List<NodeText> page, KeywordMatcher<Long> tagger, ExecutorService executor,
+                              int threads) throws InterruptedException {
+        int sliceSize = (page.size() + threads - 1) / threads;
+        List<Future<List<NodeTag>>> slices = new ArrayList<>();
+        for (int from = 0; from < page.size(); from += sliceSize) {
+            List<NodeText> slice = page.subList(from, Math.min(page.size(), from + sliceSize));
+            slices.add(executor.submit(() -> {
+                List<NodeTag> nodeTags = new ArrayList<>();
+                for (NodeText node : slice) {
+                    tagger.findAll(node.text()).forEach(tagId -> nodeTags.add(new NodeTag(node.id(), tagId)));
+                }
+                return nodeTags;
+            }));
+        }
+
+        List<NodeTag> nodeTags = new ArrayList<>();
+        try {
+            for (Future<List<NodeTag>> slice : slices) {
+                nodeTags.addAll(slice.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Tagging failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            slices.forEach(slice -> slice.cancel(true));
+        }
+        return nodeTags;
+    }
+
+    private List<DictionaryTag> loadDictionary() throws IOException {
+        List<DictionaryTag> tags = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(dictionary.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\|", -1);
+                if (fields.length != 3 || fields[0].isBlank()) {
+                    throw new IllegalStateException("Malformed line " + lineNumber + " in tag dictionary "
+                            + dictionary.getDescription() + ": " + line);
+                }
+                List<String> keywords = Arrays.stream(fields[2].split(","))
+                        .map(String::strip)
+                        .filter(keyword -> !keyword.isEmpty())
+                        .toList();
+                tags.add(new DictionaryTag(fields[0].strip(), fields[1].strip(), keywords));
+            }
+        }
+        log.info("Loaded {} tags from {}", tags.size(), dictionary.getDescription());
+        return tags;
+    }
+
+    /**
+     * The tags in the tag table, plus the dictionary's tags that were not there yet
+     */
+    private Map<String, Tag> createTags(List<DictionaryTag> dictionaryTags) {
+        Map<String, Tag> tagMap = new HashMap<>();
+        for (Tag tag : tagRepository.findAll()) {
+            tagMap.put(tag.getName(), tag);
+        }
+
+        for (DictionaryTag entry : dictionaryTags) {
+            if (tagMap.containsKey(entry.name())) {
+                continue;
+            }
+            Tag tag = Tag.builder()
+                    .name(entry.name())
+                    .category(entry.category())
+                    .createdAt(LocalDateTime.now())
+                    .build();
+
+            tag = tagRepository.save(tag);
+            tagMap.put(entry.name(), tag);
+            tagIndex.invalidate();
+            log.info("Created tag: {} ({})", entry.name(), entry.category());
+        }
+
+        return tagMap;
+    }
+
+    /**
+     * Keywords to tag ids: every tag matches its own name, and dictionary tags their keywords too
+     */
+    private KeywordMatcher<Long> buildTagger(List<DictionaryTag> dictionaryTags, Map<String, Tag> tagMap) {
+        Map<String, Long> keywordToTag = new LinkedHashMap<>();
+        tagMap.forEach((name, tag) -> keywordToTag.put(name, tag.getId()));
+        for (DictionaryTag entry : dictionaryTags) {
+            Long tagId = tagMap.get(entry.name()).getId();
+            entry.keywords().forEach(keyword -> keywordToTag.putIfAbsent(keyword, tagId));
+        }
+        return KeywordMatcher.of(keywordToTag);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -0,0 +1,206 @@
+package com.coherentsolutions.coursecrafter.domain.tag.service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The node ids carrying each tag, as bitmaps over node ordinals. Ordinals follow the nodes'
+ * materialized paths in string order, which puts every subtree in one contiguous range, so a
+ * hierarchy scope is a range of bits found by binary search. Not thread-safe; see
+ * {@link TagFacetIndex}.
+ */
+final class TagBitmaps {
+
+    record NodeRow(long id, String nodeType, String title, String path) {
+    }
+
+    record TagRow(long id, String name, String category) {
+    }
+
+    private final NodeRow[] nodes;   // by ordinal
+    private final int withPath;      // nodes without a path sort last and are never in a scope
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final Map<String, BitSet> byType = new HashMap<>();
+    private final Map<Long, TagRow> tags = new LinkedHashMap<>();
+    private final Map<String, Long> tagIdsByName = new HashMap<>();
+    private final Map<Long, BitSet> byTag = new HashMap<>();
+
+    TagBitmaps(List<NodeRow> nodeRows, List<TagRow> tagRows, List<TagFacetIndex.NodeTag> links) {
+        nodes = nodeRows.stream()
+                .sorted(Comparator.comparing(NodeRow::path, Comparator.nullsLast(Comparator.naturalOrder())))
+                .toArray(NodeRow[]::new);
+        int counted = 0;
+        for (int ordinal = 0; ordinal < nodes.length; ordinal++) {
+            NodeRow node = nodes[ordinal];
+            ordinals.put(node.id(), ordinal);
+            byType.computeIfAbsent(node.nodeType(), type -> new BitSet(nodes.length)).set(ordinal);
+            if (node.path() != null) {
+                counted++;
+            }
+        }
+        withPath = counted;
+        for (TagRow tag : tagRows) {
+            tags.put(tag.id(), tag);
+            tagIdsByName.put(tag.name().toLowerCase(Locale.ROOT), tag.id());
+            byTag.put(tag.id(), new BitSet(nodes.length));
+        }
+        links.forEach(this::add);
+    }
+
+    int nodeCount() {
+        return nodes.length;
+    }
+
+    int tagCount() {
+        return tags.size();
+    }
+
+    /**
+     * Record a new link
+     *
+     * @return false if the node or the tag is not in the index
+     */
+    boolean add(TagFacetIndex.NodeTag link) {
+        Integer ordinal = ordinals.get(link.nodeId());
+        BitSet tagged = byTag.get(link.tagId());
+        if (ordinal == null || tagged == null) {
+            return false;
+        }
+        tagged.set(ordinal);
+        return true;
+    }
+
+    /**
+     * Nodes matching the expression within the scope, with tag and category counts among them
+     *
+     * @param expression  null matches every node
+     * @param scopeNodeId null for all nodes, else the node and its descendants
+     * @param nodeType    null for all types
+     * @param limit       most nodes to list; the counts cover all matches
+     */
+    TagFacetIndex.SearchResult search(TagExpression expression, Long scopeNodeId, String nodeType, int limit) {
+        BitSet universe = scope(scopeNodeId);
+        if (nodeType != null) {
+            universe.and(byType.getOrDefault(nodeType.toUpperCase(Locale.ROOT), new BitSet()));
+        }
+        BitSet matches = expression != null ? evaluate(expression, universe) : universe;
+        matches.and(universe);
+
+        Map<String, Integer> tagCounts = new LinkedHashMap<>();
+        Map<String, BitSet> categories = new HashMap<>();
+        for (TagRow tag : tags.values()) {
+            BitSet tagged = byTag.get(tag.id());
+            if (!tagged.intersects(matches)) {
+                continue;
+            }
+            BitSet counted = (BitSet) tagged.clone();
+            counted.and(matches);
+            tagCounts.put(tag.name(), counted.cardinality());
+            if (tag.category() != null) {
+                categories.computeIfAbsent(tag.category(), category -> new BitSet()).or(counted);
+            }
+        }
+        Map<String, Integer> categoryCounts = new HashMap<>();
+        categories.forEach((category, counted) -> categoryCounts.put(category, counted.cardinality()));
+
+        List<TagFacetIndex.NodeHit> hits = new ArrayList<>();
+        for (int ordinal = matches.nextSetBit(0); ordinal >= 0 && hits.size() < limit;
+             ordinal = matches.nextSetBit(ordinal + 1)) {
+            hits.add(hit(ordinal));
+        }
+        return new TagFacetIndex.SearchResult(matches.cardinality(), hits, byCount(categoryCounts), byCount(tagCounts));
+    }
+
+    private BitSet evaluate(TagExpression expression, BitSet universe) {
+        return switch (expression) {
+            case TagExpression.Tag tag -> {
+                Long tagId = tagIdsByName.get(tag.name().toLowerCase(Locale.ROOT));
+                if (tagId == null) {
+                    throw new IllegalArgumentException("Unknown tag: " + tag.name());
+                }
+                yield (BitSet) byTag.get(tagId).clone();
+            }
+            case TagExpression.Not not -> {
+                BitSet result = (BitSet) universe.clone();
+                result.andNot(evaluate(not.operand(), universe));
+                yield result;
+            }
+            case TagExpression.And and -> {
+                BitSet result = evaluate(and.left(), universe);
+                result.and(evaluate(and.right(), universe));
+                yield result;
+            }
+            case TagExpression.Or or -> {
+                BitSet result = evaluate(or.left(), universe);
+                result.or(evaluate(or.right(), universe));
+                yield result;
+            }
+        };
+    }
+
+    /**
+     * The ordinals of the node's subtree: the node itself and the paths after it that start
+     * with "&lt;path&gt;/". '0' follows '/', and paths hold only digits and separators, so the
+     * subtree ends at the first path not below "&lt;path&gt;0".
+     */
+    private BitSet scope(Long scopeNodeId) {
+        BitSet scope = new BitSet(nodes.length);
+        if (scopeNodeId == null) {
+            scope.set(0, nodes.length);
+            return scope;
+        }
+        Integer ordinal = ordinals.get(scopeNodeId);
+        if (ordinal == null) {
+            throw new IllegalArgumentException("Unknown node: " + scopeNodeId);
+        }
+        String path = nodes[ordinal].path();
+        if (path == null) {
+            scope.set(ordinal);
+            return scope;
+        }
+        scope.set(ordinal, firstPathNotBelow(path + "0"));
+        return scope;
+    }
+
+    private int firstPathNotBelow(String bound) {
+        int low = 0;
+        int high = withPath;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (nodes[middle].path().compareTo(bound) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private TagFacetIndex.NodeHit hit(int ordinal) {
+        NodeRow node = nodes[ordinal];
+        List<String> nodeTags = new ArrayList<>();
+        for (TagRow tag : tags.values()) {
+            if (byTag.get(tag.id()).get(ordinal)) {
+                nodeTags.add(tag.name());
+            }
+        }
+        return new TagFacetIndex.NodeHit(node.id(), node.nodeType(), node.title(), node.path(), nodeTags);
+    }
+
+    /**
+     * Largest count first, then by name
+     */
+    private static Map<String, Integer> byCount(Map<String, Integer> counts) {
+        Map<String, Integer> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+}
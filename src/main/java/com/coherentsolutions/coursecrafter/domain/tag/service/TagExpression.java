@@ -0,0 +1,146 @@
+package com.coherentsolutions.coursecrafter.domain.tag.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A boolean expression over tag names, e.g. {@code Claude AND (GPT-4 OR "Prompt Engineering") AND NOT Bias}.
+ * Operators are upper-case {@code AND}, {@code OR} and {@code NOT}; NOT binds tightest and OR
+ * loosest. A tag name is either quoted or a run of words between operators, so
+ * {@code Prompt Engineering AND Bias} names the tags "Prompt Engineering" and "Bias".
+ */
+public sealed interface TagExpression {
+
+    record Tag(String name) implements TagExpression {
+    }
+
+    record Not(TagExpression operand) implements TagExpression {
+    }
+
+    record And(TagExpression left, TagExpression right) implements TagExpression {
+    }
+
+    record Or(TagExpression left, TagExpression right) implements TagExpression {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the text is not a valid expression
+     */
+    static TagExpression parse(String text) {
+        Parser parser = new Parser(text);
+        TagExpression expression = parser.or();
+        if (parser.peek() != null) {
+            throw new IllegalArgumentException("Unexpected '" + parser.peek() + "' in tag expression: " + text);
+        }
+        return expression;
+    }
+
+    final class Parser {
+        private static final String AND = "AND";
+        private static final String OR = "OR";
+        private static final String NOT = "NOT";
+
+        private final String text;
+        private final List<String> tokens = new ArrayList<>();
+        private int position;
+
+        private Parser(String text) {
+            this.text = text;
+            tokenize();
+        }
+
+        private TagExpression or() {
+            TagExpression left = and();
+            while (OR.equals(peek())) {
+                position++;
+                left = new Or(left, and());
+            }
+            return left;
+        }
+
+        private TagExpression and() {
+            TagExpression left = unary();
+            while (AND.equals(peek())) {
+                position++;
+                left = new And(left, unary());
+            }
+            return left;
+        }
+
+        private TagExpression unary() {
+            String token = peek();
+            if (token == null) {
+                throw new IllegalArgumentException("Tag expression ends early: " + text);
+            }
+            position++;
+            if (token.equals(NOT)) {
+                return new Not(unary());
+            }
+            if (token.equals("(")) {
+                TagExpression inner = or();
+                if (!")".equals(peek())) {
+                    throw new IllegalArgumentException("Missing ')' in tag expression: " + text);
+                }
+                position++;
+                return inner;
+            }
+            if (token.equals(")") || token.equals(AND) || token.equals(OR)) {
+                throw new IllegalArgumentException("Expected a tag name before '" + token + "' in tag expression: " + text);
+            }
+            return new Tag(token.startsWith("\"") ? token.substring(1) : token);
+        }
+
+        private String peek() {
+            return position < tokens.size() ? tokens.get(position) : null;
+        }
+
+        /**
+         * Operators and parentheses become tokens of their own; quoted names keep a leading quote
+         * so they are never read as operators, and runs of other words become one name
+         */
+        private void tokenize() {
+            StringBuilder name = new StringBuilder();
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '(' || c == ')') {
+                    flush(name);
+                    tokens.add(String.valueOf(c));
+                    i++;
+                } else if (c == '"') {
+                    flush(name);
+                    int close = text.indexOf('"', i + 1);
+                    if (close < 0) {
+                        throw new IllegalArgumentException("Unclosed quote in tag expression: " + text);
+                    }
+                    tokens.add("\"" + text.substring(i + 1, close).strip());
+                    i = close + 1;
+                } else {
+                    int end = i;
+                    while (end < text.length() && !Character.isWhitespace(text.charAt(end))
+                            && "()\"".indexOf(text.charAt(end)) < 0) {
+                        end++;
+                    }
+                    String word = text.substring(i, end);
+                    if (word.equals(AND) || word.equals(OR) || word.equals(NOT)) {
+                        flush(name);
+                        tokens.add(word);
+                    } else {
+                        name.append(name.isEmpty() ? "" : " ").append(word);
+                    }
+                    i = end;
+                }
+            }
+            flush(name);
+        }
+
+        private void flush(StringBuilder name) {
+            if (!name.isEmpty()) {
+                tokens.add(name.toString());
+                name.setLength(0);
+            }
+        }
+    }
+}
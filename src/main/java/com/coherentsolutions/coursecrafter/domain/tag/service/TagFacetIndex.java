@@ -0,0 +1,146 @@
+package com.coherentsolutions.coursecrafter.domain.tag.service;
+
+import com.coherentsolutions.coursecrafter.domain.content.service.CourseTreeCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index for tag-faceted search: which nodes, optionally within one course subtree
+ * and of one type, match a {@link TagExpression}, and how the matches spread over tags and tag
+ * categories. Answers come from bitmaps ({@link TagBitmaps}) without touching the database.
+ * <p>
+ * The index is loaded on first use. New node-tag links are added to it as they are written;
+ * added nodes or tags, and any content change that moves the {@link CourseTreeCache} version,
+ * make the next search reload it.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TagFacetIndex {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CourseTreeCache courseTreeCache;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private TagBitmaps bitmaps;
+    private long loadedVersion;
+    private boolean stale;
+
+    public record NodeTag(long nodeId, long tagId) {
+    }
+
+    public record NodeHit(Long id, String nodeType, String title, String path, List<String> tags) {
+    }
+
+    /**
+     * @param total      matching nodes, of which {@code nodes} lists the first by path
+     * @param categories matching nodes per tag category, largest first
+     * @param tags       matching nodes per tag, largest first
+     */
+    public record SearchResult(int total, List<NodeHit> nodes, Map<String, Integer> categories,
+                               Map<String, Integer> tags) {
+    }
+
+    public record IndexStats(boolean loaded, int nodes, int tags, long contentVersion) {
+    }
+
+    /**
+     * @param expression  tag expression, or null/blank for every node in scope
+     * @param scopeNodeId only this node and its descendants, or null for all nodes
+     * @param nodeType    only nodes of this type (SLIDE, TOPIC, ...), or null
+     * @throws IllegalArgumentException for an invalid expression, an unknown tag or scope node
+     */
+    public SearchResult search(String expression, Long scopeNodeId, String nodeType, int limit) {
+        TagExpression parsed = expression == null || expression.isBlank() ? null : TagExpression.parse(expression);
+        lock.readLock().lock();
+        try {
+            if (isCurrent()) {
+                return bitmaps.search(parsed, scopeNodeId, nodeType, Math.max(0, limit));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (!isCurrent()) {
+                reload();
+            }
+            return bitmaps.search(parsed, scopeNodeId, nodeType, Math.max(0, limit));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add links just written to node_tag
+     */
+    public void linksAdded(Collection<NodeTag> links) {
+        lock.writeLock().lock();
+        try {
+            if (bitmaps == null || stale) {
+                return;
+            }
+            for (NodeTag link : links) {
+                if (!bitmaps.add(link)) {
+                    // A node or tag loaded after the index
+                    stale = true;
+                    return;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reload on the next search, e.g. after tags were created or removed
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            stale = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public IndexStats stats() {
+        lock.readLock().lock();
+        try {
+            return bitmaps == null
+                    ? new IndexStats(false, 0, 0, loadedVersion)
+                    : new IndexStats(isCurrent(), bitmaps.nodeCount(), bitmaps.tagCount(), loadedVersion);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean isCurrent() {
+        return bitmaps != null && !stale && loadedVersion == courseTreeCache.getVersion();
+    }
+
+    private void reload() {
+        long started = System.nanoTime();
+        // Read the version first: a change during the load makes the next search load again
+        long version = courseTreeCache.getVersion();
+        List<TagBitmaps.NodeRow> nodes = jdbcTemplate.query("SELECT id, node_type, title, path FROM content_node",
+                (rs, row) -> new TagBitmaps.NodeRow(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+        List<TagBitmaps.TagRow> tags = jdbcTemplate.query("SELECT id, name, category FROM tag ORDER BY name",
+                (rs, row) -> new TagBitmaps.TagRow(rs.getLong(1), rs.getString(2), rs.getString(3)));
+        List<NodeTag> links = jdbcTemplate.query("SELECT node_id, tag_id FROM node_tag",
+                (rs, row) -> new NodeTag(rs.getLong(1), rs.getLong(2)));
+        bitmaps = new TagBitmaps(nodes, tags, links);
+        loadedVersion = version;
+        stale = false;
+        log.info("Loaded tag index: {} nodes, {} tags, {} links in {} ms", nodes.size(), tags.size(), links.size(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+}
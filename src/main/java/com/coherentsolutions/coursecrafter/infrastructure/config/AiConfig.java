@@ -4,7 +4,12 @@
 //sets API key, chat model, temp, etc.
 package com.coherentsolutions.coursecrafter.infrastructure.config;
 
+import com.coherentsolutions.coursecrafter.application.api.ai.LlmResponseCache;
+import com.coherentsolutions.coursecrafter.application.api.ai.LlmResponseCacheAdvisor;
+import com.coherentsolutions.coursecrafter.application.api.ai.LlmRateLimitAdvisor;
+import com.coherentsolutions.coursecrafter.application.api.ai.LlmRateLimiter;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.ai.chat.model.ChatModel;
@@ -13,9 +18,16 @@ import org.springframework.ai.chat.model.ChatModel;
 public class AiConfig {
 
     @Bean
-    public ChatClient chatClient(ChatModel chatModel) {
+    public ChatClient chatClient(ChatModel chatModel, LlmResponseCache responseCache, LlmRateLimiter rateLimiter,
+                                 @Value("${spring.ai.openai.chat.options.model:}") String model,
+                                 @Value("${coursecrafter.ai.rate-limit.reserved-output-tokens:2000}") int reservedOutputTokens,
+                                 @Value("${coursecrafter.ai.rate-limit.max-rate-limit-retries:3}") int maxRateLimitRetries) {
+        // Cache first, so hits never wait for model capacity
         return ChatClient.builder(chatModel)
                 .defaultSystem("You are CourseCrafter AI assistant that helps maintain a Spring Boot course.")
+                .defaultAdvisors(
+                        new LlmResponseCacheAdvisor(responseCache, model),
+                        new LlmRateLimitAdvisor(rateLimiter, model, reservedOutputTokens, maxRateLimitRetries))
                 .build();
     }
 }
@@ -2,10 +2,16 @@
 package com.coherentsolutions.coursecrafter.infrastructure.config;
 
 import com.coherentsolutions.coursecrafter.infrastructure.git.GitCliService;
+import com.coherentsolutions.coursecrafter.infrastructure.git.GitOperations;
+import com.coherentsolutions.coursecrafter.infrastructure.git.GitWorkspacePool;
+import com.coherentsolutions.coursecrafter.infrastructure.git.JGitService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 @Configuration
 public class GitCliConfig {
     @Value("${git.repo.root}")
@@ -20,8 +26,36 @@ public class GitCliConfig {
     @Value("${git.enabled:true}")
     private boolean enabled;
 
+    @Value("${git.engine:cli}")
+    private String engine;            // "cli" or "jgit"
+
+    @Value("${git.workspaces.mode:worktree}")
+    private GitWorkspacePool.Mode workspaceMode;   // "worktree" or "objects"
+
+    @Value("${git.workspaces.directory:${git.repo.root}-worktrees}")
+    private String workspacesDirectory;
+
+    @Value("${git.workspaces.max:4}")
+    private int maxWorkspaces;        // proposals prepared at the same time
+
     @Bean
-    public GitCliService gitCliService() {
-        return new GitCliService(repoRoot, remote, defaultBranch, enabled);
+    public GitOperations gitOperations() {
+        return engineFor(Paths.get(repoRoot));
+    }
+
+    @Bean
+    public GitWorkspacePool gitWorkspacePool() {
+        return new GitWorkspacePool(Paths.get(repoRoot), remote, defaultBranch, enabled, workspaceMode,
+                Paths.get(workspacesDirectory), maxWorkspaces, this::engineFor);
+    }
+
+    private GitOperations engineFor(Path workTree) {
+        GitCliService cli = new GitCliService(workTree.toString(), remote, defaultBranch, enabled);
+        return switch (engine) {
+            case "cli" -> cli;
+            // PRs still go through the GitHub CLI
+            case "jgit" -> new JGitService(workTree.toString(), remote, defaultBranch, enabled, cli);
+            default -> throw new IllegalArgumentException("Unknown git.engine '" + engine + "', expected cli or jgit");
+        };
     }
 }
@@ -1,10 +1,9 @@
-// ProcessBuilder wrapper, fall-back to JGitService if needed
+// ProcessBuilder wrapper; JGitService is the alternative engine (git.engine)
 package com.coherentsolutions.coursecrafter.infrastructure.git;
 
 import groovyjarjarpicocli.CommandLine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -12,8 +11,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 
 @Slf4j
-@Component
-public class GitCliService {
+public class GitCliService implements GitOperations {
 
     private final String repoRoot;
     private final String remote;
@@ -34,6 +32,7 @@ public class GitCliService {
     /**
      * Create a new branch from main
      */
+    @Override
     public void createBranch(String branch) throws IOException, InterruptedException {
         if (!enabled) {
             log.info("Git operations disabled, skipping branch creation");
@@ -48,6 +47,7 @@ public class GitCliService {
     /**
      * Commit all changes in the working directory
      */
+    @Override
     public void commitAllChanges(String message) throws IOException, InterruptedException {
         if (!enabled) {
             log.info("Git operations disabled, skipping commit");
@@ -75,6 +75,7 @@ public class GitCliService {
     /**
      * Push the current branch to the remote
      */
+    @Override
     public void pushBranch(String branch) throws IOException, InterruptedException {
         if (!enabled) {
             log.info("Git operations disabled, skipping push");
@@ -87,6 +88,7 @@ public class GitCliService {
     /**
      * Reset to main branch and clean the working directory
      */
+    @Override
     public void resetToMain() throws IOException, InterruptedException {
         if (!enabled) {
             return;
@@ -97,6 +99,7 @@ public class GitCliService {
         run("git", "-C", repoRoot, "checkout", "main");
     }
 
+    @Override
     public void commitAndPush(String branch, String message) throws IOException, InterruptedException {
         if (!enabled) {
             log.info("Git operations disabled, skipping commit and push");
@@ -165,6 +168,7 @@ public class GitCliService {
      * @param body   PR body/description
      * @return String PR URL or error message
      */
+    @Override
     public String createPr(String branch, String title, String body) throws IOException, InterruptedException {
         if (!enabled) {
             log.info("Git operations disabled, skipping PR creation");
@@ -4,16 +4,14 @@ import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
 import com.coherentsolutions.coursecrafter.domain.content.repository.ContentNodeRepository;
 import com.coherentsolutions.coursecrafter.domain.slide.repository.SlideComponentRepository;
 import com.coherentsolutions.coursecrafter.presentation.dto.ai.AiProposalDto;
+import com.coherentsolutions.coursecrafter.util.MarkdownBlock;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -24,9 +22,9 @@ public class GitContentSyncService {
 
     private final SlideComponentRepository slideComponentRepository;
     private final ContentNodeRepository nodeRepository;
-
-    @Value("${git.repo.root}")
-    private String repoRoot;
+    // Block indexes of the lecture files written in each open workspace, by file
+    private final Map<GitWorkspace, Map<String, LectureFileIndex>> fileIndexes =
+            Collections.synchronizedMap(new WeakHashMap<>());
 
     // The fixed list of lecture files we're targeting
     private static final String[] LECTURE_FILES = {
@@ -39,13 +37,13 @@ public class GitContentSyncService {
     /**
      * Synchronize a database node with its corresponding file in the Git repository
      * @param node The content node to sync
-     * @param branchName The Git branch to use (if null, a new branch will be created)
+     * @param workspace The proposal branch's workspace to write to
      * @return true if the file was successfully updated, false otherwise
      */
-    public boolean syncNodeToFile(ContentNode node, String branchName, AiProposalDto originalProposal) {
+    public boolean syncNodeToFile(ContentNode node, GitWorkspace workspace, AiProposalDto originalProposal) {
         try {
             // Determine which lecture file this content belongs to
-            Path targetFile = determineTargetFile(node, originalProposal);
+            String targetFile = determineTargetFile(node, originalProposal);
 
             // After determining targetFile
             log.debug("Target file for node '{}': {}", node.getTitle(), targetFile);
@@ -56,16 +54,13 @@ public class GitContentSyncService {
             }
 
             // Ensure the file exists
-            if (!Files.exists(targetFile)) {
+            if (!workspace.exists(targetFile)) {
                 log.error("Target file does not exist: {}", targetFile);
                 return false;
             }
 
-            // Read the current file content - ALWAYS read from disk to get the latest content
-            String fileContent = Files.readString(targetFile);
-
-            // After reading file content
-            log.debug("Existing file content length: {} bytes", fileContent.length());
+            // The file's block index, read from the branch on first use
+            LectureFileIndex index = indexFor(workspace, targetFile);
 
             // Generate the new node content
             String nodeContent = generateNodeContent(node);
@@ -79,11 +74,11 @@ public class GitContentSyncService {
             }
 
             // Insert the content at the appropriate location
-            String updatedContent = insertContentAtAppropriateLocation(fileContent, node, nodeContent, originalProposal);
+            insertContentAtAppropriateLocation(index, node, nodeContent, originalProposal);
 
             // Write the updated content back to the file
-            Files.writeString(targetFile, updatedContent);
-            log.info("Updated file {} with new content for {}", targetFile.getFileName(), node.getTitle());
+            workspace.writeFile(targetFile, index.text());
+            log.info("Updated file {} with new content for {}", targetFile, node.getTitle());
 
             return true;
         } catch (Exception e) {
@@ -95,19 +90,19 @@ public class GitContentSyncService {
     /**
      * Synchronize a transient node with the Git repository without database interaction
      */
-    public boolean syncNodeToFileOnly(ContentNode transientNode, String branchName, AiProposalDto originalProposal) { // Added AiProposalDto
+    public boolean syncNodeToFileOnly(ContentNode transientNode, GitWorkspace workspace, AiProposalDto originalProposal) { // Added AiProposalDto
         try {
-            Path targetFile = determineTargetFile(transientNode, originalProposal); // Uses transientNode
+            String targetFile = determineTargetFile(transientNode, originalProposal); // Uses transientNode
             // ... (null checks, file existence checks) ...
-            String fileContent = Files.readString(targetFile);
+            LectureFileIndex index = indexFor(workspace, targetFile);
             String nodeContent = generateNodeContent(transientNode); // Uses transientNode
             // ... (null checks for nodeContent) ...
 
             // Pass originalProposal here
-            String updatedContent = insertContentAtAppropriateLocation(fileContent, transientNode, nodeContent, originalProposal);
+            insertContentAtAppropriateLocation(index, transientNode, nodeContent, originalProposal);
 
-            Files.writeString(targetFile, updatedContent);
-            log.info("Updated file {} with proposed content for {}", targetFile.getFileName(), transientNode.getTitle());
+            workspace.writeFile(targetFile, index.text());
+            log.info("Updated file {} with proposed content for {}", targetFile, transientNode.getTitle());
             return true;
         } catch (Exception e) {
             log.error("Failed to sync transient node to file: {}", e.getMessage(), e);
@@ -116,11 +111,26 @@ public class GitContentSyncService {
     }
 
     /**
-     * Determine which lecture file this content should be added to.
+     * The block index of a lecture file in the workspace, built when the file is first synced.
+     * Lecture files in a workspace are only written through this service, so the index stays in
+     * step with the file until the workspace is closed.
+     */
+    private LectureFileIndex indexFor(GitWorkspace workspace, String targetFile) throws IOException {
+        Map<String, LectureFileIndex> indexes = fileIndexes.computeIfAbsent(workspace, w -> new ConcurrentHashMap<>());
+        LectureFileIndex index = indexes.get(targetFile);
+        if (index == null) {
+            index = LectureFileIndex.build(workspace.readFile(targetFile));
+            indexes.put(targetFile, index);
+        }
+        return index;
+    }
+
+    /**
+     * Determine which lecture file this content should be added to, relative to the repository root.
      * This uses heuristics based on the content type and title.
      */
     // In GitContentSyncService.java
-    private Path determineTargetFile(ContentNode nodeForPathContext, AiProposalDto originalProposal) {
+    private String determineTargetFile(ContentNode nodeForPathContext, AiProposalDto originalProposal) {
         ContentNode relevantNodeForContext = null;
         if ("UPDATE".equalsIgnoreCase(originalProposal.action()) && originalProposal.targetNodeId() != null) {
             relevantNodeForContext = nodeRepository.findById(originalProposal.targetNodeId()).orElse(null);
@@ -133,7 +143,7 @@ public class GitContentSyncService {
             relevantNodeForContext = nodeForPathContext;
             if (relevantNodeForContext == null) {
                 log.error("Cannot determine context for target file from proposal or direct node. Falling back to first lecture file.");
-                return Paths.get(repoRoot, LECTURE_FILES[0]);
+                return LECTURE_FILES[0];
             }
         }
 
@@ -153,7 +163,7 @@ public class GitContentSyncService {
 
                 if (dbLectureNumStr != null && dbLectureNumStr.equals(fileLectureNumStr)) {
                     log.info("Determined target file: {} for node based on lecture title match: '{}'", lectureFileName, dbLectureTitle);
-                    return Paths.get(repoRoot, lectureFileName);
+                    return lectureFileName;
                 }
             }
             log.warn("Could not match DB lecture title '{}' to any known LECTURE_FILES by number. Falling back to heuristic for node: {}",
@@ -199,7 +209,7 @@ public class GitContentSyncService {
     }
 
 
-    private Path determineTargetFileHeuristic(ContentNode node) {
+    private String determineTargetFileHeuristic(ContentNode node) {
         // Default to the first lecture file for most content
         String fileName = LECTURE_FILES[0];
 
@@ -216,7 +226,7 @@ public class GitContentSyncService {
             fileName = LECTURE_FILES[3];
         }
 
-        return Paths.get(repoRoot, fileName);
+        return fileName;
     }
 
     /**
@@ -330,306 +340,144 @@ public class GitContentSyncService {
     /**
      * Insert/Update content at an appropriate location in the file based on node type and content
      */
-    private String insertContentAtAppropriateLocation(String existingFileContent, ContentNode proposedNodeDetails, String newContentBlockForNode, AiProposalDto originalProposal) {
+    private void insertContentAtAppropriateLocation(LectureFileIndex index, ContentNode proposedNodeDetails, String newContentBlockForNode, AiProposalDto originalProposal) {
         String action = originalProposal.action();
         Long targetNodeIdForUpdate = originalProposal.targetNodeId();
         Long parentNodeIdForAdd = originalProposal.parentNodeId();
-        // Now you have the original proposal details!
 
         log.debug("Attempting to insert/update node: '{}' (Type: {}), Action: {}",
                 proposedNodeDetails.getTitle(), proposedNodeDetails.getNodeType(), action);
 
         if ("UPDATE".equalsIgnoreCase(action) && targetNodeIdForUpdate != null) {
-            return handleUpdateAction(existingFileContent, targetNodeIdForUpdate, proposedNodeDetails, newContentBlockForNode, originalProposal);
+            handleUpdateAction(index, targetNodeIdForUpdate, proposedNodeDetails, newContentBlockForNode, originalProposal);
         } else if ("ADD".equalsIgnoreCase(action) && parentNodeIdForAdd != null) {
-            return handleAddAction(existingFileContent, parentNodeIdForAdd, proposedNodeDetails, newContentBlockForNode, originalProposal);
+            handleAddAction(index, parentNodeIdForAdd, proposedNodeDetails, newContentBlockForNode, originalProposal);
         } else {
-            // ... (fallback logic) ...
             log.warn("Unsupported action or missing IDs for intelligent placement. Action: {}, TargetID: {}, ParentID: {}. Appending to end as fallback.",
                     action, targetNodeIdForUpdate, parentNodeIdForAdd);
-            return existingFileContent + "\n\n" + "<!-- FALLBACK APPENDED CONTENT FOR TITLE: " + proposedNodeDetails.getTitle() + " -->\n" + newContentBlockForNode + "\n<!-- END FALLBACK -->\n\n";
+            index.append("\n\n" + "<!-- FALLBACK APPENDED CONTENT FOR TITLE: " + proposedNodeDetails.getTitle() + " -->\n" + newContentBlockForNode + "\n<!-- END FALLBACK -->\n\n");
         }
     }
 
-    // We will implement handleUpdateAction and handleAddAction in subsequent steps.
-    private String handleUpdateAction(String existingFileContent,
-                                      Long targetNodeIdInDb,
-                                      ContentNode proposedNodeDetails,
-                                      String newFullMarkdownBlockForNode,
-                                      AiProposalDto originalProposal) {
-
-        if (targetNodeIdInDb == null) {
-            log.error("UPDATE_ACTION_ERROR: TargetNodeId is null. Proposal title: {}", originalProposal.title());
-            return fallbackAppend(existingFileContent, newFullMarkdownBlockForNode, "UPDATE_NULL_TARGET_ID_FOR_" + originalProposal.title());
-        }
+    /**
+     * Replace the header and text of the node's block, keeping its nested blocks
+     */
+    private void handleUpdateAction(LectureFileIndex index,
+                                    Long targetNodeIdInDb,
+                                    ContentNode proposedNodeDetails,
+                                    String newFullMarkdownBlockForNode,
+                                    AiProposalDto originalProposal) {
 
         ContentNode currentNodeInDb = nodeRepository.findById(targetNodeIdInDb).orElse(null);
 
         if (currentNodeInDb == null) {
             log.error("UPDATE_ACTION_ERROR: Cannot find existing node in DB with ID: {}. Proposal title: {}",
                     targetNodeIdInDb, originalProposal.title());
-            return fallbackAppend(existingFileContent, newFullMarkdownBlockForNode, "UPDATE_DB_NODE_NOT_FOUND_FOR_" + originalProposal.title());
+            fallbackAppend(index, newFullMarkdownBlockForNode, "UPDATE_DB_NODE_NOT_FOUND_FOR_" + originalProposal.title());
+            return;
         }
 
-        log.info("--------------------------------------------------------------------");
         log.info("HANDLE_UPDATE_ACTION for DB Node ID: {}, Current DB Title: '{}', Type: {}",
                 currentNodeInDb.getId(), currentNodeInDb.getTitle(), currentNodeInDb.getNodeType());
-        log.debug("Original AI Proposal had action: {}, title: '{}', targetNodeId: {}",
-                originalProposal.action(), originalProposal.title(), originalProposal.targetNodeId());
         log.debug("Proposed transient node details: Title: '{}', DispOrder: {}, NodeType: {}",
                 proposedNodeDetails.getTitle(), proposedNodeDetails.getDisplayOrder(), proposedNodeDetails.getNodeType());
-        log.debug("New full Markdown block to insert/replace (first 100): '{}'",
-                newFullMarkdownBlockForNode.substring(0, Math.min(100, newFullMarkdownBlockForNode.length())).replace("\n", "\\n"));
-        log.info("--------------------------------------------------------------------");
-
 
         ContentNode.NodeType nodeTypeToUpdate = currentNodeInDb.getNodeType();
-        String oldHeaderRegexString;
-        String blockEndLookaheadRegex = "(?=\\n(?:##|###|####|#####)\\s|$)";
-
-        // Titles from DB should be trimmed before quoting for regex
-        String dbTitleForRegex = currentNodeInDb.getTitle() != null ? currentNodeInDb.getTitle().trim() : "";
-
-        switch (nodeTypeToUpdate) {
-            case SLIDE:
-                if (currentNodeInDb.getDisplayOrder() == null || dbTitleForRegex.isEmpty()) {
-                    log.error("UPDATE_ACTION_ERROR: Existing slide (ID: {}) in DB is missing displayOrder or title. DB Title: '{}', DB DispOrder: {}. Cannot reliably find in Markdown.",
-                            targetNodeIdInDb, dbTitleForRegex, currentNodeInDb.getDisplayOrder());
-                    return fallbackAppend(existingFileContent, newFullMarkdownBlockForNode, "UPDATE_SLIDE_DB_DATA_MISSING_" + originalProposal.title());
-                }
-                oldHeaderRegexString = String.format(
-                        "#####\\s+\\[seq:%03d\\]\\s+%s", // Ensure displayOrder is an Integer
-                        ((Number)currentNodeInDb.getDisplayOrder()).intValue(), // Cast to Number then intValue
-                        Pattern.quote(dbTitleForRegex)
-                );
-                break;
-            case TOPIC:
-                if (dbTitleForRegex.isEmpty()) {
-                    log.error("UPDATE_ACTION_ERROR: Existing topic (ID: {}) in DB is missing title. Cannot find.", targetNodeIdInDb);
-                    return fallbackAppend(existingFileContent, newFullMarkdownBlockForNode, "UPDATE_TOPIC_DB_TITLE_MISSING_" + originalProposal.title());
-                }
-                // Regex: #### (optional "1.2.3. ")Actual Title From DB
-                oldHeaderRegexString = String.format(
-                        "####\\s+(?:[\\d\\.]+\\s+)?%s",
-                        Pattern.quote(dbTitleForRegex)
-                );
-                break;
-            // ... (cases for SECTION, LECTURE - ensure dbTitleForRegex is used)
-            case SECTION:
-                if (dbTitleForRegex.isEmpty()) { /* ... error log ... */ return fallbackAppend(existingFileContent, newFullMarkdownBlockForNode, "UPDATE_SECTION_DB_TITLE_MISSING_" + originalProposal.title());}
-                oldHeaderRegexString = String.format("###\\s+(?:[\\d\\.]+\\s+)?%s", Pattern.quote(dbTitleForRegex));
-                break;
-            case LECTURE:
-                if (dbTitleForRegex.isEmpty()) { /* ... error log ... */ return fallbackAppend(existingFileContent, newFullMarkdownBlockForNode, "UPDATE_LECTURE_DB_TITLE_MISSING_" + originalProposal.title());}
-                oldHeaderRegexString = String.format("##\\s+(?:[\\d\\.]+\\s+)?%s", Pattern.quote(dbTitleForRegex));
-                break;
-            default:
-                log.warn("UPDATE_ACTION_WARN: NodeType {} not specifically handled for regex header construction. Proposal: {}. Fallback append.",
-                        nodeTypeToUpdate, originalProposal.title());
-                return fallbackAppend(existingFileContent, newFullMarkdownBlockForNode, "UPDATE_TYPE_NOT_HANDLED_FOR_" + originalProposal.title());
+        if (nodeTypeToUpdate == ContentNode.NodeType.MODULE || nodeTypeToUpdate == ContentNode.NodeType.COURSE) {
+            log.warn("UPDATE_ACTION_WARN: NodeType {} is not updated in lecture files. Proposal: {}. Fallback append.",
+                    nodeTypeToUpdate, originalProposal.title());
+            fallbackAppend(index, newFullMarkdownBlockForNode, "UPDATE_TYPE_NOT_HANDLED_FOR_" + originalProposal.title());
+            return;
         }
 
-        log.debug("Constructed oldHeaderRegexString for finding existing block: '{}'", oldHeaderRegexString);
-
-        Pattern oldBlockPattern = Pattern.compile(
-                "(^" + oldHeaderRegexString + "\\s*$\\n?(.*?))" + blockEndLookaheadRegex,
-                Pattern.MULTILINE | Pattern.DOTALL
-        );
-
-        Matcher matcher = oldBlockPattern.matcher(existingFileContent);
-
-        // Log a snippet of the file content where we expect to find the match, for easier comparison
-        int searchStartIndex = 0;
-        if (existingFileContent.length() > 1000) { // If file is large, try to narrow down search for logging
-            // This is a rough heuristic, might need better way to find approximate region
-            int approxTitlePos = existingFileContent.indexOf(dbTitleForRegex);
-            if (approxTitlePos > 500) {
-                searchStartIndex = approxTitlePos - 500;
-            }
+        LectureFileIndex.Block block = index.find(currentNodeInDb);
+        if (block == null) {
+            log.warn("FAILED_UPDATE_NO_MATCH: Could not find existing block in Markdown for {} '{}' (ID: {}, DB Seq: {})",
+                    nodeTypeToUpdate, currentNodeInDb.getTitle(), targetNodeIdInDb, currentNodeInDb.getDisplayOrder());
+            fallbackAppend(index, newFullMarkdownBlockForNode, "UPDATE_FAILED_FIND_OLD_BLOCK_FOR_" + originalProposal.title());
+            return;
         }
-        log.debug("Searching for old block in file content snippet (approx 1000 chars around expected title, or start): \n--SNIPPET START--\n{}\n--SNIPPET END--",
-                existingFileContent.substring(searchStartIndex, Math.min(searchStartIndex + 1000, existingFileContent.length())).replace("\n", "\\n"));
-
 
-        if (matcher.find()) {
-            // ... (your existing successful match logic) ...
-            String oldBlockFound = matcher.group(1);
-            log.info("SUCCESS_UPDATE: Found existing block for {} '{}'. Replacing.",
-                    nodeTypeToUpdate, currentNodeInDb.getTitle());
-            log.debug("Old block content (first 200): '{}'", oldBlockFound.substring(0, Math.min(200, oldBlockFound.length())).replace("\n", "\\n"));
-            log.debug("New block content (first 200): '{}'", newFullMarkdownBlockForNode.substring(0, Math.min(200, newFullMarkdownBlockForNode.length())).replace("\n", "\\n"));
-
-            String replacementString = newFullMarkdownBlockForNode.trim();
-            String updatedFileContent = matcher.replaceFirst(Matcher.quoteReplacement(replacementString));
-
-            if (existingFileContent.equals(updatedFileContent)) {
-                log.warn("WARN_UPDATE_NO_CHANGE: Update for {} '{}' resulted in no change to file content. Regex or content identical?", nodeTypeToUpdate, currentNodeInDb.getTitle());
-            } else {
-                log.info("SUCCESS_UPDATE_CONTENT_MODIFIED: Content for {} '{}' was modified.", nodeTypeToUpdate, currentNodeInDb.getTitle());
-            }
-            return updatedFileContent;
+        Integer seq = nodeTypeToUpdate == ContentNode.NodeType.SLIDE ? proposedNodeDetails.getDisplayOrder() : null;
+        if (index.replace(block, newFullMarkdownBlockForNode, proposedNodeDetails.getTitle(), seq)) {
+            log.info("SUCCESS_UPDATE_CONTENT_MODIFIED: Content for {} '{}' was modified.", nodeTypeToUpdate, currentNodeInDb.getTitle());
         } else {
-            log.warn("FAILED_UPDATE_NO_MATCH: Could not find existing block in Markdown for {} '{}' (ID: {}). Regex used for header: '{}'",
-                    nodeTypeToUpdate, currentNodeInDb.getTitle(), targetNodeIdInDb, oldHeaderRegexString);
-            // Log more details about the file and target
-            if (nodeTypeToUpdate == ContentNode.NodeType.SLIDE) {
-                log.warn("Failed Slide Details - DB Seq: {}, DB Title: '{}'", currentNodeInDb.getDisplayOrder(), currentNodeInDb.getTitle());
-            }
-            return fallbackAppend(existingFileContent, newFullMarkdownBlockForNode, "UPDATE_FAILED_FIND_OLD_BLOCK_FOR_" + originalProposal.title());
+            log.warn("WARN_UPDATE_NO_CHANGE: Update for {} '{}' resulted in no change to file content.", nodeTypeToUpdate, currentNodeInDb.getTitle());
         }
     }
 
     // Helper for fallback
-    private String fallbackAppend(String existingFileContent, String newContent, String reason) {
-        return existingFileContent + "\n\n" + "<!-- FALLBACK APPEND (" + reason + ") -->\n" + newContent + "\n<!-- END FALLBACK -->\n\n";
+    private void fallbackAppend(LectureFileIndex index, String newContent, String reason) {
+        index.append("\n\n" + "<!-- FALLBACK APPEND (" + reason + ") -->\n" + newContent + "\n<!-- END FALLBACK -->\n\n");
     }
 
-    private String handleAddAction(String existingFileContent,
-                                   Long parentNodeIdInDb,
-                                   ContentNode proposedChildNodeDetails, // Transient node for the NEW child
-                                   String newChildMarkdownBlock,      // Full Markdown for the NEW child (e.g. "##### [seq:015] New Slide\n\nBody...")
-                                   AiProposalDto originalProposal) {   // Contains parentNodeId, and child's proposed displayOrder, nodeType, title
-
-        if (parentNodeIdInDb == null) {
-            log.error("ADD_ACTION_ERROR: ParentNodeId is null. Cannot add child '{}'. Fallback append.", proposedChildNodeDetails.getTitle());
-            return fallbackAppend(existingFileContent, newChildMarkdownBlock, "ADD_NULL_PARENT_ID_FOR_" + proposedChildNodeDetails.getTitle());
-        }
+    /**
+     * Insert the new child into its parent's block: slides by sequence number among the parent's
+     * slides, other blocks first (display order below 50) or last among their siblings
+     */
+    private void handleAddAction(LectureFileIndex index,
+                                 Long parentNodeIdInDb,
+                                 ContentNode proposedChildNodeDetails, // Transient node for the NEW child
+                                 String newChildMarkdownBlock,      // Full Markdown for the NEW child (e.g. "##### [seq:015] New Slide\n\nBody...")
+                                 AiProposalDto originalProposal) {
 
         ContentNode parentNodeInDb = nodeRepository.findById(parentNodeIdInDb).orElse(null);
         if (parentNodeInDb == null) {
             log.error("ADD_ACTION_ERROR: Cannot find parent node in DB with ID: {}. Cannot add child '{}'. Fallback append.",
                     parentNodeIdInDb, proposedChildNodeDetails.getTitle());
-            return fallbackAppend(existingFileContent, newChildMarkdownBlock, "ADD_PARENT_DB_NODE_NOT_FOUND_FOR_" + proposedChildNodeDetails.getTitle());
+            fallbackAppend(index, newChildMarkdownBlock, "ADD_PARENT_DB_NODE_NOT_FOUND_FOR_" + proposedChildNodeDetails.getTitle());
+            return;
         }
 
-        log.info("--------------------------------------------------------------------");
         log.info("HANDLE_ADD_ACTION: Adding new {} '{}' under Parent ID: {}, Parent Title: '{}', Parent Type: {}",
                 proposedChildNodeDetails.getNodeType(), proposedChildNodeDetails.getTitle(),
                 parentNodeInDb.getId(), parentNodeInDb.getTitle(), parentNodeInDb.getNodeType());
         log.debug("Proposed child displayOrder: {}", proposedChildNodeDetails.getDisplayOrder());
-        log.info("--------------------------------------------------------------------");
-
-        // 1. Construct Regex to find the parent node's entire block
-        String parentHeaderRegexString;
-        String parentBlockEndLookaheadRegex = "(?=\\n(?:##|###|####|#####)\\s|$)"; // End before any subsequent header or EOF
-        String childHeaderStartPattern; // To find children within the parent block
-
-        // Titles from DB should be trimmed before quoting for regex
-        String parentDbTitleForRegex = parentNodeInDb.getTitle() != null ? parentNodeInDb.getTitle().trim() : "";
 
-        switch (parentNodeInDb.getNodeType()) {
-            case TOPIC: // Assuming we are adding a SLIDE under a TOPIC
-                if (parentDbTitleForRegex.isEmpty()) { /* error log & fallback */ return fallbackAppend(existingFileContent, newChildMarkdownBlock, "ADD_PARENT_TOPIC_DB_TITLE_MISSING");}
-                parentHeaderRegexString = String.format("####\\s+(?:[\\d\\.]+\\s+)?%s", Pattern.quote(parentDbTitleForRegex));
-                childHeaderStartPattern = "^#####\\s+\\[seq:(\\d+)\\]"; // To find existing slides
-                break;
-            case SECTION: // Assuming we are adding a TOPIC under a SECTION
-                if (parentDbTitleForRegex.isEmpty()) { /* error log & fallback */ return fallbackAppend(existingFileContent, newChildMarkdownBlock, "ADD_PARENT_SECTION_DB_TITLE_MISSING");}
-                parentHeaderRegexString = String.format("###\\s+(?:[\\d\\.]+\\s+)?%s", Pattern.quote(parentDbTitleForRegex));
-                childHeaderStartPattern = "^####\\s+"; // To find existing topics
-                break;
-            // Add cases for adding SECTION under LECTURE, LECTURE under COURSE if needed
-            default:
-                log.warn("ADD_ACTION_WARN: Adding children to parent type {} not fully supported yet. Parent: '{}'. Fallback append.",
-                        parentNodeInDb.getNodeType(), parentNodeInDb.getTitle());
-                return fallbackAppend(existingFileContent, newChildMarkdownBlock, "ADD_UNSUPPORTED_PARENT_TYPE_" + parentNodeInDb.getTitle());
+        MarkdownBlock.Kind childKind = LectureFileIndex.kindOf(proposedChildNodeDetails.getNodeType());
+        MarkdownBlock.Kind parentKind = LectureFileIndex.kindOf(parentNodeInDb.getNodeType());
+        if (childKind == null || parentKind == null || childKind.ordinal() <= parentKind.ordinal()) {
+            log.warn("ADD_ACTION_WARN: Adding a {} to parent type {} is not supported. Parent: '{}'. Fallback append.",
+                    proposedChildNodeDetails.getNodeType(), parentNodeInDb.getNodeType(), parentNodeInDb.getTitle());
+            fallbackAppend(index, newChildMarkdownBlock, "ADD_UNSUPPORTED_PARENT_TYPE_" + parentNodeInDb.getTitle());
+            return;
         }
 
-        log.debug("Constructed parentHeaderRegexString: '{}'", parentHeaderRegexString);
-        Pattern parentBlockPattern = Pattern.compile(
-                "(^" + parentHeaderRegexString + "\\s*$\\n?(.*?))" + parentBlockEndLookaheadRegex,
-                Pattern.MULTILINE | Pattern.DOTALL
-        );
-        Matcher parentMatcher = parentBlockPattern.matcher(existingFileContent);
-
-        if (parentMatcher.find()) {
-            String fullParentBlockWithHeader = parentMatcher.group(1); // Header + Body of parent
-            String parentContentBody = parentMatcher.group(2);      // Just the body of the parent
-            int parentBlockStartIndex = parentMatcher.start(1);
-            int parentBlockEndIndex = parentMatcher.end(1);
-
-            log.info("Found parent block for '{}'. Parent content body length: {}", parentNodeInDb.getTitle(), parentContentBody.length());
-
-            // 2. Find insertion point within the parentContentBody for the new child
-            int insertionPointInParentBody = -1;
-            Integer newChildDisplayOrder = proposedChildNodeDetails.getDisplayOrder();
-
-            if (newChildDisplayOrder == null) {
-                log.warn("ADD_ACTION_WARN: New child '{}' has no displayOrder. Appending within parent.", proposedChildNodeDetails.getTitle());
-                // Append at the end of parent's body content, before any potential non-child content that the lookahead might have included
-                insertionPointInParentBody = parentContentBody.length(); // Default to end of body
-            } else {
-                Pattern childSiblingPattern = Pattern.compile(childHeaderStartPattern + ".*$", Pattern.MULTILINE);
-                Matcher siblingMatcher = childSiblingPattern.matcher(parentContentBody);
-                int lastFoundSiblingEnd = -1; // End position of the last sibling found *before* insertion point
-                boolean inserted = false;
-
-                while (siblingMatcher.find()) {
-                    lastFoundSiblingEnd = siblingMatcher.end();
-                    if (proposedChildNodeDetails.getNodeType() == ContentNode.NodeType.SLIDE) {
-                        try {
-                            int siblingSeq = Integer.parseInt(siblingMatcher.group(1)); // Group 1 is the sequence number for slides
-                            if (newChildDisplayOrder <= siblingSeq) {
-                                insertionPointInParentBody = siblingMatcher.start(); // Insert before this sibling
-                                inserted = true;
-                                break;
-                            }
-                        } catch (NumberFormatException e) {
-                            log.warn("Could not parse sequence number from sibling: {}", siblingMatcher.group(0));
-                        }
-                    } else { // For TOPIC, SECTION etc., ordering might be simpler (or based on parsing full node numbers if titles have them)
-                        // This simplified logic for non-slides just finds the first child and inserts before/after.
-                        // Needs more robust logic if multiple non-slide children need specific ordering.
-                        // For now, if it's the first child or displayOrder is low, insert at its start.
-                        // This part is very basic for non-slides.
-                        if (newChildDisplayOrder < 50) { // Arbitrary: assume low order means "at the start"
-                            insertionPointInParentBody = siblingMatcher.start();
-                            inserted = true;
-                            break;
-                        }
-                    }
-                }
+        LectureFileIndex.Block parent = index.find(parentNodeInDb);
+        if (parent == null) {
+            log.warn("FAILED_ADD_NO_PARENT_MATCH: Could not find parent block in Markdown for Parent DB ID: {}, Title: '{}'. Fallback append.",
+                    parentNodeIdInDb, parentNodeInDb.getTitle());
+            fallbackAppend(index, newChildMarkdownBlock, "ADD_FAILED_FIND_PARENT_BLOCK_FOR_" + proposedChildNodeDetails.getTitle());
+            return;
+        }
 
-                if (!inserted) { // If not inserted before any sibling, append after the last found sibling or at start of body
-                    if (lastFoundSiblingEnd != -1) {
-                        insertionPointInParentBody = lastFoundSiblingEnd; // Insert after the full block of the last sibling
-                    } else {
-                        insertionPointInParentBody = 0; // No siblings found, insert at the beginning of parent's body
-                    }
-                }
-            }
+        Integer order = proposedChildNodeDetails.getDisplayOrder();
+        int at = insertionPoint(parent, childKind, order);
+        LectureFileIndex.Block child = index.insert(parent, at, newChildMarkdownBlock, childKind,
+                proposedChildNodeDetails.getTitle(), childKind == MarkdownBlock.Kind.SLIDE ? order : null);
 
-            // Construct the new parent body
-            StringBuilder newParentBodyBuilder = new StringBuilder(parentContentBody);
-            String contentToInsert = "\n" + newChildMarkdownBlock.trim() + "\n"; // Ensure newlines around the new block
+        log.info("SUCCESS_ADD: Added new {} '{}' into parent '{}' at offset {}.",
+                proposedChildNodeDetails.getNodeType(), proposedChildNodeDetails.getTitle(), parentNodeInDb.getTitle(), child.start());
+    }
 
-            if (insertionPointInParentBody >= 0 && insertionPointInParentBody <= newParentBodyBuilder.length()) {
-                newParentBodyBuilder.insert(insertionPointInParentBody, contentToInsert);
-            } else { // Should not happen if logic above is correct
-                log.warn("Calculated invalid insertionPointInParentBody ({}). Appending child to parent body.", insertionPointInParentBody);
-                newParentBodyBuilder.append(contentToInsert);
+    private int insertionPoint(LectureFileIndex.Block parent, MarkdownBlock.Kind childKind, Integer order) {
+        List<LectureFileIndex.Block> siblings = parent.children().stream()
+                .filter(sibling -> sibling.kind() == childKind)
+                .toList();
+        if (siblings.isEmpty()) {
+            // Slides go right after the parent's own text, other blocks after its nested blocks
+            return childKind == MarkdownBlock.Kind.SLIDE ? parent.ownEnd() : parent.end();
+        }
+        if (order != null) {
+            for (LectureFileIndex.Block sibling : siblings) {
+                boolean before = childKind == MarkdownBlock.Kind.SLIDE
+                        ? sibling.seq() != null && order <= sibling.seq()
+                        : order < 50; // Arbitrary: assume low order means "at the start"
+                if (before) {
+                    return sibling.start();
+                }
             }
-
-            String newFullParentBlock = fullParentBlockWithHeader.substring(0, fullParentBlockWithHeader.length() - parentContentBody.length())
-                    + newParentBodyBuilder.toString();
-
-            // Replace the old parent block with the new parent block (which now includes the child)
-            // This uses a more robust way to reconstruct the file rather than direct replaceFirst on parentMatcher.group(0)
-            // because parentMatcher.group(0) might not be the full parent block if parentContentBody was extensive.
-            // Instead, we identified parentBlockStartIndex and parentBlockEndIndex
-
-            StringBuilder finalFileContent = new StringBuilder(existingFileContent);
-            finalFileContent.replace(parentBlockStartIndex, parentBlockEndIndex, newFullParentBlock);
-
-            log.info("SUCCESS_ADD: Prepared to add new {} '{}' into parent '{}'.",
-                    proposedChildNodeDetails.getNodeType(), proposedChildNodeDetails.getTitle(), parentNodeInDb.getTitle());
-
-            return finalFileContent.toString();
-
-        } else {
-            log.warn("FAILED_ADD_NO_PARENT_MATCH: Could not find parent block in Markdown for Parent DB ID: {}, Title: '{}'. Regex used for parent header: '{}'. Fallback append.",
-                    parentNodeIdInDb, parentNodeInDb.getTitle(), parentHeaderRegexString);
-            return fallbackAppend(existingFileContent, newChildMarkdownBlock, "ADD_FAILED_FIND_PARENT_BLOCK_FOR_" + proposedChildNodeDetails.getTitle());
         }
+        return siblings.get(siblings.size() - 1).end();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+package com.coherentsolutions.coursecrafter.infrastructure.git;
+
+import java.io.IOException;
+
+/**
+ * Git operations on the course material repository at {@code git.repo.root}. The implementation
+ * is chosen with {@code git.engine}: {@code cli} runs a git process per step
+ * ({@link GitCliService}), {@code jgit} does local steps with JGit and only starts git for
+ * network transfers ({@link JGitService}).
+ */
+public interface GitOperations extends AutoCloseable {
+
+    /**
+     * Update the default branch from the remote and check out a new branch from it
+     */
+    void createBranch(String branch) throws IOException, InterruptedException;
+
+    /**
+     * Commit all changes in the working directory
+     */
+    void commitAllChanges(String message) throws IOException, InterruptedException;
+
+    /**
+     * Push the branch to the remote, replacing it there
+     */
+    void pushBranch(String branch) throws IOException, InterruptedException;
+
+    /**
+     * Discard local changes and untracked files and switch back to the default branch
+     */
+    void resetToMain() throws IOException, InterruptedException;
+
+    /**
+     * Commit all changes on a branch started from the default branch and push it. Failures are
+     * logged, not thrown, so database changes made before are kept.
+     */
+    void commitAndPush(String branch, String message) throws IOException, InterruptedException;
+
+    /**
+     * Open a GitHub pull request for a pushed branch
+     *
+     * @return the PR URL, or a message describing why no PR was created
+     */
+    String createPr(String branch, String title, String body) throws IOException, InterruptedException;
+
+    /**
+     * Release what the engine keeps open between calls
+     */
+    @Override
+    default void close() {
+    }
+}
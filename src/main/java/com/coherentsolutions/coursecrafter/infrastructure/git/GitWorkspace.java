@@ -0,0 +1,43 @@
+package com.coherentsolutions.coursecrafter.infrastructure.git;
+
+import java.io.IOException;
+
+/**
+ * A proposal branch being prepared, taken from {@link GitWorkspacePool}. Files are addressed by
+ * slash-separated paths relative to the repository root. Several workspaces can be prepared at
+ * the same time. Closing a workspace discards anything not committed and hands it back to the
+ * pool.
+ */
+public interface GitWorkspace extends AutoCloseable {
+
+    String branch();
+
+    /**
+     * Whether the file exists on the branch, counting files written in this workspace
+     */
+    boolean exists(String path) throws IOException;
+
+    String readFile(String path) throws IOException;
+
+    void writeFile(String path, String content) throws IOException;
+
+    /**
+     * Commit every file written so far; nothing is committed if no content changed
+     */
+    void commitAllChanges(String message) throws IOException, InterruptedException;
+
+    /**
+     * Push the branch to the remote, replacing it there
+     */
+    void push() throws IOException, InterruptedException;
+
+    /**
+     * Open a GitHub pull request for the pushed branch
+     *
+     * @return the PR URL, or a message describing why no PR was created
+     */
+    String createPr(String title, String body) throws IOException, InterruptedException;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,285 @@
+package com.coherentsolutions.coursecrafter.infrastructure.git;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Workspaces for proposal branches of the repository at {@code git.repo.root}, so proposals can
+ * be written, committed and pushed concurrently without touching the shared working tree or
+ * each other. Every branch starts from the remote's default branch. When a workspace is
+ * returned, its local branch is deleted; the pushed branch stays on the remote.
+ * <p>
+ * {@code git.workspaces.mode} picks the kind of workspace:
+ * <ul>
+ *   <li>{@code worktree}: a linked worktree per branch. At most {@code git.workspaces.max} are
+ *   in use, and further requests wait for one to be returned. Returned worktrees are detached
+ *   and reused by later branches. Worktrees are added and removed with the git CLI; switching
+ *   and cleaning a reused one goes through JGit, which reads the linked worktree's own HEAD
+ *   and index. They live under {@code git.workspaces.directory}; leftovers
+ *   from a previous run are removed on first use, and idle ones on {@link #close()}.</li>
+ *   <li>{@code objects}: no files are checked out. Commits are built from the object database
+ *   directly (see {@link ObjectWorkspace}).</li>
+ * </ul>
+ */
+@Slf4j
+public class GitWorkspacePool implements AutoCloseable {
+
+    public enum Mode {
+        WORKTREE,
+        OBJECTS
+    }
+
+    private static final String WORKTREE_PREFIX = "workspace-";
+
+    private final Path repoRoot;
+    private final String remote;
+    private final String defaultBranch;
+    private final boolean enabled;
+    private final Mode mode;
+    private final Path directory;
+    private final Semaphore slots;
+    private final Function<Path, GitOperations> engine;
+
+    private final Deque<Path> idle = new ArrayDeque<>();
+    // Fetching and adding worktrees change files shared by all worktrees
+    private final Object repositoryLock = new Object();
+    private boolean prepared;
+    private int created;
+
+    public GitWorkspacePool(Path repoRoot, String remote, String defaultBranch, boolean enabled, Mode mode,
+                            Path directory, int maxWorkspaces, Function<Path, GitOperations> engine) {
+        if (maxWorkspaces < 1) {
+            throw new IllegalArgumentException("git.workspaces.max must be at least 1: " + maxWorkspaces);
+        }
+        this.repoRoot = repoRoot;
+        this.remote = remote;
+        this.defaultBranch = defaultBranch;
+        this.enabled = enabled;
+        this.mode = mode;
+        this.directory = directory;
+        this.slots = new Semaphore(maxWorkspaces, true);
+        this.engine = engine;
+    }
+
+    /**
+     * Start a new branch from the remote's default branch in a workspace of its own, waiting for
+     * a free worktree if all are in use. With git disabled the workspace is the shared working
+     * tree, as before.
+     */
+    public GitWorkspace acquire(String branch) throws IOException, InterruptedException {
+        if (!enabled) {
+            log.info("Git operations disabled, writing {} to the shared working tree", branch);
+            return new WorktreeWorkspace(branch, repoRoot, engine.apply(repoRoot), this);
+        }
+        if (mode == Mode.OBJECTS) {
+            return createObjectWorkspace(branch);
+        }
+        slots.acquire();
+        try {
+            Path worktree = checkOut(branch);
+            log.debug("Checked out {} in {}", branch, worktree);
+            return new WorktreeWorkspace(branch, worktree, engine.apply(worktree), this);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    public int getAvailableSlots() {
+        return slots.availablePermits();
+    }
+
+    void release(ObjectWorkspace workspace) {
+        try (Repository repository = workspace.repository()) {
+            Git.wrap(repository).branchDelete().setBranchNames(workspace.branch()).setForce(true).call();
+        } catch (GitAPIException | RuntimeException e) {
+            log.warn("Could not delete the local branch {}: {}", workspace.branch(), e.getMessage());
+        }
+    }
+
+    void release(WorktreeWorkspace workspace) {
+        if (!enabled) {
+            return;
+        }
+        Path worktree = workspace.root();
+        try (Git git = Git.open(worktree.toFile())) {
+            // Detach first, so the branch is checked out nowhere when it is deleted
+            ObjectId head = git.getRepository().resolve(Constants.HEAD);
+            git.checkout().setName(head.name()).call();
+            git.branchDelete().setBranchNames(workspace.branch()).setForce(true).call();
+            synchronized (idle) {
+                idle.push(worktree);
+            }
+        } catch (IOException | GitAPIException | RuntimeException e) {
+            log.warn("Could not return worktree {} to the pool, removing it: {}", worktree, e.getMessage());
+            remove(worktree);
+        } finally {
+            slots.release();
+        }
+    }
+
+    /**
+     * Remove the idle worktrees; worktrees still in use are cleaned up on the next start
+     */
+    @Override
+    public void close() {
+        List<Path> worktrees;
+        synchronized (idle) {
+            worktrees = new ArrayList<>(idle);
+            idle.clear();
+        }
+        worktrees.forEach(this::remove);
+    }
+
+    private ObjectWorkspace createObjectWorkspace(String branch) throws IOException, InterruptedException {
+        ObjectId base = ObjectId.fromString(fetchDefaultBranch());
+        // A repository per workspace, closed when the workspace is returned
+        Repository repository = Git.open(repoRoot.toFile()).getRepository();
+        try {
+            RefUpdate update = repository.updateRef(Constants.R_HEADS + branch);
+            update.setNewObjectId(base);
+            update.setExpectedOldObjectId(ObjectId.zeroId());
+            update.setRefLogMessage("branch: Created from " + base.name(), false);
+            RefUpdate.Result result = update.update();
+            if (result != RefUpdate.Result.NEW) {
+                throw new IOException("Could not create branch " + branch + ": " + result);
+            }
+            log.debug("Created {} at {} without a checkout", branch, base.name());
+            return new ObjectWorkspace(branch, repository, base, engine.apply(repoRoot), this);
+        } catch (IOException | RuntimeException e) {
+            repository.close();
+            throw e;
+        }
+    }
+
+    private String fetchDefaultBranch() throws IOException, InterruptedException {
+        synchronized (repositoryLock) {
+            git(repoRoot, "fetch", "--quiet", remote, defaultBranch);
+            return git(repoRoot, "rev-parse", "FETCH_HEAD");
+        }
+    }
+
+    private Path checkOut(String branch) throws IOException, InterruptedException {
+        Path reused;
+        synchronized (idle) {
+            reused = idle.poll();
+        }
+        String base;
+        synchronized (repositoryLock) {
+            prepare();
+            base = fetchDefaultBranch();
+            if (reused == null) {
+                Path worktree = directory.resolve(WORKTREE_PREFIX + ++created);
+                git(repoRoot, "worktree", "add", "--quiet", "-f", "-B", branch, worktree.toString(), base);
+                return worktree;
+            }
+        }
+        // checkout -f -B branch base && clean -fdx, on the worktree's own HEAD and index
+        try (Git git = Git.open(reused.toFile())) {
+            git.checkout().setForced(true).setCreateBranch(true).setForceRefUpdate(true)
+                    .setName(branch).setStartPoint(base).call();
+            git.clean().setCleanDirectories(true).setIgnore(false).call();
+            return reused;
+        } catch (GitAPIException e) {
+            remove(reused);
+            throw new IOException("Could not check out " + branch + " in " + reused + ": " + e.getMessage(), e);
+        } catch (IOException | RuntimeException e) {
+            remove(reused);
+            throw e;
+        }
+    }
+
+    /**
+     * Remove worktrees a previous run left behind
+     */
+    private void prepare() throws IOException, InterruptedException {
+        if (prepared) {
+            return;
+        }
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, WORKTREE_PREFIX + "*")) {
+            for (Path leftover : stream) {
+                if (Files.isRegularFile(leftover.resolve(".git"))) {
+                    log.info("Removing worktree {} left by a previous run", leftover);
+                    deleteRecursively(leftover);
+                }
+            }
+        }
+        git(repoRoot, "worktree", "prune");
+        prepared = true;
+    }
+
+    private void remove(Path worktree) {
+        try {
+            synchronized (repositoryLock) {
+                git(repoRoot, "worktree", "remove", "--force", worktree.toString());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to remove worktree {}: {}", worktree, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reject paths that would leave the repository or write into its git directory
+     *
+     * @return the path, unchanged
+     */
+    static String checkPath(String path) {
+        if (path.isEmpty() || path.startsWith("/") || path.endsWith("/")) {
+            throw new IllegalArgumentException("Not a relative file path: " + path);
+        }
+        for (String name : path.split("/")) {
+            if (name.isEmpty() || name.equals(".") || name.equals("..") || name.equalsIgnoreCase(".git")) {
+                throw new IllegalArgumentException("Not a relative file path: " + path);
+            }
+        }
+        return path;
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(path)) {
+                for (Path child : children) {
+                    deleteRecursively(child);
+                }
+            }
+        }
+        Files.delete(path);
+    }
+
+    /**
+     * Run git in the given directory
+     *
+     * @return the trimmed output
+     */
+    private static String git(Path workTree, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of("git", "-C", workTree.toString()));
+        command.addAll(Arrays.asList(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes()).trim();
+        if (process.waitFor() != 0) {
+            throw new RuntimeException("Git command failed: " + String.join(" ", command) + ": " + output);
+        }
+        return output;
+    }
+}
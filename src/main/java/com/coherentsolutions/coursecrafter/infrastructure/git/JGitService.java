@@ -0,0 +1,213 @@
+package com.coherentsolutions.coursecrafter.infrastructure.git;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand;
+import org.eclipse.jgit.api.MergeResult;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link GitOperations} on JGit: checkouts, staging and commits run in this process, with
+ * JGit's handling of the index, ignore rules, attributes and line endings. The repository is
+ * opened on first use and kept open until {@link #close()}.
+ * <p>
+ * Fetching the default branch and pushing still start a git process. The remote is set up for
+ * the git CLI: JGit does not run git's credential helpers, and its SSH transport needs the
+ * separate org.eclipse.jgit.ssh.apache module, which is not a dependency, so an SSH remote or
+ * a helper-managed token would fail in-process. Pull requests are opened through
+ * {@link GitCliService} with the GitHub CLI, which JGit has no counterpart for.
+ * <p>
+ * Like the CLI engine an instance operates on a single working tree, so its calls are
+ * serialized; {@link GitWorkspacePool} gives each proposal branch a worktree and an engine of
+ * its own. Commit hooks run as JGit supports them (pre-commit, commit-msg, post-commit).
+ */
+@Slf4j
+public class JGitService implements GitOperations {
+
+    private final Path repoRoot;
+    private final String remote;
+    private final String defaultBranch;
+    private final boolean enabled;
+    private final GitCliService pullRequests;
+    private Repository repository;
+
+    public JGitService(String repoRoot, String remote, String defaultBranch, boolean enabled,
+                       GitCliService pullRequests) {
+        this.repoRoot = Paths.get(repoRoot);
+        this.remote = remote;
+        this.defaultBranch = defaultBranch;
+        this.enabled = enabled;
+        this.pullRequests = pullRequests;
+    }
+
+    @Override
+    public synchronized void createBranch(String branch) throws IOException, InterruptedException {
+        if (!enabled) {
+            log.info("Git operations disabled, skipping branch creation");
+            return;
+        }
+        transport("fetch", remote, defaultBranch);
+        try {
+            Git git = open();
+            // git checkout main && git pull --ff-only && git checkout -B branch
+            git.checkout().setName(defaultBranch).call();
+            ObjectId fetched = git.getRepository().resolve(Constants.FETCH_HEAD);
+            if (fetched != null) {
+                MergeResult merge = git.merge().include(fetched).setFastForward(MergeCommand.FastForwardMode.FF_ONLY)
+                        .setCommit(true).call();
+                if (!merge.getMergeStatus().isSuccessful()) {
+                    throw new IllegalStateException(defaultBranch + " has diverged from " + remote + "/" + defaultBranch
+                            + "; merge them with the git CLI first");
+                }
+            }
+            git.checkout().setCreateBranch(true).setForceRefUpdate(true).setName(branch).call();
+            log.debug("Created branch {} at {}", branch, git.getRepository().resolve(Constants.HEAD).name());
+        } catch (GitAPIException e) {
+            throw new IOException("Could not create branch " + branch + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void commitAllChanges(String message) throws IOException, InterruptedException {
+        if (!enabled) {
+            log.info("Git operations disabled, skipping commit");
+            return;
+        }
+        try {
+            if (commit(open(), message) == null) {
+                log.info("No changes to commit, skipping commit operation");
+            }
+        } catch (GitAPIException e) {
+            throw new IOException("Could not commit: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void pushBranch(String branch) throws IOException, InterruptedException {
+        if (!enabled) {
+            log.info("Git operations disabled, skipping push");
+            return;
+        }
+        transport("push", "-f", remote, branch);
+    }
+
+    @Override
+    public synchronized void resetToMain() throws IOException, InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Git git = open();
+            git.reset().setMode(ResetCommand.ResetType.HARD).setRef(Constants.HEAD).call();
+            git.clean().setCleanDirectories(true).call();
+            git.checkout().setName(defaultBranch).call();
+        } catch (GitAPIException e) {
+            throw new IOException("Could not reset to " + defaultBranch + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void commitAndPush(String branch, String message) throws IOException, InterruptedException {
+        if (!enabled) {
+            log.info("Git operations disabled, skipping commit and push");
+            return; // Skip Git operations if disabled
+        }
+
+        try {
+            if (!Files.exists(repoRoot.resolve(".git"))) {
+                log.info("No git repository at {}, initializing one", repoRoot);
+                Files.createDirectories(repoRoot);
+                Git.init().setDirectory(repoRoot.toFile()).setInitialBranch(defaultBranch).call().close();
+            }
+            Git git = open();
+            git.checkout().setCreateBranch(true).setForceRefUpdate(true).setName(branch)
+                    .setStartPoint(defaultBranch).call();
+            if (commit(git, message) == null) {
+                log.info("No changes to commit, skipping commit operation");
+                return;
+            }
+            transport("push", "-f", remote, branch);
+        } catch (Exception e) {
+            log.error("Git operation failed: {}", e.getMessage());
+            // Don't rethrow - log the error but don't fail the whole operation
+            // This allows the database changes to persist even if Git fails
+        }
+    }
+
+    @Override
+    public String createPr(String branch, String title, String body) throws IOException, InterruptedException {
+        return pullRequests.createPr(branch, title, body);
+    }
+
+    /**
+     * Close the repository; a later call opens it again
+     */
+    @Override
+    public synchronized void close() {
+        if (repository != null) {
+            repository.close();
+            repository = null;
+        }
+    }
+
+    /**
+     * The repository of the working tree, opened once; a linked worktree's {@code .git} file and
+     * {@code commondir} are followed, so worktrees from {@link GitWorkspacePool} work too
+     */
+    private Git open() throws IOException {
+        if (repository == null) {
+            // Closed in close(), not with the Git that opened it
+            repository = Git.open(repoRoot.toFile()).getRepository();
+        }
+        return Git.wrap(repository);
+    }
+
+    /**
+     * {@code git add -A && git commit}
+     *
+     * @return the new commit, or null if nothing changed
+     */
+    private RevCommit commit(Git git, String message) throws GitAPIException {
+        git.add().addFilepattern(".").call();
+        // A second pass stages deletions, which add without setUpdate leaves out
+        git.add().addFilepattern(".").setUpdate(true).call();
+        if (git.status().call().getUncommittedChanges().isEmpty()) {
+            return null;
+        }
+        RevCommit commit = git.commit().setMessage(message).call();
+        log.info("Committed {} on {}", commit.abbreviate(10).name(), currentBranch(git));
+        return commit;
+    }
+
+    private static String currentBranch(Git git) {
+        try {
+            return git.getRepository().getBranch();
+        } catch (IOException e) {
+            return "HEAD";
+        }
+    }
+
+    private void transport(String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of("git", "-C", repoRoot.toString()));
+        command.addAll(Arrays.asList(args));
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.inheritIO();
+        Process p = pb.start();
+        if (p.waitFor() != 0) {
+            throw new RuntimeException("Git command failed: " + String.join(" ", command));
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.coherentsolutions.coursecrafter.infrastructure.git;
+
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
+import com.coherentsolutions.coursecrafter.util.MarkdownBlock;
+import com.coherentsolutions.coursecrafter.util.MarkdownCourseScanner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The heading blocks of one lecture file by character offset, so proposals are spliced into
+ * the exact range of their node instead of searching the file for it. The index is built once
+ * from {@link MarkdownCourseScanner#outline} and updated by every splice: blocks after the
+ * edit are shifted and the enclosing blocks grow or shrink. Node lookups are cached by id, so a
+ * block stays reachable after an update has changed its title.
+ * <p>
+ * Inserted markdown is indexed as one block. If it contains further headings (or a slide
+ * separator), the index is rebuilt before its next lookup. The offsets are exact at that
+ * point, so the cached ids are carried over to the rescanned blocks that start where their
+ * blocks did.
+ */
+final class LectureFileIndex {
+
+    // "1.2. " before a section or topic title
+    private static final Pattern NUMBER_PREFIX = Pattern.compile("[\\d.]+\\s+");
+
+    /**
+     * A heading block. {@code [start, ownEnd)} is the header line and the text before the first
+     * nested block; {@code [start, end)} includes the nested blocks. Slides own their
+     * SCRIPT/VISUAL/NOTES/DEMONSTRATION components, which are not indexed separately.
+     */
+    static final class Block {
+        private final MarkdownBlock.Kind kind;
+        private final Block parent;
+        private final List<Block> children = new ArrayList<>();
+        private String title;
+        private Integer seq;
+        private int start;
+        private int ownEnd;
+        private int end;
+
+        private Block(MarkdownBlock.Kind kind, String title, Integer seq, Block parent, int start, int end) {
+            this.kind = kind;
+            this.title = title;
+            this.seq = seq;
+            this.parent = parent;
+            this.start = start;
+            this.ownEnd = end;
+            this.end = end;
+        }
+
+        MarkdownBlock.Kind kind() {
+            return kind;
+        }
+
+        String title() {
+            return title;
+        }
+
+        Integer seq() {
+            return seq;
+        }
+
+        int start() {
+            return start;
+        }
+
+        int ownEnd() {
+            return ownEnd;
+        }
+
+        int end() {
+            return end;
+        }
+
+        List<Block> children() {
+            return Collections.unmodifiableList(children);
+        }
+
+        private void shift(int delta) {
+            start += delta;
+            ownEnd += delta;
+            end += delta;
+        }
+    }
+
+    private final StringBuilder text;
+    private final List<Block> blocks = new ArrayList<>(); // document order
+    private final Map<Long, Block> byNode = new HashMap<>();
+    private boolean stale;
+
+    private LectureFileIndex(String text) {
+        this.text = new StringBuilder(text);
+        rebuild();
+    }
+
+    static LectureFileIndex build(String text) {
+        return new LectureFileIndex(text);
+    }
+
+    String text() {
+        return text.toString();
+    }
+
+    /**
+     * The blocks in document order, rebuilding the index first if it is stale
+     */
+    List<Block> blocks() {
+        if (stale) {
+            rebuild();
+        }
+        return Collections.unmodifiableList(blocks);
+    }
+
+    /**
+     * The block of a node: the one cached for its id, else the first block of its type whose
+     * header matches the node's title (and sequence number, for slides)
+     */
+    Block find(ContentNode node) {
+        List<Block> current = blocks();
+        Block cached = node.getId() != null ? byNode.get(node.getId()) : null;
+        if (cached != null) {
+            return cached;
+        }
+        MarkdownBlock.Kind kind = kindOf(node.getNodeType());
+        String title = node.getTitle() != null ? node.getTitle().trim() : "";
+        Integer seq = kind == MarkdownBlock.Kind.SLIDE ? node.getDisplayOrder() : null;
+        if (kind == null || title.isEmpty() || (kind == MarkdownBlock.Kind.SLIDE && seq == null)) {
+            return null;
+        }
+        for (Block block : current) {
+            if (block.kind == kind && (seq == null || seq.equals(block.seq)) && titleMatches(block, title)) {
+                if (node.getId() != null) {
+                    byNode.put(node.getId(), block);
+                }
+                return block;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replace the block's own range (header and text, not its nested blocks) with the markdown
+     *
+     * @return false if the block already had exactly this content
+     */
+    boolean replace(Block block, String markdown, String title, Integer seq) {
+        int from = block.start;
+        int to = block.ownEnd;
+        String replacement = terminated(markdown, to);
+        if (text.substring(from, to).equals(replacement)) {
+            return false;
+        }
+        int delta = replacement.length() - (to - from);
+        text.replace(from, to, replacement);
+        for (Block other : blocks) {
+            if (other.start >= to) {
+                other.shift(delta);
+            } else if (other.end >= to) {
+                other.end += delta; // The block itself and the blocks around it
+            }
+        }
+        block.ownEnd = from + replacement.length();
+        block.title = title;
+        block.seq = seq;
+        stale |= hasNestedBlocks(replacement, block.kind);
+        return true;
+    }
+
+    /**
+     * Insert a new child block at the offset, which must be the start of one of the parent's
+     * children or the end of the parent's own text or of one of its children
+     */
+    Block insert(Block parent, int at, String markdown, MarkdownBlock.Kind kind, String title, Integer seq) {
+        String prefix = at == 0 || endsWithBlankLine(at) ? "" : text.charAt(at - 1) == '\n' ? "\n" : "\n\n";
+        String inserted = prefix + terminated(markdown, at);
+        text.insert(at, inserted);
+        int delta = inserted.length();
+        for (Block other : blocks) {
+            if (other.start >= at) {
+                other.shift(delta);
+                continue;
+            }
+            // The newlines before the new header belong to the blocks still open at the offset
+            if (other.ownEnd >= at) {
+                other.ownEnd += prefix.length();
+            }
+            if (other.end >= at) {
+                other.end += prefix.length();
+            }
+        }
+        for (Block enclosing = parent; enclosing != null; enclosing = enclosing.parent) {
+            enclosing.end += delta - prefix.length();
+        }
+
+        Block child = new Block(kind, title, seq, parent, at + prefix.length(), at + delta);
+        blocks.add(insertionIndex(blocks, child.start), child);
+        parent.children.add(insertionIndex(parent.children, child.start), child);
+        stale |= hasNestedBlocks(inserted, kind);
+        return child;
+    }
+
+    /**
+     * Append text that belongs to no known block; the index is rebuilt before its next lookup
+     */
+    void append(String content) {
+        text.append(content);
+        stale = true;
+    }
+
+    private void rebuild() {
+        Map<Long, Integer> cachedStarts = new HashMap<>();
+        byNode.forEach((id, block) -> cachedStarts.put(id, block.start));
+        blocks.clear();
+        byNode.clear();
+        stale = false;
+        MarkdownBlock outline = MarkdownCourseScanner.outline(text);
+        if (outline != null) {
+            add(outline, null);
+        }
+
+        Map<Integer, Block> byStart = new HashMap<>();
+        blocks.forEach(block -> byStart.put(block.start, block));
+        cachedStarts.forEach((id, start) -> {
+            Block block = byStart.get(start);
+            if (block != null) {
+                byNode.put(id, block);
+            }
+        });
+    }
+
+    private Block add(MarkdownBlock scanned, Block parent) {
+        Integer seq = scanned.getSeqStart() < 0 ? null : Integer.valueOf(scanned.seqText(text));
+        Block block = new Block(scanned.getKind(), scanned.title(text), seq, parent, scanned.getStart(), scanned.getEnd());
+        blocks.add(block);
+        for (MarkdownBlock child : scanned.getChildren()) {
+            if (child.getKind() == MarkdownBlock.Kind.COMPONENT) {
+                continue;
+            }
+            block.ownEnd = Math.min(block.ownEnd, child.getStart());
+            block.children.add(add(child, block));
+        }
+        return block;
+    }
+
+    /**
+     * The markdown trimmed and followed by a blank line, or by a single newline at the end of the file
+     */
+    private String terminated(String markdown, int at) {
+        return markdown.strip() + (at >= text.length() ? "\n" : "\n\n");
+    }
+
+    private boolean endsWithBlankLine(int at) {
+        return at >= 2 && text.charAt(at - 1) == '\n' && text.charAt(at - 2) == '\n';
+    }
+
+    private static int insertionIndex(List<Block> ordered, int start) {
+        int index = 0;
+        while (index < ordered.size() && ordered.get(index).start < start) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean titleMatches(Block block, String title) {
+        if (block.title.equals(title)) {
+            return true;
+        }
+        return block.kind != MarkdownBlock.Kind.SLIDE && block.title.endsWith(title)
+                && NUMBER_PREFIX.matcher(block.title.substring(0, block.title.length() - title.length())).matches();
+    }
+
+    /**
+     * True if lines after the header would be scanned as blocks of their own
+     */
+    private static boolean hasNestedBlocks(String markdown, MarkdownBlock.Kind kind) {
+        boolean header = true;
+        for (String line : markdown.strip().split("\n")) {
+            if (header) {
+                header = false;
+                continue;
+            }
+            String trimmed = line.strip();
+            if (trimmed.startsWith("#") && !(kind == MarkdownBlock.Kind.SLIDE && trimmed.startsWith("######"))) {
+                return true;
+            }
+            if (trimmed.equals("---")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static MarkdownBlock.Kind kindOf(ContentNode.NodeType type) {
+        if (type == null) {
+            return null;
+        }
+        return switch (type) {
+            case COURSE -> MarkdownBlock.Kind.COURSE;
+            case LECTURE -> MarkdownBlock.Kind.LECTURE;
+            case SECTION -> MarkdownBlock.Kind.SECTION;
+            case TOPIC -> MarkdownBlock.Kind.TOPIC;
+            case SLIDE -> MarkdownBlock.Kind.SLIDE;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,217 @@
+package com.coherentsolutions.coursecrafter.infrastructure.git;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A workspace without a working tree. Files are read from the branch's commit in the object
+ * database of the repository at {@code git.repo.root}, and written files are held in memory.
+ * Committing writes the new blobs plus the trees on the changed paths and reuses every other
+ * subtree by id, so the cost depends on the files changed, not on the size of the repository.
+ * The branch ref lives in that repository and is pushed from there.
+ */
+@Slf4j
+final class ObjectWorkspace implements GitWorkspace {
+
+    // Git's tree order: names compared bytewise, with a directory compared as "name/"
+    private static final Comparator<TreeEntry> TREE_ORDER = Comparator.comparing(
+            entry -> (entry.name() + (entry.mode() == FileMode.TREE ? "/" : "")).getBytes(StandardCharsets.UTF_8),
+            Arrays::compareUnsigned);
+
+    private record TreeEntry(FileMode mode, String name, ObjectId id) {
+    }
+
+    private final String branch;
+    private final Repository repository;
+    private final GitOperations git;
+    private final GitWorkspacePool pool;
+    // Written files by path, kept sorted so each directory's changes are grouped together
+    private final Map<String, byte[]> changes = new TreeMap<>();
+    private ObjectId head;
+    private ObjectId headTree;
+    private boolean closed;
+
+    ObjectWorkspace(String branch, Repository repository, ObjectId head, GitOperations git,
+                    GitWorkspacePool pool) throws IOException {
+        this.branch = branch;
+        this.repository = repository;
+        this.git = git;
+        this.pool = pool;
+        this.head = head;
+        try (RevWalk walk = new RevWalk(repository)) {
+            this.headTree = walk.parseCommit(head).getTree().getId();
+        }
+    }
+
+    @Override
+    public String branch() {
+        return branch;
+    }
+
+    Repository repository() {
+        return repository;
+    }
+
+    @Override
+    public synchronized boolean exists(String path) throws IOException {
+        return changes.containsKey(GitWorkspacePool.checkPath(path)) || find(path) != null;
+    }
+
+    @Override
+    public synchronized String readFile(String path) throws IOException {
+        byte[] written = changes.get(GitWorkspacePool.checkPath(path));
+        if (written != null) {
+            return new String(written, StandardCharsets.UTF_8);
+        }
+        ObjectId blob = find(path);
+        if (blob == null) {
+            throw new NoSuchFileException(path, null, "not on branch " + branch);
+        }
+        return new String(repository.open(blob, Constants.OBJ_BLOB).getBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized void writeFile(String path, String content) {
+        changes.put(GitWorkspacePool.checkPath(path), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public synchronized void commitAllChanges(String message) throws IOException {
+        try (ObjectInserter inserter = repository.newObjectInserter();
+             ObjectReader reader = inserter.newReader()) {
+            ObjectId tree = changes.isEmpty() ? headTree : writeChanges(inserter, reader, headTree, changes);
+            changes.clear();
+            if (tree.equals(headTree)) {
+                log.info("No changes to commit, skipping commit operation");
+                return;
+            }
+            CommitBuilder builder = new CommitBuilder();
+            builder.setTreeId(tree);
+            builder.setParentId(head);
+            PersonIdent ident = new PersonIdent(repository);
+            builder.setAuthor(ident);
+            builder.setCommitter(ident);
+            builder.setMessage(message);
+            ObjectId commit = inserter.insert(builder);
+            inserter.flush();
+
+            RefUpdate update = repository.updateRef(Constants.R_HEADS + branch);
+            update.setNewObjectId(commit);
+            update.setExpectedOldObjectId(head);
+            update.setRefLogMessage("commit: " + message.lines().findFirst().orElse(""), false);
+            RefUpdate.Result result = update.update();
+            if (result != RefUpdate.Result.FAST_FORWARD && result != RefUpdate.Result.NEW) {
+                throw new IOException("Could not move " + branch + " to " + commit.name() + ": " + result);
+            }
+            log.info("Committed {} on {} without a checkout", commit.abbreviate(10).name(), branch);
+            head = commit;
+            headTree = tree;
+        }
+    }
+
+    @Override
+    public void push() throws IOException, InterruptedException {
+        git.pushBranch(branch);
+    }
+
+    @Override
+    public String createPr(String title, String body) throws IOException, InterruptedException {
+        return git.createPr(branch, title, body);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            changes.clear();
+            git.close();
+            pool.release(this);
+        }
+    }
+
+    /**
+     * The blob at the path in the branch's commit, or null if there is none
+     */
+    private ObjectId find(String path) throws IOException {
+        try (TreeWalk walk = TreeWalk.forPath(repository, path, headTree)) {
+            if (walk == null) {
+                return null;
+            }
+            FileMode mode = walk.getFileMode(0);
+            return mode == FileMode.TREE || mode == FileMode.GITLINK ? null : walk.getObjectId(0);
+        }
+    }
+
+    /**
+     * Write the tree with the changes (paths relative to it) applied
+     *
+     * @param tree the existing tree, or null for a new directory
+     */
+    private ObjectId writeChanges(ObjectInserter inserter, ObjectReader reader, ObjectId tree,
+                                  Map<String, byte[]> changes) throws IOException {
+        Map<String, TreeEntry> entries = new LinkedHashMap<>();
+        if (tree != null) {
+            CanonicalTreeParser parser = new CanonicalTreeParser(null, reader, tree);
+            for (; !parser.eof(); parser.next()) {
+                String name = parser.getEntryPathString();
+                entries.put(name, new TreeEntry(parser.getEntryFileMode(), name, parser.getEntryObjectId()));
+            }
+        }
+        Map<String, Map<String, byte[]>> directories = new TreeMap<>();
+        for (Map.Entry<String, byte[]> change : changes.entrySet()) {
+            String path = change.getKey();
+            int slash = path.indexOf('/');
+            if (slash >= 0) {
+                directories.computeIfAbsent(path.substring(0, slash), name -> new TreeMap<>())
+                        .put(path.substring(slash + 1), change.getValue());
+                continue;
+            }
+            TreeEntry existing = entries.get(path);
+            if (existing != null && existing.mode() == FileMode.TREE) {
+                throw new IOException("Cannot write " + path + " on branch " + branch + ": it is a directory");
+            }
+            // Keep the executable bit of a file being replaced
+            FileMode mode = existing != null && existing.mode() == FileMode.EXECUTABLE_FILE
+                    ? FileMode.EXECUTABLE_FILE : FileMode.REGULAR_FILE;
+            entries.put(path, new TreeEntry(mode, path, inserter.insert(Constants.OBJ_BLOB, change.getValue())));
+        }
+        for (Map.Entry<String, Map<String, byte[]>> directory : directories.entrySet()) {
+            String name = directory.getKey();
+            TreeEntry existing = entries.get(name);
+            if (existing != null && existing.mode() != FileMode.TREE) {
+                throw new IOException("Cannot write below " + name + " on branch " + branch + ": it is a file");
+            }
+            ObjectId subtree = writeChanges(inserter, reader, existing != null ? existing.id() : null, directory.getValue());
+            entries.put(name, new TreeEntry(FileMode.TREE, name, subtree));
+        }
+
+        List<TreeEntry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(TREE_ORDER);
+        TreeFormatter formatter = new TreeFormatter();
+        sorted.forEach(entry -> formatter.append(entry.name(), entry.mode(), entry.id()));
+        return inserter.insert(formatter);
+    }
+}
@@ -0,0 +1,79 @@
+package com.coherentsolutions.coursecrafter.infrastructure.git;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A workspace backed by a checked-out worktree: files are read and written on disk, and
+ * committed with the configured {@code git.engine}
+ */
+final class WorktreeWorkspace implements GitWorkspace {
+
+    private final String branch;
+    private final Path root;
+    private final GitOperations git;
+    private final GitWorkspacePool pool;
+    private boolean closed;
+
+    WorktreeWorkspace(String branch, Path root, GitOperations git, GitWorkspacePool pool) {
+        this.branch = branch;
+        this.root = root;
+        this.git = git;
+        this.pool = pool;
+    }
+
+    @Override
+    public String branch() {
+        return branch;
+    }
+
+    Path root() {
+        return root;
+    }
+
+    @Override
+    public boolean exists(String path) {
+        return Files.isRegularFile(file(path));
+    }
+
+    @Override
+    public String readFile(String path) throws IOException {
+        return Files.readString(file(path));
+    }
+
+    @Override
+    public void writeFile(String path, String content) throws IOException {
+        Path file = file(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    @Override
+    public void commitAllChanges(String message) throws IOException, InterruptedException {
+        git.commitAllChanges(message);
+    }
+
+    @Override
+    public void push() throws IOException, InterruptedException {
+        git.pushBranch(branch);
+    }
+
+    @Override
+    public String createPr(String title, String body) throws IOException, InterruptedException {
+        return git.createPr(branch, title, body);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            git.close();
+            pool.release(this);
+        }
+    }
+
+    private Path file(String path) {
+        return root.resolve(GitWorkspacePool.checkPath(path));
+    }
+}
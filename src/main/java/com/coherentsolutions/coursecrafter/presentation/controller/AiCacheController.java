@@ -0,0 +1,25 @@
+package com.coherentsolutions.coursecrafter.presentation.controller;
+
+import com.coherentsolutions.coursecrafter.application.api.ai.LlmResponseCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/ai/cache")
+@RequiredArgsConstructor
+public class AiCacheController {
+
+    private final LlmResponseCache responseCache;
+
+    @GetMapping("/stats")
+    public ResponseEntity<LlmResponseCache.CacheStats> getStats() {
+        return ResponseEntity.ok(responseCache.stats());
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> clear() {
+        responseCache.clear();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,21 @@
+package com.coherentsolutions.coursecrafter.presentation.controller;
+
+import com.coherentsolutions.coursecrafter.application.api.ai.LlmRateLimiter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/ai/rate-limit")
+@RequiredArgsConstructor
+public class AiRateLimitController {
+
+    private final LlmRateLimiter rateLimiter;
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, LlmRateLimiter.ModelStats>> getStats() {
+        return ResponseEntity.ok(rateLimiter.stats());
+    }
+}
@@ -6,7 +6,11 @@ import com.coherentsolutions.coursecrafter.presentation.dto.content.ContentUpdat
 import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
 import com.coherentsolutions.coursecrafter.domain.content.service.ContentHierarchyService;
 import com.coherentsolutions.coursecrafter.domain.content.service.ContentNodeService;
+import com.coherentsolutions.coursecrafter.domain.content.service.ContentSearchService;
+import com.coherentsolutions.coursecrafter.domain.content.service.CourseTreeCache;
+import com.coherentsolutions.coursecrafter.domain.slide.model.SlideComponent;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,6 +24,8 @@ public class ContentNodeController {
 
     private final ContentNodeService nodeService;
     private final ContentHierarchyService hierarchyService;
+    private final CourseTreeCache courseTreeCache;
+    private final ContentSearchService searchService;
 
     @GetMapping("/tree")
     public ResponseEntity<ContentTreeDto> getContentTree() {
@@ -31,6 +37,33 @@ public class ContentNodeController {
         return ResponseEntity.ok(hierarchyService.generateOutline());
     }
 
+    @GetMapping("/cache/stats")
+    public ResponseEntity<CourseTreeCache.CacheStats> getCacheStats() {
+        return ResponseEntity.ok(courseTreeCache.stats());
+    }
+
+    /**
+     * Ranked full-text search, e.g. {@code /api/content/search?q="system prompt" -ollama&componentType=SCRIPT&scope=42}
+     *
+     * @param componentType only slide components of this type (SCRIPT, VISUAL, NOTES, DEMONSTRATION)
+     * @param scope         id of a node, e.g. a lecture, to search in
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam String q,
+                                    @RequestParam(required = false) String componentType,
+                                    @RequestParam(required = false) Long scope,
+                                    @RequestParam(defaultValue = "20") int limit) {
+        try {
+            SlideComponent.ComponentType type = componentType != null
+                    ? SlideComponent.ComponentType.valueOf(componentType.toUpperCase()) : null;
+            return ResponseEntity.ok(searchService.search(q, type, scope, Math.max(1, Math.min(limit, 200))));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/{nodeId}")
     public ResponseEntity<?> getNode(@PathVariable Long nodeId) {
         return nodeService.getNodeWithLatestContent(nodeId)
@@ -78,6 +111,19 @@ public class ContentNodeController {
         return ResponseEntity.ok(updated);
     }
 
+    @PutMapping("/{nodeId}/parent/{parentId}")
+    public ResponseEntity<?> moveNode(@PathVariable Long nodeId, @PathVariable Long parentId) {
+        return ResponseEntity.ok(nodeService.moveNode(nodeId, parentId));
+    }
+
+    /**
+     * Renumber the slides under a node in tree order
+     */
+    @PostMapping("/{nodeId}/slides/renumber")
+    public ResponseEntity<Map<String, Integer>> renumberSlides(@PathVariable Long nodeId) {
+        return ResponseEntity.ok(Map.of("changed", nodeService.renumberSlides(nodeId)));
+    }
+
     @DeleteMapping("/{nodeId}")
     public ResponseEntity<?> deleteNode(@PathVariable Long nodeId) throws IOException, InterruptedException {
         nodeService.deleteNode(nodeId, "Delete node: " + nodeId);
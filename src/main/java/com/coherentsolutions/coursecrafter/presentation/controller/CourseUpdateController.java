@@ -1,22 +1,25 @@
 package com.coherentsolutions.coursecrafter.presentation.controller;
 
-import com.coherentsolutions.coursecrafter.application.api.ai.EnhancedUpdaterService;
 import com.coherentsolutions.coursecrafter.presentation.dto.ai.AiProposalDto;
 import com.coherentsolutions.coursecrafter.presentation.dto.content.CourseUpdateRequest;
 import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
 import com.coherentsolutions.coursecrafter.domain.content.service.ContentHierarchyService;
 import com.coherentsolutions.coursecrafter.application.service.EnhancedTextIngestionService;
+import com.coherentsolutions.coursecrafter.application.service.IngestionJobService;
+import com.coherentsolutions.coursecrafter.application.service.ProposalRefinementService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
-import java.time.LocalDate;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.Future;
 
+@Slf4j
 @RestController
 @RequestMapping("/api/course")
 @RequiredArgsConstructor
@@ -24,7 +27,9 @@ public class CourseUpdateController {
 
     private final ContentHierarchyService contentHierarchyService;
     private final EnhancedTextIngestionService ingestionService;
-    private final EnhancedUpdaterService enhancedUpdaterService;
+    private final IngestionJobService jobService;
+
+    private static final long STREAM_TIMEOUT_MS = 15 * 60 * 1000L;
 
     /**
      * Get course structure in hierarchical format
@@ -35,37 +40,69 @@ public class CourseUpdateController {
     }
 
     /**
-     * Process new content and integrate it into the course
+     * Queue new content for integration into the course; the job summarizes, analyzes and
+     * opens a PR with the proposals. Poll the returned job for the PR URL.
      */
     @PostMapping("/{courseName}/update")
-    public ResponseEntity<?> updateCourse(
+    public ResponseEntity<Map<String, Object>> updateCourse(
             @PathVariable String courseName,
-            @RequestBody CourseUpdateRequest request) throws IOException, InterruptedException {
+            @RequestBody CourseUpdateRequest request) {
+        return IngestionJobController.accepted(jobService.submitCourseUpdate(courseName, request));
+    }
 
-        // Use the enhanced text ingestion service to process the content
-        String content = request.content();
-        String audience = request.audience();
-        LocalDate reportDate = request.reportDate();
+    /**
+     * Server-sent events variant of the update endpoint. Emits a "proposal" event as each
+     * proposal is parsed from the streaming model output, a "refined" event when its refinement
+     * is done and it has been written to the PR branch, then "done" with the PR URL (or "error").
+     */
+    @PostMapping(value = "/{courseName}/update/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter updateCourseStream(
+            @PathVariable String courseName,
+            @RequestBody CourseUpdateRequest request) {
 
-        // First clean and summarize the content
-        String cleanedContent = ingestionService.summarizeContent(content, courseName, audience, reportDate);
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        Future<?> run = ingestionService.startProposalPR(courseName, request.content(),
+                request.audience(), request.reportDate(),
+                new EnhancedTextIngestionService.ProposalStreamListener() {
+                    @Override
+                    public void onProposal(int index, AiProposalDto proposal) {
+                        send(emitter, "proposal", Map.of("index", index, "proposal", proposal));
+                    }
 
-        // Analyze content and generate proposals
-        List<AiProposalDto> proposals = ingestionService.analyzeContent(cleanedContent, courseName);
+                    @Override
+                    public void onRefined(int index, ProposalRefinementService.RefinementResult result) {
+                        Map<String, Object> event = new HashMap<>();
+                        event.put("index", index);
+                        event.put("proposal", result.proposal());
+                        event.put("error", result.error());
+                        send(emitter, "refined", event);
+                    }
 
-        if (proposals.isEmpty()) {
-            return ResponseEntity.ok(Map.of(
-                    "message", "No updates needed. Content is already covered in the course."
-            ));
-        }
+                    @Override
+                    public void onDone(String result) {
+                        send(emitter, "done", Map.of("result", result));
+                        emitter.complete();
+                    }
 
-        // Create a PR with the proposals (without database updates)
-        String prUrl = enhancedUpdaterService.createProposalPR(proposals);
+                    @Override
+                    public void onFailed(Exception e) {
+                        send(emitter, "error", Map.of("message", String.valueOf(e.getMessage())));
+                        emitter.complete();
+                    }
+                });
+        // A client that went away stops the run: no more model calls, and no PR from a stream nobody reads
+        emitter.onCompletion(() -> run.cancel(true));
+        emitter.onTimeout(() -> run.cancel(true));
+        emitter.onError(e -> run.cancel(true));
+        return emitter;
+    }
 
-        return ResponseEntity.ok(Map.of(
-                "message", String.format("%d proposed changes applied and Pull Request created", proposals.size()),
-                "pr_url", prUrl,
-                "note", "Changes will be applied to the database after PR approval"
-        ));
+    // Failures to send are left to the emitter's callbacks, which cancel the run
+    private void send(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Could not send '{}' event: {}", name, e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
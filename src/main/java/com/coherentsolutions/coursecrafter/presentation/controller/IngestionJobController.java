@@ -0,0 +1,65 @@
+package com.coherentsolutions.coursecrafter.presentation.controller;
+
+import com.coherentsolutions.coursecrafter.application.service.IngestionJobService;
+import com.coherentsolutions.coursecrafter.application.service.IngestionJobWorkerPool;
+import com.coherentsolutions.coursecrafter.domain.proposal.model.IngestionJob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/jobs")
+@RequiredArgsConstructor
+public class IngestionJobController {
+
+    private final IngestionJobService jobService;
+    private final IngestionJobWorkerPool workerPool;
+
+    /**
+     * 202 response pointing at the status endpoint of a newly queued job
+     */
+    static ResponseEntity<Map<String, Object>> accepted(IngestionJob job) {
+        String statusUrl = "/api/jobs/" + job.getId();
+        return ResponseEntity.accepted()
+                .location(URI.create(statusUrl))
+                .body(Map.of(
+                        "jobId", job.getId(),
+                        "status", job.getStatus(),
+                        "statusUrl", statusUrl));
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<IngestionJob> getJob(@PathVariable Long jobId) {
+        return jobService.findJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping
+    public ResponseEntity<List<IngestionJob>> listJobs(
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(jobService.listJobs(status, limit));
+    }
+
+    @GetMapping("/workers")
+    public ResponseEntity<Map<String, Integer>> getWorkers() {
+        return ResponseEntity.ok(Map.of(
+                "target", workerPool.getTargetWorkers(),
+                "active", workerPool.getActiveWorkers()));
+    }
+
+    @PutMapping("/workers")
+    public ResponseEntity<?> setWorkers(@RequestParam int count) {
+        try {
+            workerPool.resize(count);
+            return getWorkers();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
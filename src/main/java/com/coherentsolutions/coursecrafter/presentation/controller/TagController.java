@@ -0,0 +1,42 @@
+package com.coherentsolutions.coursecrafter.presentation.controller;
+
+import com.coherentsolutions.coursecrafter.domain.tag.service.TagFacetIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/tags")
+@RequiredArgsConstructor
+public class TagController {
+
+    private final TagFacetIndex tagIndex;
+
+    /**
+     * Nodes matching a tag expression, e.g.
+     * {@code /api/tags/search?q=Claude AND GPT-4 AND NOT Bias&scope=42&type=SLIDE}, with
+     * the number of matching nodes per tag category and per tag
+     *
+     * @param q     tags combined with AND, OR, NOT and parentheses; empty for all nodes
+     * @param scope id of a node to search below (e.g. a lecture), including the node itself
+     * @param type  node type to keep, e.g. SLIDE
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam(required = false) String q,
+                                    @RequestParam(required = false) Long scope,
+                                    @RequestParam(required = false) String type,
+                                    @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return ResponseEntity.ok(tagIndex.search(q, scope, type, Math.min(limit, 500)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/index/stats")
+    public ResponseEntity<TagFacetIndex.IndexStats> getIndexStats() {
+        return ResponseEntity.ok(tagIndex.stats());
+    }
+}
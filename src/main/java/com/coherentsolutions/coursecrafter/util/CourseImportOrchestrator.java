@@ -0,0 +1,276 @@
+package com.coherentsolutions.coursecrafter.util;
+
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
+import com.coherentsolutions.coursecrafter.domain.content.model.ImportedFile;
+import com.coherentsolutions.coursecrafter.domain.content.repository.ImportedFileRepository;
+import com.coherentsolutions.coursecrafter.domain.content.service.ContentHashes;
+import com.coherentsolutions.coursecrafter.domain.content.service.CourseTreeSyncService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Imports a set of lecture files in three phases:
+ * <ol>
+ *     <li>each file whose SHA-256 differs from the last import is parsed into its own detached
+ *     course graph on a virtual thread; unchanged files are skipped without parsing</li>
+ *     <li>the per-file graphs are merged into one root per course, in lecture order</li>
+ *     <li>each merged course is diffed against the database and written by
+ *     {@link CourseTreeSyncService} in a single transaction</li>
+ * </ol>
+ * Parsing order does not leak into the result: files are merged by lecture number (then file name)
+ * and children are sorted by displayOrder, so the insert order (and with it ids and paths) is the
+ * same on every run.
+ * <p>
+ * {@link ImportedFile} remembers which lectures each file produced. A lecture that a changed file
+ * renumbered or renamed is matched to its stored rows; the lectures of a deleted file, or ones a
+ * file no longer contains, are deleted. The given files are taken to be the whole course directory.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CourseImportOrchestrator {
+
+    private final MarkdownCourseParser parser;
+    private final CourseTreeSyncService courseTreeSyncService;
+    private final ImportedFileRepository importedFileRepository;
+
+    // Upper bound on files being parsed at the same time
+    @Value("${coursecrafter.import.max-parallel-files:8}")
+    private int maxParallelFiles;
+
+    // Skip files whose hash matches the last successful import
+    @Value("${coursecrafter.import.skip-unchanged-files:true}")
+    private boolean skipUnchangedFiles;
+
+    /**
+     * Parse, merge and persist the given markdown files
+     *
+     * @return number of rows inserted, updated or deleted
+     */
+    public int importFiles(List<Path> files) throws InterruptedException, IOException {
+        long started = System.nanoTime();
+
+        Map<Path, String> fileHashes = new LinkedHashMap<>();
+        for (Path file : files) {
+            fileHashes.put(file, ContentHashes.of(Files.readAllBytes(file)));
+        }
+        Map<String, ImportedFile> previous = new HashMap<>();
+        importedFileRepository.findAll().forEach(imported -> previous.put(imported.getFileName(), imported));
+
+        List<Path> changedFiles = files.stream()
+                .filter(file -> !skipUnchangedFiles || !isUnchanged(previous.get(fileName(file)), fileHashes.get(file)))
+                .toList();
+        Set<String> present = files.stream().map(CourseImportOrchestrator::fileName).collect(Collectors.toSet());
+        List<ImportedFile> removedFiles = previous.values().stream()
+                .filter(imported -> !present.contains(imported.getFileName()))
+                .toList();
+        if (changedFiles.isEmpty() && removedFiles.isEmpty()) {
+            log.info("All {} course files are unchanged since the last import", files.size());
+            return 0;
+        }
+
+        List<ParsedFile> parsed = parseAll(changedFiles);
+        Map<String, CourseTreeSyncService.LectureChanges> lectureChanges = lectureChanges(parsed, previous, removedFiles);
+        Map<String, ContentNode> courses = merge(parsed);
+        log.info("Parsed {} changed of {} files into {} course(s), {} file(s) removed, in {} ms",
+                parsed.size(), files.size(), courses.size(), removedFiles.size(), (System.nanoTime() - started) / 1_000_000);
+
+        int written = 0;
+        for (ContentNode course : courses.values()) {
+            CourseTreeSyncService.SyncResult result = courseTreeSyncService.sync(course,
+                    lectureChanges.getOrDefault(course.getTitle(), CourseTreeSyncService.LectureChanges.NONE));
+            written += result.inserted() + result.updated() + result.deleted();
+        }
+        // Courses that only lost files have nothing to sync, just lectures to delete
+        for (Map.Entry<String, CourseTreeSyncService.LectureChanges> entry : lectureChanges.entrySet()) {
+            if (!courses.containsKey(entry.getKey())) {
+                written += courseTreeSyncService.removeLectures(entry.getKey(), entry.getValue().removedTitles());
+            }
+        }
+
+        for (ParsedFile file : parsed) {
+            recordImport(previous.get(fileName(file.path())), file, fileHashes.get(file.path()));
+        }
+        importedFileRepository.deleteAll(removedFiles);
+        return written;
+    }
+
+    private boolean isUnchanged(ImportedFile imported, String hash) {
+        return imported != null && hash.equals(imported.getContentHash());
+    }
+
+    /**
+     * Per course, the stored lectures that changed files replace or no longer contain. Within
+     * one file, new titles are paired in order with the titles that disappeared from it, so a
+     * renumbered lecture keeps its rows; unpaired old titles and those of removed files are retired.
+     * Records without lecture titles (imported before they were kept) retire nothing.
+     */
+    private Map<String, CourseTreeSyncService.LectureChanges> lectureChanges(
+            List<ParsedFile> parsed, Map<String, ImportedFile> previous, List<ImportedFile> removedFiles) {
+        Map<String, Map<String, String>> previousTitles = new HashMap<>();
+        Map<String, Set<String>> removedTitles = new HashMap<>();
+
+        for (ParsedFile file : parsed) {
+            ImportedFile before = previous.get(fileName(file.path()));
+            if (before == null || before.getCourseTitle() == null) {
+                continue;
+            }
+            List<String> gone = new ArrayList<>(lectureTitles(before));
+            gone.removeAll(file.lectureTitles());
+            List<String> added = new ArrayList<>(file.lectureTitles());
+            added.removeAll(lectureTitles(before));
+
+            int paired = 0;
+            if (before.getCourseTitle().equals(file.course().getTitle())) {
+                paired = Math.min(gone.size(), added.size());
+                for (int i = 0; i < paired; i++) {
+                    previousTitles.computeIfAbsent(before.getCourseTitle(), k -> new HashMap<>()).put(added.get(i), gone.get(i));
+                }
+            }
+            removedTitles.computeIfAbsent(before.getCourseTitle(), k -> new HashSet<>()).addAll(gone.subList(paired, gone.size()));
+        }
+        for (ImportedFile removed : removedFiles) {
+            if (removed.getCourseTitle() != null) {
+                removedTitles.computeIfAbsent(removed.getCourseTitle(), k -> new HashSet<>()).addAll(lectureTitles(removed));
+            }
+        }
+
+        Map<String, CourseTreeSyncService.LectureChanges> changes = new HashMap<>();
+        Set<String> courseTitles = new HashSet<>(previousTitles.keySet());
+        courseTitles.addAll(removedTitles.keySet());
+        for (String courseTitle : courseTitles) {
+            changes.put(courseTitle, new CourseTreeSyncService.LectureChanges(
+                    previousTitles.getOrDefault(courseTitle, Map.of()), removedTitles.getOrDefault(courseTitle, Set.of())));
+        }
+        return changes;
+    }
+
+    private void recordImport(ImportedFile before, ParsedFile file, String hash) {
+        ImportedFile imported = before != null ? before : ImportedFile.builder().fileName(fileName(file.path())).build();
+        imported.setContentHash(hash);
+        imported.setCourseTitle(file.course().getTitle());
+        imported.setLectureTitles(String.join("\n", file.lectureTitles()));
+        imported.setImportedAt(LocalDateTime.now());
+        importedFileRepository.save(imported);
+    }
+
+    private static List<String> lectureTitles(ImportedFile imported) {
+        return imported.getLectureTitles() == null || imported.getLectureTitles().isEmpty()
+                ? List.of() : List.of(imported.getLectureTitles().split("\n"));
+    }
+
+    private static String fileName(Path file) {
+        return file.getFileName().toString();
+    }
+
+    private List<ParsedFile> parseAll(List<Path> files) throws InterruptedException {
+        Semaphore permits = new Semaphore(Math.max(1, maxParallelFiles));
+        List<Future<ContentNode>> futures = new ArrayList<>();
+        List<ParsedFile> parsed = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Path file : files) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        // A private course map per file keeps the parse threads independent
+                        return parser.parseFileToGraph(file, new HashMap<>());
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            for (int i = 0; i < files.size(); i++) {
+                try {
+                    ContentNode course = futures.get(i).get();
+                    if (course != null) {
+                        // Taken before merging moves other files' lectures under this root
+                        List<String> lectureTitles = course.getChildren().stream()
+                                .filter(child -> child.getNodeType() == ContentNode.NodeType.LECTURE)
+                                .map(ContentNode::getTitle)
+                                .toList();
+                        parsed.add(new ParsedFile(files.get(i), course, lectureTitles));
+                    }
+                } catch (ExecutionException e) {
+                    log.error("Error processing file: {}", files.get(i), e.getCause());
+                }
+            }
+        }
+        return parsed;
+    }
+
+    private Map<String, ContentNode> merge(List<ParsedFile> parsed) {
+        List<ParsedFile> ordered = parsed.stream()
+                .sorted(Comparator.comparingInt(ParsedFile::firstLectureOrder)
+                        .thenComparing(file -> file.path().getFileName().toString()))
+                .toList();
+
+        Map<String, ContentNode> courses = new LinkedHashMap<>();
+        for (ParsedFile file : ordered) {
+            ContentNode target = courses.putIfAbsent(file.course().getTitle(), file.course());
+            if (target != null) {
+                mergeInto(target, file.course());
+            }
+        }
+        return courses;
+    }
+
+    /**
+     * Move the donor's children under the target. Children with the same type and title
+     * (e.g. the implicit section/topic created for direct slides) are merged rather than duplicated.
+     */
+    private void mergeInto(ContentNode target, ContentNode donor) {
+        for (ContentNode child : donor.getChildren()) {
+            ContentNode match = target.getChildren().stream()
+                    .filter(existing -> existing.getNodeType() == child.getNodeType()
+                            && existing.getTitle().equals(child.getTitle()))
+                    .findFirst()
+                    .orElse(null);
+
+            if (match != null) {
+                mergeInto(match, child);
+            } else {
+                child.setParent(target);
+                target.getChildren().add(child);
+            }
+        }
+        target.getChildren().sort(Comparator.comparing(ContentNode::getDisplayOrder,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+    }
+
+    private record ParsedFile(Path path, ContentNode course, List<String> lectureTitles) {
+
+        /**
+         * Display order of the first lecture in the file (lecture number * 10)
+         */
+        int firstLectureOrder() {
+            return course.getChildren().stream()
+                    .filter(child -> child.getNodeType() == ContentNode.NodeType.LECTURE)
+                    .map(ContentNode::getDisplayOrder)
+                    .min(Integer::compareTo)
+                    .orElse(Integer.MAX_VALUE);
+        }
+    }
+}
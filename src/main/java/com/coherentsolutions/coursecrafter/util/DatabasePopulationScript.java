@@ -20,13 +20,14 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Utility class to populate the database with course content from markdown files.
- * This should only be run once to initialize the database.
+ * In bulk mode it can be re-run: only files and rows that changed since the last import are written.
  */
 @Component
 @RequiredArgsConstructor
@@ -38,6 +39,7 @@ public class DatabasePopulationScript implements CommandLineRunner {
     private final SlideComponentRepository slideComponentRepository;
     private final ContentNodeService contentNodeService;
     private final SlideComponentService slideComponentService;
+    private final CourseImportOrchestrator courseImportOrchestrator;
 
     // Inject a check for whether import is enabled
     @Autowired(required = false)
@@ -47,6 +49,10 @@ public class DatabasePopulationScript implements CommandLineRunner {
     @Value("${coursecrafter.import.folder:src/main/resources/course_content}")
     private String markdownFilesDir;
 
+    // Build the whole course graph in memory and write it with JDBC batches instead of node by node
+    @Value("${coursecrafter.import.bulk:true}")
+    private boolean bulkImport;
+
     // Filename pattern for lecture files - not included in MarkdownPatterns as it's specific to this class
     private static final Pattern LECTURE_FILENAME_PATTERN = Pattern.compile("Lecture (\\d+)[-\\s.]+(.*?)\\.md");
 
@@ -83,15 +89,23 @@ public class DatabasePopulationScript implements CommandLineRunner {
                 slideComponentRepository // <<<< PASS THE INJECTED REPOSITORY HERE
         );
 
-        Files.list(dirPath)
-                .filter(path -> path.toString().endsWith(".md"))
-                .forEach(path -> {
-                    try {
-                        parser.parseFile(path);
-                    } catch (Exception e) {
-                        log.error("Error processing file: {}", path, e);
-                    }
-                });
+        List<Path> files;
+        try (var listing = Files.list(dirPath)) {
+            files = listing.filter(path -> path.toString().endsWith(".md")).toList();
+        }
+
+        if (bulkImport) {
+            // Files are parsed concurrently, then written in one ordered batch
+            courseImportOrchestrator.importFiles(files);
+        } else {
+            files.forEach(path -> {
+                try {
+                    parser.parseFile(path);
+                } catch (Exception e) {
+                    log.error("Error processing file: {}", path, e);
+                }
+            });
+        }
 
         log.info("Database population completed.");
     }
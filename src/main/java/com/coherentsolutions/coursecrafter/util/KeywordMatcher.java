@@ -0,0 +1,170 @@
+package com.coherentsolutions.coursecrafter.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Finds whole-word, case-insensitive occurrences of many keywords in one pass over the text
+ * (an Aho-Corasick automaton), with the semantics of a {@code \b keyword \b} regex compiled with
+ * {@code CASE_INSENSITIVE}: ASCII letters are case-folded, and a keyword only matches where the
+ * characters around it make a word boundary at both ends. Immutable and thread-safe once built.
+ *
+ * @param <T> the value a keyword stands for; several keywords may share one
+ */
+public final class KeywordMatcher<T> {
+
+    private static final int ROOT = 0;
+
+    private final String[] keywords;
+    private final List<T> values;
+    // Per state: outgoing characters, sorted, and the states they lead to
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] failure;
+    // Per state: the keywords ending there, including those of its failure chain
+    private final int[][] outputs;
+
+    private KeywordMatcher(Map<String, T> dictionary) {
+        keywords = new String[dictionary.size()];
+        values = new ArrayList<>(dictionary.size());
+
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        ends.add(new ArrayList<>());
+        int index = 0;
+        for (Map.Entry<String, T> entry : dictionary.entrySet()) {
+            String keyword = entry.getKey();
+            if (keyword == null || keyword.isEmpty()) {
+                throw new IllegalArgumentException("Keywords must not be empty");
+            }
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = fold(keyword.charAt(i));
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    ends.add(new ArrayList<>());
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            ends.get(state).add(index);
+            keywords[index++] = keyword;
+            values.add(entry.getValue());
+        }
+
+        int states = trie.size();
+        edgeChars = new char[states][];
+        edgeTargets = new int[states][];
+        for (int state = 0; state < states; state++) {
+            Map<Character, Integer> edges = trie.get(state);
+            edgeChars[state] = new char[edges.size()];
+            edgeTargets[state] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                edgeChars[state][i] = edge.getKey();
+                edgeTargets[state][i++] = edge.getValue();
+            }
+        }
+
+        // Breadth-first, so a state's failure target is complete before the state itself
+        failure = new int[states];
+        outputs = new int[states][];
+        outputs[ROOT] = new int[0];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : edgeTargets[ROOT]) {
+            failure[child] = ROOT;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int[] inherited = outputs[failure[state]];
+            int[] own = ends.get(state).stream().mapToInt(Integer::intValue).toArray();
+            outputs[state] = inherited.length == 0 ? own : concat(own, inherited);
+            for (int i = 0; i < edgeChars[state].length; i++) {
+                int child = edgeTargets[state][i];
+                failure[child] = next(failure[state], edgeChars[state][i]);
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * @param dictionary keywords and the values they stand for
+     */
+    public static <T> KeywordMatcher<T> of(Map<String, T> dictionary) {
+        return new KeywordMatcher<>(dictionary);
+    }
+
+    public int size() {
+        return keywords.length;
+    }
+
+    /**
+     * The distinct values of the keywords found in the text, in order of first occurrence
+     */
+    public Set<T> findAll(CharSequence text) {
+        Set<T> found = new LinkedHashSet<>();
+        boolean[] matched = new boolean[keywords.length];
+        int state = ROOT;
+        for (int end = 0; end < text.length(); end++) {
+            state = next(state, fold(text.charAt(end)));
+            for (int keyword : outputs[state]) {
+                if (!matched[keyword] && isWholeWord(text, keyword, end + 1)) {
+                    matched[keyword] = true;
+                    found.add(values.get(keyword));
+                }
+            }
+        }
+        return found;
+    }
+
+    private int next(int state, char c) {
+        while (true) {
+            int i = Arrays.binarySearch(edgeChars[state], c);
+            if (i >= 0) {
+                return edgeTargets[state][i];
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = failure[state];
+        }
+    }
+
+    /**
+     * Whether {@code \b} holds before the keyword and after it, as a regex would check it
+     */
+    private boolean isWholeWord(CharSequence text, int keyword, int end) {
+        String word = keywords[keyword];
+        int start = end - word.length();
+        boolean before = start > 0 && isWordChar(text.charAt(start - 1));
+        boolean after = end < text.length() && isWordChar(text.charAt(end));
+        return before != isWordChar(word.charAt(0)) && after != isWordChar(word.charAt(word.length() - 1));
+    }
+
+    // java.util.regex \w without UNICODE_CHARACTER_CLASS
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    // CASE_INSENSITIVE without UNICODE_CASE folds ASCII letters only
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static int[] concat(int[] first, int[] second) {
+        int[] all = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+}
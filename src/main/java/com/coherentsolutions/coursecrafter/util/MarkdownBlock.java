@@ -0,0 +1,97 @@
+package com.coherentsolutions.coursecrafter.util;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A heading-delimited block of a course markdown file, described purely by offsets
+ * into the scanned text. Nothing is copied out of the text until a caller asks
+ * for a title, body or full block.
+ */
+@Getter
+public class MarkdownBlock {
+
+    public enum Kind {
+        COURSE, LECTURE, SECTION, TOPIC, SLIDE, COMPONENT
+    }
+
+    private final Kind kind;
+    private final int start;        // start of the header line
+    private final int titleStart;
+    private final int titleEnd;
+    private final int bodyStart;    // first char after the header line terminator
+    private final int seqStart;     // digits of [seq:NNN] for slides, -1 otherwise
+    private final int seqEnd;
+    private final String componentType; // SCRIPT/VISUAL/NOTES/DEMONSTRATION for components
+    private final List<MarkdownBlock> children = new ArrayList<>();
+    private int end = -1;           // exclusive; start of the line that closed this block
+
+    MarkdownBlock(Kind kind, int start, int titleStart, int titleEnd, int bodyStart,
+                  int seqStart, int seqEnd, String componentType) {
+        this.kind = kind;
+        this.start = start;
+        this.titleStart = titleStart;
+        this.titleEnd = titleEnd;
+        this.bodyStart = bodyStart;
+        this.seqStart = seqStart;
+        this.seqEnd = seqEnd;
+        this.componentType = componentType;
+    }
+
+    void close(int end) {
+        this.end = end;
+    }
+
+    public String title(CharSequence text) {
+        return text.subSequence(titleStart, titleEnd).toString();
+    }
+
+    /**
+     * Raw sequence digits of a slide header, e.g. "010"
+     */
+    public String seqText(CharSequence text) {
+        return seqStart < 0 ? null : text.subSequence(seqStart, seqEnd).toString();
+    }
+
+    public String headerLine(CharSequence text) {
+        return text.subSequence(start, titleEnd).toString();
+    }
+
+    /**
+     * Header line plus body, trimmed - what the old regex parser stored as markdownContent
+     */
+    public String fullBlock(CharSequence text) {
+        return trimmed(text, start, end);
+    }
+
+    /**
+     * Header line plus the text up to the first child block, trimmed. This is what a container
+     * (course, lecture, section, topic) stores, so an edit below it leaves its row unchanged.
+     */
+    public String ownText(CharSequence text) {
+        return trimmed(text, start, children.isEmpty() ? end : children.get(0).getStart());
+    }
+
+    /**
+     * Everything after the header line, trimmed
+     */
+    public String body(CharSequence text) {
+        return trimmed(text, bodyStart, end);
+    }
+
+    public List<MarkdownBlock> childrenOfKind(Kind childKind) {
+        return children.stream().filter(child -> child.kind == childKind).toList();
+    }
+
+    private static String trimmed(CharSequence text, int from, int to) {
+        while (from < to && text.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && text.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        return text.subSequence(from, to).toString();
+    }
+}
@@ -3,29 +3,24 @@ package com.coherentsolutions.coursecrafter.util;
 import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
 import com.coherentsolutions.coursecrafter.domain.content.repository.ContentNodeRepository;
 import com.coherentsolutions.coursecrafter.domain.content.service.ContentNodeService;
+import com.coherentsolutions.coursecrafter.domain.content.service.ContentHashes;
+import com.coherentsolutions.coursecrafter.domain.content.service.CourseTreeSyncService;
 import com.coherentsolutions.coursecrafter.domain.slide.model.SlideComponent;
 import com.coherentsolutions.coursecrafter.domain.slide.repository.SlideComponentRepository;
 import com.coherentsolutions.coursecrafter.domain.slide.service.SlideComponentService;
-import lombok.AllArgsConstructor;
-import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter; // Keep if SectionInfo is used, otherwise remove
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Comparator; // Keep if SectionInfo is used, otherwise remove
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
-import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
@@ -38,40 +33,55 @@ public class MarkdownCourseParser {
     private final SlideComponentRepository slideComponentRepository;
 
     /**
-     * Parse a markdown file and create the entire course hierarchy
+     * Parse a markdown file and create the entire course hierarchy.
+     * The file is scanned once by {@link MarkdownCourseScanner}; only titles and the
+     * markdown stored on each node are copied out of the file text.
      */
     public void parseFile(Path filePath) throws IOException, InterruptedException {
+        parse(filePath, new RepositorySink());
+    }
+
+    /**
+     * Parse a markdown file into an unsaved ContentNode/SlideComponent graph without touching
+     * the database. Lectures are attached to the course with the same title in {@code courses},
+     * so several lecture files end up under one root. Every node and component carries its
+     * content hash; persist or diff the roots with {@link CourseTreeSyncService}. Lectures,
+     * sections and topics hold only their own text ({@link MarkdownBlock#ownText}), so an edited
+     * slide changes the hash of that slide alone.
+     *
+     * @return the course root the file was parsed into, or null if the file has no H1
+     */
+    public ContentNode parseFileToGraph(Path filePath, Map<String, ContentNode> courses) throws IOException, InterruptedException {
+        return parse(filePath, new GraphSink(courses));
+    }
+
+    private ContentNode parse(Path filePath, NodeSink sink) throws IOException, InterruptedException {
         log.info("Parsing markdown file: {}", filePath.getFileName());
-        String fullFileContent = Files.readString(filePath);
+        CharSequence text = MarkdownCourseScanner.read(filePath);
 
-        log.debug("==================== FILE CONTENT (First 500 chars) ====================");
-        log.debug(fullFileContent.substring(0, Math.min(fullFileContent.length(), 500)));
-        log.debug("========================================================================");
+        if (log.isDebugEnabled()) {
+            log.debug("==================== FILE CONTENT (First 500 chars) ====================");
+            log.debug(text.subSequence(0, Math.min(text.length(), 500)).toString());
+            log.debug("========================================================================");
+        }
 
-        // Parse course
-        Matcher courseMatcher = MarkdownPatterns.COURSE_PATTERN.matcher(fullFileContent);
-        if (!courseMatcher.find()) {
+        MarkdownBlock courseBlock = MarkdownCourseScanner.outline(text);
+        if (courseBlock == null) {
             log.error("No course (H1) found in file: {}", filePath);
-            return;
+            return null;
         }
-        String courseTitle = courseMatcher.group(1).trim();
-        ContentNode courseNode = getOrCreateCourseNode(courseTitle, courseMatcher.group(0)); // group(0) is the full H1 line
+        String courseTitle = courseBlock.title(text);
+        ContentNode courseNode = getOrCreateCourseNode(sink, courseTitle, courseBlock.headerLine(text));
 
-        // Content for lectures is everything after the H1 course title
-        String lecturesAndBelowContent = fullFileContent.substring(courseMatcher.end());
-        parseLectures(lecturesAndBelowContent, courseNode);
+        parseLectures(text, sink, courseBlock, courseNode);
 
         // Handle slides directly under the course (if any, after all lectures are processed)
-        String directCourseContent = extractContentNotCoveredByChildren(
-                lecturesAndBelowContent, MarkdownPatterns.LECTURE_PATTERN
-        );
-        if (!directCourseContent.trim().isEmpty()) {
-            parseDirectSlides(directCourseContent, courseNode, "course");
-        }
+        parseDirectSlides(text, sink, courseBlock.childrenOfKind(MarkdownBlock.Kind.SLIDE), courseNode, "course");
+        return courseNode;
     }
 
-    private ContentNode getOrCreateCourseNode(String courseTitle, String courseMarkdownContent) throws IOException, InterruptedException {
-        Optional<ContentNode> existingCourse = contentNodeRepository.findByNodeTypeAndTitle(ContentNode.NodeType.COURSE, courseTitle);
+    private ContentNode getOrCreateCourseNode(NodeSink sink, String courseTitle, String courseMarkdownContent) throws IOException, InterruptedException {
+        Optional<ContentNode> existingCourse = sink.findCourse(courseTitle);
         if (existingCourse.isPresent()) {
             log.info("Found existing course: {} (ID: {})", courseTitle, existingCourse.get().getId());
             return existingCourse.get();
@@ -82,61 +92,16 @@ public class MarkdownCourseParser {
                 .nodeType(ContentNode.NodeType.COURSE)
                 .title(courseTitle)
                 .displayOrder(1)
-                .path("Course/" + UUID.randomUUID().toString().substring(0, 8))
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
-        return contentNodeService.createNode(courseNode, courseMarkdownContent, "Initial course creation");
-    }
-
-    private String extractContentNotCoveredByChildren(String parentContent, Pattern childHeaderPattern) {
-        StringBuilder trulyDirectContent = new StringBuilder();
-        Matcher childMatcher = childHeaderPattern.matcher(parentContent);
-        int lastChildBlockEnd = 0;
-
-        List<MatchResult> childMatches = childMatcher.results().collect(Collectors.toList());
-
-        if (childMatches.isEmpty()) {
-            return parentContent.trim(); // All content is direct
-        }
-
-        for (int i = 0; i < childMatches.size(); i++) {
-            MatchResult currentChildMatchResult = childMatches.get(i);
-            int childBlockActualStart = currentChildMatchResult.start(); // Start of the header line itself
-
-            // Append content that was *before* the current child's header
-            if (childBlockActualStart > lastChildBlockEnd) {
-                trulyDirectContent.append(parentContent, lastChildBlockEnd, childBlockActualStart);
-            }
-
-            // Determine where this child's *entire block content* ends
-            int childBlockContentEnd;
-            if (i + 1 < childMatches.size()) {
-                childBlockContentEnd = childMatches.get(i + 1).start(); // Ends where next sibling's header starts
-            } else {
-                childBlockContentEnd = parentContent.length(); // Last child, so its block goes to end of parent's content
-            }
-            lastChildBlockEnd = childBlockContentEnd; // Advance pointer past this entire child block
-        }
-
-        // After processing all known child blocks, if there's any content left at the very end of parentContent
-        // that wasn't consumed by the last child block, it would be appended here.
-        // However, given extractBlocks() logic, the last child block should always consume up to parentContent.length().
-        // So, this final append might not be strictly needed if all blocks are perfectly contiguous.
-        // But it's safer to keep it if there could be trailing text after the last recognized block.
-        if (lastChildBlockEnd < parentContent.length()) {
-            trulyDirectContent.append(parentContent.substring(lastChildBlockEnd));
-        }
-
-        return trulyDirectContent.toString().trim();
+        return sink.create(courseNode, courseMarkdownContent, "Initial course creation");
     }
 
-    private void parseLectures(String courseContent, ContentNode courseNode) throws IOException, InterruptedException {
-        List<Block> lectureBlocks = extractBlocks(courseContent, MarkdownPatterns.LECTURE_PATTERN);
-
+    private void parseLectures(CharSequence text, NodeSink sink, MarkdownBlock courseBlock, ContentNode courseNode) throws IOException, InterruptedException {
         // int lectureCounter = 1; // If lecture numbers cannot be reliably extracted from titles
-        for (Block lectureBlock : lectureBlocks) {
-            String lectureTitle = lectureBlock.getTitle().trim();
+        for (MarkdownBlock lectureBlock : courseBlock.childrenOfKind(MarkdownBlock.Kind.LECTURE)) {
+            String lectureTitle = lectureBlock.title(text);
             log.debug("Processing Lecture Title: {}", lectureTitle);
 
             int lectureNumberFromTitle = extractLectureNumber(lectureTitle); // Existing good method
@@ -149,22 +114,15 @@ public class MarkdownCourseParser {
                     .parent(courseNode)
                     .title(lectureTitle)
                     .displayOrder(displayOrder)
-                    // Use the extracted number for the path
-                    .path(courseNode.getPath() + "/Lecture/" + lectureNumberFromTitle) // MODIFIED
                     .createdAt(LocalDateTime.now())
                     .updatedAt(LocalDateTime.now())
                     .build();
-            lectureNode = contentNodeService.createNode(lectureNode, lectureBlock.getFullBlockContent(), "Created lecture: " + lectureTitle);
-            log.info("Created lecture: {} with order {} and path {}", lectureTitle, displayOrder, lectureNode.getPath()); // Log path
+            lectureNode = sink.create(lectureNode, lectureBlock.ownText(text), "Created lecture: " + lectureTitle);
+            log.info("Created lecture: {} with order {}", lectureTitle, displayOrder);
 
-            parseSections(lectureBlock.getContentWithinBlock(), lectureNode);
+            parseSections(text, sink, lectureBlock, lectureNode);
 
-            String directLectureContent = extractContentNotCoveredByChildren(
-                    lectureBlock.getContentWithinBlock(), MarkdownPatterns.SECTION_PATTERN
-            );
-            if (!directLectureContent.trim().isEmpty()) {
-                parseDirectSlides(directLectureContent, lectureNode, "lecture");
-            }
+            parseDirectSlides(text, sink, lectureBlock.childrenOfKind(MarkdownBlock.Kind.SLIDE), lectureNode, "lecture");
             // lectureCounter++;
         }
     }
@@ -179,12 +137,11 @@ public class MarkdownCourseParser {
         return 1;
     }
 
-    private void parseSections(String lectureContent, ContentNode lectureNode) throws IOException, InterruptedException {
-        List<Block> sectionBlocks = extractBlocks(lectureContent, MarkdownPatterns.SECTION_PATTERN);
+    private void parseSections(CharSequence text, NodeSink sink, MarkdownBlock lectureBlock, ContentNode lectureNode) throws IOException, InterruptedException {
         int sectionOrder = 10; // Fallback order if no number in title
 
-        for (Block sectionBlock : sectionBlocks) {
-            String sectionTitle = sectionBlock.getTitle().trim();
+        for (MarkdownBlock sectionBlock : lectureBlock.childrenOfKind(MarkdownBlock.Kind.SECTION)) {
+            String sectionTitle = sectionBlock.title(text);
             log.debug("Processing Section Title: {}", sectionTitle);
 
             int currentLectureNumber = extractLectureNumber(lectureNode.getTitle()); // e.g., 1 for "Lecture 1"
@@ -217,7 +174,7 @@ public class MarkdownCourseParser {
 
 
             String normalizedTitle = normalizeTitle(sectionTitle); // normalizeTitle strips leading numbers
-            if (isDuplicateChild(lectureNode, normalizedTitle, ContentNode.NodeType.SECTION)) {
+            if (isDuplicateChild(sink, lectureNode, normalizedTitle, ContentNode.NodeType.SECTION)) {
                 log.info("Skipping duplicate section: {}", sectionTitle);
                 sectionOrder += 10; // still increment for next non-duplicate
                 continue;
@@ -229,31 +186,24 @@ public class MarkdownCourseParser {
                     .title(sectionTitle) // Store full title
                     .nodeNumber(finalSectionNodeNumber)
                     .displayOrder(sectionOrder) // This order is within the lecture
-                    .path(lectureNode.getPath() + "/Section/" + finalSectionNodeNumber.replace(".", "_"))
                     .createdAt(LocalDateTime.now())
                     .updatedAt(LocalDateTime.now())
                     .build();
-            sectionNode = contentNodeService.createNode(sectionNode, sectionBlock.getFullBlockContent(), "Created section: " + sectionTitle);
+            sectionNode = sink.create(sectionNode, sectionBlock.ownText(text), "Created section: " + sectionTitle);
             log.info("Created section: '{}' with order {} and number {}", sectionTitle, sectionOrder, sectionNode.getNodeNumber());
 
-            parseTopics(sectionBlock.getContentWithinBlock(), sectionNode);
+            parseTopics(text, sink, sectionBlock, sectionNode);
 
-            String directSectionContent = extractContentNotCoveredByChildren(
-                    sectionBlock.getContentWithinBlock(), MarkdownPatterns.TOPIC_PATTERN
-            );
-            if (!directSectionContent.trim().isEmpty()) {
-                parseDirectSlides(directSectionContent, sectionNode, "section");
-            }
+            parseDirectSlides(text, sink, sectionBlock.childrenOfKind(MarkdownBlock.Kind.SLIDE), sectionNode, "section");
             sectionOrder += 10;
         }
     }
 
-    private void parseTopics(String sectionContent, ContentNode sectionNode) throws IOException, InterruptedException {
-        List<Block> topicBlocks = extractBlocks(sectionContent, MarkdownPatterns.TOPIC_PATTERN);
+    private void parseTopics(CharSequence text, NodeSink sink, MarkdownBlock sectionBlock, ContentNode sectionNode) throws IOException, InterruptedException {
         int topicOrder = 10;
 
-        for (Block topicBlock : topicBlocks) {
-            String topicTitle = topicBlock.getTitle().trim();
+        for (MarkdownBlock topicBlock : sectionBlock.childrenOfKind(MarkdownBlock.Kind.TOPIC)) {
+            String topicTitle = topicBlock.title(text);
             log.debug("Processing Topic Title: '{}' under section '{}' ({})", topicTitle, sectionNode.getTitle(), sectionNode.getNodeNumber());
 
             String sectionNodeNumber = sectionNode.getNodeNumber();
@@ -290,7 +240,7 @@ public class MarkdownCourseParser {
 
 
             String normalizedTitle = normalizeTitle(topicTitle); // normalizeTitle strips all leading numbers
-            if (isDuplicateChild(sectionNode, normalizedTitle, ContentNode.NodeType.TOPIC)) {
+            if (isDuplicateChild(sink, sectionNode, normalizedTitle, ContentNode.NodeType.TOPIC)) {
                 log.info("Skipping duplicate topic with normalized title: '{}' under parent {}", normalizedTitle, sectionNode.getTitle());
                 topicOrder += 10;
                 continue;
@@ -302,41 +252,30 @@ public class MarkdownCourseParser {
                     .title(topicTitle)
                     .nodeNumber(finalTopicNodeNumber)
                     .displayOrder(topicOrder)
-                    .path(sectionNode.getPath() + "/Topic/" + finalTopicNodeNumber.replace(".", "_"))
                     .createdAt(LocalDateTime.now())
                     .updatedAt(LocalDateTime.now())
                     .build();
-            topicNode = contentNodeService.createNode(topicNode, topicBlock.getFullBlockContent(), "Created topic: " + topicTitle);
+            topicNode = sink.create(topicNode, topicBlock.ownText(text), "Created topic: " + topicTitle);
             log.info("Created topic: '{}' with order {} and number {}", topicTitle, topicOrder, topicNode.getNodeNumber());
 
-            parseSlides(topicBlock.getContentWithinBlock(), topicNode);
-
-            String directTopicContent = extractContentNotCoveredByChildren(
-                    topicBlock.getContentWithinBlock(), MarkdownPatterns.SLIDE_PATTERN
-            );
-            if(!directTopicContent.trim().isEmpty()){
-                log.debug("Topic '{}' has direct content not part of any slide (first 50 chars): '{}'", topicTitle, directTopicContent.substring(0, Math.min(directTopicContent.length(), 50)));
-            }
+            parseSlides(text, sink, topicBlock.childrenOfKind(MarkdownBlock.Kind.SLIDE), topicNode);
             topicOrder += 10;
         }
     }
 
-    private void parseSlides(String parentBlockContent, ContentNode parentNode) throws IOException, InterruptedException { // MODIFIED: param name
-        Matcher slideMatcher = MarkdownPatterns.SLIDE_PATTERN.matcher(parentBlockContent); // MODIFIED: use parentBlockContent
-        log.debug("Parsing slides for parent: {} ({}) within content length: {}", parentNode.getTitle(), parentNode.getNodeType(), parentBlockContent.length());
+    private void parseSlides(CharSequence text, NodeSink sink, List<MarkdownBlock> slideBlocks, ContentNode parentNode) throws IOException, InterruptedException {
+        log.debug("Parsing {} slides for parent: {} ({})", slideBlocks.size(), parentNode.getTitle(), parentNode.getNodeType());
 
-        while (slideMatcher.find()) {
-            String seqNumber = slideMatcher.group(1).trim();
-            String slideTitle = slideMatcher.group(2).trim();
-            String slideBodyContent = slideMatcher.group(3) != null ? slideMatcher.group(3).trim() : ""; // Group 3 is the content
-            String fullSlideMarkdown = slideMatcher.group(0).trim();
+        for (MarkdownBlock slideBlock : slideBlocks) {
+            String seqNumber = slideBlock.seqText(text);
+            String slideTitle = slideBlock.title(text);
+            String fullSlideMarkdown = slideBlock.fullBlock(text);
 
-            log.debug("Found Slide candidate: seq={}, title='{}', content length={}", seqNumber, slideTitle, slideBodyContent.length());
+            log.debug("Found Slide candidate: seq={}, title='{}', block length={}", seqNumber, slideTitle, slideBlock.getEnd() - slideBlock.getStart());
 
             int displayOrder = Integer.parseInt(seqNumber);
 
-            // CHANGED: Use findByParentIdOrderByDisplayOrder
-            boolean slideExists = contentNodeRepository.findByParentIdOrderByDisplayOrder(parentNode.getId()).stream()
+            boolean slideExists = sink.children(parentNode).stream()
                     .anyMatch(existingSlide -> existingSlide.getNodeType() == ContentNode.NodeType.SLIDE &&
                             existingSlide.getTitle().equals(slideTitle) &&
                             existingSlide.getDisplayOrder() == displayOrder);
@@ -362,35 +301,28 @@ public class MarkdownCourseParser {
                     .title(slideTitle)
                     .nodeNumber(slideNodeNumber)
                     .displayOrder(displayOrder)
-                    .path(parentNode.getPath() + "/Slide/" + seqNumber)
                     .createdAt(LocalDateTime.now())
                     .updatedAt(LocalDateTime.now())
                     .build();
 
             try {
-                slideNode = contentNodeService.createNode(slideNode, fullSlideMarkdown, "Created slide: " + slideTitle);
+                slideNode = sink.create(slideNode, fullSlideMarkdown, "Created slide: " + slideTitle);
                 log.info("Created slide: '{}' with sequence {} and number {}", slideTitle, seqNumber, slideNode.getNodeNumber());
-                processSlideComponents(slideBodyContent, slideNode); // PASS slideBodyContent HERE
+                processSlideComponents(text, sink, slideBlock, slideNode);
             } catch (Exception e) {
                 log.error("Failed to create slide '{}' or its components: {}", slideTitle, e.getMessage(), e);
             }
         }
     }
 
-    private void processSlideComponents(String slideBodyContent, ContentNode slideNode) {
-        if (slideBodyContent == null || slideBodyContent.trim().isEmpty()) {
-            log.debug("No body content to process for components in slide: {}", slideNode.getTitle());
-            return;
-        }
-        log.debug("Processing components for slide: '{}' with content length: {}", slideNode.getTitle(), slideBodyContent.length());
-        Matcher componentMatcher = MarkdownPatterns.COMPONENT_PATTERN.matcher(slideBodyContent);
-        int componentCount = 0;
+    private void processSlideComponents(CharSequence text, NodeSink sink, MarkdownBlock slideBlock, ContentNode slideNode) {
+        List<MarkdownBlock> componentBlocks = slideBlock.childrenOfKind(MarkdownBlock.Kind.COMPONENT);
+        log.debug("Processing components for slide: '{}' ({} component headers)", slideNode.getTitle(), componentBlocks.size());
 
-        while (componentMatcher.find()) {
-            componentCount++;
-            String componentTypeStr = componentMatcher.group(1).trim().toUpperCase();
+        for (MarkdownBlock componentBlock : componentBlocks) {
+            String componentTypeStr = componentBlock.getComponentType();
 
-            String componentContent = componentMatcher.group(2) != null ? componentMatcher.group(2).trim() : "";
+            String componentContent = componentBlock.body(text);
 
             log.debug("Extractor: Found component type='{}', extracted content length={}. Preview: '{}'",
                     componentTypeStr,
@@ -407,17 +339,14 @@ public class MarkdownCourseParser {
 
             // Check if this specific component already exists (relevant for SlideComponentExtractor)
             // For MarkdownCourseParser, this check might not be strictly needed if it's the first population.
-            if (slideComponentRepository != null) { // slideComponentRepository might be null if called from context without it
-                boolean componentExists = slideComponentRepository.findBySlideIdAndType(slideNode.getId(), componentType).isPresent();
-                if (componentExists) {
-                    log.debug("Component {} for slide '{}' already exists. Skipping creation by this parser/extractor.", componentType, slideNode.getTitle());
-                    continue;
-                }
+            if (sink.componentExists(slideNode, componentType)) {
+                log.debug("Component {} for slide '{}' already exists. Skipping creation by this parser/extractor.", componentType, slideNode.getTitle());
+                continue;
             }
 
             try {
                 // Pass the correctly extracted componentContent (the actual text)
-                slideComponentService.createComponent(slideNode.getId(), componentType, componentContent);
+                sink.createComponent(slideNode, componentType, componentContent);
                 log.info("Created {} component for slide: {}", componentType, slideNode.getTitle());
             } catch (Exception e) {
                 log.error("Failed to create component {} for slide {}: {}",
@@ -425,65 +354,48 @@ public class MarkdownCourseParser {
             }
         }
 
-        if (componentCount == 0) {
+        if (componentBlocks.isEmpty()) {
+            String slideBodyContent = slideBlock.body(text);
             log.debug("No H6 components found in slide '{}'. Slide body length: {}", slideNode.getTitle(), slideBodyContent.length());
-            if (!slideBodyContent.trim().isEmpty() && !slideBodyContent.contains("######")) {
+            if (!slideBodyContent.isEmpty() && !slideBodyContent.contains("######")) {
                 log.warn("Slide '{}' has content but no H6 components. This content might be lost if not stored elsewhere: '{}'",
                         slideNode.getTitle(), slideBodyContent.substring(0, Math.min(slideBodyContent.length(),100)));
             }
-        } else {
-            log.debug("Found {} components in slide '{}'", componentCount, slideNode.getTitle());
         }
     }
 
-    private void parseDirectSlides(String directParentContent, ContentNode parentNode, String parentContext) throws IOException, InterruptedException {
-        if (directParentContent == null || directParentContent.trim().isEmpty()) {
+    private void parseDirectSlides(CharSequence text, NodeSink sink, List<MarkdownBlock> directSlides, ContentNode parentNode, String parentContext) throws IOException, InterruptedException {
+        if (directSlides.isEmpty()) {
+            log.debug("No direct slides found for parent {} ({}) in context '{}'", parentNode.getTitle(), parentNode.getNodeType(), parentContext);
             return;
         }
-        log.debug("Parsing direct slides for parent {} ({}) in context '{}' with content length: {}",
-                parentNode.getTitle(), parentNode.getNodeType(), parentContext, directParentContent.length());
-
-        Matcher slideMatcher = MarkdownPatterns.SLIDE_PATTERN.matcher(directParentContent);
-        List<SlideData> directSlidesData = new ArrayList<>();
-
-        while (slideMatcher.find()) {
-            String seqNumber = slideMatcher.group(1).trim();
-            String slideTitle = slideMatcher.group(2).trim();
-            String slideBodyContent = slideMatcher.group(3) != null ? slideMatcher.group(3).trim() : "";
-            directSlidesData.add(new SlideData(slideTitle, seqNumber, slideBodyContent, slideMatcher.group(0).trim()));
-        }
 
-        if (!directSlidesData.isEmpty()) {
-            log.info("Found {} direct slides under {} ({}) in context '{}' that need implicit containers",
-                    directSlidesData.size(), parentNode.getTitle(), parentNode.getNodeType(), parentContext);
+        log.info("Found {} direct slides under {} ({}) in context '{}' that need implicit containers",
+                directSlides.size(), parentNode.getTitle(), parentNode.getNodeType(), parentContext);
 
-            ContentNode actualParentForDirectSlides = createImplicitContainersIfNeeded(parentNode);
+        ContentNode actualParentForDirectSlides = createImplicitContainersIfNeeded(sink, parentNode);
 
-            for (SlideData slideData : directSlidesData) {
-                processSingleDirectSlide(actualParentForDirectSlides, slideData);
-            }
-        } else {
-            log.debug("No direct slides found for parent {} ({}) in context '{}'", parentNode.getTitle(), parentNode.getNodeType(), parentContext);
+        for (MarkdownBlock slideBlock : directSlides) {
+            processSingleDirectSlide(text, sink, actualParentForDirectSlides, slideBlock);
         }
     }
 
-    private ContentNode createImplicitContainersIfNeeded(ContentNode parentNode) throws IOException, InterruptedException {
+    private ContentNode createImplicitContainersIfNeeded(NodeSink sink, ContentNode parentNode) throws IOException, InterruptedException {
         ContentNode currentParent = parentNode;
 
         if (currentParent.getNodeType() == ContentNode.NodeType.COURSE ||
                 currentParent.getNodeType() == ContentNode.NodeType.LECTURE) {
-            currentParent = getOrCreateImplicitChild(currentParent, ContentNode.NodeType.SECTION, "Implicit Section", "/Section/implicit_section");
+            currentParent = getOrCreateImplicitChild(sink, currentParent, ContentNode.NodeType.SECTION, "Implicit Section");
         }
 
         if (currentParent.getNodeType() != ContentNode.NodeType.TOPIC) {
-            currentParent = getOrCreateImplicitChild(currentParent, ContentNode.NodeType.TOPIC, "Implicit Topic", "/Topic/implicit_topic");
+            currentParent = getOrCreateImplicitChild(sink, currentParent, ContentNode.NodeType.TOPIC, "Implicit Topic");
         }
         return currentParent;
     }
 
-    private ContentNode getOrCreateImplicitChild(ContentNode parent, ContentNode.NodeType childType, String childTitle, String pathSegment) throws IOException, InterruptedException {
-        // CHANGED: Use findByParentIdOrderByDisplayOrder
-        Optional<ContentNode> existingImplicitChild = contentNodeRepository.findByParentIdOrderByDisplayOrder(parent.getId()).stream()
+    private ContentNode getOrCreateImplicitChild(NodeSink sink, ContentNode parent, ContentNode.NodeType childType, String childTitle) throws IOException, InterruptedException {
+        Optional<ContentNode> existingImplicitChild = sink.children(parent).stream()
                 .filter(node -> node.getNodeType() == childType && node.getTitle().equals(childTitle))
                 .findFirst();
 
@@ -492,8 +404,7 @@ public class MarkdownCourseParser {
             return existingImplicitChild.get();
         }
 
-        // CHANGED: Use findByParentIdOrderByDisplayOrder
-        long existingChildrenOfTypeCount = contentNodeRepository.findByParentIdOrderByDisplayOrder(parent.getId()).stream()
+        long existingChildrenOfTypeCount = sink.children(parent).stream()
                 .filter(n -> n.getNodeType() == childType).count();
         int displayOrder = (int) (existingChildrenOfTypeCount) * 10 + 5; // Implicit nodes get order like 5, 15, 25...
 
@@ -515,94 +426,55 @@ public class MarkdownCourseParser {
                 .title(childTitle)
                 .nodeNumber(childNodeNumber)
                 .displayOrder(displayOrder)
-                .path(parent.getPath() + pathSegment)
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
 
-        implicitChild = contentNodeService.createNode(implicitChild,
+        implicitChild = sink.create(implicitChild,
                 "###### " + childType.toString() + "\nAuto-generated " + childType.toString().toLowerCase() + " for slides without explicit parent.",
                 "Created implicit " + childType.toString().toLowerCase());
         log.info("Created implicit {}: {} under {}", childType, childTitle, parent.getTitle());
         return implicitChild;
     }
 
-    private void processSingleDirectSlide(ContentNode parentForSlide, SlideData slideData) throws IOException, InterruptedException {
-        int displayOrder = Integer.parseInt(slideData.getSeqNumber());
+    private void processSingleDirectSlide(CharSequence text, NodeSink sink, ContentNode parentForSlide, MarkdownBlock slideBlock) throws IOException, InterruptedException {
+        String seqNumber = slideBlock.seqText(text);
+        String slideTitle = slideBlock.title(text);
+        int displayOrder = Integer.parseInt(seqNumber);
 
-        // CHANGED: Use findByParentIdOrderByDisplayOrder
-        boolean slideExists = contentNodeRepository.findByParentIdOrderByDisplayOrder(parentForSlide.getId()).stream()
+        boolean slideExists = sink.children(parentForSlide).stream()
                 .anyMatch(existingSlide -> existingSlide.getNodeType() == ContentNode.NodeType.SLIDE &&
-                        existingSlide.getTitle().equals(slideData.getTitle()) &&
+                        existingSlide.getTitle().equals(slideTitle) &&
                         existingSlide.getDisplayOrder() == displayOrder);
         if (slideExists) {
             log.info("Direct slide '{}' with sequence {} under parent '{}' already exists, skipping.",
-                    slideData.getTitle(), slideData.getSeqNumber(), parentForSlide.getTitle());
+                    slideTitle, seqNumber, parentForSlide.getTitle());
             return;
         }
 
         String slideNodeNumber;
         String parentNodeNumber = parentForSlide.getNodeNumber();
         if (parentNodeNumber != null && !parentNodeNumber.isEmpty()) {
-            slideNodeNumber = parentNodeNumber + "." + slideData.getSeqNumber();
+            slideNodeNumber = parentNodeNumber + "." + seqNumber;
         } else {
-            slideNodeNumber = "ImplicitParent." + slideData.getSeqNumber();
+            slideNodeNumber = "ImplicitParent." + seqNumber;
         }
 
         ContentNode slideNode = ContentNode.builder()
                 .nodeType(ContentNode.NodeType.SLIDE)
                 .parent(parentForSlide)
-                .title(slideData.getTitle())
+                .title(slideTitle)
                 .nodeNumber(slideNodeNumber)
                 .displayOrder(displayOrder)
-                .path(parentForSlide.getPath() + "/Slide/" + slideData.getSeqNumber())
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
         try {
-            slideNode = contentNodeService.createNode(slideNode, slideData.getFullMarkdown(), "Created direct slide: " + slideData.getTitle());
-            log.info("Created direct slide: '{}' with sequence {} under {}", slideData.getTitle(), slideData.getSeqNumber(), parentForSlide.getTitle());
-            processSlideComponents(slideData.getBodyContent(), slideNode);
+            slideNode = sink.create(slideNode, slideBlock.fullBlock(text), "Created direct slide: " + slideTitle);
+            log.info("Created direct slide: '{}' with sequence {} under {}", slideTitle, seqNumber, parentForSlide.getTitle());
+            processSlideComponents(text, sink, slideBlock, slideNode);
         } catch (Exception e) {
-            log.error("Error creating direct slide {}: {}", slideData.getTitle(), e.getMessage(), e);
-        }
-    }
-
-    private List<Block> extractBlocks(String parentContent, Pattern blockPattern) { // MODIFIED: Removed siblingBlockPattern
-        List<Block> blocks = new ArrayList<>();
-        Matcher matcher = blockPattern.matcher(parentContent);
-        List<MatchResult> matches = matcher.results().collect(Collectors.toList());
-
-        for (int i = 0; i < matches.size(); i++) {
-            MatchResult currentMatch = matches.get(i);
-            String title = currentMatch.group(1).trim();
-
-            int contentStartOffset = currentMatch.end();
-            int blockEndOffset; // End of the full block (including header of next block)
-
-            if (i + 1 < matches.size()) {
-                blockEndOffset = matches.get(i + 1).start();
-            } else {
-                blockEndOffset = parentContent.length();
-            }
-
-            String fullBlockContent = parentContent.substring(currentMatch.start(), blockEndOffset).trim();
-            String contentWithinBlock = parentContent.substring(contentStartOffset, blockEndOffset).trim(); // Content for children is up to next sibling's header
-            blocks.add(new Block(title, contentWithinBlock, fullBlockContent));
-        }
-        return blocks;
-    }
-
-    @Getter
-    private static class Block {
-        private final String title;
-        private final String contentWithinBlock;
-        private final String fullBlockContent;
-
-        public Block(String title, String contentWithinBlock, String fullBlockContent) {
-            this.title = title;
-            this.contentWithinBlock = contentWithinBlock;
-            this.fullBlockContent = fullBlockContent;
+            log.error("Error creating direct slide {}: {}", slideTitle, e.getMessage(), e);
         }
     }
 
@@ -638,30 +510,128 @@ public class MarkdownCourseParser {
         return "0";
     }
 
-    private boolean isDuplicateChild(ContentNode parentNode, String normalizedChildTitle, ContentNode.NodeType childType) {
-        // CHANGED: Use findByParentIdOrderByDisplayOrder
-        return contentNodeRepository.findByParentIdOrderByDisplayOrder(parentNode.getId()).stream()
+    private boolean isDuplicateChild(NodeSink sink, ContentNode parentNode, String normalizedChildTitle, ContentNode.NodeType childType) {
+        return sink.children(parentNode).stream()
                 .anyMatch(child -> child.getNodeType() == childType &&
                         normalizeTitle(child.getTitle()).equals(normalizedChildTitle));
     }
 
-    @Getter
-    private static class SlideData {
-        private final String title;
-        private final String seqNumber;
-        private final String bodyContent;
-        private final String fullMarkdown;
+    private String normalizeTitle(String title) {
+        if (title == null) return "";
+        return title.replaceAll("^\\d+(\\.\\d+)*\\.?\\s*", "").trim();
+    }
+
+    /**
+     * Where parsed nodes go: straight to the database, or into an in-memory graph for bulk import
+     */
+    private interface NodeSink {
+        Optional<ContentNode> findCourse(String title);
+
+        List<ContentNode> children(ContentNode parent);
+
+        ContentNode create(ContentNode node, String content, String message) throws IOException, InterruptedException;
+
+        boolean componentExists(ContentNode slide, SlideComponent.ComponentType type);
+
+        void createComponent(ContentNode slide, SlideComponent.ComponentType type, String content);
+    }
+
+    /**
+     * Saves every node and component as soon as it is parsed
+     */
+    private class RepositorySink implements NodeSink {
 
-        SlideData(String title, String seqNumber, String bodyContent, String fullMarkdown) {
-            this.title = title;
-            this.seqNumber = seqNumber;
-            this.bodyContent = bodyContent;
-            this.fullMarkdown = fullMarkdown;
+        @Override
+        public Optional<ContentNode> findCourse(String title) {
+            return contentNodeRepository.findByNodeTypeAndTitle(ContentNode.NodeType.COURSE, title);
+        }
+
+        @Override
+        public List<ContentNode> children(ContentNode parent) {
+            return contentNodeRepository.findByParentIdOrderByDisplayOrder(parent.getId());
+        }
+
+        @Override
+        public ContentNode create(ContentNode node, String content, String message) throws IOException, InterruptedException {
+            return contentNodeService.createNode(node, content, message);
+        }
+
+        @Override
+        public boolean componentExists(ContentNode slide, SlideComponent.ComponentType type) {
+            return slideComponentRepository.findBySlideIdAndType(slide.getId(), type).isPresent();
+        }
+
+        @Override
+        public void createComponent(ContentNode slide, SlideComponent.ComponentType type, String content) {
+            slideComponentService.createComponent(slide.getId(), type, content);
         }
     }
 
-    private String normalizeTitle(String title) {
-        if (title == null) return "";
-        return title.replaceAll("^\\d+(\\.\\d+)*\\.?\\s*", "").trim();
+    /**
+     * Links new nodes into their parent's children list instead of saving them; all ids stay null
+     */
+    private class GraphSink implements NodeSink {
+
+        private final Map<String, ContentNode> courses;
+
+        GraphSink(Map<String, ContentNode> courses) {
+            this.courses = courses;
+        }
+
+        @Override
+        public Optional<ContentNode> findCourse(String title) {
+            return Optional.ofNullable(courses.get(title));
+        }
+
+        @Override
+        public List<ContentNode> children(ContentNode parent) {
+            return parent.getChildren();
+        }
+
+        @Override
+        public ContentNode create(ContentNode node, String content, String message) {
+            if (node.getCreatedAt() == null) {
+                node.setCreatedAt(LocalDateTime.now());
+            }
+            node.setUpdatedAt(LocalDateTime.now());
+
+            // Paths are id-based and assigned by CourseBulkImportService once ids exist
+            ContentNode parent = node.getParent();
+
+            node.setMarkdownContent(content);
+            node.setContentHash(ContentHashes.of(node));
+            node.setChildren(new ArrayList<>());
+            node.setSlideComponents(new ArrayList<>());
+
+            if (parent != null) {
+                parent.getChildren().add(node);
+            } else {
+                courses.put(node.getTitle(), node);
+            }
+            return node;
+        }
+
+        @Override
+        public boolean componentExists(ContentNode slide, SlideComponent.ComponentType type) {
+            return slide.getSlideComponents().stream().anyMatch(c -> c.getComponentType() == type);
+        }
+
+        @Override
+        public void createComponent(ContentNode slide, SlideComponent.ComponentType type, String content) {
+            int maxOrder = slide.getSlideComponents().stream()
+                    .map(SlideComponent::getDisplayOrder)
+                    .max(Integer::compareTo)
+                    .orElse(0);
+            SlideComponent component = SlideComponent.builder()
+                    .slideNode(slide)
+                    .componentType(type)
+                    .content(content)
+                    .displayOrder(maxOrder + 10)
+                    .createdAt(LocalDateTime.now())
+                    .updatedAt(LocalDateTime.now())
+                    .build();
+            component.setContentHash(ContentHashes.of(component));
+            slide.getSlideComponents().add(component);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,233 @@
+package com.coherentsolutions.coursecrafter.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+
+/**
+ * Single-pass, line-oriented scanner for course markdown files.
+ * <p>
+ * Walks the text once, recognises the same headings as {@link MarkdownPatterns}
+ * (H1 course, H2 lecture, H3 section, H4 topic, H5 {@code [seq:NNN]} slide,
+ * H6 SCRIPT/VISUAL/NOTES/DEMONSTRATION component, {@code ---} slide separator)
+ * and reports open/close events carrying offsets only. Block boundaries follow the
+ * old regex parser: a block ends where the next heading of the same or a higher level
+ * starts, and a slide additionally ends at a {@code ---} line or any H1-H4.
+ */
+public final class MarkdownCourseScanner {
+
+    private static final Set<String> COMPONENT_TYPES = Set.of("SCRIPT", "VISUAL", "NOTES", "DEMONSTRATION");
+    private static final String SEQ_PREFIX = "[seq:";
+
+    /**
+     * Receives blocks in document order. {@code onClose} is called once the block's end offset is known.
+     */
+    public interface Listener {
+        void onOpen(MarkdownBlock block);
+
+        void onClose(MarkdownBlock block);
+    }
+
+    private MarkdownCourseScanner() {
+        throw new AssertionError("Utility class should not be instantiated");
+    }
+
+    /**
+     * Reads a markdown file as UTF-8; the scanner and the blocks index into the returned string
+     */
+    public static CharSequence read(Path file) throws IOException {
+        return Files.readString(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Scan the text and return the course block with its full child tree, or null if there is no H1
+     */
+    public static MarkdownBlock outline(CharSequence text) {
+        OutlineBuilder builder = new OutlineBuilder();
+        scan(text, builder);
+        return builder.root;
+    }
+
+    public static void scan(CharSequence text, Listener listener) {
+        Deque<MarkdownBlock> open = new ArrayDeque<>();
+        int length = text.length();
+        int lineStart = 0;
+
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && text.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int nextLine = lineEnd < length ? lineEnd + 1 : length;
+            int contentEnd = trimEnd(text, lineStart, lineEnd);
+
+            scanLine(text, lineStart, contentEnd, nextLine, open, listener);
+            lineStart = nextLine;
+        }
+
+        closeWhile(open, 1, length, listener);
+    }
+
+    private static void scanLine(CharSequence text, int lineStart, int contentEnd, int nextLine,
+                                 Deque<MarkdownBlock> open, Listener listener) {
+        int hashes = 0;
+        while (lineStart + hashes < contentEnd && text.charAt(lineStart + hashes) == '#') {
+            hashes++;
+        }
+
+        if (hashes == 0) {
+            if (open.isEmpty()) {
+                return;
+            }
+            int from = skipBlanks(text, lineStart, contentEnd);
+            if (contentEnd - from == 3 && text.charAt(from) == '-' && text.charAt(from + 1) == '-' && text.charAt(from + 2) == '-') {
+                closeWhile(open, levelOf(MarkdownBlock.Kind.SLIDE), lineStart, listener);
+            }
+            return;
+        }
+
+        int afterHashes = lineStart + hashes;
+        if (afterHashes >= contentEnd || !isBlank(text.charAt(afterHashes))) {
+            return; // "#tag", "#####" with nothing after it, etc.
+        }
+        int titleStart = skipBlanks(text, afterHashes, contentEnd);
+        if (titleStart >= contentEnd) {
+            return;
+        }
+
+        if (hashes == 1) {
+            if (open.isEmpty()) {
+                push(open, new MarkdownBlock(MarkdownBlock.Kind.COURSE, lineStart, titleStart, contentEnd, nextLine, -1, -1, null), listener);
+            } else {
+                closeWhile(open, levelOf(MarkdownBlock.Kind.SLIDE), lineStart, listener);
+            }
+        } else if (hashes <= 4) {
+            if (open.isEmpty()) {
+                return;
+            }
+            closeWhile(open, hashes, lineStart, listener);
+            if (levelOf(open.peek().getKind()) == hashes - 1) {
+                MarkdownBlock.Kind kind = MarkdownBlock.Kind.values()[hashes - 1];
+                push(open, new MarkdownBlock(kind, lineStart, titleStart, contentEnd, nextLine, -1, -1, null), listener);
+            }
+        } else if (hashes == 5) {
+            scanSlideHeader(text, lineStart, titleStart, contentEnd, nextLine, open, listener);
+        } else if (hashes == 6) {
+            scanComponentHeader(text, lineStart, titleStart, contentEnd, nextLine, open, listener);
+        }
+    }
+
+    private static void scanSlideHeader(CharSequence text, int lineStart, int from, int contentEnd, int nextLine,
+                                        Deque<MarkdownBlock> open, Listener listener) {
+        if (open.isEmpty() || !regionMatches(text, from, contentEnd, SEQ_PREFIX)) {
+            return;
+        }
+        int digitsStart = from + SEQ_PREFIX.length();
+        int digitsEnd = digitsStart;
+        while (digitsEnd < contentEnd && Character.isDigit(text.charAt(digitsEnd))) {
+            digitsEnd++;
+        }
+        if (digitsEnd == digitsStart || digitsEnd >= contentEnd || text.charAt(digitsEnd) != ']') {
+            return;
+        }
+        int afterBracket = digitsEnd + 1;
+        if (afterBracket >= contentEnd || !isBlank(text.charAt(afterBracket))) {
+            return;
+        }
+        int titleStart = skipBlanks(text, afterBracket, contentEnd);
+        if (titleStart >= contentEnd) {
+            return;
+        }
+
+        closeWhile(open, levelOf(MarkdownBlock.Kind.SLIDE), lineStart, listener);
+        push(open, new MarkdownBlock(MarkdownBlock.Kind.SLIDE, lineStart, titleStart, contentEnd, nextLine,
+                digitsStart, digitsEnd, null), listener);
+    }
+
+    private static void scanComponentHeader(CharSequence text, int lineStart, int from, int contentEnd, int nextLine,
+                                            Deque<MarkdownBlock> open, Listener listener) {
+        if (open.isEmpty() || levelOf(open.peek().getKind()) < levelOf(MarkdownBlock.Kind.SLIDE)) {
+            return; // components only exist inside a slide
+        }
+        String type = text.subSequence(from, contentEnd).toString();
+        if (!COMPONENT_TYPES.contains(type)) {
+            return;
+        }
+        closeWhile(open, levelOf(MarkdownBlock.Kind.COMPONENT), lineStart, listener);
+        push(open, new MarkdownBlock(MarkdownBlock.Kind.COMPONENT, lineStart, from, contentEnd, nextLine, -1, -1, type), listener);
+    }
+
+    private static void push(Deque<MarkdownBlock> open, MarkdownBlock block, Listener listener) {
+        open.push(block);
+        listener.onOpen(block);
+    }
+
+    private static void closeWhile(Deque<MarkdownBlock> open, int minLevel, int end, Listener listener) {
+        while (!open.isEmpty() && levelOf(open.peek().getKind()) >= minLevel) {
+            MarkdownBlock block = open.pop();
+            block.close(end);
+            listener.onClose(block);
+        }
+    }
+
+    private static int levelOf(MarkdownBlock.Kind kind) {
+        return kind.ordinal() + 1; // COURSE = H1 ... COMPONENT = H6
+    }
+
+    private static boolean regionMatches(CharSequence text, int from, int to, String expected) {
+        if (to - from < expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (text.charAt(from + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipBlanks(CharSequence text, int from, int to) {
+        while (from < to && isBlank(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(CharSequence text, int from, int to) {
+        while (to > from && isBlank(text.charAt(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\f' || c == '\u000B';
+    }
+
+    /**
+     * Listener that assembles the offset tree, rooted at the course block
+     */
+    private static class OutlineBuilder implements Listener {
+        private final Deque<MarkdownBlock> stack = new ArrayDeque<>();
+        private MarkdownBlock root;
+
+        @Override
+        public void onOpen(MarkdownBlock block) {
+            if (stack.isEmpty()) {
+                root = block;
+            } else {
+                stack.peek().getChildren().add(block);
+            }
+            stack.push(block);
+        }
+
+        @Override
+        public void onClose(MarkdownBlock block) {
+            stack.pop();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.coherentsolutions.coursecrafter.application.api.ai;
+
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentTreeNode;
+import com.coherentsolutions.coursecrafter.domain.content.service.ContentEmbeddingService;
+import com.coherentsolutions.coursecrafter.domain.content.service.ContentHierarchyService;
+import com.coherentsolutions.coursecrafter.domain.content.service.CourseTreeCache;
+import com.coherentsolutions.coursecrafter.domain.content.repository.ContentNodeRepository;
+import com.coherentsolutions.coursecrafter.domain.slide.repository.SlideComponentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+/**
+ * Builds outlines of a four-section course with the real outline rendering and checks what
+ * is kept when the outline has to fit a token budget.
+ */
+class CourseContextBuilderTest {
+
+    private static final String CONTENT = "Deploying services to Kubernetes clusters";
+
+    private final TokenCountEstimator tokens = new JTokkitTokenCountEstimator();
+    private final ContentEmbeddingService embeddingService = mock(ContentEmbeddingService.class);
+    private ContentTreeNode course;
+    private CourseContextBuilder builder;
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        course = courseTree();
+        ContentHierarchyService hierarchyService = spy(new ContentHierarchyService(
+                mock(ContentNodeRepository.class), mock(SlideComponentRepository.class), mock(CourseTreeCache.class)));
+        doReturn(course).when(hierarchyService).findCourseTree("Cloud Course");
+        when(embeddingService.findRelevant(any(), anyLong())).thenReturn(List.of());
+        builder = new CourseContextBuilder(hierarchyService, embeddingService);
+    }
+
+    @Test
+    void theWholeOutlineIsUsedWhenItFitsTheBudget() {
+        ReflectionTestUtils.setField(builder, "maxOutlineTokens", 100_000);
+
+        String context = builder.buildCourseContext("Cloud Course", CONTENT);
+
+        assertThat(context).isEqualTo(builder.render("Cloud Course", course).fullText());
+        assertThat(context).doesNotContain("Outline shortened");
+    }
+
+    @Test
+    void theMostRelevantSectionIsExpandedFirstAndTheBudgetIsRespected() {
+        CourseContextBuilder.RenderedOutline outline = builder.render("Cloud Course", course);
+        // Room for every heading plus one section in full, but not two
+        int budget = headingsOnly(outline) + extra(outline.sections().get(0)) + extra(outline.sections().get(1)) / 2;
+        ReflectionTestUtils.setField(builder, "maxOutlineTokens", budget);
+
+        String context = builder.buildCourseContext("Cloud Course", CONTENT);
+
+        assertThat(tokens.estimate(context)).isLessThanOrEqualTo(budget);
+        assertThat(context).contains("Outline shortened");
+        // The Kubernetes section matches on its title; Docker only on slide text about services
+        assertThat(context).contains(outline.sections().get(0).text())
+                .doesNotContain(outline.sections().get(1).text());
+        assertHeadingsKept(context, outline);
+    }
+
+    @Test
+    void headingsAreKeptEvenWhenNoSectionFits() {
+        CourseContextBuilder.RenderedOutline outline = builder.render("Cloud Course", course);
+        ReflectionTestUtils.setField(builder, "maxOutlineTokens", 1);
+
+        String context = builder.buildCourseContext("Cloud Course", CONTENT);
+
+        assertHeadingsKept(context, outline);
+        assertThat(context).doesNotContain("##### Slide");
+    }
+
+    @Test
+    void retrievedNodesDecideWhichSectionsAreShownInFull() {
+        CourseContextBuilder.RenderedOutline outline = builder.render("Cloud Course", course);
+        ReflectionTestUtils.setField(builder, "maxOutlineTokens", 100_000);
+        // A slide of the evaluation section, although the text is about Kubernetes
+        ContentTreeNode.Node slide = course.getChildren().get(1).getChildren().get(1)
+                .getChildren().get(0).getChildren().get(0).getNode();
+        when(embeddingService.findRelevant(any(), anyLong())).thenReturn(List.of(new ContentEmbeddingService.RelevantNode(
+                slide.id(), ContentNode.NodeType.SLIDE, slide.title(), slide.nodeNumber(), 0.91)));
+
+        String context = builder.buildCourseContext("Cloud Course", CONTENT);
+
+        assertThat(context).contains("(ID: " + slide.id() + "): " + slide.title() + " [similarity 0.91]");
+        assertThat(context).contains(outline.sections().get(3).text());
+        for (int i = 0; i < 3; i++) {
+            assertThat(context).doesNotContain(outline.sections().get(i).text());
+        }
+        assertHeadingsKept(context, outline);
+    }
+
+    private static void assertHeadingsKept(String context, CourseContextBuilder.RenderedOutline outline) {
+        outline.lectureHeadings().forEach(heading -> assertThat(context).contains(heading));
+        outline.sections().forEach(section -> assertThat(context).contains(section.headingLine()));
+    }
+
+    /**
+     * What the pruned outline costs with every section reduced to its heading
+     */
+    private int headingsOnly(CourseContextBuilder.RenderedOutline outline) {
+        int used = tokens.estimate(outline.header()) + 100;
+        for (String heading : outline.lectureHeadings()) {
+            used += tokens.estimate(heading);
+        }
+        for (CourseContextBuilder.SectionBlock section : outline.sections()) {
+            used += section.headingTokens();
+        }
+        return used;
+    }
+
+    private static int extra(CourseContextBuilder.SectionBlock section) {
+        return section.tokens() - section.headingTokens();
+    }
+
+    private ContentTreeNode courseTree() {
+        ContentTreeNode root = new ContentTreeNode(node(ContentNode.NodeType.COURSE, "Cloud Course", null, null));
+        ContentTreeNode infrastructure = lecture(root, "1", "Infrastructure");
+        section(infrastructure, "1.1", "Kubernetes Basics", "Pods and nodes", "Cluster networking");
+        section(infrastructure, "1.2", "Docker Images", "Image layers", "Services that run in containers");
+        ContentTreeNode prompting = lecture(root, "2", "Prompting");
+        section(prompting, "2.1", "Prompt Design", "Few-shot examples", "Output formats");
+        section(prompting, "2.2", "Evaluation", "Golden datasets", "Scoring rubrics");
+        return root;
+    }
+
+    private ContentTreeNode lecture(ContentTreeNode course, String number, String title) {
+        ContentTreeNode lecture = new ContentTreeNode(node(ContentNode.NodeType.LECTURE, number + ": " + title, number, null));
+        course.addChild(lecture);
+        return lecture;
+    }
+
+    /**
+     * A section with one topic of twenty slides, cycling through the given slide subjects
+     */
+    private void section(ContentTreeNode lecture, String number, String title, String... subjects) {
+        ContentTreeNode section = new ContentTreeNode(node(ContentNode.NodeType.SECTION, title, number, null));
+        ContentTreeNode topic = new ContentTreeNode(node(ContentNode.NodeType.TOPIC, title + " Overview", number + ".1", null));
+        section.addChild(topic);
+        for (int i = 0; i < 20; i++) {
+            String subject = subjects[i % subjects.length];
+            topic.addChild(new ContentTreeNode(node(ContentNode.NodeType.SLIDE, subject + " part " + (i + 1),
+                    number + ".1." + (i + 1), "##### " + subject + "\n" + subject)));
+        }
+        lecture.addChild(section);
+    }
+
+    private ContentNode node(ContentNode.NodeType type, String title, String number, String markdown) {
+        return ContentNode.builder()
+                .id(nextId++)
+                .nodeType(type)
+                .title(title)
+                .nodeNumber(number)
+                .markdownContent(markdown)
+                .build();
+    }
+}
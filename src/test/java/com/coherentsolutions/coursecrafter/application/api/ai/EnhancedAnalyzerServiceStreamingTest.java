@@ -0,0 +1,94 @@
+package com.coherentsolutions.coursecrafter.application.api.ai;
+
+import com.coherentsolutions.coursecrafter.domain.ai.repository.LlmResponseCacheEntryRepository;
+import com.coherentsolutions.coursecrafter.domain.content.repository.ContentNodeRepository;
+import com.coherentsolutions.coursecrafter.domain.content.service.ContentHierarchyService;
+import com.coherentsolutions.coursecrafter.presentation.dto.ai.AiProposalDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Streams a scripted model response through the real ChatClient (with the default advisors)
+ * and checks that proposals come out while the response is still open.
+ */
+class EnhancedAnalyzerServiceStreamingTest {
+
+    private final Sinks.Many<String> chunks = Sinks.many().unicast().onBackpressureBuffer();
+    private EnhancedAnalyzerService analyzer;
+
+    @BeforeEach
+    void setUp() {
+        ChatModel scriptedModel = new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                throw new UnsupportedOperationException("only streaming is scripted");
+            }
+
+            @Override
+            public Flux<ChatResponse> stream(Prompt prompt) {
+                return chunks.asFlux().map(text -> new ChatResponse(List.of(new Generation(new AssistantMessage(text)))));
+            }
+        };
+        ChatClient chatClient = ChatClient.builder(scriptedModel)
+                .defaultAdvisors(new LlmResponseCacheAdvisor(
+                        new LlmResponseCache(mock(LlmResponseCacheEntryRepository.class)), "scripted"))
+                .build();
+
+        CourseContextBuilder contextBuilder = mock(CourseContextBuilder.class);
+        when(contextBuilder.buildCourseContext(anyString(), anyString())).thenReturn("# Course: AI\n\n");
+        analyzer = new EnhancedAnalyzerService(mock(ContentHierarchyService.class), contextBuilder,
+                mock(ContentNodeRepository.class), chatClient);
+    }
+
+    @Test
+    void emitsProposalsBeforeTheResponseIsComplete() throws InterruptedException {
+        // The client may deliver on another thread, so results are awaited with a timeout
+        BlockingQueue<AiProposalDto> received = new LinkedBlockingQueue<>();
+        analyzer.streamContentForCourse("AI", "new content").subscribe(received::add);
+
+        chunks.tryEmitNext("[{\"action\": \"UPDATE\", \"targetNodeId\": 11, ");
+        chunks.tryEmitNext("\"title\": \"First\"}, {\"action\": \"ADD\", ");
+        AiProposalDto first = received.poll(5, TimeUnit.SECONDS);
+        assertThat(first).isNotNull();
+        assertThat(first.title()).isEqualTo("First");
+        assertThat(first.targetNodeId()).isEqualTo(11L);
+        assertThat(received).isEmpty();
+
+        chunks.tryEmitNext("\"parentNodeId\": 5, \"title\": \"Second\"}]");
+        AiProposalDto second = received.poll(5, TimeUnit.SECONDS);
+        assertThat(second).isNotNull();
+        assertThat(second.title()).isEqualTo("Second");
+        chunks.tryEmitComplete();
+    }
+
+    @Test
+    void completesWithTheProposalsParsedSoFarWhenTheResponseIsCutOff() {
+        chunks.tryEmitNext("```json\n[{\"action\": \"ADD\", \"title\": \"Only\"}, {\"action\": \"AD");
+        chunks.tryEmitComplete();
+
+        List<AiProposalDto> proposals = analyzer.streamContentForCourse("AI", "new content")
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(proposals).extracting(AiProposalDto::title).containsExactly("Only");
+    }
+}
@@ -0,0 +1,176 @@
+package com.coherentsolutions.coursecrafter.application.api.ai;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.NonTransientAiException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs calls through a real ChatClient with the rate-limit advisor against a fake model
+ * that answers 429 on demand.
+ */
+class LlmRateLimiterTest {
+
+    private final AtomicInteger rateLimitedCalls = new AtomicInteger();
+    private final AtomicInteger modelCalls = new AtomicInteger();
+    private LlmRateLimiter limiter;
+    private ChatClient chatClient;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new LlmRateLimiter();
+        limiter.cooldown = Duration.ofMillis(50);
+        limiter.interactiveMaxWait = Duration.ofSeconds(5);
+        limiter.batchMaxWait = Duration.ofSeconds(5);
+
+        ChatModel fakeModel = new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                modelCalls.incrementAndGet();
+                if (rateLimitedCalls.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                    throw new NonTransientAiException("429 - Rate limit reached for requests");
+                }
+                return new ChatResponse(List.of(new Generation(new AssistantMessage("ok"))));
+            }
+        };
+        chatClient = ChatClient.builder(fakeModel)
+                .defaultAdvisors(new LlmRateLimitAdvisor(limiter, "fake", 100, 3))
+                .build();
+    }
+
+    @Test
+    void retriesAfterRateLimitAndPausesTheModel() {
+        rateLimitedCalls.set(2);
+
+        long started = System.nanoTime();
+        String answer = chatClient.prompt().user("hello").call().content();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertThat(answer).isEqualTo("ok");
+        assertThat(modelCalls).hasValue(3);
+        // Each 429 pauses the model for the cooldown before the retry goes out
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(100);
+        LlmRateLimiter.ModelStats stats = limiter.stats().get("fake");
+        assertThat(stats.rateLimited()).isEqualTo(2);
+        assertThat(stats.acquired()).isEqualTo(3);
+        assertThat(stats.inFlight()).isZero();
+    }
+
+    @Test
+    void givesUpAfterMaxRetries() {
+        rateLimitedCalls.set(10);
+
+        assertThatThrownBy(() -> chatClient.prompt().user("hello").call().content())
+                .isInstanceOf(NonTransientAiException.class)
+                .hasMessageStartingWith("429");
+        assertThat(modelCalls).hasValue(4);
+        assertThat(limiter.stats().get("fake").inFlight()).isZero();
+    }
+
+    @Test
+    void aRetryOnAChainThatCannotBeRebuiltFailsLoudly() {
+        CallAdvisorChain chain = mock(CallAdvisorChain.class);
+        when(chain.nextCall(any())).thenThrow(new NonTransientAiException("429 - Rate limit reached for requests"));
+        LlmRateLimitAdvisor advisor = new LlmRateLimitAdvisor(limiter, "fake", 100, 3);
+        ChatClientRequest request = ChatClientRequest.builder().prompt(new Prompt("hello")).build();
+
+        assertThatThrownBy(() -> advisor.adviseCall(request, chain))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Cannot retry");
+        // The consumed chain is not walked a second time
+        verify(chain, times(1)).nextCall(any());
+        assertThat(limiter.stats().get("fake").inFlight()).isZero();
+    }
+
+    @Test
+    void interactiveCallsGoBeforeQueuedBatchCalls() throws Exception {
+        limiter.maxConcurrent = 1;
+        LlmRateLimiter.Permit busy = limiter.acquire("model", 10, LlmRateLimiter.Priority.BATCH);
+
+        BlockingQueue<LlmRateLimiter.Priority> order = new LinkedBlockingQueue<>();
+        CountDownLatch batchQueued = new CountDownLatch(1);
+        Thread batch = Thread.ofVirtual().start(() -> acquireAndRecord(LlmRateLimiter.Priority.BATCH, order, batchQueued));
+        batchQueued.await();
+        awaitQueued(1);
+        Thread interactive = Thread.ofVirtual().start(
+                () -> acquireAndRecord(LlmRateLimiter.Priority.INTERACTIVE, order, new CountDownLatch(1)));
+        awaitQueued(2);
+
+        busy.close();
+        batch.join(5000);
+        interactive.join(5000);
+
+        assertThat(order).containsExactly(LlmRateLimiter.Priority.INTERACTIVE, LlmRateLimiter.Priority.BATCH);
+    }
+
+    @Test
+    void rejectsCallsThatCannotStartBeforeTheDeadline() throws Exception {
+        limiter.maxConcurrent = 1;
+        limiter.interactiveMaxWait = Duration.ofMillis(100);
+
+        try (LlmRateLimiter.Permit ignored = limiter.acquire("model", 10, LlmRateLimiter.Priority.BATCH)) {
+            assertThatThrownBy(() -> limiter.acquire("model", 10, LlmRateLimiter.Priority.INTERACTIVE))
+                    .isInstanceOf(LlmRateLimiter.LlmThrottledException.class);
+        }
+        LlmRateLimiter.ModelStats stats = limiter.stats().get("model");
+        assertThat(stats.rejected()).isEqualTo(1);
+        assertThat(stats.queuedInteractive()).isZero();
+    }
+
+    @Test
+    void tokenBucketHoldsCallsUntilItRefills() throws Exception {
+        // 6000 tokens per minute refill at 100 per second
+        limiter.tokensPerMinute = 6000;
+
+        limiter.acquire("model", 6000, LlmRateLimiter.Priority.INTERACTIVE).close();
+        long started = System.nanoTime();
+        limiter.acquire("model", 50, LlmRateLimiter.Priority.INTERACTIVE).close();
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertThat(waitedMillis).isBetween(400L, 3000L);
+    }
+
+    private void acquireAndRecord(LlmRateLimiter.Priority priority, BlockingQueue<LlmRateLimiter.Priority> order,
+                                  CountDownLatch started) {
+        started.countDown();
+        try (LlmRateLimiter.Permit ignored = limiter.acquire("model", 10, priority)) {
+            order.add(priority);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitQueued(int calls) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            LlmRateLimiter.ModelStats stats = limiter.stats().get("model");
+            if (stats.queuedInteractive() + stats.queuedBatch() == calls) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Calls were not queued in time");
+    }
+}
@@ -0,0 +1,175 @@
+package com.coherentsolutions.coursecrafter.application.api.ai;
+
+import com.coherentsolutions.coursecrafter.domain.ai.model.LlmResponseCacheEntry;
+import com.coherentsolutions.coursecrafter.domain.ai.repository.LlmResponseCacheEntryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs calls through a real ChatClient with the response-cache advisor against a fake model
+ * that numbers its answers, with the cache table behind a mocked repository.
+ */
+class LlmResponseCacheTest {
+
+    private final AtomicInteger modelCalls = new AtomicInteger();
+    private final LlmResponseCacheEntryRepository repository = mock(LlmResponseCacheEntryRepository.class);
+    private LlmResponseCache cache;
+    private ChatClient chatClient;
+    private boolean answerWithToolCall;
+
+    @BeforeEach
+    void setUp() {
+        cache = new LlmResponseCache(repository);
+
+        ChatModel fakeModel = new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                int call = modelCalls.incrementAndGet();
+                AssistantMessage answer = answerWithToolCall
+                        ? new AssistantMessage("", Map.of(), List.of(
+                        new AssistantMessage.ToolCall("call-1", "function", "findNode", "{\"id\":1}")))
+                        : new AssistantMessage("answer " + call);
+                return new ChatResponse(List.of(new Generation(answer)));
+            }
+        };
+        chatClient = ChatClient.builder(fakeModel)
+                .defaultAdvisors(new LlmResponseCacheAdvisor(cache, "fake"))
+                .build();
+    }
+
+    @Test
+    void aRepeatedCallIsAnsweredFromTheCache() {
+        assertThat(ask("Summarize lecture 1", "v1")).isEqualTo("answer 1");
+        assertThat(ask("Summarize lecture 1", "v1")).isEqualTo("answer 1");
+
+        assertThat(modelCalls).hasValue(1);
+        assertThat(cache.stats().memoryHits()).isEqualTo(1);
+        verify(repository).save(any());
+    }
+
+    @Test
+    void theKeyChangesWithThePromptAndTheCourseVersion() {
+        ask("Summarize lecture 1", "v1");
+
+        assertThat(ask("Summarize lecture 2", "v1")).isEqualTo("answer 2");
+        // Same prompt, edited course
+        assertThat(ask("Summarize lecture 1", "v2")).isEqualTo("answer 3");
+        assertThat(LlmResponseCache.key("model", "ab", "c")).isEqualTo(LlmResponseCache.key("model", "ab", "c"))
+                .isNotEqualTo(LlmResponseCache.key("model", "a", "bc"));
+    }
+
+    @Test
+    void expiredEntriesAreMisses() throws Exception {
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofMillis(1));
+        cache.put("key", "fake", "v1", "stale", 10);
+        Thread.sleep(10);
+        // The table still has the row, also past its expiry
+        when(repository.findById("key")).thenReturn(Optional.of(entry("stale", LocalDateTime.now().minusSeconds(1))));
+
+        assertThat(cache.get("key")).isEmpty();
+        verify(repository, never()).recordHit(anyString(), any());
+        assertThat(cache.stats().misses()).isEqualTo(1);
+    }
+
+    @Test
+    void aTableHitIsPromotedToMemory() {
+        when(repository.findById("key")).thenReturn(Optional.of(entry("stored", LocalDateTime.now().plusDays(1))));
+
+        assertThat(cache.get("key")).contains("stored");
+        assertThat(cache.get("key")).contains("stored");
+
+        verify(repository, times(1)).findById("key");
+        verify(repository).recordHit(any(), any());
+        assertThat(cache.stats()).returns(1L, LlmResponseCache.CacheStats::persistentHits)
+                .returns(1L, LlmResponseCache.CacheStats::memoryHits);
+    }
+
+    @Test
+    void memoryKeepsTheMostRecentlyUsedEntries() {
+        ReflectionTestUtils.setField(cache, "persistent", false);
+        ReflectionTestUtils.setField(cache, "maxMemoryEntries", 2);
+        cache.put("a", "fake", null, "A", 10);
+        cache.put("b", "fake", null, "B", 10);
+        cache.get("a");
+
+        cache.put("c", "fake", null, "C", 10);
+
+        assertThat(cache.get("b")).isEmpty();
+        assertThat(cache.get("a")).contains("A");
+        assertThat(cache.get("c")).contains("C");
+        assertThat(cache.stats()).returns(2, LlmResponseCache.CacheStats::memoryEntries)
+                .returns(1L, LlmResponseCache.CacheStats::memoryEvictions);
+        verify(repository, never()).findById(any());
+    }
+
+    @Test
+    void databaseErrorsAreMissesAndNeverFailTheCall() {
+        when(repository.findById(any())).thenThrow(new DataAccessResourceFailureException("connection refused"));
+        when(repository.save(any())).thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        assertThat(ask("Summarize lecture 1", "v1")).isEqualTo("answer 1");
+        // The failed write still left the answer in memory
+        assertThat(ask("Summarize lecture 1", "v1")).isEqualTo("answer 1");
+
+        assertThat(modelCalls).hasValue(1);
+        assertThat(cache.stats()).returns(1L, LlmResponseCache.CacheStats::misses)
+                .returns(1L, LlmResponseCache.CacheStats::memoryHits);
+    }
+
+    @Test
+    void toolCallResponsesAreNotCached() {
+        answerWithToolCall = true;
+
+        ChatResponse first = chatClient.prompt().user("Find node 1").call().chatResponse();
+        ChatResponse second = chatClient.prompt().user("Find node 1").call().chatResponse();
+
+        assertThat(first.hasToolCalls()).isTrue();
+        assertThat(second.hasToolCalls()).isTrue();
+        assertThat(modelCalls).hasValue(2);
+        assertThat(cache.stats().stores()).isZero();
+        verify(repository, never()).save(any());
+    }
+
+    private String ask(String question, String courseVersion) {
+        return chatClient.prompt()
+                .system("You edit course material.")
+                .user(question)
+                .advisors(advisor -> advisor.param(LlmResponseCacheAdvisor.COURSE_VERSION, courseVersion))
+                .call()
+                .content();
+    }
+
+    private static LlmResponseCacheEntry entry(String text, LocalDateTime expiresAt) {
+        return LlmResponseCacheEntry.builder()
+                .cacheKey("key")
+                .model("fake")
+                .responseText(text)
+                .latencyMillis(10)
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
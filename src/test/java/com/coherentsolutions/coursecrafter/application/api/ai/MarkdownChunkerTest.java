@@ -0,0 +1,117 @@
+package com.coherentsolutions.coursecrafter.application.api.ai;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Splits generated markdown with the real token estimator and checks where the cuts fall.
+ */
+class MarkdownChunkerTest {
+
+    private static final int MAX_TOKENS = 100;
+
+    private final TokenCountEstimator tokens = new JTokkitTokenCountEstimator();
+
+    @Test
+    void cutsAtHeadingsOnceAChunkIsHalfFull() {
+        String markdown = String.join("\n\n",
+                "# Alpha", paragraph("alpha", 25), paragraph("alpha", 25),
+                "# Beta", paragraph("beta", 25), paragraph("beta", 25),
+                "# Gamma", paragraph("gamma", 25));
+
+        List<String> chunks = MarkdownChunker.split(markdown, MAX_TOKENS, tokens);
+
+        // Each section would fit behind the one before it, but a heading starts a new chunk
+        assertThat(chunks).extracting(chunk -> chunk.lines().findFirst().orElseThrow())
+                .containsExactly("# Alpha", "# Beta", "# Gamma");
+        assertWithinBudgetAndComplete(chunks, markdown);
+    }
+
+    @Test
+    void cutsBetweenParagraphsWhenThereIsNoHeading() {
+        List<String> paragraphs = IntStream.range(0, 8).mapToObj(i -> paragraph("p" + i, 20)).toList();
+        String markdown = String.join("\n\n", paragraphs);
+
+        List<String> chunks = MarkdownChunker.split(markdown, MAX_TOKENS, tokens);
+
+        assertThat(chunks).hasSizeGreaterThan(1);
+        for (String chunk : chunks) {
+            // Every piece of a chunk is a whole paragraph of the input
+            assertThat(paragraphs).containsAll(Arrays.asList(chunk.split("\n\n")));
+        }
+        assertWithinBudgetAndComplete(chunks, markdown);
+    }
+
+    @Test
+    void fencedCodeBlocksAreNotCutAtTheirBlankLines() {
+        String code = """
+                ```python
+                def first():
+                    return 1
+
+                def second():
+                    return 2
+
+                def third():
+                    return 3
+                ```""";
+        String markdown = String.join("\n\n", paragraph("intro", 30), code, paragraph("outro", 30));
+
+        List<String> chunks = MarkdownChunker.split(markdown, 60, tokens);
+
+        assertThat(chunks).anySatisfy(chunk -> assertThat(chunk).contains(code));
+        // A heading-like line inside the fence does not start a block either
+        String commented = code.replace("def second", "# not a heading\ndef second");
+        assertThat(MarkdownChunker.split(paragraph("intro", 30) + "\n\n" + commented, 60, tokens))
+                .anySatisfy(chunk -> assertThat(chunk).contains(commented));
+    }
+
+    @Test
+    void anOversizedParagraphIsCutByLine() {
+        List<String> lines = IntStream.range(0, 30).mapToObj(i -> "line " + i + " of one long paragraph").toList();
+        String paragraph = String.join("\n", lines);
+        String markdown = paragraph("before", 20) + "\n\n" + paragraph + "\n\n" + paragraph("after", 20);
+
+        List<String> chunks = MarkdownChunker.split(markdown, MAX_TOKENS, tokens);
+
+        assertThat(tokens.estimate(paragraph)).isGreaterThan(2 * MAX_TOKENS);
+        assertThat(chunks.get(0)).isEqualTo(paragraph("before", 20));
+        assertThat(chunks.get(chunks.size() - 1)).isEqualTo(paragraph("after", 20));
+        // The pieces in between are whole lines of the paragraph, in order
+        List<String> pieces = chunks.subList(1, chunks.size() - 1);
+        assertThat(pieces).hasSizeGreaterThan(2);
+        assertThat(String.join("\n", pieces)).isEqualTo(paragraph);
+        assertWithinBudgetAndComplete(chunks, markdown);
+    }
+
+    @Test
+    void anOversizedLineIsCutByLength() {
+        String line = "word".repeat(1000);
+
+        List<String> chunks = MarkdownChunker.split(line, MAX_TOKENS, tokens);
+
+        // Roughly four characters per token
+        assertThat(chunks).hasSizeGreaterThan(1)
+                .allSatisfy(chunk -> assertThat(chunk.length()).isLessThanOrEqualTo(4 * MAX_TOKENS));
+        assertThat(String.join("", chunks)).isEqualTo(line);
+    }
+
+    /**
+     * About one token per word; the prefix tells the paragraphs apart
+     */
+    private static String paragraph(String prefix, int words) {
+        return prefix + " word".repeat(words - 1) + ".";
+    }
+
+    private void assertWithinBudgetAndComplete(List<String> chunks, String markdown) {
+        assertThat(chunks).allSatisfy(chunk -> assertThat(tokens.estimate(chunk)).isLessThanOrEqualTo(MAX_TOKENS));
+        assertThat(String.join(" ", chunks).split("\\s+")).containsExactly(markdown.split("\\s+"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.coherentsolutions.coursecrafter.application.api.ai;
+
+import com.coherentsolutions.coursecrafter.presentation.dto.ai.AiProposalDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProposalStreamParserTest {
+
+    private static final String RESPONSE = """
+            ```json
+            [
+              {"targetNodeId": 11, "nodeType": "SLIDE", "action": "UPDATE", "title": "Braces { and ] in \\"text\\"",
+               "slideContentShouldBe": "###### SCRIPT\\n[link](x) {code}", "displayOrder": 10, "rationale": "r1"},
+              {"parentNodeId": 5, "nodeType": "SLIDE", "action": "ADD", "title": "New slide", "rationale": "r2"}
+            ]
+            ```
+            """;
+
+    @Test
+    void emitsEachProposalWhenItsObjectCloses() {
+        ProposalStreamParser parser = new ProposalStreamParser(new ObjectMapper());
+        int firstClose = RESPONSE.indexOf("\"r1\"}") + 5;
+
+        assertThat(parser.feed(RESPONSE.substring(0, firstClose - 1))).isEmpty();
+        List<AiProposalDto> first = parser.feed(RESPONSE.substring(firstClose - 1, firstClose));
+        assertThat(first).singleElement().satisfies(proposal -> {
+            assertThat(proposal.targetNodeId()).isEqualTo(11L);
+            assertThat(proposal.title()).isEqualTo("Braces { and ] in \"text\"");
+            assertThat(proposal.slideContentShouldBe()).isEqualTo("###### SCRIPT\n[link](x) {code}");
+        });
+        assertThat(parser.isComplete()).isFalse();
+
+        assertThat(parser.feed(RESPONSE.substring(firstClose)))
+                .extracting(AiProposalDto::title)
+                .containsExactly("New slide");
+        assertThat(parser.isComplete()).isTrue();
+        assertThat(parser.emitted()).isEqualTo(2);
+    }
+
+    @Test
+    void resultDoesNotDependOnChunkBoundaries() {
+        for (int size = 1; size <= 17; size++) {
+            ProposalStreamParser parser = new ProposalStreamParser(new ObjectMapper());
+            List<AiProposalDto> proposals = new ArrayList<>();
+            for (int i = 0; i < RESPONSE.length(); i += size) {
+                proposals.addAll(parser.feed(RESPONSE.substring(i, Math.min(RESPONSE.length(), i + size))));
+            }
+            assertThat(proposals).extracting(AiProposalDto::rationale).as("chunk size %d", size)
+                    .containsExactly("r1", "r2");
+        }
+    }
+
+    @Test
+    void acceptsAProposalsWrapperObject() {
+        ProposalStreamParser parser = new ProposalStreamParser(new ObjectMapper());
+
+        List<AiProposalDto> proposals = parser.feed("""
+                {"note": "ids like [1] here", "proposals": [{"action": "ADD", "title": "A"}]}""");
+
+        assertThat(proposals).extracting(AiProposalDto::title).containsExactly("A");
+        assertThat(parser.isComplete()).isTrue();
+    }
+
+    @Test
+    void skipsMalformedElementsAndKeepsGoing() {
+        ProposalStreamParser parser = new ProposalStreamParser(new ObjectMapper());
+
+        List<AiProposalDto> proposals = parser.feed("""
+                [{"action": "ADD", "unknownField": 1}, {"action": "UPDATE", "title": "ok"}]""");
+
+        assertThat(proposals).extracting(AiProposalDto::title).containsExactly("ok");
+        assertThat(parser.skipped()).isEqualTo(1);
+    }
+}
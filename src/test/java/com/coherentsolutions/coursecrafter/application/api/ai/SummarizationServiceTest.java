@@ -0,0 +1,89 @@
+package com.coherentsolutions.coursecrafter.application.api.ai;
+
+import com.coherentsolutions.coursecrafter.domain.content.service.ContentHierarchyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Summarizes a large input through a real ChatClient with the rate-limit advisor and a fake
+ * model, and checks which lane of the limiter each call is queued in.
+ */
+class SummarizationServiceTest {
+
+    private final AtomicInteger modelCalls = new AtomicInteger();
+    private final ContentHierarchyService hierarchyService = mock(ContentHierarchyService.class);
+    private LlmRateLimiter limiter;
+    private SummarizationService service;
+
+    @BeforeEach
+    void setUp() {
+        limiter = spy(new LlmRateLimiter());
+        limiter.tokensPerMinute = 1_000_000;
+
+        ChatModel fakeModel = new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                modelCalls.incrementAndGet();
+                return new ChatResponse(List.of(new Generation(new AssistantMessage("Short notes."))));
+            }
+        };
+        ChatClient chatClient = ChatClient.builder(fakeModel)
+                .defaultAdvisors(new LlmRateLimitAdvisor(limiter, "fake", 100, 3))
+                .build();
+
+        service = new SummarizationService(chatClient, hierarchyService);
+        ReflectionTestUtils.setField(service, "singlePassMaxTokens", 200);
+        ReflectionTestUtils.setField(service, "chunkTokens", 100);
+        when(hierarchyService.generateDetailedOutlineContext(anyString())).thenReturn("# Course: AI\n");
+        when(hierarchyService.courseVersion(anyString())).thenReturn("v1");
+    }
+
+    @Test
+    void chunkCallsGoToTheBatchLaneAndTheFinalPassToTheInteractiveLane() throws Exception {
+        String markdown = IntStream.range(0, 12)
+                .mapToObj(i -> "# Part " + i + "\n\n" + "Research finding ".repeat(20))
+                .collect(Collectors.joining("\n\n"));
+
+        assertThat(service.summarize(markdown, "AI", "engineers", LocalDate.of(2025, 5, 1))).isEqualTo("Short notes.");
+
+        ArgumentCaptor<LlmRateLimiter.Priority> lanes = ArgumentCaptor.forClass(LlmRateLimiter.Priority.class);
+        verify(limiter, atLeast(3)).acquire(anyString(), anyInt(), lanes.capture());
+        List<LlmRateLimiter.Priority> priorities = lanes.getAllValues();
+        assertThat(priorities).hasSize(modelCalls.get());
+        // Every map and reduce call queues behind interactive traffic; only the answer itself does not
+        assertThat(priorities.subList(0, priorities.size() - 1)).containsOnly(LlmRateLimiter.Priority.BATCH);
+        assertThat(priorities.get(priorities.size() - 1)).isEqualTo(LlmRateLimiter.Priority.INTERACTIVE);
+    }
+
+    @Test
+    void aSmallInputIsOneInteractiveCall() throws Exception {
+        service.summarize("A short report.", "AI", "engineers", LocalDate.of(2025, 5, 1));
+
+        assertThat(modelCalls).hasValue(1);
+        verify(limiter).acquire(anyString(), anyInt(), eq(LlmRateLimiter.Priority.INTERACTIVE));
+    }
+}
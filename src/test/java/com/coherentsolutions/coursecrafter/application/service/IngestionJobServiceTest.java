@@ -0,0 +1,222 @@
+package com.coherentsolutions.coursecrafter.application.service;
+
+import com.coherentsolutions.coursecrafter.domain.proposal.model.IngestionJob;
+import com.coherentsolutions.coursecrafter.domain.proposal.repository.IngestionJobRepository;
+import com.coherentsolutions.coursecrafter.domain.tag.service.ContentTaggingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Claims and runs jobs against a JdbcTemplate that records the statements, and checks which
+ * failures are re-queued, with what backoff, and which fail for good.
+ */
+class IngestionJobServiceTest {
+
+    private final RecordingJdbcTemplate jdbc = new RecordingJdbcTemplate();
+    private final IngestionJobRepository jobRepository = mock(IngestionJobRepository.class);
+    private final EnhancedTextIngestionService ingestionService = mock(EnhancedTextIngestionService.class);
+    private IngestionJobService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new IngestionJobService(jobRepository, ingestionService, mock(ContentTaggingService.class), jdbc);
+    }
+
+    @Test
+    void claimFailsAbandonedJobsFirstAndReturnsTheClaimedId() {
+        jdbc.claimed = List.of(42L);
+
+        assertThat(service.claimNext("worker-1")).contains(42L);
+
+        assertThat(jdbc.statements).hasSize(2);
+        Statement failAbandoned = jdbc.statements.get(0);
+        assertThat(failAbandoned.sql()).contains("status = 'FAILED'");
+        // Abandoned in a side-effecting stage: failed, never claimed again
+        assertThat(failAbandoned.args()).contains("apply", "pull-request");
+        Statement claim = jdbc.statements.get(1);
+        assertThat(claim.sql()).contains("FOR UPDATE SKIP LOCKED").contains("NOT IN (?, ?)");
+        assertThat(claim.args()[0]).isEqualTo("worker-1");
+        // Rows untouched for stale-after (30 minutes) count as abandoned
+        LocalDateTime staleBefore = ((Timestamp) claim.args()[4]).toLocalDateTime();
+        assertThat(staleBefore).isCloseTo(LocalDateTime.now().minusMinutes(30), within(5, ChronoUnit.SECONDS));
+    }
+
+    @Test
+    void nothingToClaim() {
+        assertThat(service.claimNext("worker-1")).isEmpty();
+    }
+
+    @Test
+    void aFailureBeforeApplyIsRetriedWithBackoff() throws Exception {
+        runFailing(1, 3, "analyze", new IOException("model unavailable"));
+
+        Statement outcome = jdbc.outcome();
+        assertThat(outcome.args()[0]).isEqualTo(IngestionJobService.QUEUED);
+        assertThat(outcome.args()[1]).isEqualTo("IOException: model unavailable");
+        assertThat(nextAttempt(outcome)).isCloseTo(LocalDateTime.now().plusSeconds(30), within(5, ChronoUnit.SECONDS));
+        assertThat(outcome.args()[4]).isNull(); // not finished
+    }
+
+    @Test
+    void backoffDoublesWithEachAttemptUpToTheCap() throws Exception {
+        runFailing(3, 10, "summarize", new IOException("timeout"));
+        assertThat(nextAttempt(jdbc.outcome())).isCloseTo(LocalDateTime.now().plusSeconds(120), within(5, ChronoUnit.SECONDS));
+
+        jdbc.statements.clear();
+        runFailing(9, 10, "summarize", new IOException("timeout"));
+        assertThat(nextAttempt(jdbc.outcome())).isCloseTo(LocalDateTime.now().plusMinutes(30), within(5, ChronoUnit.SECONDS));
+    }
+
+    @Test
+    void theLastAttemptFailsTheJob() throws Exception {
+        runFailing(3, 3, "analyze", new IOException("model unavailable"));
+
+        assertThat(jdbc.outcome().args()[0]).isEqualTo(IngestionJobService.FAILED);
+        assertThat(jdbc.outcome().args()[3]).isNull(); // no next attempt
+    }
+
+    @Test
+    void aFailureWhileApplyingIsNotRetried() throws Exception {
+        runFailing(1, 3, EnhancedTextIngestionService.STAGE_APPLY, new IOException("push failed"));
+
+        assertThat(jdbc.outcome().args()[0]).isEqualTo(IngestionJobService.FAILED);
+    }
+
+    @Test
+    void badInputIsNotRetried() throws Exception {
+        runFailing(1, 3, "summarize", new IllegalArgumentException("empty payload"));
+
+        assertThat(jdbc.outcome().args()[0]).isEqualTo(IngestionJobService.FAILED);
+    }
+
+    @Test
+    void aSuccessfulRunRecordsTheResultAndStageTimings() throws Exception {
+        givenJob(1, 3);
+        when(ingestionService.processContent(any(), any(), any(), any(), any(StageTimer.class))).thenAnswer(call -> {
+            StageTimer timer = call.getArgument(4);
+            timer.time("summarize", () -> "summary");
+            return timer.time(EnhancedTextIngestionService.STAGE_APPLY, List::of);
+        });
+
+        service.run(7L, "worker-1");
+
+        Statement outcome = jdbc.outcome();
+        assertThat(outcome.sql()).contains("status = 'SUCCEEDED'");
+        assertThat((String) outcome.args()[1]).contains("summarize").contains("apply");
+        // Each stage start and end is written to the row, as long as the worker holds it
+        assertThat(jdbc.statements).filteredOn(statement -> statement.sql().contains("current_stage = ?")).hasSize(4)
+                .allSatisfy(statement -> assertThat(statement.args()).endsWith(7L, "worker-1"));
+        assertThat(outcome.sql()).contains("AND locked_by = ?");
+    }
+
+    @Test
+    void aWorkerThatLostItsClaimStopsAtTheNextStageAndRecordsNothing() throws Exception {
+        givenJob(1, 3);
+        AtomicBoolean analyzed = new AtomicBoolean();
+        when(ingestionService.processContent(any(), any(), any(), any(), any(StageTimer.class))).thenAnswer(call -> {
+            StageTimer timer = call.getArgument(4);
+            timer.time("summarize", () -> "summary");
+            // Another worker claims the job while summarize runs
+            jdbc.claimHeld = false;
+            return timer.time("analyze", () -> analyzed.getAndSet(true));
+        });
+
+        service.run(7L, "worker-1");
+
+        assertThat(analyzed).isFalse();
+        assertThat(jdbc.statements).noneMatch(statement -> statement.sql().contains("SET status"));
+    }
+
+    @Test
+    void theHeartbeatTouchesOnlyARowTheWorkerStillHolds() {
+        assertThat(service.heartbeat(7L, "worker-1")).isTrue();
+
+        Statement beat = jdbc.statements.get(0);
+        assertThat(beat.sql()).contains("SET updated_at = ?").contains("WHERE id = ? AND locked_by = ?");
+        assertThat(beat.args()).endsWith(7L, "worker-1");
+
+        jdbc.claimHeld = false;
+        assertThat(service.heartbeat(7L, "worker-1")).isFalse();
+    }
+
+    private void runFailing(int attempt, int maxAttempts, String failingStage, Exception failure) throws Exception {
+        givenJob(attempt, maxAttempts);
+        when(ingestionService.processContent(any(), any(), any(), any(), any(StageTimer.class))).thenAnswer(call -> {
+            StageTimer timer = call.getArgument(4);
+            if (!failingStage.equals("summarize")) {
+                timer.time("summarize", () -> "summary");
+            }
+            return timer.time(failingStage, () -> {
+                if (failure instanceof IOException io) {
+                    throw io;
+                }
+                throw (RuntimeException) failure;
+            });
+        });
+        service.run(7L, "worker-1");
+    }
+
+    private void givenJob(int attempt, int maxAttempts) {
+        IngestionJob job = IngestionJob.builder()
+                .id(7L)
+                .jobType(IngestionJobService.TYPE_CONTENT_INGEST)
+                .status(IngestionJobService.RUNNING)
+                .requestJson("{\"contentType\":\"TEXT\",\"payload\":\"New research\"}")
+                .attempts(attempt)
+                .maxAttempts(maxAttempts)
+                .build();
+        when(jobRepository.findById(7L)).thenReturn(Optional.of(job));
+    }
+
+    private static LocalDateTime nextAttempt(Statement outcome) {
+        return ((Timestamp) outcome.args()[3]).toLocalDateTime();
+    }
+
+    private record Statement(String sql, Object[] args) {
+    }
+
+    private static class RecordingJdbcTemplate extends JdbcTemplate {
+        final List<Statement> statements = new ArrayList<>();
+        List<Long> claimed = List.of();
+        boolean claimHeld = true;
+
+        @Override
+        public int update(String sql, Object... args) {
+            statements.add(new Statement(sql, args));
+            return !claimHeld && sql.contains("locked_by = ?") ? 0 : 1;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            statements.add(new Statement(sql, args));
+            return (List<T>) claimed;
+        }
+
+        /**
+         * The statement that recorded how the attempt ended
+         */
+        Statement outcome() {
+            return statements.stream()
+                    .filter(statement -> statement.sql().contains("SET status"))
+                    .reduce((first, second) -> second)
+                    .orElseThrow();
+        }
+    }
+}
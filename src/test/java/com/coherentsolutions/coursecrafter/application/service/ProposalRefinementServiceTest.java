@@ -0,0 +1,261 @@
+package com.coherentsolutions.coursecrafter.application.service;
+
+import com.coherentsolutions.coursecrafter.application.api.ai.EnhancedAnalyzerService;
+import com.coherentsolutions.coursecrafter.presentation.dto.ai.AiProposalDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Refines batches against a stub analyzer with fixed call latencies, failures and hangs.
+ */
+class ProposalRefinementServiceTest {
+
+    private static final Duration CALL = Duration.ofMillis(300);
+
+    private final EnhancedAnalyzerService analyzer = mock(EnhancedAnalyzerService.class);
+    private ProposalRefinementService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ProposalRefinementService(analyzer);
+        ReflectionTestUtils.setField(service, "maxConcurrency", 8);
+        ReflectionTestUtils.setField(service, "timeout", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(service, "groupTimeout", Duration.ofSeconds(2));
+        when(analyzer.refineProposal(any(), isNull())).thenAnswer(call -> {
+            AiProposalDto proposal = call.getArgument(0);
+            Thread.sleep(CALL.toMillis());
+            return refined(proposal);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void refinesABatchConcurrentlyInInputOrderDespiteAFailureAndAHang() {
+        ReflectionTestUtils.setField(service, "groupMaxTokens", 0); // one call per proposal
+        ReflectionTestUtils.setField(service, "maxConcurrency", 10);
+        ReflectionTestUtils.setField(service, "timeout", Duration.ofMillis(1000));
+        List<AiProposalDto> proposals = proposals(10);
+        doAnswer(call -> {
+            AiProposalDto proposal = call.getArgument(0);
+            switch (proposal.title()) {
+                case "P3" -> throw new IllegalStateException("model error");
+                case "P7" -> Thread.sleep(60_000); // hangs until the timeout gives up on it
+                default -> Thread.sleep(CALL.toMillis());
+            }
+            return refined(proposal);
+        }).when(analyzer).refineProposal(any(), isNull());
+
+        long started = System.nanoTime();
+        List<ProposalRefinementService.RefinementResult> results =
+                assertTimeoutPreemptively(Duration.ofSeconds(10), () -> service.refineAll(proposals));
+        long elapsed = (System.nanoTime() - started) / 1_000_000;
+
+        assertThat(results).extracting(result -> result.proposal().title()).containsExactly(
+                "Refined P0", "Refined P1", "Refined P2", "P3", "Refined P4",
+                "Refined P5", "Refined P6", "P7", "Refined P8", "Refined P9");
+        assertThat(results.get(3).error()).isEqualTo("IllegalStateException: model error");
+        assertThat(results.get(7).error()).isEqualTo("Refinement timed out after 1000 ms");
+        assertThat(results).filteredOn(ProposalRefinementService.RefinementResult::failed).hasSize(2);
+        // Bounded by the slowest call (the timeout), not by the sum of ten calls
+        assertThat(elapsed).isBetween(1000L, 2000L);
+    }
+
+    @Test
+    void concurrencyIsLimitedToMaxConcurrency() {
+        ReflectionTestUtils.setField(service, "groupMaxTokens", 0);
+        ReflectionTestUtils.setField(service, "maxConcurrency", 2);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        doAnswer(call -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(100);
+            inFlight.decrementAndGet();
+            return refined(call.getArgument(0));
+        }).when(analyzer).refineProposal(any(), isNull());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> service.refineAll(proposals(6)));
+
+        assertThat(maxInFlight.get()).isEqualTo(2);
+    }
+
+    @Test
+    void aTimedOutCallThatIgnoresInterruptionKeepsItsPermitUntilItReturns() throws Exception {
+        ReflectionTestUtils.setField(service, "maxConcurrency", 1);
+        ReflectionTestUtils.setField(service, "timeout", Duration.ofMillis(200));
+        CountDownLatch stubbornStarted = new CountDownLatch(1);
+        AtomicLong stubbornReturned = new AtomicLong();
+        AtomicLong nextStarted = new AtomicLong();
+        doAnswer(call -> {
+            AiProposalDto proposal = call.getArgument(0);
+            if (proposal.title().equals("A")) {
+                stubbornStarted.countDown();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1000);
+                while (System.nanoTime() < deadline) {
+                    try {
+                        Thread.sleep(Math.max(1, (deadline - System.nanoTime()) / 1_000_000));
+                    } catch (InterruptedException ignored) {
+                        // Keeps going, like a blocking client call that does not check the flag
+                    }
+                }
+                stubbornReturned.set(System.nanoTime());
+            } else {
+                nextStarted.set(System.nanoTime());
+            }
+            return refined(proposal);
+        }).when(analyzer).refineProposal(any(), isNull());
+
+        try (ProposalRefinementService.Batch batch = service.newBatch()) {
+            Future<ProposalRefinementService.RefinementResult> stubborn = batch.submit(proposal("A", "a"));
+            assertThat(stubbornStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<ProposalRefinementService.RefinementResult> next = batch.submit(proposal("B", "b"));
+
+            assertThat(stubborn.get(5, TimeUnit.SECONDS).error()).isEqualTo("Refinement timed out after 200 ms");
+            assertThat(next.get(5, TimeUnit.SECONDS).proposal().title()).isEqualTo("Refined B");
+        }
+        // The second call waited for the abandoned one to return, not just for its timeout
+        assertThat(stubbornReturned.get()).isPositive();
+        assertThat(nextStarted.get()).isGreaterThanOrEqualTo(stubbornReturned.get());
+    }
+
+    @Test
+    void groupedCallAnswersAreUsedAndMissingOnesRefinedAlone() throws Exception {
+        List<AiProposalDto> proposals = proposals(3);
+        when(analyzer.refineProposals(anyList())).thenAnswer(call -> {
+            List<AiProposalDto> members = call.getArgument(0);
+            return Map.of(0, refined(members.get(0)), 2, refined(members.get(2)));
+        });
+
+        List<ProposalRefinementService.RefinementResult> results = service.refineAll(proposals);
+
+        assertThat(results).extracting(result -> result.proposal().title())
+                .containsExactly("Refined P0", "Refined P1", "Refined P2");
+        verify(analyzer, times(1)).refineProposals(anyList());
+        verify(analyzer, times(1)).refineProposal(any(), isNull());
+    }
+
+    @Test
+    void groupsProposalsInOrderWithinTheTokenAndSizeBudgets() {
+        ReflectionTestUtils.setField(service, "groupMaxTokens", 100);
+        ReflectionTestUtils.setField(service, "groupMaxProposals", 3);
+        String small = "word ".repeat(20);   // about 20 tokens
+        String large = "word ".repeat(60);   // about 60 tokens
+        String oversized = "word ".repeat(300);
+
+        List<List<Integer>> groups = service.groupByBudget(List.of(
+                proposal("A", small), proposal("B", small), proposal("C", small), // three is the size cap
+                proposal("D", small), proposal("E", large),
+                proposal("F", "  "),                                             // nothing to send
+                proposal("G", oversized),                                        // over the budget alone
+                proposal("H", large)));                                          // D + E + H pass 100 tokens
+
+        // Singletons go out as they are met; packed groups keep their members in input order
+        assertThat(groups).containsExactly(
+                List.of(0, 1, 2), List.of(5), List.of(6), List.of(3, 4), List.of(7));
+    }
+
+    @Test
+    void fallbacksForAFailedGroupRunConcurrently() {
+        List<AiProposalDto> proposals = proposals(6);
+        when(analyzer.refineProposals(anyList())).thenThrow(new IllegalStateException("malformed JSON"));
+
+        long started = System.nanoTime();
+        List<ProposalRefinementService.RefinementResult> results =
+                assertTimeoutPreemptively(Duration.ofSeconds(10), () -> service.refineAll(proposals));
+        long elapsed = (System.nanoTime() - started) / 1_000_000;
+
+        assertThat(results).extracting(result -> result.proposal().title())
+                .containsExactly("Refined P0", "Refined P1", "Refined P2", "Refined P3", "Refined P4", "Refined P5");
+        // Six single calls side by side take about one call, not six
+        assertThat(elapsed).isLessThan(3 * CALL.toMillis());
+    }
+
+    @Test
+    void aGroupThatBreaksUnexpectedlyStillCompletesEveryProposal() {
+        List<AiProposalDto> proposals = proposals(3);
+        // A null answer is not a failed call: it breaks the group task after the call
+        when(analyzer.refineProposals(anyList())).thenReturn(null);
+
+        List<ProposalRefinementService.RefinementResult> results =
+                assertTimeoutPreemptively(Duration.ofSeconds(10), () -> service.refineAll(proposals));
+
+        assertThat(results).hasSize(3).allMatch(ProposalRefinementService.RefinementResult::failed);
+        assertThat(results).extracting(ProposalRefinementService.RefinementResult::proposal).isEqualTo(proposals);
+    }
+
+    @Test
+    void cancellingABatchInterruptsTheCallsInFlight() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch interrupted = new CountDownLatch(2);
+        doAnswer(call -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return refined(call.getArgument(0));
+        }).when(analyzer).refineProposal(any(), isNull());
+        ReflectionTestUtils.setField(service, "timeout", Duration.ofMinutes(5));
+
+        try (ProposalRefinementService.Batch batch = service.newBatch()) {
+            List<Future<ProposalRefinementService.RefinementResult>> futures =
+                    List.of(batch.submit(proposal("A", "a")), batch.submit(proposal("B", "b")));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            batch.cancel();
+
+            assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+            for (Future<ProposalRefinementService.RefinementResult> future : futures) {
+                assertThatThrownBy(() -> ProposalRefinementService.Batch.await(future))
+                        .isInstanceOf(InterruptedException.class);
+            }
+        }
+    }
+
+    private static List<AiProposalDto> proposals(int count) {
+        List<AiProposalDto> proposals = new ArrayList<>();
+        IntStream.range(0, count).forEach(index -> proposals.add(proposal("P" + index, "Content of slide " + index)));
+        return proposals;
+    }
+
+    private static AiProposalDto proposal(String title, String content) {
+        return new AiProposalDto(null, 1L, "TOPIC", "ADD", title, null, content, "New material", null, null, null);
+    }
+
+    private static AiProposalDto refined(AiProposalDto proposal) {
+        return new AiProposalDto(proposal.targetNodeId(), proposal.parentNodeId(), proposal.nodeType(),
+                proposal.action(), "Refined " + proposal.title(), proposal.nodeNumber(), proposal.content(),
+                proposal.rationale(), proposal.displayOrder(), proposal.componentTypeToUpdate(),
+                proposal.slideContentShouldBe());
+    }
+}
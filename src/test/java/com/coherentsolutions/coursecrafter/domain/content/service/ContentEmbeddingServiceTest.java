@@ -0,0 +1,161 @@
+package com.coherentsolutions.coursecrafter.domain.content.service;
+
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the index/retrieve path against the in-memory SimpleVectorStore with a hashing
+ * bag-of-words embedding, so no embedding API is needed.
+ */
+class ContentEmbeddingServiceTest {
+
+    private ContentEmbeddingService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ContentEmbeddingService(SimpleVectorStore.builder(new HashingEmbeddingModel()).build());
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void findsTheClosestSlideOfTheCourse() {
+        service.indexNodes(List.of(
+                node(1L, "1", ContentNode.NodeType.COURSE, "AI Course", "artificial intelligence course"),
+                node(11L, "1/10/11", ContentNode.NodeType.SLIDE, "Prompt engineering basics",
+                        "Few-shot prompting and chain of thought prompting improve reasoning"),
+                node(12L, "1/10/12", ContentNode.NodeType.SLIDE, "Image generation",
+                        "Diffusion models generate images from text descriptions"),
+                node(13L, "1/10/13", ContentNode.NodeType.TOPIC, "Ethics",
+                        "Bias fairness and responsible use of models")));
+
+        List<ContentEmbeddingService.RelevantNode> relevant =
+                service.findRelevant("new chain of thought prompting research", 1L, 2);
+
+        assertThat(relevant).isNotEmpty();
+        assertThat(relevant.get(0).nodeId()).isEqualTo(11L);
+        assertThat(relevant.get(0).nodeType()).isEqualTo(ContentNode.NodeType.SLIDE);
+        // Courses and lectures are not embedded
+        assertThat(relevant).extracting(ContentEmbeddingService.RelevantNode::nodeId).doesNotContain(1L);
+    }
+
+    @Test
+    void restrictsResultsToTheRequestedCourse() {
+        service.indexNodes(List.of(
+                node(11L, "1/10/11", ContentNode.NodeType.SLIDE, "Prompting", "prompting techniques for models"),
+                node(21L, "2/20/21", ContentNode.NodeType.SLIDE, "Prompting", "prompting techniques for models")));
+
+        assertThat(service.findRelevant("prompting techniques", 2L, 5))
+                .extracting(ContentEmbeddingService.RelevantNode::nodeId)
+                .containsExactly(21L);
+    }
+
+    @Test
+    void reindexReplacesAndRemoveDeletesVectors() {
+        service.indexNodes(List.of(node(11L, "1/10/11", ContentNode.NodeType.SLIDE, "Vectors", "embedding vectors search")));
+        service.indexNodes(List.of(node(11L, "1/10/11", ContentNode.NodeType.SLIDE, "Vectors", "embedding vectors search again")));
+
+        assertThat(service.findRelevant("embedding vectors search", 1L, 5)).hasSize(1);
+
+        service.removeNodes(List.of(11L));
+        assertThat(service.findRelevant("embedding vectors search", 1L, 5)).isEmpty();
+    }
+
+    @Test
+    void defersVectorWritesUntilCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        service.indexNodes(List.of(node(11L, "1/10/11", ContentNode.NodeType.SLIDE, "Tokens", "tokenizer token counting")));
+
+        assertThat(service.findRelevant("token counting", 1L, 5)).isEmpty();
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(service.findRelevant("token counting", 1L, 5))
+                .extracting(ContentEmbeddingService.RelevantNode::nodeId)
+                .containsExactly(11L);
+    }
+
+    private ContentNode node(Long id, String path, ContentNode.NodeType type, String title, String markdown) {
+        return ContentNode.builder()
+                .id(id)
+                .path(path)
+                .nodeType(type)
+                .title(title)
+                .nodeNumber(String.valueOf(id))
+                .markdownContent(markdown)
+                .build();
+    }
+
+    /**
+     * Deterministic stand-in for the OpenAI embedding model: each lower-cased word is hashed
+     * into one of 256 buckets and the vector is L2-normalised, so texts sharing words are close.
+     */
+    static class HashingEmbeddingModel implements EmbeddingModel {
+
+        private static final int DIMENSIONS = 256;
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                embeddings.add(new Embedding(embed(request.getInstructions().get(i)), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getFormattedContent(MetadataMode.EMBED));
+        }
+
+        @Override
+        public float[] embed(String text) {
+            float[] vector = new float[DIMENSIONS];
+            for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+                if (!word.isEmpty()) {
+                    vector[Math.floorMod(word.hashCode(), DIMENSIONS)] += 1f;
+                }
+            }
+            double norm = 0;
+            for (float value : vector) {
+                norm += value * value;
+            }
+            if (norm > 0) {
+                for (int i = 0; i < DIMENSIONS; i++) {
+                    vector[i] /= (float) Math.sqrt(norm);
+                }
+            }
+            return vector;
+        }
+
+        @Override
+        public int dimensions() {
+            return DIMENSIONS;
+        }
+    }
+}
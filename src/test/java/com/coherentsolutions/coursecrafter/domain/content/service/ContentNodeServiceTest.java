@@ -0,0 +1,101 @@
+package com.coherentsolutions.coursecrafter.domain.content.service;
+
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentPaths;
+import com.coherentsolutions.coursecrafter.domain.content.repository.ContentNodeRepository;
+import com.coherentsolutions.coursecrafter.infrastructure.git.GitOperations;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Renumbers slides against a JdbcTemplate that records the statement, and checks that a whole
+ * course or a subtree is renumbered by one UPDATE with the right bindings.
+ */
+class ContentNodeServiceTest {
+
+    private final RecordingJdbcTemplate jdbc = new RecordingJdbcTemplate();
+    private final ContentNodeRepository repository = mock(ContentNodeRepository.class);
+    private final CourseTreeCache courseTreeCache = mock(CourseTreeCache.class);
+    private final ContentNode course = node(1L, null);
+    private final ContentNode lecture = node(5L, course);
+    private ContentNodeService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ContentNodeService(repository, mock(GitOperations.class), repository, jdbc, courseTreeCache,
+                mock(ContentEmbeddingService.class));
+        when(repository.findById(1L)).thenReturn(Optional.of(course));
+        when(repository.findById(5L)).thenReturn(Optional.of(lecture));
+    }
+
+    @Test
+    void aSubtreeContinuesFromTheSlidesBeforeItAndRenumbersTheSlidesAfterIt() {
+        jdbc.changed = 7;
+
+        assertThat(service.renumberSlides(5L)).isEqualTo(7);
+
+        assertThat(jdbc.statements).hasSize(1);
+        Statement renumber = jdbc.statements.get(0);
+        // The whole course is traversed and the lecture marked as the subtree
+        assertThat(renumber.args()).startsWith(5L, 1L, 5L, 5L);
+        assertThat(renumber.sql())
+                .contains("tree.sort_key < subtree.sort_key")
+                // Slides after the lecture are numbered with it, so they cannot overlap its new numbers
+                .contains("tree.in_subtree OR tree.sort_key > subtree.sort_key")
+                .contains("IS DISTINCT FROM");
+        assertThat(renumber.args()).endsWith(10, 1000, 10);
+        verify(courseTreeCache).invalidate(lecture);
+    }
+
+    @Test
+    void aCourseIsItsOwnSubtree() {
+        jdbc.changed = 3;
+
+        assertThat(service.reorderSlidesForCourse(1L)).isEqualTo(3);
+
+        assertThat(jdbc.statements.get(0).args()).startsWith(1L, 1L, 1L, 1L);
+        verify(courseTreeCache).invalidate(course);
+    }
+
+    @Test
+    void nothingChangedLeavesTheCacheAlone() {
+        assertThat(service.renumberSlides(5L)).isZero();
+
+        verify(courseTreeCache, never()).invalidate(any());
+    }
+
+    private static ContentNode node(Long id, ContentNode parent) {
+        return ContentNode.builder()
+                .id(id)
+                .parent(parent)
+                .nodeType(parent == null ? ContentNode.NodeType.COURSE : ContentNode.NodeType.LECTURE)
+                .path(ContentPaths.childPath(parent != null ? parent.getPath() : null, id))
+                .build();
+    }
+
+    private record Statement(String sql, Object[] args) {
+    }
+
+    private static class RecordingJdbcTemplate extends JdbcTemplate {
+        final List<Statement> statements = new ArrayList<>();
+        int changed;
+
+        @Override
+        public int update(String sql, Object... args) {
+            statements.add(new Statement(sql, args));
+            return changed;
+        }
+    }
+}
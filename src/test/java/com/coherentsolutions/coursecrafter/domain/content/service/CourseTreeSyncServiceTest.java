@@ -0,0 +1,375 @@
+package com.coherentsolutions.coursecrafter.domain.content.service;
+
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentPaths;
+import com.coherentsolutions.coursecrafter.domain.content.repository.ContentNodeRepository;
+import com.coherentsolutions.coursecrafter.domain.slide.model.SlideComponent;
+import com.coherentsolutions.coursecrafter.domain.slide.repository.SlideComponentRepository;
+import com.coherentsolutions.coursecrafter.domain.slide.service.SlideComponentService;
+import com.coherentsolutions.coursecrafter.util.MarkdownCourseParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Parses the lecture files in src/test/resources/markdown/sync, stores the result in a fake
+ * JdbcTemplate, then syncs an edited re-parse against it and checks that only the difference
+ * is written.
+ */
+class CourseTreeSyncServiceTest {
+
+    private final StoredCourse db = new StoredCourse();
+    private final CourseBulkImportService bulkImportService = mock(CourseBulkImportService.class);
+    private final ContentEmbeddingService embeddingService = mock(ContentEmbeddingService.class);
+    private final MarkdownCourseParser parser = new MarkdownCourseParser(mock(ContentNodeRepository.class),
+            mock(ContentNodeService.class), mock(SlideComponentService.class), mock(SlideComponentRepository.class));
+    private CourseTreeSyncService service;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        service = new CourseTreeSyncService(db, bulkImportService, mock(CourseTreeCache.class), embeddingService);
+        ReflectionTestUtils.setField(service, "batchSize", 500);
+        // The bulk importer inserts every node the diff left without an id
+        when(bulkImportService.importTree(any())).thenAnswer(call -> newNodes(call.getArgument(0)).size());
+        db.store(parse(UnaryOperator.identity(), UnaryOperator.identity()));
+    }
+
+    @Test
+    void anUnchangedCourseWritesNothing() throws Exception {
+        ContentNode parsed = parse(UnaryOperator.identity(), UnaryOperator.identity());
+
+        CourseTreeSyncService.SyncResult result = service.sync(parsed);
+
+        assertThat(result).isEqualTo(new CourseTreeSyncService.SyncResult(0, 0, 0));
+        assertThat(db.writes).isEmpty();
+        assertThat(newNodes(parsed)).isEmpty();
+        // Matched nodes take the stored ids and paths
+        assertThat(find(parsed, "1.1.1.020").getId()).isEqualTo(db.idOf("1.1.1.020"));
+        assertThat(find(parsed, "1.1.1.020").getPath()).isEqualTo(db.pathOf("1.1.1.020"));
+    }
+
+    @Test
+    void anEditedSlideUpdatesOnlyThatRow() throws Exception {
+        ContentNode parsed = parse(lecture -> lecture.replace("Two examples", "Three examples"), UnaryOperator.identity());
+
+        CourseTreeSyncService.SyncResult result = service.sync(parsed);
+
+        // The lecture, section and topic hold only their own text, so their hashes are unchanged
+        assertThat(result).isEqualTo(new CourseTreeSyncService.SyncResult(0, 1, 0));
+        assertThat(db.writes).containsOnlyKeys("UPDATE content_node");
+        assertThat(db.writes.get("UPDATE content_node")).containsExactly(db.idOf("1.1.1.020"));
+        verify(embeddingService).indexNodes(List.of(find(parsed, "1.1.1.020")));
+    }
+
+    @Test
+    void anEditedComponentUpdatesTheComponentAndItsSlide() throws Exception {
+        ContentNode parsed = parse(lecture -> lecture.replace("Introduce prompts.", "A new script."), UnaryOperator.identity());
+
+        CourseTreeSyncService.SyncResult result = service.sync(parsed);
+
+        // The slide's markdown includes its components
+        SlideComponent script = find(parsed, "1.1.1.010").getSlideComponents().get(0);
+        assertThat(result).isEqualTo(new CourseTreeSyncService.SyncResult(0, 2, 0));
+        assertThat(db.writes).containsOnlyKeys("UPDATE content_node", "UPDATE slide_component");
+        assertThat(db.writes.get("UPDATE content_node")).containsExactly(db.idOf("1.1.1.010"));
+        assertThat(db.writes.get("UPDATE slide_component")).containsExactly(script.getId());
+    }
+
+    @Test
+    void aRenumberedStoredSlideIsRewrittenAlthoughItsHashMatches() throws Exception {
+        db.renumber("1.1.1.020", 1010);
+        ContentNode parsed = parse(UnaryOperator.identity(), UnaryOperator.identity());
+
+        CourseTreeSyncService.SyncResult result = service.sync(parsed);
+
+        assertThat(result).isEqualTo(new CourseTreeSyncService.SyncResult(0, 1, 0));
+        assertThat(db.writes.get("UPDATE content_node")).containsExactly(db.idOf("1.1.1.020"));
+    }
+
+    @Test
+    void anAddedSlideIsInsertedUnderItsStoredTopic() throws Exception {
+        ContentNode parsed = parse(lecture -> lecture.replace("### 1.2. Safety",
+                "##### [seq:030] Chain of thought\n\n###### SCRIPT\nThink step by step.\n\n### 1.2. Safety"),
+                UnaryOperator.identity());
+
+        CourseTreeSyncService.SyncResult result = service.sync(parsed);
+
+        ContentNode added = find(parsed, "1.1.1.030");
+        assertThat(result).isEqualTo(new CourseTreeSyncService.SyncResult(1, 0, 0));
+        assertThat(db.writes).isEmpty();
+        assertThat(newNodes(parsed)).containsExactly(added);
+        // The new slide derives its path from the matched topic's
+        assertThat(find(parsed, "1.1.1").getPath()).isEqualTo(db.pathOf("1.1.1"));
+        verify(embeddingService).indexNodes(List.of(added));
+    }
+
+    @Test
+    void aRemovedSectionIsDeletedWithItsSubtree() throws Exception {
+        ContentNode parsed = parse(lecture -> lecture.substring(0, lecture.indexOf("### 1.2. Safety")),
+                UnaryOperator.identity());
+
+        CourseTreeSyncService.SyncResult result = service.sync(parsed);
+
+        List<Long> removed = List.of(db.idOf("1.2"), db.idOf("1.2.1"), db.idOf("1.2.1.010"));
+        assertThat(result).isEqualTo(new CourseTreeSyncService.SyncResult(0, 0, 3));
+        assertThat(db.writes.get("DELETE FROM content_node")).containsExactlyInAnyOrderElementsOf(removed);
+        assertThat(db.writes.get("DELETE FROM slide_component WHERE slide_node_id"))
+                .containsExactlyInAnyOrderElementsOf(removed);
+        assertThat(db.writes).doesNotContainKeys("UPDATE content_node", "UPDATE slide_component");
+        verify(embeddingService).removeNodes(any());
+    }
+
+    @Test
+    void aRenumberedLectureKeepsItsRowAndLeavesNoDuplicate() throws Exception {
+        ContentNode parsed = parse(UnaryOperator.identity(), CourseTreeSyncServiceTest::renumberLecture2);
+        List<Long> oldSubtree = List.of(db.idOf("2.1"), db.idOf("2.1.1"), db.idOf("2.1.1.010"));
+
+        CourseTreeSyncService.SyncResult result = service.sync(parsed, new CourseTreeSyncService.LectureChanges(
+                Map.of("Lecture 3: Agents", "Lecture 2: Agents"), Set.of()));
+
+        // The lecture row is renamed in place; its renumbered sections replace the old ones
+        assertThat(find(parsed, "Lecture 3: Agents").getId()).isEqualTo(db.idOf("Lecture 2: Agents"));
+        assertThat(result).isEqualTo(new CourseTreeSyncService.SyncResult(3, 1, 3));
+        assertThat(db.writes.get("UPDATE content_node")).containsExactly(db.idOf("Lecture 2: Agents"));
+        assertThat(db.writes.get("DELETE FROM content_node")).containsExactlyInAnyOrderElementsOf(oldSubtree);
+        assertThat(newNodes(parsed)).extracting(ContentNode::getTitle).containsExactly(
+                "3.1. Agents", "3.1.1. Tools", "Calling tools");
+    }
+
+    @Test
+    void aLectureOfARemovedFileIsDeletedWithItsSubtree() throws Exception {
+        Map<String, ContentNode> courses = new HashMap<>();
+        ContentNode parsed = parser.parseFileToGraph(copy("lecture-1.md", UnaryOperator.identity()), courses);
+        List<Long> lecture2 = List.of(db.idOf("Lecture 2: Agents"), db.idOf("2.1"), db.idOf("2.1.1"), db.idOf("2.1.1.010"));
+
+        CourseTreeSyncService.SyncResult result = service.sync(parsed, new CourseTreeSyncService.LectureChanges(
+                Map.of(), Set.of("Lecture 2: Agents")));
+
+        assertThat(result).isEqualTo(new CourseTreeSyncService.SyncResult(0, 0, 4));
+        assertThat(db.writes.get("DELETE FROM content_node")).containsExactlyInAnyOrderElementsOf(lecture2);
+        assertThat(db.writes).doesNotContainKeys("UPDATE content_node", "UPDATE slide_component");
+    }
+
+    @Test
+    void aStoredLectureMissingFromAPartialParseIsLeftAlone() throws Exception {
+        // Only lecture 1 changed, so only its file was parsed
+        Map<String, ContentNode> courses = new HashMap<>();
+        ContentNode parsed = parser.parseFileToGraph(copy("lecture-1.md", UnaryOperator.identity()), courses);
+
+        CourseTreeSyncService.SyncResult result = service.sync(parsed);
+
+        assertThat(result).isEqualTo(new CourseTreeSyncService.SyncResult(0, 0, 0));
+        assertThat(db.writes).isEmpty();
+    }
+
+    @Test
+    void removeLecturesDeletesOnlyTheNamedLectures() {
+        List<Long> lecture2 = List.of(db.idOf("Lecture 2: Agents"), db.idOf("2.1"), db.idOf("2.1.1"), db.idOf("2.1.1.010"));
+
+        int deleted = service.removeLectures("AI Course", Set.of("Lecture 2: Agents", "Lecture 9: Gone"));
+
+        assertThat(deleted).isEqualTo(4);
+        assertThat(db.writes.get("DELETE FROM content_node")).containsExactlyInAnyOrderElementsOf(lecture2);
+        verify(embeddingService).removeNodes(any());
+    }
+
+    private static String renumberLecture2(String lecture) {
+        return lecture.replace("Lecture 2", "Lecture 3").replace("2.1.", "3.1.");
+    }
+
+    /**
+     * Parses the two lecture files of "AI Course", each after the given edit, into one course graph
+     */
+    private ContentNode parse(UnaryOperator<String> editLecture1, UnaryOperator<String> editLecture2) throws Exception {
+        Map<String, ContentNode> courses = new HashMap<>();
+        parser.parseFileToGraph(copy("lecture-1.md", editLecture1), courses);
+        return parser.parseFileToGraph(copy("lecture-2.md", editLecture2), courses);
+    }
+
+    private Path copy(String fixture, UnaryOperator<String> edit) throws Exception {
+        String text = Files.readString(Path.of(getClass().getResource("/markdown/sync/" + fixture).toURI()));
+        return Files.writeString(dir.resolve(fixture), edit.apply(text));
+    }
+
+    private static List<ContentNode> newNodes(ContentNode node) {
+        List<ContentNode> found = new ArrayList<>();
+        if (node.getId() == null) {
+            found.add(node);
+        }
+        node.getChildren().forEach(child -> found.addAll(newNodes(child)));
+        return found;
+    }
+
+    // By node number, or by title for the course and lectures
+    private static ContentNode find(ContentNode node, String key) {
+        if (key.equals(node.getNodeNumber()) || key.equals(node.getTitle())) {
+            return node;
+        }
+        return node.getChildren().stream()
+                .map(child -> find(child, key))
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Holds the stored rows, answers the sync's queries from them and records its writes as
+     * statement prefix to the ids written
+     */
+    private static class StoredCourse extends JdbcTemplate {
+        private final List<Map<String, Object>> nodes = new ArrayList<>();
+        private final List<Map<String, Object>> components = new ArrayList<>();
+        private final Map<String, Long> ids = new HashMap<>();
+        private final Map<String, String> paths = new HashMap<>();
+        final Map<String, List<Long>> writes = new LinkedHashMap<>();
+        private long nextId = 100;
+
+        void store(ContentNode course) {
+            store(course, null);
+        }
+
+        private void store(ContentNode node, Map<String, Object> parent) {
+            long id = nextId++;
+            String path = ContentPaths.childPath(parent != null ? (String) parent.get("path") : null, id);
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", id);
+            row.put("parent_id", parent != null ? parent.get("id") : null);
+            row.put("node_type", node.getNodeType().name());
+            row.put("title", node.getTitle());
+            row.put("node_number", node.getNodeNumber());
+            row.put("display_order", node.getDisplayOrder());
+            row.put("path", path);
+            row.put("content_hash", node.getContentHash());
+            nodes.add(row);
+            String key = node.getNodeNumber() != null ? node.getNodeNumber() : node.getTitle();
+            ids.put(key, id);
+            paths.put(key, path);
+
+            for (SlideComponent component : node.getSlideComponents()) {
+                Map<String, Object> componentRow = new HashMap<>();
+                componentRow.put("id", nextId++);
+                componentRow.put("slide_node_id", id);
+                componentRow.put("component_type", component.getComponentType().name());
+                componentRow.put("display_order", component.getDisplayOrder());
+                componentRow.put("content_hash", component.getContentHash());
+                components.add(componentRow);
+            }
+            node.getChildren().forEach(child -> store(child, row));
+        }
+
+        Long idOf(String key) {
+            return ids.get(key);
+        }
+
+        String pathOf(String key) {
+            return paths.get(key);
+        }
+
+        /**
+         * What slide renumbering does: a new display_order, the content_hash left as it was
+         */
+        void renumber(String key, int displayOrder) {
+            nodes.stream().filter(row -> row.get("id").equals(ids.get(key)))
+                    .forEach(row -> row.put("display_order", displayOrder));
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            // Only the course lookup maps rows
+            List<T> mapped = new ArrayList<>();
+            for (Map<String, Object> row : nodes) {
+                if (row.get("node_type").equals("COURSE") && row.get("title").equals(args[0])) {
+                    try {
+                        mapped.add(rowMapper.mapRow(resultSet(row), mapped.size()));
+                    } catch (SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+            return mapped;
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler handler, Object... args) {
+            List<Map<String, Object>> rows = new ArrayList<>(sql.contains("FROM slide_component") ? components : nodes);
+            rows.sort(Comparator.comparing((Map<String, Object> row) -> (Integer) row.get("display_order"))
+                    .thenComparing(row -> (Long) row.get("id")));
+            for (Map<String, Object> row : rows) {
+                try {
+                    handler.processRow(resultSet(row));
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> setter) {
+            if (!batchArgs.isEmpty()) {
+                String statement = sql.substring(0, sql.indexOf(" SET"));
+                batchArgs.forEach(arg -> writes.computeIfAbsent(statement, k -> new ArrayList<>()).add(
+                        arg instanceof ContentNode node ? node.getId() : ((SlideComponent) arg).getId()));
+            }
+            return new int[0][];
+        }
+
+        @Override
+        public int update(String sql, PreparedStatementSetter setter) {
+            List<Long> written = new ArrayList<>();
+            try {
+                Connection connection = mock(Connection.class);
+                when(connection.createArrayOf(anyString(), any())).thenAnswer(call -> {
+                    Arrays.stream((Object[]) call.getArgument(1)).forEach(id -> written.add((Long) id));
+                    return null;
+                });
+                PreparedStatement statement = mock(PreparedStatement.class);
+                when(statement.getConnection()).thenReturn(connection);
+                setter.setValues(statement);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            writes.computeIfAbsent(sql.substring(0, sql.indexOf(" = ANY")).replace(" WHERE id", ""),
+                    k -> new ArrayList<>()).addAll(written);
+            return written.size();
+        }
+
+        private static ResultSet resultSet(Map<String, Object> row) {
+            return mock(ResultSet.class, invocation -> row.get((String) invocation.getArgument(0)));
+        }
+    }
+}
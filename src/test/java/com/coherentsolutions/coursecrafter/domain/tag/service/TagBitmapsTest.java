@@ -0,0 +1,96 @@
+package com.coherentsolutions.coursecrafter.domain.tag.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TagBitmapsTest {
+
+    private static final long CLAUDE = 100, GPT = 101, BIAS = 102, PROMPTING = 103;
+
+    // Lecture 30 (path "1/30") sorts right after lecture 3's subtree ("1/3/..."), which a scope on 3 must exclude
+    private final TagBitmaps bitmaps = new TagBitmaps(
+            List.of(
+                    node(1, "COURSE", "1"),
+                    node(2, "LECTURE", "1/2"),
+                    node(4, "SLIDE", "1/2/4"),
+                    node(5, "SLIDE", "1/2/5"),
+                    node(3, "LECTURE", "1/3"),
+                    node(6, "SLIDE", "1/3/6"),
+                    node(7, "SLIDE", "1/3/7"),
+                    node(30, "LECTURE", "1/30"),
+                    node(31, "SLIDE", "1/30/31"),
+                    node(99, "SLIDE", null)),
+            List.of(
+                    new TagBitmaps.TagRow(CLAUDE, "Claude", "MODEL"),
+                    new TagBitmaps.TagRow(GPT, "GPT-4", "MODEL"),
+                    new TagBitmaps.TagRow(BIAS, "Bias", "CONCEPT"),
+                    new TagBitmaps.TagRow(PROMPTING, "Prompt Engineering", "SKILL")),
+            List.of(
+                    link(4, CLAUDE), link(4, GPT),
+                    link(6, CLAUDE), link(6, GPT), link(6, PROMPTING),
+                    link(7, CLAUDE), link(7, GPT), link(7, BIAS),
+                    link(31, CLAUDE), link(31, GPT),
+                    link(99, CLAUDE)));
+
+    @Test
+    void evaluatesExpressionsWithinASubtree() {
+        TagFacetIndex.SearchResult result = bitmaps.search(
+                TagExpression.parse("claude AND GPT-4 AND NOT Bias"), 3L, "slide", 10);
+
+        assertThat(result.total()).isEqualTo(1);
+        assertThat(result.nodes()).singleElement().satisfies(hit -> {
+            assertThat(hit.id()).isEqualTo(6L);
+            assertThat(hit.tags()).containsExactly("Claude", "GPT-4", "Prompt Engineering");
+        });
+        assertThat(result.categories()).isEqualTo(Map.of("MODEL", 1, "SKILL", 1));
+    }
+
+    @Test
+    void countsFacetsOverAllMatches() {
+        TagFacetIndex.SearchResult result = bitmaps.search(
+                TagExpression.parse("Claude OR Prompt Engineering"), 1L, null, 2);
+
+        assertThat(result.total()).isEqualTo(4);
+        assertThat(result.nodes()).extracting(TagFacetIndex.NodeHit::id).containsExactly(4L, 6L);
+        assertThat(result.tags()).containsExactly(
+                Map.entry("Claude", 4), Map.entry("GPT-4", 4), Map.entry("Bias", 1), Map.entry("Prompt Engineering", 1));
+        assertThat(result.categories()).containsExactly(
+                Map.entry("MODEL", 4), Map.entry("CONCEPT", 1), Map.entry("SKILL", 1));
+    }
+
+    @Test
+    void addsLinksAndScopesLeafNodes() {
+        assertThat(bitmaps.add(new TagFacetIndex.NodeTag(5, BIAS))).isTrue();
+        assertThat(bitmaps.add(new TagFacetIndex.NodeTag(1000, BIAS))).isFalse();
+
+        assertThat(bitmaps.search(TagExpression.parse("Bias"), 2L, null, 10).nodes())
+                .extracting(TagFacetIndex.NodeHit::id).containsExactly(5L);
+        assertThat(bitmaps.search(null, 5L, null, 10).total()).isEqualTo(1);
+        assertThat(bitmaps.search(TagExpression.parse("Claude"), null, null, 10).total()).isEqualTo(5);
+    }
+
+    @Test
+    void parsesPrecedenceAndMultiWordNames() {
+        assertThat(TagExpression.parse("A OR B C AND NOT (\"D OR E\" OR F)")).isEqualTo(
+                new TagExpression.Or(new TagExpression.Tag("A"), new TagExpression.And(
+                        new TagExpression.Tag("B C"),
+                        new TagExpression.Not(new TagExpression.Or(new TagExpression.Tag("D OR E"), new TagExpression.Tag("F"))))));
+        assertThatThrownBy(() -> TagExpression.parse("A AND")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TagExpression.parse("(A")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> bitmaps.search(TagExpression.parse("Nope"), null, null, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static TagBitmaps.NodeRow node(long id, String type, String path) {
+        return new TagBitmaps.NodeRow(id, type, "Node " + id, path);
+    }
+
+    private static TagFacetIndex.NodeTag link(long nodeId, long tagId) {
+        return new TagFacetIndex.NodeTag(nodeId, tagId);
+    }
+}
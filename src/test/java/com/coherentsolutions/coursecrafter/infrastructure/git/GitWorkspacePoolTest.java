@@ -0,0 +1,218 @@
+package com.coherentsolutions.coursecrafter.infrastructure.git;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Prepares proposal branches in workspaces of a clone of a local bare repository and checks
+ * the results with the git CLI.
+ */
+class GitWorkspacePoolTest {
+
+    @TempDir
+    Path temp;
+
+    private Path remote;
+    private Path work;
+    private GitWorkspacePool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        remote = temp.resolve("remote.git");
+        Path seed = temp.resolve("seed");
+        git(temp, "init", "--bare", "-b", "main", remote.toString());
+        git(temp, "init", "-b", "main", seed.toString());
+        Files.writeString(seed.resolve("Lecture 1.md"), "# Lecture 1\n");
+        Files.createDirectories(seed.resolve("assets/img"));
+        Files.writeString(seed.resolve("assets/img/logo.txt"), "logo\n");
+        Files.createDirectories(seed.resolve("courses/ai"));
+        Files.writeString(seed.resolve("courses/ai/outline.md"), "# Outline\n");
+        git(seed, "add", ".");
+        git(seed, "commit", "-m", "Initial content");
+        git(seed, "push", remote.toString(), "main");
+
+        work = temp.resolve("work");
+        git(temp, "clone", remote.toString(), work.toString());
+        git(work, "config", "user.name", "Test");
+        git(work, "config", "user.email", "test@example.com");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void preparesSeveralBranchesAtOnceWithoutTouchingTheSharedWorkingTree() throws Exception {
+        pool = newPool(GitWorkspacePool.Mode.WORKTREE, 2, this::cli);
+        CountDownLatch bothCheckedOut = new CountDownLatch(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (String branch : List.of("content-update-1", "content-update-2")) {
+                results.add(executor.submit(() -> {
+                    try (GitWorkspace workspace = pool.acquire(branch)) {
+                        bothCheckedOut.countDown();
+                        bothCheckedOut.await();
+                        workspace.writeFile("Lecture 1.md", "# Lecture 1\n\n" + branch + "\n");
+                        workspace.commitAllChanges("Update for " + branch);
+                        workspace.push();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(git(remote, "show", "content-update-1:Lecture 1.md")).isEqualTo("# Lecture 1\n\ncontent-update-1");
+        assertThat(git(remote, "show", "content-update-2:Lecture 1.md")).isEqualTo("# Lecture 1\n\ncontent-update-2");
+        assertThat(git(work, "rev-parse", "--abbrev-ref", "HEAD")).isEqualTo("main");
+        assertThat(git(work, "status", "--porcelain")).isEmpty();
+        assertThat(work.resolve("Lecture 1.md")).hasContent("# Lecture 1");
+        // Local branches go back with their worktrees; the pushed ones stay on the remote
+        assertThat(git(work, "branch", "--list", "content-update-*")).isEmpty();
+        assertThat(pool.getAvailableSlots()).isEqualTo(2);
+    }
+
+    @Test
+    void reusesAReturnedWorktreeFromTheLatestRemoteCommit() throws Exception {
+        pool = newPool(GitWorkspacePool.Mode.WORKTREE, 1, this::cli);
+        Path first;
+        try (GitWorkspace workspace = pool.acquire("content-update-1")) {
+            first = ((WorktreeWorkspace) workspace).root();
+            Files.writeString(first.resolve("scratch.md"), "never committed\n");
+            Files.writeString(first.resolve("Lecture 1.md"), "# Lecture 1\n\nnever committed\n");
+        }
+        // Returned: detached, and the local branch is gone
+        assertThat(git(first, "rev-parse", "--abbrev-ref", "HEAD")).isEqualTo("HEAD");
+        assertThat(git(work, "branch", "--list", "content-update-1")).isEmpty();
+
+        Path other = temp.resolve("other");
+        git(temp, "clone", remote.toString(), other.toString());
+        Files.writeString(other.resolve("Lecture 2.md"), "# Lecture 2\n");
+        git(other, "add", ".");
+        git(other, "commit", "-m", "Add lecture 2");
+        git(other, "push", "origin", "main");
+
+        try (GitWorkspace workspace = pool.acquire("content-update-2")) {
+            assertThat(((WorktreeWorkspace) workspace).root()).isEqualTo(first);
+            assertThat(first.resolve("scratch.md")).doesNotExist();
+            assertThat(first.resolve("Lecture 2.md")).hasContent("# Lecture 2");
+            assertThat(first.resolve("Lecture 1.md")).hasContent("# Lecture 1");
+            assertThat(git(first, "rev-parse", "--abbrev-ref", "HEAD")).isEqualTo("content-update-2");
+            assertThat(git(first, "status", "--porcelain")).isEmpty();
+        }
+        // The switch wrote the worktree's HEAD and index, not those of the main working tree
+        assertThat(git(work, "rev-parse", "--abbrev-ref", "HEAD")).isEqualTo("main");
+        assertThat(git(work, "status", "--porcelain")).isEmpty();
+
+        pool.close();
+        assertThat(first).doesNotExist();
+        assertThat(git(work, "worktree", "list")).doesNotContain(first.toString());
+    }
+
+    @Test
+    void theJGitEngineCommitsInAWorktree() throws Exception {
+        pool = newPool(GitWorkspacePool.Mode.WORKTREE, 1,
+                workTree -> new JGitService(workTree.toString(), "origin", "main", true, cli(workTree)));
+        try (GitWorkspace workspace = pool.acquire("content-update-3")) {
+            workspace.writeFile("Lecture 3.md", "# Lecture 3\n");
+            workspace.commitAllChanges("Add lecture 3");
+            workspace.push();
+
+            assertThat(git(((WorktreeWorkspace) workspace).root(), "status", "--porcelain")).isEmpty();
+        }
+
+        assertThat(git(remote, "ls-tree", "--name-only", "content-update-3"))
+                .isEqualTo("Lecture 1.md\nLecture 3.md\nassets\ncourses");
+        git(work, "fsck", "--strict");
+    }
+
+    @Test
+    void objectWorkspacesCommitWithoutACheckout() throws Exception {
+        pool = newPool(GitWorkspacePool.Mode.OBJECTS, 1, this::cli);
+        String before = Files.readString(work.resolve("Lecture 1.md"));
+        try (GitWorkspace first = pool.acquire("content-update-4");
+             GitWorkspace second = pool.acquire("content-update-5")) {
+            assertThat(first.readFile("courses/ai/outline.md")).isEqualTo("# Outline\n");
+            assertThat(first.exists("courses/ai/missing.md")).isFalse();
+            assertThat(first.exists("courses/ai")).isFalse();
+
+            first.writeFile("courses/ai/outline.md", "# Outline\n\n- Agents\n");
+            first.writeFile("courses/ai/labs/lab-1.md", "# Lab 1\n");
+            // Sorts before the "ai" directory in git's tree order, which fsck checks
+            first.writeFile("courses/ai-notes.md", "# Notes\n");
+            assertThat(first.readFile("courses/ai/outline.md")).isEqualTo("# Outline\n\n- Agents\n");
+            first.commitAllChanges("Update the AI outline");
+            first.push();
+
+            second.writeFile("Lecture 1.md", "# Lecture 1\n\nRevised\n");
+            second.commitAllChanges("Revise lecture 1");
+            second.push();
+        }
+
+        assertThat(git(remote, "show", "content-update-4:courses/ai/outline.md")).isEqualTo("# Outline\n\n- Agents");
+        assertThat(git(remote, "show", "content-update-4:courses/ai/labs/lab-1.md")).isEqualTo("# Lab 1");
+        assertThat(git(remote, "ls-tree", "--name-only", "content-update-4:courses")).isEqualTo("ai-notes.md\nai");
+        assertThat(git(remote, "log", "--format=%s", "-1", "content-update-4")).isEqualTo("Update the AI outline");
+        // Untouched subtrees are reused, not rewritten
+        assertThat(git(remote, "rev-parse", "content-update-4:assets")).isEqualTo(git(remote, "rev-parse", "main:assets"));
+        assertThat(git(remote, "diff", "--name-only", "main", "content-update-5")).isEqualTo("Lecture 1.md");
+        // The shared working tree and its branch were never touched
+        assertThat(Files.readString(work.resolve("Lecture 1.md"))).isEqualTo(before);
+        assertThat(git(work, "status", "--porcelain")).isEmpty();
+        assertThat(git(work, "rev-parse", "--abbrev-ref", "HEAD")).isEqualTo("main");
+        assertThat(git(work, "branch", "--list", "content-update-*")).isEmpty();
+        git(work, "fsck", "--strict");
+    }
+
+    @Test
+    void objectWorkspacesSkipTheCommitWhenNothingChanged() throws Exception {
+        pool = newPool(GitWorkspacePool.Mode.OBJECTS, 1, this::cli);
+        try (GitWorkspace workspace = pool.acquire("content-update-6")) {
+            workspace.writeFile("Lecture 1.md", "# Lecture 1\n");
+            workspace.commitAllChanges("Nothing to see");
+
+            assertThat(git(work, "rev-parse", "content-update-6")).isEqualTo(git(work, "rev-parse", "origin/main"));
+        }
+    }
+
+    private GitWorkspacePool newPool(GitWorkspacePool.Mode mode, int size, Function<Path, GitOperations> engine) {
+        return new GitWorkspacePool(work, "origin", "main", true, mode, temp.resolve("worktrees"), size, engine);
+    }
+
+    private GitCliService cli(Path workTree) {
+        return new GitCliService(workTree.toString(), "origin", "main", true);
+    }
+
+    private static String git(Path directory, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of("git", "-c", "user.name=Test", "-c", "user.email=test@example.com",
+                "-c", "init.defaultBranch=main", "-C", directory.toString()));
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes()).strip();
+        assertThat(process.waitFor()).as("%s: %s", String.join(" ", args), output).isZero();
+        return output;
+    }
+}
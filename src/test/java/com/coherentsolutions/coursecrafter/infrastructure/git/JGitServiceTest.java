@@ -0,0 +1,151 @@
+package com.coherentsolutions.coursecrafter.infrastructure.git;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the JGit engine against a clone of a local bare repository and checks the
+ * results with the git CLI, which must agree with everything the engine wrote.
+ */
+class JGitServiceTest {
+
+    @TempDir
+    Path temp;
+
+    private Path remote;
+    private Path work;
+    private JGitService git;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        remote = temp.resolve("remote.git");
+        Path seed = temp.resolve("seed");
+        git(temp, "init", "--bare", "-b", "main", remote.toString());
+        git(temp, "init", "-b", "main", seed.toString());
+        Files.writeString(seed.resolve("Lecture 1.md"), "# Lecture 1\n\nIntro\n");
+        Files.createDirectories(seed.resolve("assets/img"));
+        Files.writeString(seed.resolve("assets/img/logo.txt"), "logo\n");
+        Files.writeString(seed.resolve(".gitignore"), "*.log\nbuild/\n");
+        git(seed, "add", ".");
+        git(seed, "commit", "-m", "Initial content");
+        git(seed, "push", remote.toString(), "main");
+
+        work = temp.resolve("work");
+        git(temp, "clone", remote.toString(), work.toString());
+        git(work, "config", "user.name", "Test");
+        git(work, "config", "user.email", "test@example.com");
+
+        GitCliService cli = new GitCliService(work.toString(), "origin", "main", true);
+        git = new JGitService(work.toString(), "origin", "main", true, cli);
+    }
+
+    @AfterEach
+    void tearDown() {
+        git.close();
+    }
+
+    @Test
+    void commitsAndPushesAllChangesOnANewBranch() throws Exception {
+        git.createBranch("content-update-1");
+        Files.writeString(work.resolve("Lecture 1.md"), "# Lecture 1\n\nIntro, revised\n");
+        Files.writeString(work.resolve("Lecture 2.md"), "# Lecture 2\n");
+        Files.delete(work.resolve("assets/img/logo.txt"));
+        Files.writeString(work.resolve("debug.log"), "ignored\n");
+        Files.createDirectories(work.resolve("build"));
+        Files.writeString(work.resolve("build/out.md"), "ignored\n");
+
+        git.commitAllChanges("Apply content updates");
+        git.pushBranch("content-update-1");
+
+        // Ignored files stay out of the commit, and git sees nothing left to stage
+        assertThat(git(work, "status", "--porcelain")).isEmpty();
+        assertThat(git(work, "rev-parse", "--abbrev-ref", "HEAD")).isEqualTo("content-update-1");
+        assertThat(git(remote, "show", "content-update-1:Lecture 1.md")).isEqualTo("# Lecture 1\n\nIntro, revised");
+        assertThat(git(remote, "ls-tree", "-r", "--name-only", "content-update-1"))
+                .isEqualTo(".gitignore\nLecture 1.md\nLecture 2.md");
+        assertThat(git(remote, "log", "--format=%s", "content-update-1")).isEqualTo("Apply content updates\nInitial content");
+        git(work, "fsck", "--strict");
+    }
+
+    @Test
+    void skipsTheCommitWhenNothingChanged() throws Exception {
+        git.createBranch("content-update-2");
+        String before = git(work, "rev-parse", "HEAD");
+
+        git.commitAllChanges("Nothing to see");
+
+        assertThat(git(work, "rev-parse", "HEAD")).isEqualTo(before);
+    }
+
+    @Test
+    void createBranchStartsFromTheLatestRemoteDefaultBranch() throws Exception {
+        Path other = temp.resolve("other");
+        git(temp, "clone", remote.toString(), other.toString());
+        Files.writeString(other.resolve("Lecture 3.md"), "# Lecture 3\n");
+        git(other, "add", ".");
+        git(other, "commit", "-m", "Add lecture 3");
+        git(other, "push", "origin", "main");
+
+        git.createBranch("content-update-3");
+
+        assertThat(work.resolve("Lecture 3.md")).hasContent("# Lecture 3");
+        assertThat(git(work, "rev-parse", "main")).isEqualTo(git(other, "rev-parse", "HEAD"));
+        assertThat(git(work, "rev-parse", "HEAD")).isEqualTo(git(other, "rev-parse", "HEAD"));
+        assertThat(git(work, "status", "--porcelain")).isEmpty();
+    }
+
+    @Test
+    void resetToMainDiscardsChangesAndUntrackedFiles() throws Exception {
+        git.createBranch("content-update-4");
+        Files.writeString(work.resolve("Lecture 1.md"), "scratch\n");
+        Files.createDirectories(work.resolve("drafts"));
+        Files.writeString(work.resolve("drafts/new.md"), "draft\n");
+        Files.writeString(work.resolve("debug.log"), "kept, it is ignored\n");
+
+        git.resetToMain();
+
+        assertThat(git(work, "rev-parse", "--abbrev-ref", "HEAD")).isEqualTo("main");
+        assertThat(work.resolve("Lecture 1.md")).hasContent("# Lecture 1\n\nIntro");
+        assertThat(work.resolve("drafts")).doesNotExist();
+        assertThat(work.resolve("debug.log")).exists();
+        assertThat(git(work, "status", "--porcelain")).isEmpty();
+    }
+
+    @Test
+    void oneRepositoryIsKeptOpenUntilTheEngineIsClosed() throws Exception {
+        git.createBranch("content-update-5");
+        Object opened = ReflectionTestUtils.getField(git, "repository");
+        Files.writeString(work.resolve("Lecture 2.md"), "# Lecture 2\n");
+
+        git.commitAllChanges("Add lecture 2");
+
+        assertThat(opened).isNotNull();
+        assertThat(ReflectionTestUtils.getField(git, "repository")).isSameAs(opened);
+        git.close();
+        assertThat(ReflectionTestUtils.getField(git, "repository")).isNull();
+        // A closed engine opens the repository again when it is used
+        git.resetToMain();
+        assertThat(git(work, "rev-parse", "--abbrev-ref", "HEAD")).isEqualTo("main");
+    }
+
+    private static String git(Path directory, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of("git", "-c", "user.name=Test", "-c", "user.email=test@example.com",
+                "-c", "init.defaultBranch=main", "-C", directory.toString()));
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes()).strip();
+        assertThat(process.waitFor()).as("%s: %s", String.join(" ", args), output).isZero();
+        return output;
+    }
+}
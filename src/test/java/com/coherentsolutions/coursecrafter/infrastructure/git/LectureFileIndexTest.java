@@ -0,0 +1,145 @@
+package com.coherentsolutions.coursecrafter.infrastructure.git;
+
+import com.coherentsolutions.coursecrafter.domain.content.model.ContentNode;
+import com.coherentsolutions.coursecrafter.util.MarkdownBlock;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Splices proposals into a lecture file and checks every offset the index kept against an
+ * index scanned from the resulting text.
+ */
+class LectureFileIndexTest {
+
+    private static final String LECTURE = """
+            # AI Course
+
+            ## Lecture 1. Introduction
+
+            Lecture intro
+
+            ### 1.1. Foundations
+
+            #### 1.1.1. History
+
+            Topic intro
+
+            ##### [seq:010] Early Days
+
+            ###### SCRIPT
+            Dartmouth, 1956
+
+            ##### [seq:020] Winters
+
+            ###### SCRIPT
+            Funding dried up
+
+            ---
+
+            #### 1.1.2. Today
+
+            ##### [seq:030] Transformers
+
+            ###### SCRIPT
+            Attention
+            """;
+
+    @Test
+    void updatesReplaceOnlyTheBlocksOwnRange() {
+        LectureFileIndex index = LectureFileIndex.build(LECTURE);
+
+        LectureFileIndex.Block slide = index.find(node(1L, ContentNode.NodeType.SLIDE, "Winters", 20));
+        assertThat(index.replace(slide, "##### [seq:020] AI Winters\n\n###### SCRIPT\nTwo of them\n",
+                "AI Winters", 20)).isTrue();
+        LectureFileIndex.Block topic = index.find(node(2L, ContentNode.NodeType.TOPIC, "History", null));
+        index.replace(topic, "#### History of AI\n\nA longer\ntopic intro\n", "History of AI", null);
+
+        assertThat(index.text())
+                .contains("#### History of AI\n\nA longer\ntopic intro\n\n##### [seq:010] Early Days")
+                .contains("##### [seq:020] AI Winters\n\n###### SCRIPT\nTwo of them\n\n---\n\n#### 1.1.2. Today")
+                .doesNotContain("Funding dried up");
+        // Found by id after the title changed
+        assertThat(index.find(node(1L, ContentNode.NodeType.SLIDE, "Winters", 20))).isSameAs(slide);
+        assertThat(index.replace(slide, "##### [seq:020] AI Winters\n\n###### SCRIPT\nTwo of them", "AI Winters", 20))
+                .isFalse();
+        assertMatchesRescan(index);
+    }
+
+    @Test
+    void additionsAreOrderedWithinTheParent() {
+        LectureFileIndex index = LectureFileIndex.build(LECTURE);
+
+        LectureFileIndex.Block history = index.find(node(2L, ContentNode.NodeType.TOPIC, "History", null));
+        LectureFileIndex.Block between = history.children().get(1);
+        index.insert(history, between.start(), "##### [seq:015] Perceptrons\n\n###### SCRIPT\nRosenblatt",
+                MarkdownBlock.Kind.SLIDE, "Perceptrons", 15);
+        index.insert(history, history.children().get(2).end(), "##### [seq:025] Deep Learning",
+                MarkdownBlock.Kind.SLIDE, "Deep Learning", 25);
+        LectureFileIndex.Block section = index.find(node(3L, ContentNode.NodeType.SECTION, "Foundations", null));
+        index.insert(section, section.end(), "#### 1.1.3. Tomorrow\n\nOutlook", MarkdownBlock.Kind.TOPIC, "1.1.3. Tomorrow", null);
+
+        String text = index.text();
+        assertThat(text.indexOf("Early Days")).isLessThan(text.indexOf("Perceptrons"));
+        assertThat(text.indexOf("Perceptrons")).isLessThan(text.indexOf("[seq:020] Winters"));
+        assertThat(text.indexOf("Funding dried up")).isLessThan(text.indexOf("Deep Learning"));
+        assertThat(text.indexOf("Deep Learning")).isLessThan(text.indexOf("1.1.2. Today"));
+        assertThat(text).endsWith("Attention\n\n#### 1.1.3. Tomorrow\n\nOutlook\n");
+        assertThat(history.children()).extracting(LectureFileIndex.Block::seq).containsExactly(10, 15, 20, 25);
+        assertMatchesRescan(index);
+    }
+
+    @Test
+    void insertedHeadingsAreIndexedOnTheNextLookup() {
+        LectureFileIndex index = LectureFileIndex.build(LECTURE);
+
+        LectureFileIndex.Block section = index.find(node(3L, ContentNode.NodeType.SECTION, "Foundations", null));
+        index.insert(section, section.end(), "#### 1.1.3. Tomorrow\n\n##### [seq:040] Agents\n\nText",
+                MarkdownBlock.Kind.TOPIC, "1.1.3. Tomorrow", null);
+
+        assertThat(index.find(node(null, ContentNode.NodeType.SLIDE, "Agents", 40))).isNotNull();
+        assertMatchesRescan(index);
+    }
+
+    @Test
+    void cachedNodesAreFoundByIdAfterARebuild() {
+        LectureFileIndex index = LectureFileIndex.build(LECTURE);
+        LectureFileIndex.Block topic = index.find(node(2L, ContentNode.NodeType.TOPIC, "History", null));
+        index.find(node(1L, ContentNode.NodeType.SLIDE, "Winters", 20));
+
+        // The nested slide makes the index stale, so the next lookup rebuilds it
+        index.replace(topic, "#### History of AI\n\nIntro\n\n##### [seq:005] Automata\n\n###### SCRIPT\nClockwork",
+                "History of AI", null);
+
+        // A second proposal for the topic still carries the stored title, which no header matches any more
+        LectureFileIndex.Block rebuilt = index.find(node(2L, ContentNode.NodeType.TOPIC, "History", null));
+        assertThat(rebuilt).isNotNull().isNotSameAs(topic);
+        assertThat(rebuilt.title()).isEqualTo("History of AI");
+        assertThat(rebuilt.children()).extracting(LectureFileIndex.Block::seq).containsExactly(5, 10, 20);
+        assertThat(index.find(node(1L, ContentNode.NodeType.SLIDE, "Renamed elsewhere", 20)))
+                .returns("Winters", LectureFileIndex.Block::title);
+        assertMatchesRescan(index);
+    }
+
+    private static void assertMatchesRescan(LectureFileIndex index) {
+        List<LectureFileIndex.Block> kept = index.blocks();
+        List<LectureFileIndex.Block> scanned = LectureFileIndex.build(index.text()).blocks();
+        assertThat(kept).hasSameSizeAs(scanned);
+        for (int i = 0; i < kept.size(); i++) {
+            LectureFileIndex.Block expected = scanned.get(i);
+            assertThat(kept.get(i)).as("block %s", expected.title())
+                    .returns(expected.kind(), LectureFileIndex.Block::kind)
+                    .returns(expected.title(), LectureFileIndex.Block::title)
+                    .returns(expected.seq(), LectureFileIndex.Block::seq)
+                    .returns(expected.start(), LectureFileIndex.Block::start)
+                    .returns(expected.ownEnd(), LectureFileIndex.Block::ownEnd)
+                    .returns(expected.end(), LectureFileIndex.Block::end);
+        }
+    }
+
+    private static ContentNode node(Long id, ContentNode.NodeType type, String title, Integer displayOrder) {
+        return ContentNode.builder().id(id).nodeType(type).title(title).displayOrder(displayOrder).build();
+    }
+}
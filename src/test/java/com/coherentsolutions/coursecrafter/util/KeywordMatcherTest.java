@@ -0,0 +1,65 @@
+package com.coherentsolutions.coursecrafter.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeywordMatcherTest {
+
+    private static final Map<String, String> DICTIONARY = new LinkedHashMap<>();
+
+    static {
+        DICTIONARY.put("ChatGPT", "GPT-4");
+        DICTIONARY.put("GPT-4", "GPT-4");
+        DICTIONARY.put("prompt", "Prompt Engineering");
+        DICTIONARY.put("system prompt", "System Prompts");
+        DICTIONARY.put("API", "API Integration");
+        DICTIONARY.put("AI language model", "LLM");
+        DICTIONARY.put("LLM", "LLM");
+        DICTIONARY.put("multi-agent", "Multi-agent AI");
+        DICTIONARY.put("C++", "C++");
+        DICTIONARY.put("-4", "Minus four");
+    }
+
+    private final KeywordMatcher<String> matcher = KeywordMatcher.of(DICTIONARY);
+
+    @Test
+    void matchesWholeWordsIgnoringCase() {
+        assertThat(matcher.findAll("Write a System Prompt for chatgpt, then call the api."))
+                .containsExactly("System Prompts", "Prompt Engineering", "GPT-4", "API Integration");
+        assertThat(matcher.findAll("prompts, APIs and LLMs")).isEmpty();
+        assertThat(matcher.findAll("GPT-45 is not GPT-4")).containsExactly("GPT-4", "Minus four");
+        assertThat(matcher.findAll("a multi-agent setup")).containsExactly("Multi-agent AI");
+    }
+
+    @Test
+    void agreesWithPerKeywordRegexes() {
+        Random random = new Random(42);
+        String[] pieces = {"chat", "GPT", "-4", "5", " ", "prompt", "System ", "API", "_", "llm", "C++", "c",
+                "multi", "-", "agent", "AI language model", ".", "é", "\n"};
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = random.nextInt(12); j >= 0; j--) {
+                text.append(pieces[random.nextInt(pieces.length)]);
+            }
+            assertThat(new TreeSet<>(matcher.findAll(text))).as(text.toString()).isEqualTo(regexMatches(text));
+        }
+    }
+
+    private static Set<String> regexMatches(CharSequence text) {
+        Set<String> tags = new TreeSet<>();
+        DICTIONARY.forEach((keyword, tag) -> {
+            if (Pattern.compile("\\b" + Pattern.quote(keyword) + "\\b", Pattern.CASE_INSENSITIVE).matcher(text).find()) {
+                tags.add(tag);
+            }
+        });
+        return tags;
+    }
+}
@@ -0,0 +1,154 @@
+package com.coherentsolutions.coursecrafter.util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Scans the fixture course in src/test/resources/markdown and checks the block tree and the
+ * offsets each block starts and ends at.
+ */
+class MarkdownCourseScannerTest {
+
+    private static CharSequence text;
+    private static MarkdownBlock course;
+
+    @BeforeAll
+    static void scanFixture() throws Exception {
+        Path fixture = Path.of(MarkdownCourseScannerTest.class.getResource("/markdown/scanner-course.md").toURI());
+        text = MarkdownCourseScanner.read(fixture);
+        course = MarkdownCourseScanner.outline(text);
+    }
+
+    @Test
+    void buildsTheHeadingTree() {
+        assertThat(course.getKind()).isEqualTo(MarkdownBlock.Kind.COURSE);
+        assertThat(course.title(text)).isEqualTo("Prompt Engineering Course");
+        assertThat(course.getChildren()).extracting(block -> block.title(text))
+                .containsExactly("Lecture 1: Foundations", "Lecture 2: Practice");
+
+        MarkdownBlock lecture = course.getChildren().get(0);
+        assertThat(lecture.getChildren()).extracting(block -> block.title(text))
+                .containsExactly("1.1. Why Prompts Matter", "1.2. Closing Section");
+        MarkdownBlock section = lecture.getChildren().get(0);
+        assertThat(section.getChildren()).extracting(MarkdownBlock::getKind, block -> block.title(text))
+                .containsExactly(
+                        tuple(MarkdownBlock.Kind.TOPIC, "1.1.1. First Principles"),
+                        tuple(MarkdownBlock.Kind.TOPIC, "1.1.2. Second Topic"));
+    }
+
+    @Test
+    void slidesCarryTheirSequenceAndComponents() {
+        MarkdownBlock topic = topic();
+        assertThat(topic.getChildren()).extracting(block -> block.seqText(text), block -> block.title(text))
+                .containsExactly(
+                        tuple("010", "What Is a Prompt"),
+                        tuple("020", "Roles"));
+
+        MarkdownBlock slide = topic.getChildren().get(0);
+        assertThat(slide.childrenOfKind(MarkdownBlock.Kind.COMPONENT)).extracting(MarkdownBlock::getComponentType)
+                .containsExactly("SCRIPT", "VISUAL");
+        assertThat(slide.getChildren().get(0).body(text)).isEqualTo("Say hello to the audience.");
+        // Unknown H6 types and #tags are plain text of the component they appear in
+        assertThat(slide.getChildren().get(1).body(text)).isEqualTo("""
+                A diagram of a prompt.
+                #hashtag is plain text
+
+                ###### FOOTNOTE
+                Not a component type, so it stays in the visual.""");
+    }
+
+    @Test
+    void blocksEndWhereTheNextHeadingOfTheSameOrAHigherLevelStarts() {
+        MarkdownBlock lecture = course.getChildren().get(0);
+        assertThat(lecture.getStart()).isEqualTo(lineOf("## Lecture 1"));
+        assertThat(lecture.getEnd()).isEqualTo(lineOf("## Lecture 2"));
+        assertThat(lecture.getChildren().get(0).getEnd()).isEqualTo(lineOf("### 1.2."));
+        assertThat(topic().getEnd()).isEqualTo(lineOf("#### 1.1.2."));
+
+        // A slide without a [seq:NNN] is not a slide, so it does not end the one before it
+        MarkdownBlock roles = topic().getChildren().get(1);
+        assertThat(roles.getEnd()).isEqualTo(lineOf("#### 1.1.2."));
+        assertThat(roles.body(text)).endsWith("##### Missing sequence is not a slide");
+    }
+
+    @Test
+    void aSeparatorEndsTheSlideAndItsLastComponent() {
+        MarkdownBlock slide = topic().getChildren().get(0);
+        assertThat(slide.getEnd()).isEqualTo(lineOf("---"));
+        assertThat(slide.getChildren().get(1).getEnd()).isEqualTo(lineOf("---"));
+        // The text after the separator stays in the topic
+        assertThat(topic().body(text)).contains("Text after the separator belongs to the topic.");
+    }
+
+    @Test
+    void ownTextEndsAtTheFirstChild() {
+        MarkdownBlock lecture = course.getChildren().get(0);
+        assertThat(course.ownText(text)).isEqualTo("# Prompt Engineering Course\n\nCourse introduction.");
+        assertThat(lecture.ownText(text)).isEqualTo("## Lecture 1: Foundations");
+        assertThat(topic().ownText(text)).isEqualTo("#### 1.1.1. First Principles");
+        // Without children it is the whole block
+        MarkdownBlock closing = lecture.getChildren().get(1);
+        assertThat(closing.ownText(text)).isEqualTo(closing.fullBlock(text));
+    }
+
+    @Test
+    void componentHeadingsOutsideASlideAreIgnored() {
+        MarkdownBlock secondTopic = course.getChildren().get(0).getChildren().get(0).getChildren().get(1);
+        assertThat(secondTopic.getChildren()).isEmpty();
+        assertThat(secondTopic.body(text)).isEqualTo("""
+                ###### SCRIPT
+                Not inside a slide, so not a component.""");
+    }
+
+    @Test
+    void textAfterTheLastChildRunsToTheEndOfTheFile() {
+        MarkdownBlock lecture = course.getChildren().get(1);
+        MarkdownBlock slide = lecture.getChildren().get(0);
+        assertThat(slide.getKind()).isEqualTo(MarkdownBlock.Kind.SLIDE);
+        assertThat(slide.getEnd()).isEqualTo(text.length());
+        assertThat(lecture.getEnd()).isEqualTo(text.length());
+        assertThat(course.getEnd()).isEqualTo(text.length());
+        assertThat(slide.body(text)).isEqualTo("Trailing text after the last child.");
+    }
+
+    @Test
+    void offsetsPointAtTheHeaderLineAndTheBodyAfterIt() {
+        List<MarkdownBlock> blocks = new ArrayList<>();
+        MarkdownCourseScanner.scan(text, new MarkdownCourseScanner.Listener() {
+            @Override
+            public void onOpen(MarkdownBlock block) {
+                blocks.add(block);
+            }
+
+            @Override
+            public void onClose(MarkdownBlock block) {
+                assertThat(block.getEnd()).isGreaterThanOrEqualTo(block.getBodyStart());
+            }
+        });
+
+        assertThat(blocks).hasSize(12);
+        for (MarkdownBlock block : blocks) {
+            assertThat(text.charAt(block.getStart())).isEqualTo('#');
+            assertThat(block.getStart() == 0 || text.charAt(block.getStart() - 1) == '\n').isTrue();
+            assertThat(text.charAt(block.getBodyStart() - 1)).isEqualTo('\n');
+            assertThat(block.fullBlock(text)).startsWith(block.headerLine(text));
+        }
+    }
+
+    private static MarkdownBlock topic() {
+        return course.getChildren().get(0).getChildren().get(0).getChildren().get(0);
+    }
+
+    private static int lineOf(String prefix) {
+        int index = text.toString().indexOf("\n" + prefix);
+        assertThat(index).as("line starting with %s", prefix).isNotNegative();
+        return index + 1;
+    }
+}